@@ -30,7 +30,6 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.net.URI;
 import java.net.URL;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -54,17 +53,7 @@ public class BytecodeUtil {
                 Double min,
                 Double max,
                 Map<String, String> properties) {
-              delegate.trackMetric(
-                  null,
-                  name,
-                  value,
-                  count,
-                  min,
-                  max,
-                  null,
-                  properties,
-                  Collections.emptyMap(),
-                  null);
+              delegate.trackMicrometerMetric(name, value, count, min, max, properties);
             }
           });
     }
@@ -294,6 +283,15 @@ public class BytecodeUtil {
         Map<String, String> tags,
         @Nullable String instrumentationKey);
 
+    // see MicrometerUtil.MicrometerUtilDelegate
+    void trackMicrometerMetric(
+        String name,
+        double value,
+        Integer count,
+        Double min,
+        Double max,
+        Map<String, String> properties);
+
     void trackDependency(
         @Nullable Date timestamp,
         String name,
@@ -45,6 +45,7 @@ public class MicrometerUtil {
 
   public interface MicrometerUtilDelegate {
 
+    // the same (unmodifiable) properties map is passed on every publish of a given meter
     void trackMetric(
         String name,
         double value,
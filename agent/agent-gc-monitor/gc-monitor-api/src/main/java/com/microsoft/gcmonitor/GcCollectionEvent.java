@@ -24,10 +24,12 @@ package com.microsoft.gcmonitor;
 import com.microsoft.gcmonitor.garbagecollectors.GarbageCollector;
 import com.microsoft.gcmonitor.memorypools.MemoryPool;
 import java.lang.management.MemoryUsage;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
-/** A garbage collection event reported by a gc mxbean. */
+/** A garbage collection event reported by a gc mxbean or by JFR. */
 public interface GcCollectionEvent {
   /** Returns the memory usage before the collection for the given memory pool. */
   MemoryUsage getMemoryUsageBeforeGc(MemoryPool pools);
@@ -67,4 +69,19 @@ public interface GcCollectionEvent {
 
   /** Returns the young pools of this JVM. */
   List<MemoryPool> getYoungPools();
+
+  /** Total time in ns the application was paused by the collection, or -1 if not known. */
+  default long getSumOfPausesNanos() {
+    return -1;
+  }
+
+  /** Longest single pause in ns of the collection, or -1 if not known. */
+  default long getLongestPauseNanos() {
+    return -1;
+  }
+
+  /** Time in ns spent in each phase of the collection pauses keyed by phase name, if known. */
+  default Map<String, Long> getPausePhasesNanos() {
+    return Collections.emptyMap();
+  }
 }
@@ -22,6 +22,7 @@
 package com.microsoft.gcmonitor;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 import javax.management.MBeanServerConnection;
 
 /** Service loader interface. */
@@ -29,6 +30,17 @@ public interface GcMonitorFactory {
   MemoryManagement monitorSelf(ExecutorService executorService, GcEventConsumer consumer)
       throws UnableToMonitorMemoryException;
 
+  /**
+   * Same as {@link #monitorSelf(ExecutorService, GcEventConsumer)}, except that an event source
+   * that blocks for as long as it is monitoring (e.g. a JFR event stream) is run on its own thread
+   * from the given thread factory, instead of holding on to one of the executor's threads.
+   */
+  default MemoryManagement monitorSelf(
+      ExecutorService executorService, ThreadFactory threadFactory, GcEventConsumer consumer)
+      throws UnableToMonitorMemoryException {
+    return monitorSelf(executorService, consumer);
+  }
+
   MemoryManagement monitor(
       MBeanServerConnection connection, ExecutorService executorService, GcEventConsumer consumer)
       throws UnableToMonitorMemoryException;
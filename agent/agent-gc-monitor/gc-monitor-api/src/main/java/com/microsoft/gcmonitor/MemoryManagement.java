@@ -44,4 +44,7 @@ public interface MemoryManagement {
 
   /** Returns the memory management group that manages this JVM. */
   MemoryManagers getCollectorGroup();
+
+  /** Stops the event sources that run on their own thread, e.g. a JFR event stream. */
+  default void close() {}
 }
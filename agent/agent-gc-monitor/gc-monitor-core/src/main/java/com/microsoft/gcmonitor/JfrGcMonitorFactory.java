@@ -0,0 +1,82 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.gcmonitor;
+
+import com.google.auto.service.AutoService;
+import com.microsoft.gcmonitor.jfr.JfrEventStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import javax.management.MBeanServerConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Monitors gc events via JFR event streaming when it is available (JDK 14+), which also reports the
+ * individual pause times of a collection. Falls back to the gc mxbean notifications otherwise, or
+ * when the {@code applicationinsights.gc.monitor} system property is set to {@code jmx}.
+ */
+@AutoService(GcMonitorFactory.class)
+public class JfrGcMonitorFactory implements GcMonitorFactory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JfrGcMonitorFactory.class);
+
+  // JFR event streaming keeps a recording running for as long as gc events are monitored, this
+  // allows going back to the gc mxbean notifications
+  public static final String GC_MONITOR_PROPERTY = "applicationinsights.gc.monitor";
+
+  private final GcMonitorFactory jmxFactory = new JmxGcMonitorFactory();
+  private final boolean jfrEnabled =
+      !"jmx".equalsIgnoreCase(System.getProperty(GC_MONITOR_PROPERTY));
+
+  @Override
+  public MemoryManagement monitorSelf(ExecutorService executorService, GcEventConsumer consumer)
+      throws UnableToMonitorMemoryException {
+    return monitorSelf(executorService, JfrGcMonitorFactory::newDaemonThread, consumer);
+  }
+
+  @Override
+  public MemoryManagement monitorSelf(
+      ExecutorService executorService, ThreadFactory threadFactory, GcEventConsumer consumer)
+      throws UnableToMonitorMemoryException {
+    if (jfrEnabled && JfrEventStream.isAvailable()) {
+      try {
+        return JfrMemoryManagement.create(threadFactory, consumer);
+      } catch (UnableToMonitorMemoryException e) {
+        LOGGER.debug("Unable to monitor gc events via JFR, using gc mxbean notifications", e);
+      }
+    }
+    return jmxFactory.monitorSelf(executorService, consumer);
+  }
+
+  @Override
+  public MemoryManagement monitor(
+      MBeanServerConnection connection, ExecutorService executorService, GcEventConsumer consumer)
+      throws UnableToMonitorMemoryException {
+    // JFR event streaming is only available in-process
+    return jmxFactory.monitor(connection, executorService, consumer);
+  }
+
+  private static Thread newDaemonThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, "JfrGcMonitor");
+    thread.setDaemon(true);
+    return thread;
+  }
+}
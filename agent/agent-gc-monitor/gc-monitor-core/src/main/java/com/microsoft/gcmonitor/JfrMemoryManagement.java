@@ -0,0 +1,98 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.gcmonitor;
+
+import com.microsoft.gcmonitor.collectors.JfrGcEventProcessor;
+import com.microsoft.gcmonitor.jfr.JfrEventStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of MemoryManagement that reports gc events from a JFR event stream instead of the
+ * gc mxbean notifications. The memory pools and collectors are still discovered via their mxbeans.
+ */
+public class JfrMemoryManagement extends JmxMemoryManagement {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JfrMemoryManagement.class);
+
+  @Nullable private volatile JfrEventStream stream;
+  private volatile boolean closed;
+
+  public static JfrMemoryManagement create(ThreadFactory threadFactory, GcEventConsumer consumer)
+      throws UnableToMonitorMemoryException {
+    JfrMemoryManagement memoryManagement = new JfrMemoryManagement();
+    memoryManagement.init(ManagementFactory.getPlatformMBeanServer(), consumer);
+    memoryManagement.monitorJfr(threadFactory, consumer);
+    return memoryManagement;
+  }
+
+  // the stream blocks its thread for as long as it is open, so it gets a thread of its own instead
+  // of holding on to one of the (shared) executor threads
+  private void monitorJfr(ThreadFactory threadFactory, GcEventConsumer consumer)
+      throws UnableToMonitorMemoryException {
+    if (!JfrGcEventProcessor.isSupported(getCollectorGroup())) {
+      throw new UnableToMonitorMemoryException(
+          "JFR does not report the memory pools of " + getCollectorGroup());
+    }
+    JfrGcEventProcessor processor =
+        new JfrGcEventProcessor(
+            this,
+            getCollectorStats(),
+            consumer,
+            ManagementFactory.getRuntimeMXBean().getStartTime());
+
+    JfrEventStream stream = new JfrEventStream();
+    try {
+      processor.subscribe(stream);
+    } catch (UnableToMonitorMemoryException e) {
+      stream.close();
+      throw e;
+    }
+    this.stream = stream;
+    threadFactory
+        .newThread(
+            () -> {
+              try {
+                stream.start();
+              } catch (UnableToMonitorMemoryException e) {
+                if (closed) {
+                  // closed before it was started
+                  LOGGER.debug("JFR gc event stream was closed", e);
+                } else {
+                  LOGGER.error("Error while reading JFR gc events", e);
+                }
+              }
+            })
+        .start();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    JfrEventStream stream = this.stream;
+    if (stream != null) {
+      stream.close();
+    }
+  }
+}
@@ -21,12 +21,11 @@
 
 package com.microsoft.gcmonitor;
 
-import com.google.auto.service.AutoService;
 import java.lang.management.ManagementFactory;
 import java.util.concurrent.ExecutorService;
 import javax.management.MBeanServerConnection;
 
-@AutoService(GcMonitorFactory.class)
+/** Monitors gc events via the gc mxbean notifications. */
 public class JmxGcMonitorFactory implements GcMonitorFactory {
 
   @Override
@@ -160,6 +160,10 @@ public class JmxMemoryManagement implements MemoryManagement {
     }
   }
 
+  Set<JmxGarbageCollectorStats> getCollectorStats() {
+    return collectors;
+  }
+
   @Override
   public Collection<MemoryPool> getPools() {
     return unmodifiableCollection(pools);
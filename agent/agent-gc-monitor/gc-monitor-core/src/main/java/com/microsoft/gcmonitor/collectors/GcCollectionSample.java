@@ -110,7 +110,7 @@ class GcCollectionSample implements GcCollectionEvent {
     return aggregateMemoryPools(pools, memoryUsageBeforeGc);
   }
 
-  private static MemoryUsage aggregateMemoryPools(
+  static MemoryUsage aggregateMemoryPools(
       List<MemoryPool> pools, Map<MemoryPool, MemoryUsage> pool) {
     return pools.stream()
         .map(pool::get)
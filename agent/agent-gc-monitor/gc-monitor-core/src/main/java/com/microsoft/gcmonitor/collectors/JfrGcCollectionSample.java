@@ -0,0 +1,169 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.gcmonitor.collectors;
+
+import com.microsoft.gcmonitor.GcCollectionEvent;
+import com.microsoft.gcmonitor.garbagecollectors.GarbageCollector;
+import com.microsoft.gcmonitor.memorypools.MemoryPool;
+import java.lang.management.MemoryUsage;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/** Implementation of a single GCCollectionEvent formed from JFR events. */
+class JfrGcCollectionSample implements GcCollectionEvent {
+
+  private final long id;
+  private final int gcThreadCount;
+  private final long duration;
+  private final long endTime;
+  private final GarbageCollector collector;
+  private final String gcCause;
+  private final String gcAction;
+  private final long sumOfPausesNanos;
+  private final long longestPauseNanos;
+  private final Map<String, Long> pausePhasesNanos;
+
+  private final Map<MemoryPool, MemoryUsage> memoryUsageBeforeGc;
+  private final Map<MemoryPool, MemoryUsage> memoryUsageAfterGc;
+
+  JfrGcCollectionSample(
+      long id,
+      int gcThreadCount,
+      long duration,
+      long endTime,
+      GarbageCollector collector,
+      String gcCause,
+      long sumOfPausesNanos,
+      long longestPauseNanos,
+      Map<String, Long> pausePhasesNanos,
+      Map<MemoryPool, MemoryUsage> memoryUsageBeforeGc,
+      Map<MemoryPool, MemoryUsage> memoryUsageAfterGc) {
+    this.id = id;
+    this.gcThreadCount = gcThreadCount;
+    this.duration = duration;
+    this.endTime = endTime;
+    this.collector = collector;
+    this.gcCause = gcCause;
+    this.gcAction = getGcAction(collector);
+    this.sumOfPausesNanos = sumOfPausesNanos;
+    this.longestPauseNanos = longestPauseNanos;
+    this.pausePhasesNanos = Collections.unmodifiableMap(pausePhasesNanos);
+    this.memoryUsageBeforeGc = Collections.unmodifiableMap(memoryUsageBeforeGc);
+    this.memoryUsageAfterGc = Collections.unmodifiableMap(memoryUsageAfterGc);
+  }
+
+  // same values as reported in the gc mxbean notifications
+  private static String getGcAction(GarbageCollector collector) {
+    if (collector.isTenuredCollector() && !collector.isYoungCollector()) {
+      return "end of major GC";
+    } else if (collector.isYoungCollector() && !collector.isTenuredCollector()) {
+      return "end of minor GC";
+    } else {
+      return "end of GC cycle";
+    }
+  }
+
+  @Override
+  public MemoryUsage getMemoryUsageBeforeGc(MemoryPool pool) {
+    return memoryUsageBeforeGc.get(pool);
+  }
+
+  @Override
+  public MemoryUsage getMemoryUsageBeforeGc(List<MemoryPool> pools) {
+    return GcCollectionSample.aggregateMemoryPools(pools, memoryUsageBeforeGc);
+  }
+
+  @Override
+  public MemoryUsage getMemoryUsageAfterGc(MemoryPool pool) {
+    return memoryUsageAfterGc.get(pool);
+  }
+
+  @Override
+  public MemoryUsage getMemoryUsageAfterGc(List<MemoryPool> pools) {
+    return GcCollectionSample.aggregateMemoryPools(pools, memoryUsageAfterGc);
+  }
+
+  @Override
+  public long getId() {
+    return id;
+  }
+
+  @Override
+  public long getEndTime() {
+    return endTime;
+  }
+
+  @Override
+  public long getDuration() {
+    return duration;
+  }
+
+  @Override
+  public int getGcThreadCount() {
+    return gcThreadCount;
+  }
+
+  @Override
+  public GarbageCollector getCollector() {
+    return collector;
+  }
+
+  @Override
+  public String getGcCause() {
+    return gcCause;
+  }
+
+  @Override
+  public String getGcAction() {
+    return gcAction;
+  }
+
+  @Override
+  public Optional<MemoryPool> getTenuredPool() {
+    return memoryUsageAfterGc.keySet().stream().filter(MemoryPool::isTenuredPool).findFirst();
+  }
+
+  @Override
+  public List<MemoryPool> getYoungPools() {
+    return memoryUsageAfterGc.keySet().stream()
+        .filter(MemoryPool::isYoungPool)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public long getSumOfPausesNanos() {
+    return sumOfPausesNanos;
+  }
+
+  @Override
+  public long getLongestPauseNanos() {
+    return longestPauseNanos;
+  }
+
+  @Override
+  public Map<String, Long> getPausePhasesNanos() {
+    return pausePhasesNanos;
+  }
+}
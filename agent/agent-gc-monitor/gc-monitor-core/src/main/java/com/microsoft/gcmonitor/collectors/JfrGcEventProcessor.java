@@ -0,0 +1,350 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.gcmonitor.collectors;
+
+import com.microsoft.gcmonitor.GcEventConsumer;
+import com.microsoft.gcmonitor.MemoryManagement;
+import com.microsoft.gcmonitor.MemoryManagers;
+import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
+import com.microsoft.gcmonitor.garbagecollectors.GarbageCollectors;
+import com.microsoft.gcmonitor.jfr.JfrEvent;
+import com.microsoft.gcmonitor.jfr.JfrEventStream;
+import com.microsoft.gcmonitor.memorypools.MemoryPool;
+import com.microsoft.gcmonitor.memorypools.MemoryPools;
+import java.lang.management.MemoryUsage;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds GcCollectionEvents from the JFR GarbageCollection, GCPhasePauseLevel1 and heap summary
+ * events, which are correlated by their gc id.
+ *
+ * <p>JFR only reports the young/old split of the heap for G1 and Parallel GC, so only those and the
+ * single generation collectors are supported.
+ */
+public class JfrGcEventProcessor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JfrGcEventProcessor.class);
+
+  private static final String GARBAGE_COLLECTION = "jdk.GarbageCollection";
+  private static final String GC_PHASE_PAUSE_LEVEL_1 = "jdk.GCPhasePauseLevel1";
+  private static final String GC_HEAP_SUMMARY = "jdk.GCHeapSummary";
+  private static final String G1_HEAP_SUMMARY = "jdk.G1HeapSummary";
+  private static final String PS_HEAP_SUMMARY = "jdk.PSHeapSummary";
+  private static final String GC_CONFIGURATION = "jdk.GCConfiguration";
+
+  private static final String BEFORE_GC = "Before GC";
+  private static final String AFTER_GC = "After GC";
+
+  // bounds the collections that are waiting for their events, e.g. if a flush splits them
+  private static final int MAX_PENDING_COLLECTIONS = 64;
+
+  // JFR collector name to gc mxbean name. The G1 concurrent cycle (G1Old) has no gc mxbean
+  // notifications, so it is not reported here either
+  private static final Map<String, String> COLLECTOR_NAMES = new HashMap<>();
+
+  static {
+    COLLECTOR_NAMES.put("G1New", GarbageCollectors.G1YoungGeneration.NAME);
+    COLLECTOR_NAMES.put("G1Full", GarbageCollectors.G1OldGeneration.NAME);
+    COLLECTOR_NAMES.put("ParallelScavenge", GarbageCollectors.PsScavenge.NAME);
+    COLLECTOR_NAMES.put("ParallelOld", GarbageCollectors.PsMarkSweep.NAME);
+    COLLECTOR_NAMES.put("Shenandoah", GarbageCollectors.ShenandoahCycles.NAME);
+    COLLECTOR_NAMES.put("Z", GarbageCollectors.Zgc.NAME);
+  }
+
+  private final MemoryManagement memoryManagement;
+  private final Map<String, JmxGarbageCollectorStats> collectors = new HashMap<>();
+  private final GcEventConsumer consumer;
+  private final long jvmStartTime;
+
+  // only accessed from the thread that dispatches the JFR events
+  private final Map<Long, PendingCollection> pending = new LinkedHashMap<>();
+  private int gcThreadCount;
+
+  public JfrGcEventProcessor(
+      MemoryManagement memoryManagement,
+      Collection<JmxGarbageCollectorStats> collectors,
+      GcEventConsumer consumer,
+      long jvmStartTime) {
+    this.memoryManagement = memoryManagement;
+    for (JmxGarbageCollectorStats collector : collectors) {
+      this.collectors.put(collector.getGarbageCollector().getName(), collector);
+    }
+    this.consumer = consumer;
+    this.jvmStartTime = jvmStartTime;
+  }
+
+  /** Returns true if JFR reports enough data to build events for the given collectors. */
+  public static boolean isSupported(MemoryManagers collectorGroup) {
+    switch (collectorGroup) {
+      case G1:
+      case PARALLEL_SCAVENGE:
+      case SHENANDOAH:
+      case ZGC:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public void subscribe(JfrEventStream stream) throws UnableToMonitorMemoryException {
+    stream.enable(GARBAGE_COLLECTION);
+    stream.onEvent(GARBAGE_COLLECTION, this::onGarbageCollection);
+    stream.enable(GC_PHASE_PAUSE_LEVEL_1);
+    stream.onEvent(GC_PHASE_PAUSE_LEVEL_1, this::onPhasePause);
+    stream.enable(GC_HEAP_SUMMARY);
+    stream.onEvent(GC_HEAP_SUMMARY, this::onHeapSummary);
+    stream.enable(G1_HEAP_SUMMARY);
+    stream.onEvent(G1_HEAP_SUMMARY, this::onG1HeapSummary);
+    stream.enable(PS_HEAP_SUMMARY);
+    stream.onEvent(PS_HEAP_SUMMARY, this::onPsHeapSummary);
+    stream.enablePeriodic(GC_CONFIGURATION);
+    stream.onEvent(GC_CONFIGURATION, this::onGcConfiguration);
+    stream.onFlush(this::flush);
+  }
+
+  void onGarbageCollection(JfrEvent event) {
+    PendingCollection collection = getPending(event);
+    collection.name = event.getString("name");
+    collection.cause = event.getString("cause");
+    collection.sumOfPausesNanos = event.getDurationNanos("sumOfPauses");
+    collection.longestPauseNanos = event.getDurationNanos("longestPause");
+    collection.durationNanos = event.getDurationNanos();
+    collection.endTimeMillis = event.getEndTimeMillis();
+  }
+
+  void onPhasePause(JfrEvent event) {
+    String name = event.getString("name");
+    if (name != null) {
+      getPending(event).pausePhasesNanos.merge(name, event.getDurationNanos(), Long::sum);
+    }
+  }
+
+  void onHeapSummary(JfrEvent event) {
+    HeapSummary summary = getHeapSummary(event);
+    if (summary != null) {
+      summary.heapUsed = event.getLong("heapUsed");
+      summary.heapCommitted = event.getLong("heapSpace.committedSize");
+      summary.heapReserved = event.getLong("heapSpace.reservedSize");
+    }
+  }
+
+  void onG1HeapSummary(JfrEvent event) {
+    HeapSummary summary = getHeapSummary(event);
+    if (summary != null) {
+      summary.edenUsed = event.getLong("edenUsedSize");
+      summary.edenCommitted = event.getLong("edenTotalSize");
+      // G1 does not size the survivor space up front
+      summary.survivorUsed = event.getLong("survivorUsedSize");
+      summary.survivorCommitted = summary.survivorUsed;
+    }
+  }
+
+  void onPsHeapSummary(JfrEvent event) {
+    HeapSummary summary = getHeapSummary(event);
+    if (summary != null) {
+      summary.edenUsed = event.getLong("edenSpace.used");
+      summary.edenCommitted = event.getLong("edenSpace.size");
+      summary.survivorUsed = event.getLong("fromSpace.used");
+      summary.survivorCommitted = event.getLong("fromSpace.size");
+      summary.oldUsed = event.getLong("oldObjectSpace.used");
+      summary.oldCommitted = event.getLong("oldObjectSpace.size");
+      summary.oldReserved = event.getLong("oldSpace.reservedSize");
+    }
+  }
+
+  void onGcConfiguration(JfrEvent event) {
+    gcThreadCount = (int) event.getLong("parallelGCThreads");
+  }
+
+  /** Reports the collections whose events have all been dispatched. */
+  void flush() {
+    Iterator<PendingCollection> i = pending.values().iterator();
+    while (i.hasNext()) {
+      PendingCollection collection = i.next();
+      if (collection.name != null) {
+        i.remove();
+        report(collection);
+      }
+    }
+  }
+
+  private void report(PendingCollection collection) {
+    String collectorName = COLLECTOR_NAMES.get(collection.name);
+    JmxGarbageCollectorStats collector =
+        collectorName == null ? null : collectors.get(collectorName);
+    if (collector == null) {
+      return;
+    }
+    Map<MemoryPool, MemoryUsage> before = getMemoryUsage(collection.before);
+    Map<MemoryPool, MemoryUsage> after = getMemoryUsage(collection.after);
+    if (before == null || after == null) {
+      LOGGER.debug("Incomplete heap summary for gc {}", collection.gcId);
+      return;
+    }
+    try {
+      collector.updateCounters();
+      consumer.accept(
+          new JfrGcCollectionSample(
+              collection.gcId,
+              gcThreadCount,
+              collection.durationNanos / 1_000_000,
+              collection.endTimeMillis - jvmStartTime,
+              collector.getGarbageCollector(),
+              collection.cause,
+              collection.sumOfPausesNanos,
+              collection.longestPauseNanos,
+              collection.pausePhasesNanos,
+              before,
+              after));
+    } catch (RuntimeException e) {
+      LOGGER.error("Error while processing gc event", e);
+    }
+  }
+
+  @Nullable
+  private Map<MemoryPool, MemoryUsage> getMemoryUsage(@Nullable HeapSummary summary) {
+    if (summary == null || summary.heapUsed < 0) {
+      return null;
+    }
+    Map<MemoryPool, MemoryUsage> usage = new HashMap<>();
+    for (MemoryPool pool : memoryManagement.getPools()) {
+      if (pool.isTenuredPool() || pool.isYoungPool()) {
+        MemoryUsage poolUsage = summary.getUsage(pool);
+        if (poolUsage == null) {
+          return null;
+        }
+        usage.put(pool, poolUsage);
+      }
+    }
+    return usage;
+  }
+
+  private PendingCollection getPending(JfrEvent event) {
+    long gcId = event.getLong("gcId");
+    PendingCollection collection = pending.get(gcId);
+    if (collection == null) {
+      if (pending.size() >= MAX_PENDING_COLLECTIONS) {
+        Iterator<Long> oldest = pending.keySet().iterator();
+        oldest.next();
+        oldest.remove();
+      }
+      collection = new PendingCollection(gcId);
+      pending.put(gcId, collection);
+    }
+    return collection;
+  }
+
+  @Nullable
+  private HeapSummary getHeapSummary(JfrEvent event) {
+    String when = event.getString("when");
+    if (BEFORE_GC.equals(when)) {
+      PendingCollection collection = getPending(event);
+      if (collection.before == null) {
+        collection.before = new HeapSummary();
+      }
+      return collection.before;
+    } else if (AFTER_GC.equals(when)) {
+      PendingCollection collection = getPending(event);
+      if (collection.after == null) {
+        collection.after = new HeapSummary();
+      }
+      return collection.after;
+    }
+    return null;
+  }
+
+  private static boolean isSurvivorPool(MemoryPool pool) {
+    return pool instanceof MemoryPools.G1SurvivorSpace
+        || pool instanceof MemoryPools.G1Survivor
+        || pool instanceof MemoryPools.PsSurvivorSpace;
+  }
+
+  private static class PendingCollection {
+    private final long gcId;
+    private final Map<String, Long> pausePhasesNanos = new LinkedHashMap<>();
+    @Nullable private String name;
+    @Nullable private String cause;
+    private long sumOfPausesNanos = -1;
+    private long longestPauseNanos = -1;
+    private long durationNanos;
+    private long endTimeMillis;
+    @Nullable private HeapSummary before;
+    @Nullable private HeapSummary after;
+
+    private PendingCollection(long gcId) {
+      this.gcId = gcId;
+    }
+  }
+
+  private static class HeapSummary {
+    private long heapUsed = -1;
+    private long heapCommitted = -1;
+    private long heapReserved = -1;
+    private long edenUsed = -1;
+    private long edenCommitted = -1;
+    private long survivorUsed = -1;
+    private long survivorCommitted = -1;
+    // only reported separately by the parallel collector, otherwise derived from the heap
+    private long oldUsed = -1;
+    private long oldCommitted = -1;
+    private long oldReserved = -1;
+
+    @Nullable
+    private MemoryUsage getUsage(MemoryPool pool) {
+      if (pool.isTenuredPool() && pool.isYoungPool()) {
+        return usage(heapUsed, heapCommitted, heapReserved);
+      }
+      if (edenUsed < 0 || survivorUsed < 0) {
+        return null;
+      }
+      if (pool.isYoungPool()) {
+        return isSurvivorPool(pool)
+            ? usage(survivorUsed, survivorCommitted, -1)
+            : usage(edenUsed, edenCommitted, -1);
+      }
+      if (oldUsed >= 0) {
+        return usage(oldUsed, oldCommitted, oldReserved);
+      }
+      return usage(
+          heapUsed - edenUsed - survivorUsed,
+          heapCommitted - edenCommitted - survivorCommitted,
+          heapReserved);
+    }
+
+    // MemoryUsage rejects inconsistent values, which summaries taken at slightly different points
+    // in time can produce
+    private static MemoryUsage usage(long used, long committed, long max) {
+      used = Math.max(0, used);
+      committed = Math.max(used, committed);
+      if (max != -1) {
+        max = Math.max(committed, max);
+      }
+      return new MemoryUsage(0, used, committed, max);
+    }
+  }
+}
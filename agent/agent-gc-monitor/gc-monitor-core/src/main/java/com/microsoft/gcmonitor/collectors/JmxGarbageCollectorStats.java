@@ -100,8 +100,7 @@ public class JmxGarbageCollectorStats implements GarbageCollectorStats {
       CompositeData data = (CompositeData) notification.getUserData();
       if (data.containsKey("gcInfo")) {
 
-        countCounter.newValue(mxbean.getCollectionCount());
-        timeCounter.newValue(mxbean.getCollectionTime());
+        updateCounters();
 
         GcCollectionSample cs =
             new GcCollectionSample(
@@ -115,6 +114,12 @@ public class JmxGarbageCollectorStats implements GarbageCollectorStats {
     }
   }
 
+  /** Refreshes the collection count and time from the mxbean. */
+  public void updateCounters() {
+    countCounter.newValue(mxbean.getCollectionCount());
+    timeCounter.newValue(mxbean.getCollectionTime());
+  }
+
   public GarbageCollector getGarbageCollector() {
     return garbageCollector;
   }
@@ -0,0 +1,115 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.gcmonitor.jfr;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import javax.annotation.Nullable;
+
+/** Reflective view of a {@code jdk.jfr.consumer.RecordedEvent}. */
+public class JfrEvent {
+
+  private final EventMethods methods;
+  private final Object event;
+
+  JfrEvent(EventMethods methods, Object event) {
+    this.methods = methods;
+    this.event = event;
+  }
+
+  /**
+   * Returns the value of the given numeric field, or -1 if the field is missing. Nested fields can
+   * be addressed with a dot, e.g. {@code heapSpace.committedSize}.
+   */
+  public long getLong(String field) {
+    Object value = getValue(field);
+    return value instanceof Number ? ((Number) value).longValue() : -1;
+  }
+
+  /** Returns the value of the given duration field in ns, or -1 if the field is missing. */
+  public long getDurationNanos(String field) {
+    if (!(Boolean) invoke(methods.hasField, field)) {
+      return -1;
+    }
+    return ((Duration) invoke(methods.getDurationField, field)).toNanos();
+  }
+
+  public boolean getBoolean(String field) {
+    return Boolean.TRUE.equals(getValue(field));
+  }
+
+  @Nullable
+  public String getString(String field) {
+    Object value = getValue(field);
+    return value instanceof String ? (String) value : null;
+  }
+
+  /** The duration of the event in ns. */
+  public long getDurationNanos() {
+    return ((Duration) invoke(methods.getDuration)).toNanos();
+  }
+
+  /** The end time of the event in ms since the epoch. */
+  public long getEndTimeMillis() {
+    return ((Instant) invoke(methods.getEndTime)).toEpochMilli();
+  }
+
+  @Nullable
+  private Object getValue(String field) {
+    if (!(Boolean) invoke(methods.hasField, field)) {
+      return null;
+    }
+    return invoke(methods.getValue, field);
+  }
+
+  private Object invoke(Method method, Object... args) {
+    try {
+      return method.invoke(event, args);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException
+          ? (RuntimeException) cause
+          : new IllegalStateException(cause);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static class EventMethods {
+    private final Method hasField;
+    private final Method getValue;
+    private final Method getDurationField;
+    private final Method getDuration;
+    private final Method getEndTime;
+
+    EventMethods(ClassLoader loader) throws ReflectiveOperationException {
+      Class<?> eventClass = Class.forName("jdk.jfr.consumer.RecordedEvent", false, loader);
+      hasField = eventClass.getMethod("hasField", String.class);
+      getValue = eventClass.getMethod("getValue", String.class);
+      getDurationField = eventClass.getMethod("getDuration", String.class);
+      getDuration = eventClass.getMethod("getDuration");
+      getEndTime = eventClass.getMethod("getEndTime");
+    }
+  }
+}
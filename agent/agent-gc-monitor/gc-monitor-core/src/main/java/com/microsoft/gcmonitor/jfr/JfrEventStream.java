@@ -0,0 +1,156 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.gcmonitor.jfr;
+
+import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
+import java.io.Closeable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reflective wrapper around {@code jdk.jfr.consumer.RecordingStream}, which is only available on
+ * JDK 14+, so that this module can still be compiled for Java 8.
+ */
+public class JfrEventStream implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JfrEventStream.class);
+
+  @Nullable private static final StreamMethods METHODS = StreamMethods.load();
+
+  private final Object stream;
+
+  /** Returns true if JFR event streaming is supported by this JVM. */
+  public static boolean isAvailable() {
+    return METHODS != null;
+  }
+
+  public JfrEventStream() throws UnableToMonitorMemoryException {
+    if (METHODS == null) {
+      throw new UnableToMonitorMemoryException("JFR event streaming is not available");
+    }
+    try {
+      stream = METHODS.constructor.newInstance();
+    } catch (InvocationTargetException e) {
+      // e.g. JFR is disabled or not supported on this platform
+      throw new UnableToMonitorMemoryException("Failed to create JFR event stream", unwrap(e));
+    } catch (ReflectiveOperationException e) {
+      throw new UnableToMonitorMemoryException("Failed to create JFR event stream", e);
+    }
+  }
+
+  /** Enables the given event, without stack traces and without a duration threshold. */
+  public void enable(String eventName) throws UnableToMonitorMemoryException {
+    Object settings = invoke(METHODS.enable, stream, eventName);
+    invoke(METHODS.withoutStackTrace, settings);
+    invoke(METHODS.with, settings, "threshold", "0 ms");
+  }
+
+  /** Enables the given periodic event, emitting it once at the start of every chunk. */
+  public void enablePeriodic(String eventName) throws UnableToMonitorMemoryException {
+    Object settings = invoke(METHODS.enable, stream, eventName);
+    invoke(METHODS.with, settings, "period", "beginChunk");
+  }
+
+  public void onEvent(String eventName, Consumer<JfrEvent> action)
+      throws UnableToMonitorMemoryException {
+    Consumer<Object> consumer = event -> action.accept(new JfrEvent(METHODS.event, event));
+    invoke(METHODS.onEvent, stream, eventName, consumer);
+  }
+
+  /** Registers an action that is run after each batch of events has been dispatched. */
+  public void onFlush(Runnable action) throws UnableToMonitorMemoryException {
+    invoke(METHODS.onFlush, stream, action);
+  }
+
+  /** Starts the stream and blocks the calling thread until the stream is closed. */
+  public void start() throws UnableToMonitorMemoryException {
+    invoke(METHODS.start, stream);
+  }
+
+  @Override
+  public void close() {
+    try {
+      invoke(METHODS.close, stream);
+    } catch (UnableToMonitorMemoryException e) {
+      LOGGER.debug("Failed to close JFR event stream", e);
+    }
+  }
+
+  @Nullable
+  private static Object invoke(Method method, Object target, Object... args)
+      throws UnableToMonitorMemoryException {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw new UnableToMonitorMemoryException(
+          "Failed to invoke JFR method " + method.getName(), unwrap(e));
+    } catch (IllegalAccessException e) {
+      throw new UnableToMonitorMemoryException(
+          "Failed to invoke JFR method " + method.getName(), e);
+    }
+  }
+
+  private static Exception unwrap(InvocationTargetException e) {
+    Throwable cause = e.getCause();
+    return cause instanceof Exception ? (Exception) cause : e;
+  }
+
+  private static class StreamMethods {
+    private final Constructor<?> constructor;
+    private final Method enable;
+    private final Method withoutStackTrace;
+    private final Method with;
+    private final Method onEvent;
+    private final Method onFlush;
+    private final Method start;
+    private final Method close;
+    private final JfrEvent.EventMethods event;
+
+    private StreamMethods(ClassLoader loader) throws ReflectiveOperationException {
+      Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream", false, loader);
+      Class<?> settingsClass = Class.forName("jdk.jfr.EventSettings", false, loader);
+      constructor = streamClass.getConstructor();
+      enable = streamClass.getMethod("enable", String.class);
+      withoutStackTrace = settingsClass.getMethod("withoutStackTrace");
+      with = settingsClass.getMethod("with", String.class, String.class);
+      onEvent = streamClass.getMethod("onEvent", String.class, Consumer.class);
+      onFlush = streamClass.getMethod("onFlush", Runnable.class);
+      start = streamClass.getMethod("start");
+      close = streamClass.getMethod("close");
+      event = new JfrEvent.EventMethods(loader);
+    }
+
+    @Nullable
+    private static StreamMethods load() {
+      try {
+        return new StreamMethods(ClassLoader.getSystemClassLoader());
+      } catch (ReflectiveOperationException | LinkageError e) {
+        LOGGER.debug("JFR event streaming is not available: {}", e.toString());
+        return null;
+      }
+    }
+  }
+}
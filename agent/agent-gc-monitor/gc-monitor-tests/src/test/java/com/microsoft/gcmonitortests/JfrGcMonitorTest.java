@@ -0,0 +1,96 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.gcmonitortests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.junit.jupiter.api.condition.JRE.JAVA_14;
+
+import com.microsoft.gcmonitor.GcCollectionEvent;
+import com.microsoft.gcmonitor.JfrGcMonitorFactory;
+import com.microsoft.gcmonitor.JfrMemoryManagement;
+import com.microsoft.gcmonitor.JmxMemoryManagement;
+import com.microsoft.gcmonitor.MemoryManagement;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+
+class JfrGcMonitorTest {
+
+  @Test
+  @EnabledForJreRange(min = JAVA_14)
+  void testJfrEvents() throws Exception {
+    BlockingQueue<GcCollectionEvent> events = new LinkedBlockingQueue<>();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    MemoryManagement memoryManagement = null;
+    try {
+      memoryManagement = new JfrGcMonitorFactory().monitorSelf(executor, events::add);
+      // e.g. serial gc is selected on small machines, which is still monitored via jmx
+      assumeTrue(memoryManagement instanceof JfrMemoryManagement);
+
+      // the event stream runs on its own thread, and doesn't hold on to the executor's thread
+      assertThat(executor.submit(() -> true).get(10, TimeUnit.SECONDS)).isTrue();
+
+      GcCollectionEvent event = null;
+      for (int i = 0; i < 30 && event == null; i++) {
+        System.gc();
+        event = events.poll(1, TimeUnit.SECONDS);
+      }
+
+      assertThat(event).isNotNull();
+      assertThat(event.getGcCause()).isNotEmpty();
+      assertThat(event.getSumOfPausesNanos()).isPositive();
+      assertThat(event.getLongestPauseNanos()).isPositive();
+      assertThat(event.getTenuredPool()).isPresent();
+      assertThat(event.getMemoryUsageBeforeGc(event.getTenuredPool().get())).isNotNull();
+      assertThat(event.getMemoryUsageAfterGc(event.getYoungPools())).isNotNull();
+    } finally {
+      if (memoryManagement != null) {
+        memoryManagement.close();
+      }
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @EnabledForJreRange(min = JAVA_14)
+  void testJmxSelectedBySystemProperty() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    MemoryManagement memoryManagement = null;
+    System.setProperty(JfrGcMonitorFactory.GC_MONITOR_PROPERTY, "jmx");
+    try {
+      memoryManagement = new JfrGcMonitorFactory().monitorSelf(executor, event -> {});
+
+      assertThat(memoryManagement).isInstanceOf(JmxMemoryManagement.class);
+    } finally {
+      System.clearProperty(JfrGcMonitorFactory.GC_MONITOR_PROPERTY);
+      if (memoryManagement != null) {
+        memoryManagement.close();
+      }
+      executor.shutdownNow();
+    }
+  }
+}
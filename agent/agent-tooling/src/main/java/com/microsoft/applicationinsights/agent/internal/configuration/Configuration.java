@@ -304,6 +304,73 @@ public class Configuration {
     // metrics get flooded every 60 seconds by default, so need larger queue size to avoid dropping
     // telemetry (they are much smaller so a larger queue size is ok)
     public int metricsExportQueueCapacity = 65536;
+    // when enabled, requests, exceptions and availability results are exported first from the
+    // general export queue, and traces are dropped first once the queue starts filling up, so that
+    // a log flood doesn't cause the more valuable telemetry to be dropped
+    public boolean generalExportQueuePriorityLanes;
+    // off-heap overflow buffer (per export queue) which absorbs bursts once an export queue is
+    // full, items are held there in serialized form so they don't add to the heap usage, the
+    // default of 0 disables the overflow buffer
+    public int exportQueueOverflowMaxSizeMb;
+    // upper bound on the heap used by the agent's own queues and buffers (export queues, in-flight
+    // exports, pooled export buffers, live metrics documents and posts), based on estimated sizes,
+    // once it is hit queued telemetry is dropped and exports are written to disk instead of being
+    // sent, the default of 0 means no upper bound (other than the individual queue capacities)
+    public int memoryBudgetMb;
+    // number of telemetry items (per telemetry type) that are recycled instead of being garbage
+    // collected after they are exported, which reduces allocations in steady state, the default of
+    // 0 disables recycling
+    public int telemetryItemPoolSize;
+    // the agent's own per-stage latencies, queue depths, drops, bytes and items are always
+    // available via JMX (com.microsoft:type=AI-self-metrics), this additionally reports them as
+    // metrics every metricIntervalSeconds
+    public boolean selfMetrics;
+    // reports the allocation and promotion rates, and the thread count and thread start rate, the
+    // promotion rate is tracked using gc notifications (and so isn't reported on collectors
+    // without a separate old generation, e.g. ZGC and Shenandoah)
+    public boolean jvmRuntimeMetrics;
+    // reports the safepoint count and time using JFR event streaming (Java 14+), which keeps a JFR
+    // recording running in the background
+    public boolean safepointMetrics;
+    // number of distinct db statements whose normalized form (whitespace collapsed and truncated)
+    // is cached and shared across dependencies, the default of 0 sends db statements as-is
+    public int dbStatementCacheSize;
+    // when true, only a fingerprint of the normalized db statement is sent as the dependency data
+    public boolean dbStatementFingerprintOnly;
+    // number of slots in the table used to deduplicate the strings of low-cardinality telemetry
+    // fields (operation names, dependency types, property keys, metric names and dimensions), the
+    // default of 0 disables deduplication
+    public int stringInternTableSize;
+    // number of distinct exception stack traces whose parsed form is cached and shared across
+    // exception telemetry, the default of 0 disables the cache
+    public int exceptionCacheSize;
+    // when non-zero, only one exception per fingerprint (exception type and top stack frames) is
+    // sent per interval, and it carries the number of duplicates that were suppressed (requires
+    // exceptionCacheSize)
+    public int exceptionSuppressionIntervalSeconds;
+    // when non-zero, request and dependency standard metrics are pre-aggregated in the agent from
+    // every span (including the ones that are sampled out), keeping at most this many distinct
+    // dimension combinations per interval, the default of 0 leaves standard metrics to be
+    // extracted from the (sampled) request and dependency telemetry by the backend
+    public int standardMetricsMaxSeriesCount;
+    // maximum number of distinct attribute sets reported for each OpenTelemetry metric, points of
+    // any further attribute sets are folded into a single overflow point per metric (with the
+    // "otel.metric.overflow" dimension), the default of 0 doesn't limit the cardinality
+    public int metricCardinalityLimit;
+    // when enabled, OpenTelemetry histogram instruments use base2 exponential buckets instead of
+    // the default explicit buckets, they are still reported as count, sum, min and max (where min
+    // and max are estimated from the bucket boundaries, so they are only approximate)
+    public boolean exponentialHistograms;
+    // when enabled, micrometer counters and timers that recorded nothing and gauges whose value
+    // did not change are not sent, except once per micrometerHeartbeatIntervalSeconds
+    public boolean micrometerPublishOnlyOnChange;
+    public int micrometerHeartbeatIntervalSeconds = 900;
+    // number of threads used to collect the performance counters (including jmx metrics), the
+    // default of 1 collects them one after another
+    public int perfCounterCollectionThreads = 1;
+    // performance counters that take longer than this are reported as slow, and are skipped on
+    // subsequent intervals for as long as they are still running
+    public int perfCounterTimeoutSeconds = 10;
 
     // disk persistence has a default capacity of 50MB
     public int diskPersistenceMaxSizeMb = 50;
@@ -338,6 +405,99 @@ public class Configuration {
       }
       authentication.validate();
 
+      if (exportQueueOverflowMaxSizeMb < 0 || exportQueueOverflowMaxSizeMb > 1024) {
+        throw new FriendlyException(
+            "The \"exportQueueOverflowMaxSizeMb\" configuration is out of range: "
+                + exportQueueOverflowMaxSizeMb,
+            "Please provide a value between 0 and 1024 for \"exportQueueOverflowMaxSizeMb\".");
+      }
+
+      if (memoryBudgetMb < 0) {
+        throw new FriendlyException(
+            "The \"memoryBudgetMb\" configuration is out of range: " + memoryBudgetMb,
+            "Please provide a non-negative value for \"memoryBudgetMb\".");
+      }
+
+      if (telemetryItemPoolSize < 0) {
+        throw new FriendlyException(
+            "The \"telemetryItemPoolSize\" configuration is out of range: "
+                + telemetryItemPoolSize,
+            "Please provide a non-negative value for \"telemetryItemPoolSize\".");
+      }
+
+      if (dbStatementCacheSize < 0) {
+        throw new FriendlyException(
+            "The \"dbStatementCacheSize\" configuration is out of range: " + dbStatementCacheSize,
+            "Please provide a non-negative value for \"dbStatementCacheSize\".");
+      }
+
+      if (stringInternTableSize < 0 || stringInternTableSize > 1048576) {
+        throw new FriendlyException(
+            "The \"stringInternTableSize\" configuration is out of range: "
+                + stringInternTableSize,
+            "Please provide a value between 0 and 1048576 for \"stringInternTableSize\".");
+      }
+
+      if (exceptionCacheSize < 0) {
+        throw new FriendlyException(
+            "The \"exceptionCacheSize\" configuration is out of range: " + exceptionCacheSize,
+            "Please provide a non-negative value for \"exceptionCacheSize\".");
+      }
+
+      if (exceptionSuppressionIntervalSeconds < 0) {
+        throw new FriendlyException(
+            "The \"exceptionSuppressionIntervalSeconds\" configuration is out of range: "
+                + exceptionSuppressionIntervalSeconds,
+            "Please provide a non-negative value for \"exceptionSuppressionIntervalSeconds\".");
+      }
+      if (exceptionSuppressionIntervalSeconds > 0 && exceptionCacheSize == 0) {
+        throw new FriendlyException(
+            "\"exceptionSuppressionIntervalSeconds\" requires \"exceptionCacheSize\".",
+            "Please also provide a positive value for \"exceptionCacheSize\".");
+      }
+
+      if (standardMetricsMaxSeriesCount < 0) {
+        throw new FriendlyException(
+            "The \"standardMetricsMaxSeriesCount\" configuration is out of range: "
+                + standardMetricsMaxSeriesCount,
+            "Please provide a non-negative value for \"standardMetricsMaxSeriesCount\".");
+      }
+
+      if (metricCardinalityLimit < 0) {
+        throw new FriendlyException(
+            "The \"metricCardinalityLimit\" configuration is out of range: "
+                + metricCardinalityLimit,
+            "Please provide a non-negative value for \"metricCardinalityLimit\".");
+      }
+
+      if (micrometerHeartbeatIntervalSeconds <= 0) {
+        throw new FriendlyException(
+            "The \"micrometerHeartbeatIntervalSeconds\" configuration is out of range: "
+                + micrometerHeartbeatIntervalSeconds,
+            "Please provide a positive value for \"micrometerHeartbeatIntervalSeconds\".");
+      }
+
+      if (perfCounterCollectionThreads <= 0) {
+        throw new FriendlyException(
+            "The \"perfCounterCollectionThreads\" configuration is out of range: "
+                + perfCounterCollectionThreads,
+            "Please provide a positive value for \"perfCounterCollectionThreads\".");
+      }
+
+      if (perfCounterTimeoutSeconds <= 0) {
+        throw new FriendlyException(
+            "The \"perfCounterTimeoutSeconds\" configuration is out of range: "
+                + perfCounterTimeoutSeconds,
+            "Please provide a positive value for \"perfCounterTimeoutSeconds\".");
+      }
+
+      if (gcEvents.eventThresholdMillis < 0) {
+        throw new FriendlyException(
+            "The \"gcEvents.eventThresholdMillis\" configuration is out of range: "
+                + gcEvents.eventThresholdMillis,
+            "Please provide a non-negative value for \"gcEvents.eventThresholdMillis\".");
+      }
+
       for (String additionalPropagator : additionalPropagators) {
         if (!VALID_ADDITIONAL_PROPAGATORS.contains(additionalPropagator)) {
           throw new FriendlyException(
@@ -1315,6 +1475,9 @@ public class Configuration {
 
   public static class GcEventConfiguration {
     public GcReportingLevel reportingLevel;
+    // when the reporting level is AGGREGATED, collections that pause the application for at least
+    // this long are still reported as individual events
+    public long eventThresholdMillis = 1000;
   }
 
   public static class AadAuthentication {
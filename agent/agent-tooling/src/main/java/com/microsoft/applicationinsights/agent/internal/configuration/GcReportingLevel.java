@@ -24,5 +24,8 @@ package com.microsoft.applicationinsights.agent.internal.configuration;
 public enum GcReportingLevel {
   NONE,
   TENURED_ONLY,
-  ALL
+  ALL,
+  // per-collector metrics on the performance counter schedule, and events only for long
+  // collections
+  AGGREGATED
 }
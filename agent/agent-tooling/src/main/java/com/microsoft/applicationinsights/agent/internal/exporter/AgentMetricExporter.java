@@ -30,6 +30,7 @@ import com.microsoft.applicationinsights.agent.internal.telemetry.MetricFilter;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
 import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.Aggregation;
 import io.opentelemetry.sdk.metrics.InstrumentType;
 import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
 import io.opentelemetry.sdk.metrics.data.MetricData;
@@ -38,6 +39,7 @@ import io.opentelemetry.sdk.metrics.export.MetricExporter;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,16 +50,24 @@ public class AgentMetricExporter implements MetricExporter {
   private static final OperationLogger exportingMetricLogger =
       new OperationLogger(AgentMetricExporter.class, "Exporting metric");
 
+  // null if not available in the SDK version in use
+  @Nullable
+  private static final Aggregation EXPONENTIAL_HISTOGRAM_AGGREGATION =
+      loadExponentialHistogramAggregation();
+
   private final List<MetricFilter> metricFilters;
   private final MetricDataMapper mapper;
   private final Consumer<TelemetryItem> telemetryItemConsumer;
+  private final boolean exponentialHistograms;
 
   public AgentMetricExporter(
       List<MetricFilter> metricFilters,
       MetricDataMapper mapper,
-      BatchItemProcessor batchItemProcessor) {
+      BatchItemProcessor batchItemProcessor,
+      boolean exponentialHistograms) {
     this.metricFilters = metricFilters;
     this.mapper = mapper;
+    this.exponentialHistograms = exponentialHistograms;
     this.telemetryItemConsumer =
         telemetryItem -> {
           TelemetryObservers.INSTANCE
@@ -105,4 +115,43 @@ public class AgentMetricExporter implements MetricExporter {
     return AggregationTemporalitySelector.deltaPreferred()
         .getAggregationTemporality(instrumentType);
   }
+
+  @Override
+  public Aggregation getDefaultAggregation(InstrumentType instrumentType) {
+    if (exponentialHistograms
+        && instrumentType == InstrumentType.HISTOGRAM
+        && EXPONENTIAL_HISTOGRAM_AGGREGATION != null) {
+      // the buckets adjust their scale to the recorded values, so no bucket boundaries need to be
+      // configured, and the memory per series is bounded by the max number of buckets
+      return EXPONENTIAL_HISTOGRAM_AGGREGATION;
+    }
+    return Aggregation.defaultAggregation();
+  }
+
+  // the exponential histogram aggregation (like its point data, see MetricDataMapper) is only
+  // available from the SDK's internal package in the SDK version that this is built against, and
+  // internal classes can change in any release, so it is looked up reflectively, falling back to
+  // the default (explicit bucket) histogram aggregation if it is not available
+  @Nullable
+  private static Aggregation loadExponentialHistogramAggregation() {
+    if (!MetricDataMapper.isExponentialHistogramSupported()) {
+      // already logged by MetricDataMapper
+      return null;
+    }
+    try {
+      return (Aggregation)
+          Class.forName(
+                  "io.opentelemetry.sdk.metrics.internal.view.ExponentialHistogramAggregation",
+                  true,
+                  AgentMetricExporter.class.getClassLoader())
+              .getMethod("getDefault")
+              .invoke(null);
+    } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+      logger.warn(
+          "exponential histograms are not supported with this version of the OpenTelemetry SDK,"
+              + " falling back to explicit bucket histograms",
+          e);
+      return null;
+    }
+  }
 }
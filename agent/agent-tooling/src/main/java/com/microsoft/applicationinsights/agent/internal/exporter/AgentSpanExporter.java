@@ -25,6 +25,8 @@ import com.azure.monitor.opentelemetry.exporter.implementation.SpanDataMapper;
 import com.azure.monitor.opentelemetry.exporter.implementation.logging.OperationLogger;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.QuickPulse;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.PipelineStage;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.Strings;
 import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
@@ -33,6 +35,7 @@ import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -45,6 +48,8 @@ public final class AgentSpanExporter implements SpanExporter {
   private static final OperationLogger exportingSpanLogger =
       new OperationLogger(SpanDataMapper.class, "Exporting span");
 
+  private final SelfMetrics selfMetrics = SelfMetrics.get();
+
   private final SpanDataMapper mapper;
   private final Consumer<TelemetryItem> telemetryItemConsumer;
 
@@ -72,10 +77,17 @@ public final class AgentSpanExporter implements SpanExporter {
       // Azure Functions consumption plan
       return CompletableResultCode.ofSuccess();
     }
+    // span end time is wall clock time, so this is only approximate
+    long nowEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
     for (SpanData span : spans) {
       logger.debug("exporting span: {}", span);
+      selfMetrics.recordLatency(
+          PipelineStage.SPAN_END_TO_EXPORT, nowEpochNanos - span.getEndEpochNanos());
       try {
+        // this includes handing the telemetry item off to the export queue
+        long startNanos = System.nanoTime();
         mapper.map(span, telemetryItemConsumer);
+        selfMetrics.recordLatency(PipelineStage.SPAN_MAPPING, System.nanoTime() - startNanos);
         exportingSpanLogger.recordSuccess();
       } catch (Throwable t) {
         exportingSpanLogger.recordFailure(t.getMessage(), t);
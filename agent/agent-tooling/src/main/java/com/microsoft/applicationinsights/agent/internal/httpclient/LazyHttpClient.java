@@ -42,6 +42,7 @@ import com.azure.identity.ManagedIdentityCredential;
 import com.azure.identity.ManagedIdentityCredentialBuilder;
 import com.azure.identity.VisualStudioCodeCredential;
 import com.azure.identity.VisualStudioCodeCredentialBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.AgentThreads;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
 import io.opentelemetry.instrumentation.api.internal.GuardedBy;
 import java.net.InetSocketAddress;
@@ -123,8 +124,13 @@ public class LazyHttpClient implements HttpClient {
       builder.proxy(proxyOptions);
     }
     // keeping the thread count to 1 keeps the number of 16mb io.netty.buffer.PoolChunk to 1 also
+    //
+    // the thread name prefix is distinct from reactor netty's default, so that the agent's http
+    // client threads can be told apart from the application's (see AgentThreads)
     return builder
-        .eventLoopGroup(LoopResources.create("reactor-http", 1, true).onClient(true))
+        .eventLoopGroup(
+            LoopResources.create(AgentThreads.HTTP_CLIENT_THREAD_NAME_PREFIX, 1, true)
+                .onClient(true))
         .build();
   }
 
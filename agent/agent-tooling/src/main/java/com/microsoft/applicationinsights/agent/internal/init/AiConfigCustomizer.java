@@ -44,6 +44,12 @@ public class AiConfigCustomizer implements ConfigPropertySource {
     properties.put(
         "otel.micrometer.step.millis",
         Long.toString(SECONDS.toMillis(config.preview.metricIntervalSeconds)));
+    if (config.preview.micrometerPublishOnlyOnChange) {
+      properties.put("otel.micrometer.publish-only-on-change", "true");
+      properties.put(
+          "otel.micrometer.heartbeat.millis",
+          Long.toString(SECONDS.toMillis(config.preview.micrometerHeartbeatIntervalSeconds)));
+    }
 
     enableInstrumentations(config, properties);
 
@@ -21,19 +21,26 @@
 
 package com.microsoft.applicationinsights.agent.internal.init;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.LinuxCgroupStats;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.Strings;
 import com.microsoft.applicationinsights.agent.internal.common.PropertyHelper;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.AgentOverheadPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.CgroupPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.DeadLockDetectorPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.FreeMemoryPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.GcPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.JmxAttributeData;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.JmxMetricPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.JvmHeapMemoryUsedPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.JvmRuntimePerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.OshiPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounterContainer;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.ProcessCpuPerformanceCounter;
 import com.microsoft.applicationinsights.agent.internal.perfcounter.ProcessMemoryPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.SafepointPerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.SelfMetricsPerformanceCounter;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
@@ -52,6 +59,10 @@ public class PerformanceCounterInitializer {
 
     PerformanceCounterContainer.INSTANCE.setCollectionFrequencyInSec(
         configuration.preview.metricIntervalSeconds);
+    PerformanceCounterContainer.INSTANCE.setTimeoutInSec(
+        configuration.preview.perfCounterTimeoutSeconds);
+    PerformanceCounterContainer.INSTANCE.setCollectionThreads(
+        configuration.preview.perfCounterCollectionThreads);
 
     if (logger.isDebugEnabled()) {
       PerformanceCounterContainer.INSTANCE.setLogAvailableJmxMetrics();
@@ -70,12 +81,37 @@ public class PerformanceCounterInitializer {
       PerformanceCounterContainer.INSTANCE.register(new OshiPerformanceCounter());
     }
 
+    LinuxCgroupStats cgroupStats = LinuxCgroupStats.get();
+    if (cgroupStats != null) {
+      PerformanceCounterContainer.INSTANCE.register(new CgroupPerformanceCounter(cgroupStats));
+    }
+
     ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
     if (threadBean.isSynchronizerUsageSupported()) {
       PerformanceCounterContainer.INSTANCE.register(new DeadLockDetectorPerformanceCounter());
     }
     PerformanceCounterContainer.INSTANCE.register(new JvmHeapMemoryUsedPerformanceCounter());
     PerformanceCounterContainer.INSTANCE.register(new GcPerformanceCounter());
+    if (configuration.preview.jvmRuntimeMetrics) {
+      PerformanceCounterContainer.INSTANCE.register(new JvmRuntimePerformanceCounter());
+    }
+    if (configuration.preview.safepointMetrics) {
+      SafepointPerformanceCounter safepointCounter = SafepointPerformanceCounter.create();
+      if (safepointCounter != null) {
+        PerformanceCounterContainer.INSTANCE.register(safepointCounter);
+      } else {
+        logger.warn("Safepoint metrics require JFR event streaming (Java 14+)");
+      }
+    }
+
+    // registered here instead of when the self-metrics are first used, since it's only safe to
+    // initialize JMX now (see AfterAgentListener)
+    SelfMetrics.registerMBean();
+    // the agent's own cpu and allocation overhead (also available via JMX)
+    PerformanceCounterContainer.INSTANCE.register(new AgentOverheadPerformanceCounter());
+    if (configuration.preview.selfMetrics) {
+      PerformanceCounterContainer.INSTANCE.register(new SelfMetricsPerformanceCounter());
+    }
   }
 
   private static boolean isAgentRunningInSandboxEnvWindows() {
@@ -22,17 +22,27 @@
 package com.microsoft.applicationinsights.agent.internal.init;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.AiOperationNameSpanProcessor;
 import com.azure.monitor.opentelemetry.exporter.implementation.LogDataMapper;
 import com.azure.monitor.opentelemetry.exporter.implementation.MetricDataMapper;
 import com.azure.monitor.opentelemetry.exporter.implementation.SpanDataMapper;
+import com.azure.monitor.opentelemetry.exporter.implementation.StandardMetricsSpanProcessor;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.AbstractTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.ExceptionCache;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.RemoteDependencyTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.TelemetryItemPool;
 import com.azure.monitor.opentelemetry.exporter.implementation.configuration.ConnectionString;
 import com.azure.monitor.opentelemetry.exporter.implementation.heartbeat.HeartbeatExporter;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.QuickPulse;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.DbStatementNormalizer;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.StringInterner;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.Strings;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.TempDirs;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
 import com.google.auto.service.AutoService;
 import com.microsoft.applicationinsights.agent.bootstrap.AiAppId;
 import com.microsoft.applicationinsights.agent.bootstrap.AzureFunctions;
@@ -73,6 +83,7 @@ import io.opentelemetry.sdk.logs.export.LogExporter;
 import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
 import io.opentelemetry.sdk.metrics.export.MetricReader;
 import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
@@ -84,7 +95,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -101,6 +115,8 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
 
   @Nullable private static BatchLogProcessor batchLogProcessor;
   @Nullable private static BatchSpanProcessor batchSpanProcessor;
+  @Nullable private static StandardMetricsSpanProcessor standardMetricsSpanProcessor;
+  @Nullable private static ScheduledExecutorService standardMetricsExecutor;
   @Nullable private static MetricReader metricReader;
 
   @Override
@@ -123,6 +139,17 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
     // TODO (trask) should configuration validation be performed earlier?
     config.validate();
 
+    // needs to be configured before any of the components that count against it are initialized
+    MemoryBudget.configure(config.preview.memoryBudgetMb * 1024L * 1024);
+    TelemetryItemPool.configure(config.preview.telemetryItemPoolSize);
+    DbStatementNormalizer.configure(
+        config.preview.dbStatementCacheSize,
+        config.preview.dbStatementFingerprintOnly,
+        RemoteDependencyTelemetryBuilder.MAX_DATA_LENGTH);
+    StringInterner.configure(config.preview.stringInternTableSize);
+    ExceptionCache.configure(
+        config.preview.exceptionCacheSize, config.preview.exceptionSuppressionIntervalSeconds);
+
     if (config.proxy.host != null) {
       LazyHttpClient.proxyHost = config.proxy.host;
       LazyHttpClient.proxyPortNumber = config.proxy.port;
@@ -145,6 +172,8 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
             .setTempDir(tempDir)
             .setGeneralExportQueueSize(config.preview.generalExportQueueCapacity)
             .setMetricsExportQueueSize(config.preview.metricsExportQueueCapacity)
+            .setGeneralExportQueuePriorityLanes(config.preview.generalExportQueuePriorityLanes)
+            .setExportQueueOverflowMaxSizeMb(config.preview.exportQueueOverflowMaxSizeMb)
             .setAadAuthentication(config.preview.authentication)
             .setConnectionStrings(
                 config.connectionString,
@@ -154,6 +183,8 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
             .setRoleInstance(config.role.instance)
             .setDiskPersistenceMaxSizeMb(config.preview.diskPersistenceMaxSizeMb)
             .build();
+    // the last suppressed exceptions are sent straight to the export queues (see ExceptionCache)
+    ExceptionCache.get().setSuppressedConsumer(telemetryClient::trackAsync);
 
     // interval longer than 15 minutes is not allowed since we use this data for usage telemetry
     long intervalSeconds = Math.min(config.heartbeat.intervalSeconds, MINUTES.toSeconds(15));
@@ -241,8 +272,22 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
         .addShutdownHook(new Thread(() -> flushAll(telemetryClient).join(10, TimeUnit.SECONDS)));
   }
 
+  // the final collection runs on the same thread as the scheduled ones, so that they don't overlap,
+  // and no more collections are scheduled after it
+  private static CompletableResultCode flushStandardMetrics(
+      StandardMetricsSpanProcessor processor, ScheduledExecutorService executor) {
+    CompletableResultCode result = processor.forceFlush();
+    executor.shutdown();
+    return result;
+  }
+
   private static CompletableResultCode flushAll(TelemetryClient telemetryClient) {
+    // the suppressed exceptions are sent straight to the export queues, which are flushed below
+    ExceptionCache.get().flushAllSuppressed();
     List<CompletableResultCode> results = new ArrayList<>();
+    if (standardMetricsSpanProcessor != null && standardMetricsExecutor != null) {
+      results.add(flushStandardMetrics(standardMetricsSpanProcessor, standardMetricsExecutor));
+    }
     if (batchSpanProcessor != null) {
       results.add(batchSpanProcessor.forceFlush());
     }
@@ -325,6 +370,25 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
       tracerProvider.addSpanProcessor(
           new InheritedRoleNameSpanProcessor(configuration.preview.roleNameOverrides));
     }
+    // standard metrics span processor needs to see every span that ends, including the ones that
+    // are only recorded and not sampled (see Samplers), so it can't be chained with the batch span
+    // processor either
+    if (configuration.preview.standardMetricsMaxSeriesCount > 0) {
+      standardMetricsSpanProcessor =
+          new StandardMetricsSpanProcessor(
+              configuration.preview.captureHttpServer4xxAsError,
+              configuration.preview.standardMetricsMaxSeriesCount,
+              telemetryClient::populateDefaults,
+              telemetryClient::getRoleName,
+              telemetryClient::getRoleInstance,
+              telemetryClient::trackAsync);
+      tracerProvider.addSpanProcessor(standardMetricsSpanProcessor);
+      standardMetricsExecutor =
+          Executors.newSingleThreadScheduledExecutor(
+              ThreadPoolUtils.createDaemonThreadFactory(StandardMetricsSpanProcessor.class));
+      standardMetricsSpanProcessor.schedule(
+          standardMetricsExecutor, configuration.preview.metricIntervalSeconds, SECONDS);
+    }
 
     String tracesExporter = config.getString("otel.traces.exporter");
     if ("none".equals(tracesExporter)) { // "none" is the default set in AiConfigPropertySource
@@ -353,10 +417,20 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
       Configuration configuration,
       boolean captureHttpServer4xxAsError) {
 
+    BiConsumer<AbstractTelemetryBuilder, Resource> telemetryInitializer =
+        telemetryClient::populateDefaults;
+    if (configuration.preview.standardMetricsMaxSeriesCount > 0) {
+      // the standard metrics are pre-aggregated by the StandardMetricsSpanProcessor instead
+      telemetryInitializer =
+          telemetryInitializer.andThen(
+              (telemetryBuilder, resource) ->
+                  StandardMetricsSpanProcessor.markAsPreAggregated(telemetryBuilder));
+    }
+
     SpanDataMapper mapper =
         new SpanDataMapper(
             captureHttpServer4xxAsError,
-            telemetryClient::populateDefaults,
+            telemetryInitializer,
             (event, instrumentationName) -> {
               boolean lettuce51 = instrumentationName.equals("io.opentelemetry.lettuce-5.1");
               if (lettuce51 && event.getName().startsWith("redis.encode.")) {
@@ -514,11 +588,16 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
       TelemetryClient telemetryClient,
       Configuration configuration) {
 
-    MetricDataMapper mapper = new MetricDataMapper(telemetryClient::populateDefaults);
+    MetricDataMapper mapper =
+        new MetricDataMapper(
+            telemetryClient::populateDefaults, configuration.preview.metricCardinalityLimit);
     metricReader =
         PeriodicMetricReader.builder(
                 new AgentMetricExporter(
-                    metricFilters, mapper, telemetryClient.getMetricsBatchItemProcessor()))
+                    metricFilters,
+                    mapper,
+                    telemetryClient.getMetricsBatchItemProcessor(),
+                    configuration.preview.exponentialHistograms))
             .setInterval(Duration.ofSeconds(configuration.preview.metricIntervalSeconds))
             .build();
 
@@ -52,6 +52,7 @@ import io.opentelemetry.instrumentation.api.instrumenter.LocalRootSpan;
 import io.opentelemetry.sdk.trace.ReadableSpan;
 import java.net.URI;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -70,6 +71,9 @@ public class BytecodeUtilImpl implements BytecodeUtilDelegate {
 
   public static volatile FeatureStatsbeat featureStatsbeat;
 
+  private static final MicrometerMetricTemplates micrometerMetricTemplates =
+      new MicrometerMetricTemplates();
+
   @Override
   public void trackEvent(
       @Nullable Date timestamp,
@@ -151,6 +155,35 @@ public class BytecodeUtilImpl implements BytecodeUtilDelegate {
     track(telemetryBuilder, tags, false);
   }
 
+  @Override
+  public void trackMicrometerMetric(
+      String name,
+      double value,
+      @Nullable Integer count,
+      @Nullable Double min,
+      @Nullable Double max,
+      Map<String, String> properties) {
+
+    if (Strings.isNullOrEmpty(name)) {
+      return;
+    }
+    // the properties are not re-added on every publish, see MicrometerMetricTemplates
+    MetricTelemetryBuilder telemetryBuilder =
+        micrometerMetricTemplates.newTelemetryBuilder(TelemetryClient.getActive(), properties);
+
+    MetricPointBuilder point = new MetricPointBuilder();
+    point.setName(name);
+    point.setValue(value);
+    point.setCount(count);
+    point.setMin(min);
+    point.setMax(max);
+    telemetryBuilder.setMetricPoint(point);
+
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+
+    track(telemetryBuilder, Collections.emptyMap(), false);
+  }
+
   @Override
   public void trackDependency(
       @Nullable Date timestamp,
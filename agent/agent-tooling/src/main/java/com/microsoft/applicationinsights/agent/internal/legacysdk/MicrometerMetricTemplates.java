@@ -0,0 +1,51 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.legacysdk;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.PreEncodedMap;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import java.util.Map;
+
+// the pre-encoded properties of the micrometer meters (see MicrometerUtil)
+//
+// these are keyed by the properties map instance, since the micrometer instrumentation passes the
+// same (unmodifiable) map on every publish of a given meter, and the maps are held weakly, so that
+// the entries go away once the micrometer instrumentation drops the template of a removed meter
+final class MicrometerMetricTemplates {
+
+  private final Cache<Map<String, String>, PreEncodedMap> defaultProperties = Cache.weak();
+
+  MetricTelemetryBuilder newTelemetryBuilder(
+      TelemetryClient telemetryClient, Map<String, String> properties) {
+    return telemetryClient.newMetricTelemetryBuilder(
+        getDefaultProperties(telemetryClient, properties));
+  }
+
+  // visible for testing
+  PreEncodedMap getDefaultProperties(
+      TelemetryClient telemetryClient, Map<String, String> properties) {
+    return defaultProperties.computeIfAbsent(
+        properties, telemetryClient::createMetricDefaultProperties);
+  }
+}
@@ -90,5 +90,9 @@ public abstract class AbstractJmxPerformanceCounter implements PerformanceCounte
     this.attributes = attributes;
   }
 
+  String getObjectName() {
+    return objectName;
+  }
+
   protected abstract void send(TelemetryClient telemetryClient, String displayName, double value);
 }
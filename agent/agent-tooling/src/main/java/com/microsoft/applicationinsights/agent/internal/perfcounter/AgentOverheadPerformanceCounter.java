@@ -0,0 +1,135 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.AgentThreads;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * The class measures the cpu and the allocations of the agent's own threads (see {@link
+ * AgentThreads}), and exposes them as self-metrics (which are available via JMX, and are reported
+ * as telemetry when self-metrics are enabled).
+ */
+public final class AgentOverheadPerformanceCounter implements PerformanceCounter {
+
+  private final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+
+  // null when per-thread allocation isn't available on this JVM
+  @Nullable private final com.sun.management.ThreadMXBean allocationMxBean;
+
+  private final LongAdder exportedItems = SelfMetrics.get().getCounter("exportedItems");
+
+  // thread id -> cpu nanos and allocated bytes at the previous sample, so that only the deltas of
+  // the threads that are still alive are counted
+  private Map<Long, long[]> prevSamples = new HashMap<>();
+  private long prevSampleNanos;
+  private long prevExportedItems;
+
+  private volatile double cpuPercentage;
+  private volatile double allocatedBytesPerSecond;
+  private volatile double exportAllocatedBytesPerItem;
+
+  public AgentOverheadPerformanceCounter() {
+    allocationMxBean = getAllocationMxBean(threadMxBean);
+
+    SelfMetrics selfMetrics = SelfMetrics.get();
+    selfMetrics.registerDoubleGauge("agentCpuPercentage", () -> cpuPercentage);
+    if (allocationMxBean != null) {
+      selfMetrics.registerDoubleGauge("agentAllocatedBytesPerSec", () -> allocatedBytesPerSecond);
+      selfMetrics.registerDoubleGauge(
+          "agentExportAllocatedBytesPerItem", () -> exportAllocatedBytesPerItem);
+    }
+  }
+
+  @Nullable
+  static com.sun.management.ThreadMXBean getAllocationMxBean(ThreadMXBean threadMxBean) {
+    if (!(threadMxBean instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean allocationMxBean =
+        (com.sun.management.ThreadMXBean) threadMxBean;
+    if (!allocationMxBean.isThreadAllocatedMemorySupported()
+        || !allocationMxBean.isThreadAllocatedMemoryEnabled()) {
+      return null;
+    }
+    return allocationMxBean;
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    synchronized (this) {
+      sample();
+    }
+  }
+
+  private void sample() {
+    boolean cpuTimeEnabled =
+        threadMxBean.isThreadCpuTimeSupported() && threadMxBean.isThreadCpuTimeEnabled();
+    long currSampleNanos = System.nanoTime();
+    long currExportedItems = exportedItems.sum();
+
+    long cpuNanos = 0;
+    long allocatedBytes = 0;
+    long exportAllocatedBytes = 0;
+    Map<Long, long[]> currSamples = new HashMap<>();
+    for (Map.Entry<Thread, Boolean> entry : AgentThreads.getThreads().entrySet()) {
+      long threadId = entry.getKey().getId();
+      // these return -1 if the thread has terminated in the meantime
+      long threadCpuNanos = cpuTimeEnabled ? threadMxBean.getThreadCpuTime(threadId) : -1;
+      long threadAllocatedBytes =
+          allocationMxBean == null ? -1 : allocationMxBean.getThreadAllocatedBytes(threadId);
+      long[] prev = prevSamples.get(threadId);
+      if (threadCpuNanos != -1) {
+        cpuNanos += threadCpuNanos - (prev == null ? 0 : Math.max(0, prev[0]));
+      }
+      if (threadAllocatedBytes != -1) {
+        long delta = threadAllocatedBytes - (prev == null ? 0 : Math.max(0, prev[1]));
+        allocatedBytes += delta;
+        if (entry.getValue()) {
+          exportAllocatedBytes += delta;
+        }
+      }
+      currSamples.put(threadId, new long[] {threadCpuNanos, threadAllocatedBytes});
+    }
+
+    if (prevSampleNanos != 0) {
+      double elapsedNanos = currSampleNanos - prevSampleNanos;
+      int processors = Runtime.getRuntime().availableProcessors();
+      // normalized by the number of cores, same as "% Processor Time Normalized"
+      cpuPercentage = cpuTimeEnabled ? 100 * cpuNanos / elapsedNanos / processors : 0;
+      allocatedBytesPerSecond = allocatedBytes / (elapsedNanos / 1_000_000_000);
+      long items = currExportedItems - prevExportedItems;
+      exportAllocatedBytesPerItem = items == 0 ? 0 : exportAllocatedBytes / (double) items;
+    }
+
+    prevSamples = currSamples;
+    prevSampleNanos = currSampleNanos;
+    prevExportedItems = currExportedItems;
+  }
+}
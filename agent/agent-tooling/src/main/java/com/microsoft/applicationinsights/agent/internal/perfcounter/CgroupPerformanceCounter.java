@@ -0,0 +1,114 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.LinuxCgroupStats;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class supplies the cpu throttling, memory and i/o of the cgroup (e.g. the container) that the
+ * Java process the SDK is in runs in.
+ */
+public class CgroupPerformanceCounter implements PerformanceCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(CgroupPerformanceCounter.class);
+
+  private final LinuxCgroupStats cgroupStats;
+
+  private long prevCollectionTimeNanos;
+  private long prevCpuPeriods;
+  private long prevCpuThrottledPeriods;
+  private long prevCpuThrottledNanos;
+  private long prevIoBytes;
+
+  public CgroupPerformanceCounter(LinuxCgroupStats cgroupStats) {
+    this.cgroupStats = cgroupStats;
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    long currCollectionTimeNanos = System.nanoTime();
+    long currCpuPeriods = cgroupStats.getCpuPeriods();
+    long currCpuThrottledPeriods = cgroupStats.getCpuThrottledPeriods();
+    long currCpuThrottledNanos = cgroupStats.getCpuThrottledNanos();
+    long currIoBytes = cgroupStats.getIoBytes();
+
+    if (prevCollectionTimeNanos != 0) {
+      double elapsedSeconds = (currCollectionTimeNanos - prevCollectionTimeNanos) / 1e9;
+
+      // there are no periods when there is no cpu limit, or when the cgroup was idle
+      long periods = delta(currCpuPeriods, prevCpuPeriods);
+      long throttledPeriods = delta(currCpuThrottledPeriods, prevCpuThrottledPeriods);
+      if (periods > 0 && throttledPeriods != -1) {
+        send(
+            telemetryClient,
+            MetricNames.CONTAINER_CPU_THROTTLED_PERCENTAGE,
+            100.0 * throttledPeriods / periods);
+      }
+      long throttledNanos = delta(currCpuThrottledNanos, prevCpuThrottledNanos);
+      if (throttledNanos != -1) {
+        send(
+            telemetryClient,
+            MetricNames.CONTAINER_CPU_THROTTLED_TIME,
+            throttledNanos / 1e6 / elapsedSeconds);
+      }
+      long ioBytes = delta(currIoBytes, prevIoBytes);
+      if (ioBytes != -1) {
+        send(telemetryClient, MetricNames.CONTAINER_IO, ioBytes / elapsedSeconds);
+      }
+    }
+
+    long memoryUsage = cgroupStats.getMemoryUsageBytes();
+    if (memoryUsage != -1) {
+      send(telemetryClient, MetricNames.CONTAINER_MEMORY_USAGE, memoryUsage);
+    }
+    long memoryWorkingSet = cgroupStats.getMemoryWorkingSetBytes();
+    if (memoryWorkingSet != -1) {
+      send(telemetryClient, MetricNames.CONTAINER_MEMORY_WORKING_SET, memoryWorkingSet);
+    }
+    long memoryLimit = cgroupStats.getMemoryLimitBytes();
+    if (memoryLimit != -1) {
+      send(telemetryClient, MetricNames.CONTAINER_MEMORY_LIMIT, memoryLimit);
+    }
+
+    prevCollectionTimeNanos = currCollectionTimeNanos;
+    prevCpuPeriods = currCpuPeriods;
+    prevCpuThrottledPeriods = currCpuThrottledPeriods;
+    prevCpuThrottledNanos = currCpuThrottledNanos;
+    prevIoBytes = currIoBytes;
+  }
+
+  // returns -1 if either value is not available, or if the counter went backwards
+  private static long delta(long curr, long prev) {
+    if (curr == -1 || prev == -1 || curr < prev) {
+      return -1;
+    }
+    return curr - prev;
+  }
+
+  private static void send(TelemetryClient telemetryClient, String metricName, double value) {
+    logger.trace("Performance Counter: {}: {}", metricName, value);
+    telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(metricName, value));
+  }
+}
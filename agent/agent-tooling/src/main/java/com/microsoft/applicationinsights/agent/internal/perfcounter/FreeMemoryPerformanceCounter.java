@@ -21,8 +21,10 @@
 
 package com.microsoft.applicationinsights.agent.internal.perfcounter;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.LinuxProcStats;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import java.lang.management.ManagementFactory;
+import javax.annotation.Nullable;
 import javax.management.ObjectName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +34,8 @@ public class FreeMemoryPerformanceCounter implements PerformanceCounter {
 
   private static final Logger logger = LoggerFactory.getLogger(FreeMemoryPerformanceCounter.class);
 
+  @Nullable private final LinuxProcStats linuxProcStats = LinuxProcStats.get();
+
   private ObjectName osBean;
 
   public FreeMemoryPerformanceCounter() {}
@@ -54,6 +58,12 @@ public class FreeMemoryPerformanceCounter implements PerformanceCounter {
   }
 
   private long getFreePhysicalMemorySize() throws Exception {
+    if (linuxProcStats != null) {
+      long freeMemoryBytes = linuxProcStats.getFreeMemoryBytes();
+      if (freeMemoryBytes != -1) {
+        return freeMemoryBytes;
+      }
+    }
     if (osBean == null) {
       osBean = ObjectName.getInstance(ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME);
     }
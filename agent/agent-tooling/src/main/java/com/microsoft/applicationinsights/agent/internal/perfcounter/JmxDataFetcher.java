@@ -25,13 +25,24 @@ import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.management.Attribute;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanException;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.MalformedObjectNameException;
+import javax.management.Notification;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
 import javax.management.openmbean.CompositeData;
@@ -43,6 +54,13 @@ public class JmxDataFetcher {
 
   private static final Logger logger = LoggerFactory.getLogger(JmxDataFetcher.class);
 
+  // the parsed object names (which are often patterns) and the mbeans that they resolve to, the
+  // latter are invalidated whenever a matching mbean is registered or unregistered
+  private static final ConcurrentMap<String, ResolvedObjectName> resolvedObjectNames =
+      new ConcurrentHashMap<>();
+  private static final AtomicBoolean listenerRegistered = new AtomicBoolean();
+  private static volatile boolean listening;
+
   /**
    * Gets an object name and its attributes to fetch and will return the data.
    *
@@ -54,57 +72,157 @@ public class JmxDataFetcher {
    */
   public static Map<String, Collection<Object>> fetch(
       String objectName, Collection<JmxAttributeData> attributes) throws Exception {
-    Map<String, Collection<Object>> result = new HashMap<>();
-
     MBeanServer server = ManagementFactory.getPlatformMBeanServer();
-    Set<ObjectName> objects = server.queryNames(new ObjectName(objectName), null);
+    Set<ObjectName> objects = resolve(server, objectName);
     if (objects.isEmpty()) {
       String errorMsg = String.format("Cannot find object name '%s'", objectName);
       throw new IllegalArgumentException(errorMsg);
     }
 
+    // composite attributes are configured as "attribute.key", and each attribute is only read
+    // once per mbean, even when several of its keys are configured
+    Set<String> attributeNames = new LinkedHashSet<>();
+    for (JmxAttributeData attribute : attributes) {
+      attributeNames.add(getAttributeName(attribute.attribute));
+    }
+    String[] attributeNamesArray = attributeNames.toArray(new String[0]);
+
+    List<Map<String, Object>> valuesPerObject = new ArrayList<>(objects.size());
+    for (ObjectName object : objects) {
+      valuesPerObject.add(getAttributes(server, object, attributeNamesArray));
+    }
+
+    Map<String, Collection<Object>> result = new HashMap<>();
     for (JmxAttributeData attribute : attributes) {
-      try {
-        List<Object> resultForAttribute = fetch(server, objects, attribute.attribute);
-        result.put(attribute.metricName, resultForAttribute);
-      } catch (Exception e) {
-        logger.warn(
-            "Failed to fetch JMX object '{}' with attribute '{}': ",
-            objectName,
-            attribute.attribute);
-        throw e;
+      String attributeName = getAttributeName(attribute.attribute);
+      String compositeKey = getCompositeKey(attribute.attribute);
+      List<Object> resultForAttribute = new ArrayList<>();
+      for (Map<String, Object> values : valuesPerObject) {
+        Object value = values.get(attributeName);
+        if (value != null && compositeKey != null) {
+          value = ((CompositeData) value).get(compositeKey);
+        }
+        if (value != null) {
+          resultForAttribute.add(value);
+        }
       }
+      result.put(attribute.metricName, resultForAttribute);
     }
 
     return result;
   }
 
-  private static List<Object> fetch(
-      MBeanServer server, Set<ObjectName> objects, String attributeName)
+  private static Set<ObjectName> resolve(MBeanServer server, String objectName)
+      throws MalformedObjectNameException {
+    registerListenerIfNeeded(server);
+    ResolvedObjectName resolved = resolvedObjectNames.get(objectName);
+    if (resolved == null) {
+      resolved = new ResolvedObjectName(new ObjectName(objectName));
+      resolvedObjectNames.put(objectName, resolved);
+    }
+    long generation = resolved.generation.get();
+    ResolvedObjects cached = resolved.cached;
+    if (cached != null && cached.generation == generation) {
+      return cached.objects;
+    }
+    Set<ObjectName> objects = server.queryNames(resolved.objectName, null);
+    // the result is stored together with the generation it was queried at, so if a matching mbean
+    // was registered or unregistered in the meantime, it is never returned from the cache (and it
+    // is only cached if those events are being received)
+    if (listening) {
+      resolved.cached = new ResolvedObjects(generation, objects);
+    }
+    return objects;
+  }
+
+  private static void registerListenerIfNeeded(MBeanServer server) {
+    if (!listenerRegistered.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      server.addNotificationListener(
+          MBeanServerDelegate.DELEGATE_NAME, JmxDataFetcher::invalidate, null, null);
+      listening = true;
+    } catch (InstanceNotFoundException | RuntimeException e) {
+      logger.debug("Unable to listen to mbean registrations, mbeans will be queried each time", e);
+    }
+  }
+
+  private static void invalidate(Notification notification, Object handback) {
+    if (!(notification instanceof MBeanServerNotification)) {
+      return;
+    }
+    ObjectName mbeanName = ((MBeanServerNotification) notification).getMBeanName();
+    for (ResolvedObjectName resolved : resolvedObjectNames.values()) {
+      if (resolved.objectName.apply(mbeanName)) {
+        resolved.generation.incrementAndGet();
+      }
+    }
+  }
+
+  private static Map<String, Object> getAttributes(
+      MBeanServer server, ObjectName object, String[] attributeNames)
       throws AttributeNotFoundException, MBeanException, ReflectionException,
           InstanceNotFoundException {
-    ArrayList<Object> result = new ArrayList<>();
+    Map<String, Object> values = new HashMap<>();
+    for (Attribute attribute : server.getAttributes(object, attributeNames).asList()) {
+      values.put(attribute.getName(), attribute.getValue());
+    }
+    if (values.size() < attributeNames.length) {
+      // getAttributes() silently leaves out the attributes that could not be read, so read those
+      // one by one in order to surface the reason
+      for (String attributeName : attributeNames) {
+        if (!values.containsKey(attributeName)) {
+          try {
+            values.put(attributeName, server.getAttribute(object, attributeName));
+          } catch (Exception e) {
+            logger.warn(
+                "Failed to fetch JMX object '{}' with attribute '{}': ", object, attributeName);
+            throw e;
+          }
+        }
+      }
+    }
+    return values;
+  }
 
-    String[] inners = attributeName.split("\\.");
+  private static String getAttributeName(String attribute) {
+    int index = attribute.indexOf('.');
+    return index == -1 ? attribute : attribute.substring(0, index);
+  }
 
-    for (ObjectName object : objects) {
+  @Nullable
+  private static String getCompositeKey(String attribute) {
+    int index = attribute.indexOf('.');
+    if (index == -1) {
+      return null;
+    }
+    // same as previously splitting on "." and using the second part
+    int end = attribute.indexOf('.', index + 1);
+    return end == -1 ? attribute.substring(index + 1) : attribute.substring(index + 1, end);
+  }
 
-      Object value;
+  private static final class ResolvedObjectName {
 
-      if (inners.length == 1) {
-        value = server.getAttribute(object, attributeName);
-      } else {
-        value = server.getAttribute(object, inners[0]);
-        if (value != null) {
-          value = ((CompositeData) value).get(inners[1]);
-        }
-      }
-      if (value != null) {
-        result.add(value);
-      }
+    private final ObjectName objectName;
+    // incremented whenever a matching mbean is registered or unregistered
+    private final AtomicLong generation = new AtomicLong();
+    @Nullable private volatile ResolvedObjects cached;
+
+    private ResolvedObjectName(ObjectName objectName) {
+      this.objectName = objectName;
     }
+  }
 
-    return result;
+  private static final class ResolvedObjects {
+
+    private final long generation;
+    private final Set<ObjectName> objects;
+
+    private ResolvedObjects(long generation, Set<ObjectName> objects) {
+      this.generation = generation;
+      this.objects = objects;
+    }
   }
 
   private JmxDataFetcher() {}
@@ -0,0 +1,223 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class reports the allocation rate (from the bytes allocated by each thread), the promotion
+ * rate (from the growth of the old generation during young collections, as reported by the gc
+ * notifications), and the live thread count and thread start rate.
+ */
+public final class JvmRuntimePerformanceCounter implements PerformanceCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(JvmRuntimePerformanceCounter.class);
+
+  public static final String ALLOCATION_RATE = "Allocated Bytes/sec";
+  public static final String PROMOTION_RATE = "Promoted Bytes/sec";
+  public static final String THREAD_COUNT = "Thread Count";
+  public static final String THREAD_START_RATE = "Threads Started/sec";
+
+  private final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+
+  // null when per-thread allocation isn't available on this JVM
+  @Nullable private final com.sun.management.ThreadMXBean allocationMxBean;
+
+  // null for collectors without a separate old generation (e.g. ZGC and Shenandoah), and when the
+  // gc notifications aren't available, in which case the promotion rate isn't reported
+  @Nullable private final PromotionListener promotionListener;
+
+  // thread id -> allocated bytes at the previous sample, so that only the deltas of the threads
+  // that are still alive are counted (the allocations of threads that terminated since the previous
+  // sample are missed)
+  private Map<Long, Long> prevAllocatedBytes = new HashMap<>();
+  private long prevSampleNanos;
+  private long prevPromotedBytes;
+  private long prevStartedThreads;
+
+  public JvmRuntimePerformanceCounter() {
+    allocationMxBean = AgentOverheadPerformanceCounter.getAllocationMxBean(threadMxBean);
+    promotionListener = createPromotionListener();
+  }
+
+  @Nullable
+  private static PromotionListener createPromotionListener() {
+    MemoryPoolMXBean oldGenPool = getOldGenPool();
+    if (oldGenPool == null) {
+      return null;
+    }
+    PromotionListener listener = new PromotionListener(oldGenPool.getName());
+    try {
+      for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+        if (gcBean instanceof NotificationEmitter) {
+          ((NotificationEmitter) gcBean).addNotificationListener(listener, null, null);
+        }
+      }
+    } catch (RuntimeException | LinkageError e) {
+      logger.debug("Gc notifications not available, not reporting the promotion rate", e);
+      return null;
+    }
+    return listener;
+  }
+
+  @Nullable
+  private static MemoryPoolMXBean getOldGenPool() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      String name = pool.getName();
+      // "PS Old Gen", "G1 Old Gen", "CMS Old Gen" and "Tenured Gen" (serial)
+      if (pool.getType() == MemoryType.HEAP
+          && (name.endsWith("Old Gen") || name.equals("Tenured Gen"))) {
+        return pool;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    synchronized (this) {
+      long currSampleNanos = System.nanoTime();
+      long allocatedBytes = sampleAllocatedBytes();
+      long currPromotedBytes =
+          promotionListener == null ? -1 : promotionListener.getPromotedBytes();
+      long currStartedThreads = threadMxBean.getTotalStartedThreadCount();
+
+      if (prevSampleNanos != 0) {
+        double elapsedSeconds = (currSampleNanos - prevSampleNanos) / 1e9;
+        if (allocatedBytes != -1) {
+          send(telemetryClient, ALLOCATION_RATE, allocatedBytes / elapsedSeconds);
+        }
+        if (currPromotedBytes != -1) {
+          send(
+              telemetryClient,
+              PROMOTION_RATE,
+              (currPromotedBytes - prevPromotedBytes) / elapsedSeconds);
+        }
+        send(
+            telemetryClient,
+            THREAD_START_RATE,
+            (currStartedThreads - prevStartedThreads) / elapsedSeconds);
+      }
+      send(telemetryClient, THREAD_COUNT, threadMxBean.getThreadCount());
+
+      prevSampleNanos = currSampleNanos;
+      prevPromotedBytes = currPromotedBytes;
+      prevStartedThreads = currStartedThreads;
+    }
+  }
+
+  // returns -1 if per-thread allocation isn't available
+  private long sampleAllocatedBytes() {
+    if (allocationMxBean == null) {
+      return -1;
+    }
+    long[] threadIds = threadMxBean.getAllThreadIds();
+    // these are -1 for threads that have terminated in the meantime
+    long[] threadAllocatedBytes = allocationMxBean.getThreadAllocatedBytes(threadIds);
+
+    long allocatedBytes = 0;
+    Map<Long, Long> currAllocatedBytes = new HashMap<>();
+    for (int i = 0; i < threadIds.length; i++) {
+      if (threadAllocatedBytes[i] != -1) {
+        Long prev = prevAllocatedBytes.get(threadIds[i]);
+        allocatedBytes += threadAllocatedBytes[i] - (prev == null ? 0 : prev);
+        currAllocatedBytes.put(threadIds[i], threadAllocatedBytes[i]);
+      }
+    }
+    prevAllocatedBytes = currAllocatedBytes;
+    return allocatedBytes;
+  }
+
+  // sums the growth of the old generation during each young collection, which (unlike sampling the
+  // old generation usage) isn't offset by old collections that happen in between, and doesn't
+  // include objects allocated directly in the old generation (e.g. G1 humongous objects)
+  // visible for testing
+  static final class PromotionListener implements NotificationListener {
+
+    // young collections are reported with this action by HotSpot (including G1 mixed collections,
+    // which also collect old regions, so for those the growth is a lower bound)
+    private static final String YOUNG_GC_ACTION = "end of minor GC";
+
+    private final String oldGenPoolName;
+    private final LongAdder promotedBytes = new LongAdder();
+
+    PromotionListener(String oldGenPoolName) {
+      this.oldGenPoolName = oldGenPoolName;
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+      if (!notification
+          .getType()
+          .equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+        return;
+      }
+      GarbageCollectionNotificationInfo info =
+          GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+      record(
+          info.getGcAction(),
+          info.getGcInfo().getMemoryUsageBeforeGc(),
+          info.getGcInfo().getMemoryUsageAfterGc());
+    }
+
+    // visible for testing
+    void record(
+        String gcAction,
+        Map<String, MemoryUsage> usageBeforeGc,
+        Map<String, MemoryUsage> usageAfterGc) {
+      if (!gcAction.equals(YOUNG_GC_ACTION)) {
+        return;
+      }
+      MemoryUsage before = usageBeforeGc.get(oldGenPoolName);
+      MemoryUsage after = usageAfterGc.get(oldGenPoolName);
+      if (before != null && after != null) {
+        promotedBytes.add(Math.max(0, after.getUsed() - before.getUsed()));
+      }
+    }
+
+    long getPromotedBytes() {
+      return promotedBytes.sum();
+    }
+  }
+
+  private static void send(TelemetryClient telemetryClient, String metricName, double value) {
+    logger.trace("Performance Counter: {}: {}", metricName, value);
+    telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(metricName, value));
+  }
+}
@@ -46,5 +46,20 @@ public final class MetricNames {
 
   public static final String PROCESS_IO = "\\Process(??APP_WIN32_PROC??)\\IO Data Bytes/sec";
 
+  // cgroup (container) counters, only reported on Linux
+  public static final String CONTAINER_CPU_THROTTLED_PERCENTAGE =
+      "\\Container\\% CPU Periods Throttled";
+
+  public static final String CONTAINER_CPU_THROTTLED_TIME = "\\Container\\CPU Throttled ms/sec";
+
+  public static final String CONTAINER_MEMORY_USAGE = "\\Container\\Memory Usage Bytes";
+
+  public static final String CONTAINER_MEMORY_WORKING_SET =
+      "\\Container\\Memory Working Set Bytes";
+
+  public static final String CONTAINER_MEMORY_LIMIT = "\\Container\\Memory Limit Bytes";
+
+  public static final String CONTAINER_IO = "\\Container\\IO Data Bytes/sec";
+
   private MetricNames() {}
 }
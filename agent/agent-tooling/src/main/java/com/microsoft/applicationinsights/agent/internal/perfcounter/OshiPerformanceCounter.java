@@ -21,9 +21,11 @@
 
 package com.microsoft.applicationinsights.agent.internal.perfcounter;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.LinuxProcStats;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import oshi.SystemInfo;
@@ -46,65 +48,62 @@ public class OshiPerformanceCounter implements PerformanceCounter {
   private long prevProcessBytes;
   private long prevTotalProcessorMillis;
 
+  // used instead of OSHI on Linux
+  @Nullable private final LinuxProcStats linuxProcStats = LinuxProcStats.get();
+
   private volatile OSProcess processInfo;
   private volatile CentralProcessor processor;
   private static final AtomicBoolean hasError = new AtomicBoolean();
 
   @Override
   public void report(TelemetryClient telemetryClient) {
-    // stop collecting oshi perf counters when initialization fails.
-    if (hasError.get()) {
-      return;
-    }
-
-    if (processInfo == null || processor == null) {
-      // lazy initializing these because they add to slowness during startup
-      try {
-        SystemInfo systemInfo = new SystemInfo();
-        OperatingSystem osInfo = systemInfo.getOperatingSystem();
-        processInfo = osInfo.getProcess(osInfo.getProcessId());
-        processor = systemInfo.getHardware().getProcessor();
-      } catch (Error ex) {
-        // e.g. icm 253155448: NoClassDefFoundError
-        // e.g. icm 276640835: ExceptionInInitializerError
-        hasError.set(true);
-        logger.debug("Fail to initialize OSProcess and CentralProcessor", ex);
+    long currCollectionTimeMillis = System.currentTimeMillis();
+    long currProcessBytes;
+    long currTotalProcessorMillis;
+    int logicalProcessorCount;
+    if (linuxProcStats != null) {
+      // OSHI parses the /proc files into many intermediate objects on each collection
+      currProcessBytes = linuxProcStats.getProcessIoBytes();
+      currTotalProcessorMillis = linuxProcStats.getTotalCpuMillis();
+      logicalProcessorCount = linuxProcStats.getCpuCount();
+    } else {
+      if (!initializeOshi()) {
         return;
       }
-    }
-
-    long currCollectionTimeMillis = System.currentTimeMillis();
-    long currProcessBytes = 0L;
-    if (processInfo != null) {
-      if (processInfo instanceof LinuxOSProcess) {
-        currProcessBytes = getProcessBytesLinux(processInfo.getProcessID());
-      } else {
-        updateAttributes(processInfo);
-        currProcessBytes = getProcessBytes(processInfo);
+      currProcessBytes = -1;
+      if (processInfo != null) {
+        if (processInfo instanceof LinuxOSProcess) {
+          currProcessBytes = getProcessBytesLinux(processInfo.getProcessID());
+        } else {
+          updateAttributes(processInfo);
+          currProcessBytes = getProcessBytes(processInfo);
+        }
       }
+      currTotalProcessorMillis = getTotalProcessorMillis(processor);
+      logicalProcessorCount = processor.getLogicalProcessorCount();
     }
 
-    long currTotalProcessorMillis = getTotalProcessorMillis(processor);
-
     if (prevCollectionTimeMillis != 0) {
       double elapsedMillis = currCollectionTimeMillis - prevCollectionTimeMillis;
       double elapsedSeconds = elapsedMillis / MILLIS_IN_SECOND;
-      if (processInfo != null) {
+      if (currProcessBytes != -1 && prevProcessBytes != -1) {
         double processBytes = (currProcessBytes - prevProcessBytes) / elapsedSeconds;
         send(telemetryClient, processBytes, MetricNames.PROCESS_IO);
         logger.trace(
             "Sent performance counter for '{}': '{}'", MetricNames.PROCESS_IO, processBytes);
       }
 
-      double processorLoad =
-          (currTotalProcessorMillis - prevTotalProcessorMillis)
-              / (elapsedMillis * processor.getLogicalProcessorCount());
-      double processorPercentage = 100 * processorLoad;
-      send(telemetryClient, processorPercentage, MetricNames.TOTAL_CPU_PERCENTAGE);
-      logger.trace(
-          "Sent performance counter for '{}': '{}'",
-          MetricNames.TOTAL_CPU_PERCENTAGE,
-          processorPercentage);
+      if (currTotalProcessorMillis != -1 && prevTotalProcessorMillis != -1) {
+        double processorLoad =
+            (currTotalProcessorMillis - prevTotalProcessorMillis)
+                / (elapsedMillis * logicalProcessorCount);
+        double processorPercentage = 100 * processorLoad;
+        send(telemetryClient, processorPercentage, MetricNames.TOTAL_CPU_PERCENTAGE);
+        logger.trace(
+            "Sent performance counter for '{}': '{}'",
+            MetricNames.TOTAL_CPU_PERCENTAGE,
+            processorPercentage);
+      }
     }
 
     prevCollectionTimeMillis = currCollectionTimeMillis;
@@ -112,6 +111,30 @@ public class OshiPerformanceCounter implements PerformanceCounter {
     prevTotalProcessorMillis = currTotalProcessorMillis;
   }
 
+  private boolean initializeOshi() {
+    // stop collecting oshi perf counters when initialization fails.
+    if (hasError.get()) {
+      return false;
+    }
+
+    if (processInfo == null || processor == null) {
+      // lazy initializing these because they add to slowness during startup
+      try {
+        SystemInfo systemInfo = new SystemInfo();
+        OperatingSystem osInfo = systemInfo.getOperatingSystem();
+        processInfo = osInfo.getProcess(osInfo.getProcessId());
+        processor = systemInfo.getHardware().getProcessor();
+      } catch (Error ex) {
+        // e.g. icm 253155448: NoClassDefFoundError
+        // e.g. icm 276640835: ExceptionInInitializerError
+        hasError.set(true);
+        logger.debug("Fail to initialize OSProcess and CentralProcessor", ex);
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static void updateAttributes(OSProcess processInfo) {
     if (!processInfo.updateAttributes()) {
       logger.debug("could not update process attributes");
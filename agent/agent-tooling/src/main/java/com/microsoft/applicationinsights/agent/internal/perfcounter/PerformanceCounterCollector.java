@@ -0,0 +1,250 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// runs the performance counters on a pool of collector threads, so that the scheduling thread (see
+// PerformanceCounterContainer) can keep track of time
+//
+// a thread is added for each performance counter that is past its timeout, so that it doesn't hold
+// up the others, and that thread is released once the performance counter completes
+final class PerformanceCounterCollector {
+
+  private static final Logger logger = LoggerFactory.getLogger(PerformanceCounterCollector.class);
+
+  private final List<RegisteredPerformanceCounter> performanceCounters =
+      new CopyOnWriteArrayList<>();
+
+  private final long timeoutNanos;
+  private final long collectionFrequencyNanos;
+
+  private final ThreadPoolExecutor collectors;
+
+  private final AtomicLong lastCollectionMillis = new AtomicLong();
+  private final LongAdder timedOutCount = SelfMetrics.get().getCounter("perfCounterTimeouts");
+  private final LongAdder skippedCount = SelfMetrics.get().getCounter("perfCounterSkips");
+
+  PerformanceCounterCollector(
+      int collectionThreads, long timeoutNanos, long collectionFrequencyNanos) {
+    this.timeoutNanos = timeoutNanos;
+    this.collectionFrequencyNanos = collectionFrequencyNanos;
+    collectors =
+        new ThreadPoolExecutor(
+            collectionThreads,
+            collectionThreads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            ThreadPoolUtils.createDaemonThreadFactory(
+                PerformanceCounterContainer.class, "Collector"));
+    collectors.allowCoreThreadTimeOut(true);
+
+    SelfMetrics.get().registerGauge("perfCounterCollectionMillis", lastCollectionMillis::get);
+  }
+
+  void register(PerformanceCounter performanceCounter) {
+    RegisteredPerformanceCounter registered = new RegisteredPerformanceCounter(performanceCounter);
+    performanceCounters.add(registered);
+    SelfMetrics.get()
+        .registerGauge(
+            "perfCounterCollectionMillis." + registered.getName(),
+            () -> registered.lastDurationMillis);
+  }
+
+  // only called from the scheduling thread
+  void collect(TelemetryClient telemetryClient) {
+    long startNanos = System.nanoTime();
+
+    List<RegisteredPerformanceCounter> submitted = new ArrayList<>(performanceCounters.size());
+    for (RegisteredPerformanceCounter performanceCounter : performanceCounters) {
+      if (performanceCounter.isRunning()) {
+        // still running (or queued) from a previous collection
+        performanceCounter.checkTimeout();
+        skippedCount.increment();
+        logger.debug(
+            "Skipping performance counter that is still running: '{}'",
+            performanceCounter.getName());
+        continue;
+      }
+      performanceCounter.releaseThreadIfSlow();
+      performanceCounter.submit(telemetryClient);
+      submitted.add(performanceCounter);
+    }
+
+    // don't hold up the next collection
+    long collectionDeadlineNanos = startNanos + collectionFrequencyNanos;
+    for (RegisteredPerformanceCounter performanceCounter : submitted) {
+      performanceCounter.await(collectionDeadlineNanos);
+    }
+
+    lastCollectionMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+  }
+
+  // visible for testing
+  int getCollectorThreads() {
+    return collectors.getMaximumPoolSize();
+  }
+
+  // visible for testing
+  void shutdown() {
+    collectors.shutdownNow();
+  }
+
+  // only called from the scheduling thread
+  private void addCollectorThread(int delta) {
+    int size = collectors.getMaximumPoolSize() + delta;
+    // the core size can never be above the max size
+    if (delta > 0) {
+      collectors.setMaximumPoolSize(size);
+      collectors.setCorePoolSize(size);
+    } else {
+      collectors.setCorePoolSize(size);
+      collectors.setMaximumPoolSize(size);
+    }
+  }
+
+  private final class RegisteredPerformanceCounter {
+
+    private final PerformanceCounter performanceCounter;
+
+    // only accessed by the scheduling thread
+    @Nullable private Future<?> future;
+    private boolean reportedAsSlow;
+
+    private volatile long startNanos;
+    // exposed as a self-metric, so that the slow performance counters can be identified
+    private volatile long lastDurationMillis;
+
+    private RegisteredPerformanceCounter(PerformanceCounter performanceCounter) {
+      this.performanceCounter = performanceCounter;
+    }
+
+    private String getName() {
+      String name = performanceCounter.getClass().getName();
+      if (performanceCounter instanceof AbstractJmxPerformanceCounter) {
+        name += " (" + ((AbstractJmxPerformanceCounter) performanceCounter).getObjectName() + ")";
+      }
+      return name;
+    }
+
+    private boolean isRunning() {
+      return future != null && !future.isDone();
+    }
+
+    private void submit(TelemetryClient telemetryClient) {
+      startNanos = 0;
+      future = collectors.submit(() -> report(telemetryClient));
+    }
+
+    private void report(TelemetryClient telemetryClient) {
+      startNanos = System.nanoTime();
+      try {
+        performanceCounter.report(telemetryClient);
+      } catch (ThreadDeath td) {
+        throw td;
+      } catch (Throwable t) {
+        try {
+          logger.error("Exception while reporting performance counter: '{}'", getName(), t);
+        } catch (ThreadDeath td) {
+          throw td;
+        } catch (Throwable t2) {
+          // chomp
+        }
+      }
+      lastDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      if (logger.isDebugEnabled()) {
+        logger.debug("Performance counter '{}' took {} ms", getName(), lastDurationMillis);
+      }
+    }
+
+    // the timeout starts once the performance counter starts running (as opposed to when it is
+    // submitted), so that a slow performance counter doesn't cause the ones queued behind it to
+    // be reported as slow too, those are instead skipped on the next collection if still queued
+    private void await(long collectionDeadlineNanos) {
+      Future<?> future = this.future;
+      while (future != null && !future.isDone()) {
+        if (checkTimeout()) {
+          return;
+        }
+        long reportStartNanos = startNanos;
+        long nowNanos = System.nanoTime();
+        if (nowNanos - collectionDeadlineNanos >= 0) {
+          return;
+        }
+        long waitNanos =
+            reportStartNanos == 0 ? timeoutNanos : reportStartNanos + timeoutNanos - nowNanos;
+        try {
+          future.get(Math.min(waitNanos, collectionDeadlineNanos - nowNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+          // check again, it may have only started running in the meantime
+        } catch (ExecutionException e) {
+          return;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+
+    private boolean checkTimeout() {
+      long reportStartNanos = startNanos;
+      if (reportStartNanos == 0 || System.nanoTime() - reportStartNanos < timeoutNanos) {
+        return false;
+      }
+      if (!reportedAsSlow) {
+        reportedAsSlow = true;
+        timedOutCount.increment();
+        addCollectorThread(1);
+        logger.warn(
+            "Performance counter '{}' did not complete within {} ms, it will be skipped until it"
+                + " completes",
+            getName(),
+            TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+      }
+      return true;
+    }
+
+    private void releaseThreadIfSlow() {
+      if (reportedAsSlow) {
+        reportedAsSlow = false;
+        addCollectorThread(-1);
+      }
+    }
+  }
+}
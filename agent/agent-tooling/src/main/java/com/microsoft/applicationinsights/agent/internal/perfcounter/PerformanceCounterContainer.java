@@ -23,8 +23,6 @@ package com.microsoft.applicationinsights.agent.internal.perfcounter;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -45,6 +43,11 @@ import org.slf4j.LoggerFactory;
  * 'report' method. By default the container will start reporting after 5 minutes and will continue
  * doing so every 1 minute.
  *
+ * <p>The Performance Counters can optionally be collected in parallel (see {@link
+ * #setCollectionThreads(int)}). A Performance Counter that takes longer than the timeout (see
+ * {@link #setTimeoutInSec(long)}) is logged, and is skipped on subsequent collections for as long
+ * as it is still running, so that it doesn't delay the other Performance Counters.
+ *
  * <p>The user of this class can add (register), remove (unregister) a performance counter while the
  * container is working.
  *
@@ -60,7 +63,7 @@ public enum PerformanceCounterContainer {
   public static final long DEFAULT_COLLECTION_FREQUENCY_IN_SEC = 60;
   private static final long MIN_COLLECTION_FREQUENCY_IN_SEC = 1;
 
-  private final List<PerformanceCounter> performanceCounters = new CopyOnWriteArrayList<>();
+  public static final long DEFAULT_TIMEOUT_IN_SEC = 10;
 
   @Nullable private volatile AvailableJmxMetricLogger availableJmxMetricLogger;
 
@@ -68,8 +71,14 @@ public enum PerformanceCounterContainer {
 
   private long collectionFrequencyInMillis = DEFAULT_COLLECTION_FREQUENCY_IN_SEC * 1000;
 
+  private long timeoutInNanos = TimeUnit.SECONDS.toNanos(DEFAULT_TIMEOUT_IN_SEC);
+
+  private int collectionThreads = 1;
+
   private ScheduledThreadPoolExecutor threads;
 
+  private volatile PerformanceCounterCollector collector;
+
   /**
    * Adds a {@link PerformanceCounter} that can collect data.
    *
@@ -77,7 +86,7 @@ public enum PerformanceCounterContainer {
    */
   public void register(PerformanceCounter performanceCounter) {
     initialize();
-    performanceCounters.add(performanceCounter);
+    collector.register(performanceCounter);
   }
 
   /**
@@ -105,6 +114,46 @@ public enum PerformanceCounterContainer {
     this.collectionFrequencyInMillis = collectionFrequencyInSec * 1000;
   }
 
+  /**
+   * Sets the time that a single Performance Counter is given to report, before it is logged as
+   * slow and skipped on subsequent collections until it completes.
+   *
+   * <p>Note that the method will be effective if called before the first call to the 'register'
+   * method.
+   *
+   * @param timeoutInSec The timeout for a single Performance Counter, must be positive.
+   */
+  public void setTimeoutInSec(long timeoutInSec) {
+    if (timeoutInSec <= 0) {
+      logger.error(
+          "Performance counter timeout: illegal value '{}'. The default value, '{}', is used"
+              + " instead.",
+          timeoutInSec,
+          DEFAULT_TIMEOUT_IN_SEC);
+      timeoutInSec = DEFAULT_TIMEOUT_IN_SEC;
+    }
+    this.timeoutInNanos = TimeUnit.SECONDS.toNanos(timeoutInSec);
+  }
+
+  /**
+   * Sets the number of threads that collect the Performance Counters in parallel.
+   *
+   * <p>Note that the method will be effective if called before the first call to the 'register'
+   * method.
+   *
+   * @param collectionThreads The number of threads, must be positive.
+   */
+  public void setCollectionThreads(int collectionThreads) {
+    if (collectionThreads <= 0) {
+      logger.error(
+          "Performance counter collection threads: illegal value '{}'. The default value, '1', is"
+              + " used instead.",
+          collectionThreads);
+      collectionThreads = 1;
+    }
+    this.collectionThreads = collectionThreads;
+  }
+
   public void setLogAvailableJmxMetrics() {
     availableJmxMetricLogger = new AvailableJmxMetricLogger();
   }
@@ -138,26 +187,7 @@ public enum PerformanceCounterContainer {
               availableJmxMetricLogger.logAvailableJmxMetrics();
             }
 
-            TelemetryClient telemetryClient = TelemetryClient.getActive();
-
-            for (PerformanceCounter performanceCounter : performanceCounters) {
-              try {
-                performanceCounter.report(telemetryClient);
-              } catch (ThreadDeath td) {
-                throw td;
-              } catch (Throwable t) {
-                try {
-                  logger.error(
-                      "Exception while reporting performance counter: '{}'",
-                      performanceCounter.getClass().getName(),
-                      t);
-                } catch (ThreadDeath td) {
-                  throw td;
-                } catch (Throwable t2) {
-                  // chomp
-                }
-              }
-            }
+            collector.collect(TelemetryClient.getActive());
           }
         },
         collectionFrequencyInMillis,
@@ -169,5 +199,10 @@ public enum PerformanceCounterContainer {
     threads = new ScheduledThreadPoolExecutor(1);
     threads.setThreadFactory(
         ThreadPoolUtils.createDaemonThreadFactory(PerformanceCounterContainer.class));
+    collector =
+        new PerformanceCounterCollector(
+            collectionThreads,
+            timeoutInNanos,
+            TimeUnit.MILLISECONDS.toNanos(collectionFrequencyInMillis));
   }
 }
@@ -0,0 +1,130 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
+import com.microsoft.gcmonitor.jfr.JfrEvent;
+import com.microsoft.gcmonitor.jfr.JfrEventStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class reports the number of safepoints, the time the application was stopped for them, and
+ * the part of that time spent waiting for all threads to reach the safepoint, from JFR event
+ * streaming (Java 14+).
+ */
+public final class SafepointPerformanceCounter implements PerformanceCounter {
+
+  private static final Logger logger = LoggerFactory.getLogger(SafepointPerformanceCounter.class);
+
+  public static final String SAFEPOINT_COUNT = "Safepoint Count";
+  public static final String SAFEPOINT_TIME = "Safepoint Time";
+  public static final String TIME_TO_SAFEPOINT = "Time To Safepoint";
+
+  // SafepointBegin covers reaching the safepoint, ExecuteVMOperation the operation executed at the
+  // safepoint, and SafepointEnd resuming the threads
+  private static final String SAFEPOINT_BEGIN = "jdk.SafepointBegin";
+  private static final String EXECUTE_VM_OPERATION = "jdk.ExecuteVMOperation";
+  private static final String SAFEPOINT_END = "jdk.SafepointEnd";
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAdder syncNanos = new LongAdder();
+
+  private SafepointPerformanceCounter() {}
+
+  /** Returns null if JFR event streaming is not available. */
+  @Nullable
+  public static SafepointPerformanceCounter create() {
+    if (!JfrEventStream.isAvailable()) {
+      return null;
+    }
+    SafepointPerformanceCounter counter = new SafepointPerformanceCounter();
+    JfrEventStream stream;
+    try {
+      stream = new JfrEventStream();
+    } catch (UnableToMonitorMemoryException e) {
+      logger.debug("Unable to monitor safepoints: {}", e.getMessage(), e);
+      return null;
+    }
+    try {
+      stream.enable(SAFEPOINT_BEGIN);
+      stream.onEvent(SAFEPOINT_BEGIN, counter::onSafepointBegin);
+      stream.enable(EXECUTE_VM_OPERATION);
+      stream.onEvent(EXECUTE_VM_OPERATION, counter::onExecuteVmOperation);
+      stream.enable(SAFEPOINT_END);
+      stream.onEvent(SAFEPOINT_END, counter::onSafepointEnd);
+    } catch (UnableToMonitorMemoryException e) {
+      logger.debug("Unable to monitor safepoints: {}", e.getMessage(), e);
+      stream.close();
+      return null;
+    }
+    ThreadPoolUtils.createDaemonThreadFactory(SafepointPerformanceCounter.class)
+        .newThread(
+            () -> {
+              try {
+                stream.start();
+              } catch (UnableToMonitorMemoryException e) {
+                logger.warn("Error while reading JFR safepoint events", e);
+              }
+            })
+        .start();
+    return counter;
+  }
+
+  private void onSafepointBegin(JfrEvent event) {
+    long nanos = event.getDurationNanos();
+    count.increment();
+    syncNanos.add(nanos);
+    totalNanos.add(nanos);
+  }
+
+  private void onExecuteVmOperation(JfrEvent event) {
+    // some vm operations don't need a safepoint
+    if (event.getBoolean("safepoint")) {
+      totalNanos.add(event.getDurationNanos());
+    }
+  }
+
+  private void onSafepointEnd(JfrEvent event) {
+    totalNanos.add(event.getDurationNanos());
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    send(telemetryClient, SAFEPOINT_COUNT, count.sumThenReset());
+    send(telemetryClient, SAFEPOINT_TIME, totalNanos.sumThenReset() / NANOS_PER_MILLI);
+    send(telemetryClient, TIME_TO_SAFEPOINT, syncNanos.sumThenReset() / NANOS_PER_MILLI);
+  }
+
+  private static void send(TelemetryClient telemetryClient, String metricName, double value) {
+    logger.trace("Performance Counter: {}: {}", metricName, value);
+    telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(metricName, value));
+  }
+}
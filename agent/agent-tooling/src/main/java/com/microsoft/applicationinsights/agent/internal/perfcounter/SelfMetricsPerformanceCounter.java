@@ -0,0 +1,89 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.LatencyHistogram;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.PipelineStage;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** The class reports the agent's own self-metrics (see {@link SelfMetrics}). */
+public final class SelfMetricsPerformanceCounter implements PerformanceCounter {
+
+  private static final String PREFIX = "Agent ";
+
+  private final SelfMetrics selfMetrics = SelfMetrics.get();
+
+  // latencies and counters are cumulative, so need to report the delta since the last report
+  private final Map<PipelineStage, Long> previousLatencyCounts = new EnumMap<>(PipelineStage.class);
+  private final Map<PipelineStage, Long> previousLatencyTotals = new EnumMap<>(PipelineStage.class);
+  private final Map<String, Long> previousCounters = new HashMap<>();
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    synchronized (this) {
+      for (Map.Entry<PipelineStage, LatencyHistogram> entry :
+          selfMetrics.getLatencyHistograms().entrySet()) {
+        PipelineStage stage = entry.getKey();
+        LatencyHistogram histogram = entry.getValue();
+        long count = histogram.getCount();
+        long totalNanos = histogram.getTotalNanos();
+        Long previousCount = previousLatencyCounts.put(stage, count);
+        Long previousTotalNanos = previousLatencyTotals.put(stage, totalNanos);
+        long countToReport = count - (previousCount == null ? 0 : previousCount);
+        long nanosToReport = totalNanos - (previousTotalNanos == null ? 0 : previousTotalNanos);
+        if (countToReport == 0) {
+          continue;
+        }
+        double meanMillis =
+            nanosToReport / (double) countToReport / TimeUnit.MILLISECONDS.toNanos(1);
+        telemetryClient.trackAsync(
+            telemetryClient.newMetricTelemetry(
+                PREFIX + stage.getDisplayName() + " Count", (double) countToReport));
+        telemetryClient.trackAsync(
+            telemetryClient.newMetricTelemetry(
+                PREFIX + stage.getDisplayName() + " Mean Latency (ms)", meanMillis));
+      }
+
+      for (Map.Entry<String, Long> entry : selfMetrics.getCounters().entrySet()) {
+        Long previousValue = previousCounters.put(entry.getKey(), entry.getValue());
+        long valueToReport = entry.getValue() - (previousValue == null ? 0 : previousValue);
+        telemetryClient.trackAsync(
+            telemetryClient.newMetricTelemetry(PREFIX + entry.getKey(), (double) valueToReport));
+      }
+
+      for (Map.Entry<String, Long> entry : selfMetrics.getGauges().entrySet()) {
+        telemetryClient.trackAsync(
+            telemetryClient.newMetricTelemetry(PREFIX + entry.getKey(), (double) entry.getValue()));
+      }
+
+      for (Map.Entry<String, Double> entry : selfMetrics.getDoubleGauges().entrySet()) {
+        telemetryClient.trackAsync(
+            telemetryClient.newMetricTelemetry(PREFIX + entry.getKey(), entry.getValue()));
+      }
+    }
+  }
+}
@@ -78,7 +78,8 @@ public class AlertingServiceFactory {
   private static GcEventMonitor.GcEventMonitorConfiguration formGcEventMonitorConfiguration(
       Configuration.PreviewConfiguration configuration) {
     if (configuration.gcEvents.reportingLevel != null) {
-      return new GcEventMonitor.GcEventMonitorConfiguration(configuration.gcEvents.reportingLevel);
+      return new GcEventMonitor.GcEventMonitorConfiguration(
+          configuration.gcEvents.reportingLevel, configuration.gcEvents.eventThresholdMillis);
     }
 
     // The memory monitoring requires observing gc events
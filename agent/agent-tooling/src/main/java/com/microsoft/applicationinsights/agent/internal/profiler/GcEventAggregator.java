@@ -0,0 +1,211 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.profiler;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricPointBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.LatencyHistogram;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import com.microsoft.gcmonitor.GcCollectionEvent;
+import com.microsoft.gcmonitor.garbagecollectors.GarbageCollector;
+import com.microsoft.gcmonitor.memorypools.MemoryPool;
+import io.opentelemetry.instrumentation.api.internal.GuardedBy;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Aggregates GC events into per-collector pause time histograms, collection counts, promoted and
+ * reclaimed bytes, and the overall GC overhead, which are reported as metrics on the performance
+ * counter schedule instead of as an event per collection.
+ */
+public class GcEventAggregator implements PerformanceCounter {
+
+  static final String GC_PAUSE_TIME = "GC Pause Time";
+  static final String GC_PAUSE_TIME_P99 = "GC Pause Time P99";
+  static final String GC_PROMOTED_BYTES = "GC Promoted Bytes";
+  static final String GC_RECLAIMED_BYTES = "GC Reclaimed Bytes";
+  static final String GC_OVERHEAD_PERCENTAGE = "GC Overhead Percentage";
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  // the individual pause times are kept (per collector and interval) for the p99, since the
+  // LatencyHistogram buckets are powers of two, which would make it off by up to a factor of two,
+  // and past this many pauses in an interval a uniform sample of them is kept instead
+  static final int MAX_PAUSE_SAMPLES = 10_000;
+
+  private final LongSupplier nanoTime;
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private Map<String, CollectorStats> collectors = new LinkedHashMap<>();
+
+  @GuardedBy("lock")
+  private long intervalStartNanos;
+
+  public GcEventAggregator() {
+    this(System::nanoTime);
+  }
+
+  GcEventAggregator(LongSupplier nanoTime) {
+    this.nanoTime = nanoTime;
+    intervalStartNanos = nanoTime.getAsLong();
+  }
+
+  /**
+   * Returns the time in ns the collection paused the application. Collections reported via the gc
+   * mxbean notifications only have their duration, which for concurrent collectors also includes
+   * the time they ran concurrently with the application.
+   */
+  static long getPauseNanos(GcCollectionEvent event) {
+    long sumOfPausesNanos = event.getSumOfPausesNanos();
+    return sumOfPausesNanos >= 0
+        ? sumOfPausesNanos
+        : TimeUnit.MILLISECONDS.toNanos(event.getDuration());
+  }
+
+  public void record(GcCollectionEvent event) {
+    GarbageCollector collector = event.getCollector();
+    long pauseNanos = getPauseNanos(event);
+
+    long youngBefore = event.getMemoryUsageBeforeGc(event.getYoungPools()).getUsed();
+    long youngAfter = event.getMemoryUsageAfterGc(event.getYoungPools()).getUsed();
+    long tenuredBefore = 0;
+    long tenuredAfter = 0;
+    Optional<MemoryPool> tenuredPool = event.getTenuredPool();
+    if (tenuredPool.isPresent()) {
+      tenuredBefore = getUsed(event.getMemoryUsageBeforeGc(tenuredPool.get()));
+      tenuredAfter = getUsed(event.getMemoryUsageAfterGc(tenuredPool.get()));
+    }
+    // only young collections promote, and single generation collectors have no separate tenured
+    // pool to promote to
+    long promotedBytes = 0;
+    if (collector.isYoungCollector() && !collector.isTenuredCollector()) {
+      promotedBytes = Math.max(0, tenuredAfter - tenuredBefore);
+    }
+    long reclaimedBytes = Math.max(0, youngBefore + tenuredBefore - youngAfter - tenuredAfter);
+
+    synchronized (lock) {
+      CollectorStats stats =
+          collectors.computeIfAbsent(collector.getName(), name -> new CollectorStats());
+      stats.recordPause(pauseNanos);
+      stats.promotedBytes += promotedBytes;
+      stats.reclaimedBytes += reclaimedBytes;
+    }
+  }
+
+  @Override
+  public void report(TelemetryClient telemetryClient) {
+    Map<String, CollectorStats> stats;
+    long elapsedNanos;
+    synchronized (lock) {
+      stats = collectors;
+      collectors = new LinkedHashMap<>();
+      long now = nanoTime.getAsLong();
+      elapsedNanos = now - intervalStartNanos;
+      intervalStartNanos = now;
+    }
+
+    long totalPauseNanos = 0;
+    for (Map.Entry<String, CollectorStats> entry : stats.entrySet()) {
+      String collector = entry.getKey();
+      LatencyHistogram pauses = entry.getValue().pauses;
+      totalPauseNanos += pauses.getTotalNanos();
+
+      MetricTelemetryBuilder pauseTime = telemetryClient.newMetricTelemetryBuilder();
+      MetricPointBuilder point = new MetricPointBuilder();
+      point.setName(GC_PAUSE_TIME);
+      point.setValue(pauses.getTotalNanos() / NANOS_PER_MILLI);
+      point.setCount((int) Math.min(pauses.getCount(), Integer.MAX_VALUE));
+      point.setMax(pauses.getMaxMillis());
+      pauseTime.setMetricPoint(point);
+      pauseTime.setTime(FormattedTime.offSetDateTimeFromNow());
+      pauseTime.addProperty("collector", collector);
+      telemetryClient.trackAsync(pauseTime.build());
+
+      send(telemetryClient, GC_PAUSE_TIME_P99, collector, entry.getValue().getP99PauseMillis());
+      send(telemetryClient, GC_PROMOTED_BYTES, collector, entry.getValue().promotedBytes);
+      send(telemetryClient, GC_RECLAIMED_BYTES, collector, entry.getValue().reclaimedBytes);
+    }
+
+    if (elapsedNanos > 0) {
+      telemetryClient.trackAsync(
+          telemetryClient.newMetricTelemetry(
+              GC_OVERHEAD_PERCENTAGE, 100.0 * totalPauseNanos / elapsedNanos));
+    }
+  }
+
+  private static long getUsed(MemoryUsage usage) {
+    return usage == null ? 0 : usage.getUsed();
+  }
+
+  private static void send(
+      TelemetryClient telemetryClient, String metricName, String collector, double value) {
+    MetricTelemetryBuilder telemetryBuilder =
+        telemetryClient.newMetricTelemetryBuilder(metricName, value);
+    telemetryBuilder.addProperty("collector", collector);
+    telemetryClient.trackAsync(telemetryBuilder.build());
+  }
+
+  private static class CollectorStats {
+    private final LatencyHistogram pauses = new LatencyHistogram();
+    private long[] pauseSamples = new long[16];
+    private int pauseSampleCount;
+    private long promotedBytes;
+    private long reclaimedBytes;
+
+    private void recordPause(long pauseNanos) {
+      pauses.record(pauseNanos);
+      if (pauseSampleCount < MAX_PAUSE_SAMPLES) {
+        if (pauseSampleCount == pauseSamples.length) {
+          pauseSamples =
+              Arrays.copyOf(pauseSamples, Math.min(2 * pauseSamples.length, MAX_PAUSE_SAMPLES));
+        }
+        pauseSamples[pauseSampleCount++] = pauseNanos;
+        return;
+      }
+      // reservoir sampling, each of the pauses so far ends up in the sample with equal probability
+      long index = ThreadLocalRandom.current().nextLong(pauses.getCount());
+      if (index < MAX_PAUSE_SAMPLES) {
+        pauseSamples[(int) index] = pauseNanos;
+      }
+    }
+
+    // nearest-rank percentile, which is one of the recorded pause times
+    private double getP99PauseMillis() {
+      if (pauseSampleCount == 0) {
+        return 0;
+      }
+      Arrays.sort(pauseSamples, 0, pauseSampleCount);
+      int rank = (int) Math.ceil(pauseSampleCount * 0.99);
+      return pauseSamples[rank - 1] / NANOS_PER_MILLI;
+    }
+  }
+}
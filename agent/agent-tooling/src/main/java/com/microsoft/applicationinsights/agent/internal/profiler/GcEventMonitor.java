@@ -23,19 +23,24 @@ package com.microsoft.applicationinsights.agent.internal.profiler;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.EventTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
 import com.microsoft.applicationinsights.agent.internal.configuration.GcReportingLevel;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounterContainer;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import com.microsoft.applicationinsights.alerting.AlertingSubsystem;
 import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
 import com.microsoft.gcmonitor.GcCollectionEvent;
 import com.microsoft.gcmonitor.GcEventConsumer;
 import com.microsoft.gcmonitor.GcMonitorFactory;
+import com.microsoft.gcmonitor.MemoryManagement;
 import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
 import com.microsoft.gcmonitor.memorypools.MemoryPool;
 import java.lang.management.MemoryUsage;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +48,9 @@ import org.slf4j.LoggerFactory;
  * Monitors GC events. Forwards relevant metrics to the alerting subsystem.
  *
  * <p>If reportAllGcEvents configuration setting is set, reports GC event to Application Insights
+ *
+ * <p>If the aggregated reporting level is set, reports per-collector GC metrics instead, and GC
+ * events only for long collections
  */
 public class GcEventMonitor {
   private static final Logger LOGGER = LoggerFactory.getLogger(GcEventMonitor.class);
@@ -54,11 +62,24 @@ public class GcEventMonitor {
   // here
   private static final String JVM_INSTANCE_UID = UUID.randomUUID().toString();
 
+  private static final long NANOS_PER_MILLI = 1_000_000;
+
+  // closed on shutdown(), since e.g. the JFR event stream runs on its own thread
+  @Nullable private static volatile MemoryManagement memoryManagement;
+
   public static class GcEventMonitorConfiguration {
     public final GcReportingLevel reportingLevel;
+    // only used when the reporting level is AGGREGATED
+    public final long eventThresholdMillis;
 
     public GcEventMonitorConfiguration(GcReportingLevel reportingLevel) {
+      this(reportingLevel, 0);
+    }
+
+    public GcEventMonitorConfiguration(
+        GcReportingLevel reportingLevel, long eventThresholdMillis) {
       this.reportingLevel = reportingLevel;
+      this.eventThresholdMillis = eventThresholdMillis;
     }
   }
 
@@ -87,22 +108,42 @@ public class GcEventMonitor {
       ExecutorService executorService,
       GcEventMonitorConfiguration gcEventMonitorConfiguration,
       GcMonitorFactory gcMonitorFactory) {
+    GcEventAggregator aggregator = null;
+    if (gcEventMonitorConfiguration.reportingLevel == GcReportingLevel.AGGREGATED) {
+      aggregator = new GcEventAggregator();
+      PerformanceCounterContainer.INSTANCE.register(aggregator);
+    }
     try {
-      gcMonitorFactory.monitorSelf(
-          executorService,
-          process(alertingSubsystem, telemetryClient, gcEventMonitorConfiguration));
+      memoryManagement =
+          gcMonitorFactory.monitorSelf(
+              executorService,
+              ThreadPoolUtils.createDaemonThreadFactory(GcEventMonitor.class, "JfrEventStream"),
+              process(alertingSubsystem, telemetryClient, gcEventMonitorConfiguration, aggregator));
     } catch (UnableToMonitorMemoryException e) {
       LOGGER.error("Failed to monitor gc mxbeans");
     }
   }
 
+  /** Stops monitoring GC events, to be called when the executor passed to init() is shut down. */
+  public static void shutdown() {
+    MemoryManagement memoryManagement = GcEventMonitor.memoryManagement;
+    GcEventMonitor.memoryManagement = null;
+    if (memoryManagement != null) {
+      memoryManagement.close();
+    }
+  }
+
   /** Consumer of a GC event. */
   private static GcEventConsumer process(
       AlertingSubsystem alertingSubsystem,
       TelemetryClient telemetryClient,
-      GcEventMonitorConfiguration gcEventMonitorConfiguration) {
+      GcEventMonitorConfiguration gcEventMonitorConfiguration,
+      @Nullable GcEventAggregator aggregator) {
     return event -> {
       sendTenuredFillPercentageToAlerting(alertingSubsystem, event);
+      if (aggregator != null) {
+        aggregator.record(event);
+      }
       emitGcEvent(telemetryClient, gcEventMonitorConfiguration, event);
     };
   }
@@ -133,6 +174,10 @@ public class GcEventMonitor {
     reportEvent |=
         gcEventMonitorConfiguration.reportingLevel == GcReportingLevel.TENURED_ONLY
             && event.getCollector().isTenuredCollector();
+    reportEvent |=
+        gcEventMonitorConfiguration.reportingLevel == GcReportingLevel.AGGREGATED
+            && GcEventAggregator.getPauseNanos(event)
+                >= TimeUnit.MILLISECONDS.toNanos(gcEventMonitorConfiguration.eventThresholdMillis);
 
     if (!reportEvent) {
       return;
@@ -155,6 +200,13 @@ public class GcEventMonitor {
         "collection_count", (double) event.getCollector().getCollectionCount());
     telemetryBuilder.addMeasurement(
         "cumulative_collector_time_sec", (double) event.getCollector().getCollectionTime());
+    // only reported when the events come from JFR
+    if (event.getSumOfPausesNanos() >= 0) {
+      telemetryBuilder.addMeasurement(
+          "sum_of_pauses_ms", event.getSumOfPausesNanos() / (double) NANOS_PER_MILLI);
+      telemetryBuilder.addMeasurement(
+          "longest_pause_ms", event.getLongestPauseNanos() / (double) NANOS_PER_MILLI);
+    }
 
     addMemoryUsage(
         "young", "before", telemetryBuilder, event.getMemoryUsageBeforeGc(event.getYoungPools()));
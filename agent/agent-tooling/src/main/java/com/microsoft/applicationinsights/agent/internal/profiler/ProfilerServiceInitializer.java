@@ -176,6 +176,7 @@ public class ProfilerServiceInitializer {
               LOGGER.error(
                   "Unable to obtain JFR connection, this may indicate that your JVM does not have JFR enabled. JFR profiling system will shutdown",
                   e);
+              GcEventMonitor.shutdown();
               alertServiceExecutorService.shutdown();
               serviceProfilerExecutorService.shutdown();
             }
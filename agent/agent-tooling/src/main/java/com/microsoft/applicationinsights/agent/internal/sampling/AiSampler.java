@@ -55,6 +55,10 @@ class AiSampler implements Sampler {
 
   private final SamplingResult dropDecision;
 
+  // spans that are sampled out by percentage are still recorded (but not exported) when standard
+  // metrics are pre-aggregated in the agent, so that they are counted in those metrics
+  private final SamplingResult sampledOutDecision;
+
   private final BehaviorIfNoMatchingOverrides behaviorIfNoMatchingOverrides;
 
   // samplingPercentage is still used in BehaviorIfNoMatchingOverrides.RECORD_AND_SAMPLE
@@ -66,7 +70,8 @@ class AiSampler implements Sampler {
   AiSampler(
       double samplingPercentage,
       SamplingOverrides samplingOverrides,
-      BehaviorIfNoMatchingOverrides behaviorIfNoMatchingOverrides) {
+      BehaviorIfNoMatchingOverrides behaviorIfNoMatchingOverrides,
+      boolean recordSampledOut) {
     this.defaultSamplingPercentage = samplingPercentage;
     recordAndSampleAndAddTraceStateIfMissing =
         SamplingOverrides.getRecordAndSampleAndAddTraceStateIfMissing(samplingPercentage);
@@ -76,6 +81,10 @@ class AiSampler implements Sampler {
     this.behaviorIfNoMatchingOverrides = behaviorIfNoMatchingOverrides;
 
     dropDecision = SamplingResult.create(SamplingDecision.DROP, Attributes.empty());
+    sampledOutDecision =
+        recordSampledOut
+            ? SamplingResult.create(SamplingDecision.RECORD_ONLY, Attributes.empty())
+            : dropDecision;
   }
 
   @Override
@@ -124,7 +133,7 @@ class AiSampler implements Sampler {
     }
     if (SamplingScoreGeneratorV2.getSamplingScore(traceId) >= percentage) {
       logger.debug("Item {} sampled out", name);
-      return dropDecision;
+      return sampledOutDecision;
     }
     return sampledSamplingResult;
   }
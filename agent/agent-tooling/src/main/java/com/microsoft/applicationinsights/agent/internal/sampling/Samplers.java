@@ -28,31 +28,38 @@ public class Samplers {
 
   public static Sampler getSampler(double samplingPercentage, Configuration config) {
     SamplingOverrides samplingOverrides = new SamplingOverrides(config.preview.sampling.overrides);
+    // when standard metrics are pre-aggregated in the agent, spans that are not sampled are still
+    // recorded (but not exported) so that they are counted in those metrics
+    boolean recordSampledOut = config.preview.standardMetricsMaxSeriesCount > 0;
     AiSampler rootSampler =
         new AiSampler(
             samplingPercentage,
             samplingOverrides,
-            AiSampler.BehaviorIfNoMatchingOverrides.USE_DEFAULT_SAMPLING_PERCENTAGE);
+            AiSampler.BehaviorIfNoMatchingOverrides.USE_DEFAULT_SAMPLING_PERCENTAGE,
+            recordSampledOut);
     AiSampler parentSampledSampler =
         new AiSampler(
             samplingPercentage,
             samplingOverrides,
-            AiSampler.BehaviorIfNoMatchingOverrides.RECORD_AND_SAMPLE);
+            AiSampler.BehaviorIfNoMatchingOverrides.RECORD_AND_SAMPLE,
+            recordSampledOut);
     // ignoreRemoteParentNotSampled is currently needed
     // because .NET SDK always propagates trace flags "00" (not sampled)
     // NOTE: once we start propagating sampling percentage over the wire, we can use that to know
     // that we can
     // respect upstream decision for remoteParentNotSampled
+    Sampler parentNotSampled = recordSampledOut ? RecordOnlySampler.INSTANCE : Sampler.alwaysOff();
     Sampler remoteParentNotSampled =
-        config.preview.ignoreRemoteParentNotSampled ? rootSampler : Sampler.alwaysOff();
+        config.preview.ignoreRemoteParentNotSampled ? rootSampler : parentNotSampled;
     return Sampler.parentBasedBuilder(rootSampler)
         .setRemoteParentNotSampled(remoteParentNotSampled)
-        // this is the default, just including it for completeness
+        // when not recording sampled out spans, this is the default, just including it for
+        // completeness
         // intentionally not allowing to capture a downstream span when upstream span has not been
         // sampled
         // because this will lead to broken traces in A (sampled) -> B (not sampled) -> C (sampled)
         // C will point to parent B, but B will not be exported
-        .setLocalParentNotSampled(Sampler.alwaysOff())
+        .setLocalParentNotSampled(parentNotSampled)
         // can filter out subtree of sampled trace, by applying sampling override
         .setRemoteParentSampled(parentSampledSampler)
         // can filter out subtree of sampled trace, by applying sampling override
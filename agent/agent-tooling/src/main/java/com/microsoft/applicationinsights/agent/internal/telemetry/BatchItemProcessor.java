@@ -21,15 +21,24 @@
 
 package com.microsoft.applicationinsights.agent.internal.telemetry;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.TelemetryItemPool;
 import com.azure.monitor.opentelemetry.exporter.implementation.logging.OperationLogger;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import com.azure.monitor.opentelemetry.exporter.implementation.pipeline.TelemetryItemExporter;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.AgentThreads;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.PipelineStage;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.TelemetryItemSizeEstimator;
 import io.opentelemetry.internal.shaded.jctools.queues.MpscArrayQueue;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.internal.DaemonThreadFactory;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Queue;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -38,6 +47,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
 
 // copied from io.opentelemetry.sdk.trace.export.BatchSpanProcessor
 public final class BatchItemProcessor {
@@ -45,6 +56,12 @@ public final class BatchItemProcessor {
   private static final String WORKER_THREAD_NAME =
       BatchItemProcessor.class.getSimpleName() + "_WorkerThread";
 
+  // the total number of items held in the per instrumentation key batches is bounded to this
+  // multiple of the max export batch size, which leaves room for a couple of instrumentation keys
+  // to fill up complete batches, without letting many instrumentation keys hold onto up to a full
+  // queue worth of items between exports
+  private static final int MAX_BATCHED_ITEMS_FACTOR = 2;
+
   private final Worker worker;
   private final AtomicBoolean isShutdown = new AtomicBoolean(false);
 
@@ -66,8 +83,19 @@ public final class BatchItemProcessor {
       int maxExportBatchSize,
       long exporterTimeoutNanos,
       int maxPendingExports,
+      boolean priorityLanes,
+      int overflowBufferSizeBytes,
       String queueName) {
-    MpscArrayQueue<TelemetryItem> queue = new MpscArrayQueue<>(maxQueueSize);
+    Lane[] lanes;
+    if (priorityLanes) {
+      ExportQueueLane[] priorities = ExportQueueLane.values();
+      lanes = new Lane[priorities.length];
+      for (int i = 0; i < priorities.length; i++) {
+        lanes[i] = new Lane(priorities[i], maxQueueSize, queueName);
+      }
+    } else {
+      lanes = new Lane[] {new Lane(null, maxQueueSize, queueName)};
+    }
     this.worker =
         new Worker(
             exporter,
@@ -75,10 +103,11 @@ public final class BatchItemProcessor {
             maxExportBatchSize,
             exporterTimeoutNanos,
             maxPendingExports,
-            queue,
-            queue.capacity(),
+            lanes,
+            overflowBufferSizeBytes > 0 ? new OverflowBuffer(overflowBufferSizeBytes) : null,
             queueName);
     Thread workerThread = new DaemonThreadFactory(WORKER_THREAD_NAME).newThread(worker);
+    AgentThreads.registerExportThread(workerThread);
     workerThread.start();
   }
 
@@ -97,6 +126,73 @@ public final class BatchItemProcessor {
     return worker.forceFlush();
   }
 
+  // each lane has its own queue (sized to the admission limit of the lane, since a lane can never
+  // hold more items than that), while the total number of items across all of the lanes is bounded
+  // by the admission limit of each lane
+  private static final class Lane {
+
+    // null when priority lanes are not enabled
+    @Nullable private final ExportQueueLane priority;
+    private final MpscArrayQueue<TelemetryItem> queue;
+    private final int admissionLimit;
+    // null when priority lanes are not enabled
+    @Nullable private final LongAdder droppedItemCount;
+    // the queue wait is measured for one item at a time, the next item that is queued after the
+    // sampled item has been dequeued becomes the next sampled item
+    private final AtomicReference<QueueWaitSample> queueWaitSample = new AtomicReference<>();
+
+    private Lane(@Nullable ExportQueueLane priority, int maxQueueSize, String queueName) {
+      this.priority = priority;
+      if (priority == null) {
+        queue = new MpscArrayQueue<>(maxQueueSize);
+        admissionLimit = queue.capacity();
+        droppedItemCount = null;
+      } else {
+        admissionLimit = priority.getAdmissionLimit(maxQueueSize);
+        queue = new MpscArrayQueue<>(Math.max(admissionLimit, 2));
+        droppedItemCount =
+            SelfMetrics.get()
+                .getCounter(queueName + "ExportQueue" + priority.getMetricName() + "DroppedItems");
+      }
+    }
+
+    // needs to be called before the item is offered to the queue, so that the sample is visible
+    // to the worker thread by the time it dequeues the item
+    @Nullable
+    private QueueWaitSample sampleQueueWait(TelemetryItem item) {
+      if (queueWaitSample.get() != null) {
+        return null;
+      }
+      QueueWaitSample sample = new QueueWaitSample(item, System.nanoTime());
+      return queueWaitSample.compareAndSet(null, sample) ? sample : null;
+    }
+  }
+
+  private static final class QueueWaitSample {
+
+    private final TelemetryItem item;
+    private final long queuedNanos;
+
+    private QueueWaitSample(TelemetryItem item, long queuedNanos) {
+      this.item = item;
+      this.queuedNanos = queuedNanos;
+    }
+  }
+
+  private static final class Batch {
+
+    private final ArrayList<TelemetryItem> items;
+    // the estimated size of the items above, which is handed over to the exporter on export (which
+    // exchanges it for the size of the encoded payload)
+    private long itemBytes;
+    // used to measure how long the batched items wait before being exported
+    private long firstItemNanos;
+
+    private Batch(int maxExportBatchSize) {
+      items = new ArrayList<>(maxExportBatchSize);
+    }
+  }
+
   // Worker is a thread that batches multiple items and calls the registered TelemetryItemExporter
   // to export the data.
   private static final class Worker implements Runnable {
@@ -109,7 +205,18 @@ public final class BatchItemProcessor {
 
     private long nextExportTime;
 
-    private final Queue<TelemetryItem> queue;
+    // lanes are drained in order, so higher priority lanes come first
+    private final Lane[] lanes;
+    // total number of items across all of the lanes
+    private final AtomicInteger queuedItemCount = new AtomicInteger();
+    // null when the overflow buffer is not enabled
+    @Nullable private final OverflowBuffer overflowBuffer;
+    // items that didn't fit into the queue are handed off to the worker thread via this small
+    // bounded queue, so that they are serialized into the overflow buffer by the worker thread
+    // instead of by the application thread (null when the overflow buffer is not enabled)
+    @Nullable private final MpscArrayQueue<TelemetryItem> overflowHandoff;
+    // items count against the memory budget from when they are queued until they are exported
+    private final MemoryBudget memoryBudget = MemoryBudget.get();
     private final int queueCapacity;
     private final String queueName;
     // When waiting on the items queue, exporter thread sets this atomic to the number of more
@@ -122,11 +229,26 @@ public final class BatchItemProcessor {
     private final BlockingQueue<Boolean> signal;
     private final AtomicReference<CompletableResultCode> flushRequested = new AtomicReference<>();
     private volatile boolean continueWork = true;
-    private final ArrayList<TelemetryItem> batch;
+
+    // items are accumulated per instrumentation key, so that each instrumentation key gets
+    // properly sized batches, instead of every batch being split up downstream into many small
+    // requests when using instrumentation key overrides
+    private final Map<String, Batch> batches = new HashMap<>();
+    // total number of items across all of the batches above
+    private int batchedItemCount;
+    // once this many items are batched, the largest batch is exported (even though it's not full)
+    private final int maxBatchedItems;
+    // size of the largest of the batches above
+    private int largestBatchSize;
 
     private final Set<CompletableResultCode> pendingExports =
         Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    private final SelfMetrics selfMetrics = SelfMetrics.get();
+    private final TelemetryItemPool telemetryItemPool = TelemetryItemPool.get();
+    private final LongAdder droppedItemCount;
+    private final LongAdder overflowedItemCount;
+
     private static final OperationLogger queuingItemLogger =
         new OperationLogger(BatchItemProcessor.class, "Queuing telemetry item");
 
@@ -139,29 +261,84 @@ public final class BatchItemProcessor {
         int maxExportBatchSize,
         long exporterTimeoutNanos,
         int maxPendingExports,
-        Queue<TelemetryItem> queue,
-        int queueCapacity,
+        Lane[] lanes,
+        @Nullable OverflowBuffer overflowBuffer,
         String queueName) {
       this.exporter = exporter;
       this.scheduleDelayNanos = scheduleDelayNanos;
       this.maxExportBatchSize = maxExportBatchSize;
+      this.maxBatchedItems = maxExportBatchSize * MAX_BATCHED_ITEMS_FACTOR;
       this.exporterTimeoutNanos = exporterTimeoutNanos;
       this.maxPendingExports = maxPendingExports;
-      this.queue = queue;
-      this.queueCapacity = queueCapacity;
+      this.lanes = lanes;
+      this.overflowBuffer = overflowBuffer;
+      this.overflowHandoff =
+          overflowBuffer != null ? new MpscArrayQueue<>(Math.max(maxExportBatchSize, 2)) : null;
+      // the first lane is either the only lane or the high priority lane, which can use the full
+      // queue capacity
+      this.queueCapacity = lanes[0].admissionLimit;
       this.queueName = queueName;
       this.signal = new ArrayBlockingQueue<>(1);
-      this.batch = new ArrayList<>(this.maxExportBatchSize);
+
+      droppedItemCount = selfMetrics.getCounter(queueName + "ExportQueueDroppedItems");
+      overflowedItemCount = selfMetrics.getCounter(queueName + "ExportQueueOverflowedItems");
+      selfMetrics.registerGauge(queueName + "ExportQueueDepth", queuedItemCount::get);
+      if (overflowBuffer != null) {
+        selfMetrics.registerGauge(queueName + "ExportQueueOverflowDepth", overflowBuffer::size);
+      }
     }
 
     private void addItem(TelemetryItem item) {
-      if (!queue.offer(item)) {
+      Lane lane = lanes.length == 1 ? lanes[0] : lanes[ExportQueueLane.forItem(item).ordinal()];
+      // the size is only estimated when the memory budget is enabled, since it walks the item
+      long itemBytes = memoryBudget.isEnabled() ? TelemetryItemSizeEstimator.estimate(item) : 0;
+      // kept with the item, so that the size doesn't need to be estimated again when it is batched
+      item.setEstimatedBytes(itemBytes);
+      boolean withinMemoryBudget = memoryBudget.tryAcquire(itemBytes);
+      int queuedItems = queuedItemCount.incrementAndGet();
+      boolean admitted = withinMemoryBudget && queuedItems <= lane.admissionLimit;
+      QueueWaitSample queueWaitSample = admitted ? lane.sampleQueueWait(item) : null;
+      if (!admitted || !lane.queue.offer(item)) {
+        if (queueWaitSample != null) {
+          lane.queueWaitSample.compareAndSet(queueWaitSample, null);
+        }
+        queuedItemCount.decrementAndGet();
+        if (withinMemoryBudget) {
+          memoryBudget.release(itemBytes);
+        }
+        // the overflow buffer is off-heap, so it doesn't count against the memory budget, and the
+        // handoff to it is bounded to a single batch of items
+        if (overflowHandoff != null && overflowHandoff.offer(item)) {
+          signal.offer(true);
+          return;
+        }
+        telemetryItemPool.release(item);
+        droppedItemCount.increment();
+        if (lane.droppedItemCount != null) {
+          lane.droppedItemCount.increment();
+        }
+        if (!withinMemoryBudget) {
+          queuingItemLogger.recordFailure(
+              "Agent memory budget of "
+                  + (memoryBudget.getMaxBytes() / (1024 * 1024))
+                  + " MB has been hit, dropping a telemetry record from the "
+                  + queueName
+                  + " export queue (the memory budget can be increased in the"
+                  + " applicationinsights.json configuration file, e.g. { \"preview\": {"
+                  + " \"memoryBudgetMb\": "
+                  + (memoryBudget.getMaxBytes() / (1024 * 1024) * 2)
+                  + " } }");
+          return;
+        }
+        // the failure message is per lane, so that the aggregated drop counts are per lane
         queuingItemLogger.recordFailure(
             "Max "
                 + queueName
                 + " export queue capacity of "
                 + queueCapacity
-                + " has been hit, dropping a telemetry record (max "
+                + " has been hit, dropping a telemetry record"
+                + getLaneDescription(lane)
+                + " (max "
                 + queueName
                 + " export queue capacity can be increased in the applicationinsights.json"
                 + " configuration file, e.g. { \"preview\": { \""
@@ -171,12 +348,50 @@ public final class BatchItemProcessor {
                 + " } }");
       } else {
         queuingItemLogger.recordSuccess();
-        if (queue.size() >= itemsNeeded.get()) {
+        if (queuedItems >= itemsNeeded.get()) {
           signal.offer(true);
         }
       }
     }
 
+    private static String getLaneDescription(Lane lane) {
+      if (lane.priority == null) {
+        return "";
+      }
+      return " from the "
+          + lane.priority.getDisplayName()
+          + " priority lane, which is shed once "
+          + lane.admissionLimit
+          + " items are queued";
+    }
+
+    @Nullable
+    private TelemetryItem poll() {
+      for (Lane lane : lanes) {
+        TelemetryItem item = lane.queue.poll();
+        if (item != null) {
+          queuedItemCount.decrementAndGet();
+          QueueWaitSample queueWaitSample = lane.queueWaitSample.get();
+          if (queueWaitSample != null && queueWaitSample.item == item) {
+            selfMetrics.recordLatency(
+                PipelineStage.QUEUE_WAIT, System.nanoTime() - queueWaitSample.queuedNanos);
+            lane.queueWaitSample.set(null);
+          }
+          return item;
+        }
+      }
+      return null;
+    }
+
+    private boolean isQueueEmpty() {
+      for (Lane lane : lanes) {
+        if (!lane.queue.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     @Override
     public void run() {
       updateNextExportTime();
@@ -185,18 +400,40 @@ public final class BatchItemProcessor {
         if (flushRequested.get() != null) {
           flush();
         }
-        while (!queue.isEmpty() && batch.size() < maxExportBatchSize) {
-          batch.add(queue.poll());
+        // full batches are exported as soon as they fill up, and the largest batch is exported once
+        // the total number of batched items hits the limit (see addToBatch), the number of items
+        // drained per iteration is bounded so that flush requests and the export schedule are
+        // still serviced under sustained load
+        for (int i = 0; i < maxBatchedItems; i++) {
+          TelemetryItem item = poll();
+          if (item == null) {
+            break;
+          }
+          addToBatch(item);
+        }
+        if (overflowBuffer != null) {
+          moveOverflowHandoffToBuffer();
+          // full batches from the overflow buffer are exported in between draining the queue,
+          // which (roughly) preserves the order in which the items were added, while the last
+          // partial batch is exported on the schedule below
+          if (overflowBuffer.size() >= maxExportBatchSize) {
+            exportOverflowBatch();
+          }
         }
-        if (batch.size() >= maxExportBatchSize || System.nanoTime() >= nextExportTime) {
-          exportCurrentBatch();
+        if (System.nanoTime() >= nextExportTime) {
+          exportAllBatches();
+          if (overflowBuffer != null) {
+            exportOverflowBatch();
+          }
           updateNextExportTime();
         }
-        if (queue.isEmpty()) {
+        if (isQueueEmpty() && !hasOverflowWork()) {
           try {
             long pollWaitTime = nextExportTime - System.nanoTime();
             if (pollWaitTime > 0) {
-              itemsNeeded.set(maxExportBatchSize - batch.size());
+              itemsNeeded.set(
+                  Math.min(
+                      maxExportBatchSize - largestBatchSize, maxBatchedItems - batchedItemCount));
               signal.poll(pollWaitTime, TimeUnit.NANOSECONDS);
               itemsNeeded.set(Integer.MAX_VALUE);
             }
@@ -209,17 +446,24 @@ public final class BatchItemProcessor {
     }
 
     private void flush() {
-      int itemsToFlush = queue.size();
+      int itemsToFlush = queuedItemCount.get();
       while (itemsToFlush > 0) {
-        TelemetryItem item = queue.poll();
-        assert item != null;
-        batch.add(item);
+        TelemetryItem item = poll();
+        if (item == null) {
+          // item count is incremented before the item is offered to its lane
+          break;
+        }
+        addToBatch(item);
         itemsToFlush--;
-        if (batch.size() >= maxExportBatchSize) {
-          exportCurrentBatch();
+      }
+      if (overflowBuffer != null) {
+        moveOverflowHandoffToBuffer();
+        int overflowItemsToFlush = overflowBuffer.size();
+        while (overflowItemsToFlush > 0 && exportOverflowBatch()) {
+          overflowItemsToFlush -= maxExportBatchSize;
         }
       }
-      exportCurrentBatch();
+      exportAllBatches();
       CompletableResultCode.ofAll(pendingExports).join(exporterTimeoutNanos, TimeUnit.NANOSECONDS);
       CompletableResultCode flushResult = flushRequested.get();
       if (flushResult != null) {
@@ -284,34 +528,150 @@ public final class BatchItemProcessor {
       return possibleResult == null ? CompletableResultCode.ofSuccess() : possibleResult;
     }
 
-    private void exportCurrentBatch() {
-      if (batch.isEmpty()) {
+    private void addToBatch(TelemetryItem item) {
+      String instrumentationKey = item.getInstrumentationKey();
+      Batch batch = batches.get(instrumentationKey);
+      if (batch == null) {
+        batch = new Batch(maxExportBatchSize);
+        batches.put(instrumentationKey, batch);
+      }
+      if (batch.items.isEmpty()) {
+        batch.firstItemNanos = System.nanoTime();
+      }
+      batch.items.add(item);
+      batch.itemBytes += item.getEstimatedBytes();
+      batchedItemCount++;
+      if (batch.items.size() >= maxExportBatchSize) {
+        exportBatch(instrumentationKey, batch);
+        updateLargestBatchSize();
+      } else if (batchedItemCount >= maxBatchedItems) {
+        exportLargestBatch();
+        updateLargestBatchSize();
+      } else if (batch.items.size() > largestBatchSize) {
+        largestBatchSize = batch.items.size();
+      }
+    }
+
+    private void exportLargestBatch() {
+      Map.Entry<String, Batch> largest = null;
+      for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+        if (largest == null || entry.getValue().items.size() > largest.getValue().items.size()) {
+          largest = entry;
+        }
+      }
+      if (largest != null) {
+        exportBatch(largest.getKey(), largest.getValue());
+      }
+    }
+
+    private void updateLargestBatchSize() {
+      largestBatchSize = 0;
+      for (Batch batch : batches.values()) {
+        largestBatchSize = Math.max(largestBatchSize, batch.items.size());
+      }
+    }
+
+    private void exportAllBatches() {
+      Iterator<Map.Entry<String, Batch>> i = batches.entrySet().iterator();
+      while (i.hasNext()) {
+        Map.Entry<String, Batch> entry = i.next();
+        Batch batch = entry.getValue();
+        if (batch.items.isEmpty()) {
+          // no telemetry for this instrumentation key since the last export, so release the batch
+          // instead of holding onto it indefinitely
+          i.remove();
+        } else {
+          exportBatch(entry.getKey(), batch);
+        }
+      }
+      largestBatchSize = 0;
+    }
+
+    private void exportBatch(String instrumentationKey, Batch batch) {
+      ArrayList<TelemetryItem> items = batch.items;
+      if (items.isEmpty()) {
         return;
       }
 
+      selfMetrics.recordLatency(PipelineStage.BATCH_WAIT, System.nanoTime() - batch.firstItemNanos);
       try {
-        // batching, retry, logging, and writing to disk on failure occur downstream
-        CompletableResultCode result = exporter.send(Collections.unmodifiableList(batch));
-        if (pendingExports.size() < maxPendingExports - 1) {
-          addAsyncExport.recordSuccess();
-          pendingExports.add(result);
-          result.whenComplete(
-              () -> {
-                pendingExports.remove(result);
-              });
+        // retry, logging, and writing to disk on failure occur downstream
+        // the exporter takes over the memory budget held by the items
+        trackExport(
+            exporter.send(
+                Collections.unmodifiableList(items), instrumentationKey, batch.itemBytes));
+      } finally {
+        batch.itemBytes = 0;
+        batchedItemCount -= items.size();
+        items.clear();
+      }
+    }
+
+    // serializes the items that were handed off by the application threads into the overflow buffer
+    private void moveOverflowHandoffToBuffer() {
+      TelemetryItem item;
+      while ((item = overflowHandoff.poll()) != null) {
+        // the overflow buffer holds a serialized copy, so the item itself is no longer needed
+        // either way
+        boolean overflowed = overflowBuffer.offer(item);
+        telemetryItemPool.release(item);
+        if (overflowed) {
+          overflowedItemCount.increment();
         } else {
-          // need conditional, otherwise this will always get logged when maxPendingExports is 1
-          // (e.g. statsbeat)
-          if (maxPendingExports > 1) {
-            addAsyncExport.recordFailure(
-                "Max number of concurrent exports "
-                    + maxPendingExports
-                    + " has been hit, may see some export throttling due to this");
-          }
-          result.join(exporterTimeoutNanos, TimeUnit.NANOSECONDS);
+          droppedItemCount.increment();
+          queuingItemLogger.recordFailure(
+              "The "
+                  + queueName
+                  + " export queue and its overflow buffer are both full, dropping a telemetry"
+                  + " record");
         }
-      } finally {
-        batch.clear();
+      }
+    }
+
+    private boolean hasOverflowWork() {
+      return overflowBuffer != null
+          && (!overflowHandoff.isEmpty() || overflowBuffer.size() >= maxExportBatchSize);
+    }
+
+    // returns true if there are still items remaining in the overflow buffer
+    private boolean exportOverflowBatch() {
+      // items in the overflow buffer are already serialized, so they are exported separately from
+      // the batches of telemetry items above
+      Map<String, List<byte[]>> serializedBatches = new HashMap<>();
+      for (int i = 0; i < maxExportBatchSize; i++) {
+        OverflowBuffer.SerializedTelemetryItem item = overflowBuffer.poll();
+        if (item == null) {
+          break;
+        }
+        serializedBatches
+            .computeIfAbsent(item.getInstrumentationKey(), k -> new ArrayList<>())
+            .add(item.getBytes());
+      }
+      for (Map.Entry<String, List<byte[]>> entry : serializedBatches.entrySet()) {
+        // retry, logging, and writing to disk on failure occur downstream
+        trackExport(exporter.sendSerialized(entry.getValue(), entry.getKey()));
+      }
+      return overflowBuffer.size() > 0;
+    }
+
+    private void trackExport(CompletableResultCode result) {
+      if (pendingExports.size() < maxPendingExports - 1) {
+        addAsyncExport.recordSuccess();
+        pendingExports.add(result);
+        result.whenComplete(
+            () -> {
+              pendingExports.remove(result);
+            });
+      } else {
+        // need conditional, otherwise this will always get logged when maxPendingExports is 1
+        // (e.g. statsbeat)
+        if (maxPendingExports > 1) {
+          addAsyncExport.recordFailure(
+              "Max number of concurrent exports "
+                  + maxPendingExports
+                  + " has been hit, may see some export throttling due to this");
+        }
+        result.join(exporterTimeoutNanos, TimeUnit.NANOSECONDS);
       }
     }
   }
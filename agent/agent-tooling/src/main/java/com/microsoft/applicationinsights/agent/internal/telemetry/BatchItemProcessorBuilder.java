@@ -39,19 +39,36 @@ final class BatchItemProcessorBuilder {
   private static final int DEFAULT_MAX_PENDING_EXPORTS = 1;
 
   private final TelemetryItemExporter exporter;
-  private final long scheduleDelayNanos =
-      TimeUnit.MILLISECONDS.toNanos(DEFAULT_SCHEDULE_DELAY_MILLIS);
+  private long scheduleDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SCHEDULE_DELAY_MILLIS);
   private final long exporterTimeoutNanos =
       TimeUnit.MILLISECONDS.toNanos(DEFAULT_EXPORT_TIMEOUT_MILLIS);
 
   private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
   private int maxExportBatchSize = DEFAULT_MAX_EXPORT_BATCH_SIZE;
   private int maxPendingExports = DEFAULT_MAX_PENDING_EXPORTS;
+  private boolean priorityLanes;
+  private int overflowBufferSizeBytes;
 
   BatchItemProcessorBuilder(TelemetryItemExporter exporter) {
     this.exporter = requireNonNull(exporter, "exporter");
   }
 
+  /**
+   * Sets the delay interval between two consecutive exports.
+   *
+   * <p>Default value is {@code 5000} milliseconds.
+   *
+   * @param delay the delay interval between two consecutive exports.
+   * @param unit the unit of the delay.
+   * @return this.
+   */
+  BatchItemProcessorBuilder setScheduleDelay(long delay, TimeUnit unit) {
+    requireNonNull(unit, "unit");
+    checkArgument(delay >= 0, "delay must be non-negative");
+    scheduleDelayNanos = unit.toNanos(delay);
+    return this;
+  }
+
   /**
    * Sets the maximum number of items that are kept in the queue before start dropping. More memory
    * than this value may be allocated to optimize queue access.
@@ -107,6 +124,39 @@ final class BatchItemProcessorBuilder {
     return this;
   }
 
+  /**
+   * Enables priority lanes in the queue. Requests, exceptions and availability results are drained
+   * first and can use the full queue capacity, while traces are the first to be dropped once the
+   * queue starts filling up.
+   *
+   * <p>Default value is {@code false}.
+   *
+   * @param priorityLanes whether to enable priority lanes in the queue.
+   * @return this.
+   */
+  public BatchItemProcessorBuilder setPriorityLanes(boolean priorityLanes) {
+    this.priorityLanes = priorityLanes;
+    return this;
+  }
+
+  /**
+   * Sets the size of the off-heap overflow buffer. Once the queue is full, items are handed off to
+   * the worker thread, which serializes them into the overflow buffer instead of them being
+   * dropped. Items are exported from the overflow buffer in full batches, and any remaining partial
+   * batch is exported on the export schedule. The overflow buffer memory is only allocated once
+   * the queue first overflows.
+   *
+   * <p>Default value is {@code 0}, which disables the overflow buffer.
+   *
+   * @param overflowBufferSizeBytes the size of the overflow buffer in bytes.
+   * @return this.
+   */
+  public BatchItemProcessorBuilder setOverflowBufferSizeBytes(int overflowBufferSizeBytes) {
+    checkArgument(overflowBufferSizeBytes >= 0, "overflowBufferSizeBytes must be non-negative.");
+    this.overflowBufferSizeBytes = overflowBufferSizeBytes;
+    return this;
+  }
+
   /**
    * Returns a new {@link BatchItemProcessor} that batches, then converts items to proto and
    * forwards them to the given {@code exporter}.
@@ -122,6 +172,8 @@ final class BatchItemProcessorBuilder {
         maxExportBatchSize,
         exporterTimeoutNanos,
         maxPendingExports,
+        priorityLanes,
+        overflowBufferSizeBytes,
         queueName);
   }
 }
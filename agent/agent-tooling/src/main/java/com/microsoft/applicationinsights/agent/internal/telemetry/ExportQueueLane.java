@@ -0,0 +1,74 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.AvailabilityData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MessageData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorDomain;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RequestData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryExceptionData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.util.Locale;
+
+// priority lanes of the export queue, in the order that they are drained by the export worker
+enum ExportQueueLane {
+
+  // requests, exceptions and availability results can always use the full queue capacity
+  HIGH(1.0),
+  // dependencies, events and page views
+  NORMAL(0.9),
+  // traces are shed first under pressure, so that a log flood cannot crowd out the other lanes
+  LOW(0.75);
+
+  // fraction of the total queue capacity that can be in use before items in this lane are dropped
+  private final double capacityFraction;
+
+  ExportQueueLane(double capacityFraction) {
+    this.capacityFraction = capacityFraction;
+  }
+
+  int getAdmissionLimit(int queueCapacity) {
+    return (int) (queueCapacity * capacityFraction);
+  }
+
+  String getDisplayName() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  // e.g. "HighPriority", used in the names of the per lane self-metrics
+  String getMetricName() {
+    return name().charAt(0) + getDisplayName().substring(1) + "Priority";
+  }
+
+  static ExportQueueLane forItem(TelemetryItem item) {
+    MonitorDomain data = item.getData().getBaseData();
+    if (data instanceof RequestData
+        || data instanceof TelemetryExceptionData
+        || data instanceof AvailabilityData) {
+      return HIGH;
+    }
+    if (data instanceof MessageData) {
+      return LOW;
+    }
+    return NORMAL;
+  }
+}
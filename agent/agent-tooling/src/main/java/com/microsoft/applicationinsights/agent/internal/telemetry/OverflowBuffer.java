@@ -0,0 +1,289 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.logging.OperationLogger;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.pipeline.TelemetryItemExporter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// bounded off-heap ring buffer of serialized telemetry items, which absorbs bursts once the
+// (on-heap) export queue is full, without retaining the telemetry item object graphs on the heap
+//
+// each entry is written as [ikey length][ikey bytes][item length][item bytes], where an ikey length
+// of -1 represents a null instrumentation key
+//
+// the buffer is made up of fixed size chunks which are allocated as the buffer fills up, and if the
+// direct memory runs out, the overflow buffer stops accepting items (instead of failing the export
+// worker thread)
+final class OverflowBuffer {
+
+  private static final Logger logger = LoggerFactory.getLogger(OverflowBuffer.class);
+
+  private static final int CHUNK_SIZE = 1024 * 1024;
+
+  private static final OperationLogger serializationLogger =
+      new OperationLogger(OverflowBuffer.class, "Serializing telemetry item into overflow buffer");
+
+  private final int capacity;
+  private final int chunkSize;
+  private final IntFunction<ByteBuffer> allocator;
+
+  // allocated lazily, so that no memory is reserved unless the export queue actually overflows
+  // (null when the chunks have been released after an allocation failure)
+  @Nullable private ByteBuffer[] chunks;
+  // set once a chunk allocation fails, after which the remaining items can still be polled, but no
+  // new items are accepted
+  private boolean allocationFailed;
+
+  // used for reading and writing the length prefixes (access is synchronized)
+  private final byte[] intBytes = new byte[4];
+
+  private int readPosition;
+  private int writePosition;
+  private int usedBytes;
+  private int size;
+
+  OverflowBuffer(int capacity) {
+    this(capacity, CHUNK_SIZE, getMaxDirectMemory(), ByteBuffer::allocateDirect);
+  }
+
+  // visible for testing
+  OverflowBuffer(
+      int capacity, int chunkSize, long maxDirectMemory, IntFunction<ByteBuffer> allocator) {
+    // the overflow buffers of the general and metrics export queues together use at most half of
+    // the max direct memory, leaving the rest for the application
+    if (capacity > maxDirectMemory / 4) {
+      logger.warn(
+          "Export queue overflow buffer size of {} MB has been reduced to {} MB, which is a quarter"
+              + " of the max direct memory",
+          capacity / (1024 * 1024),
+          maxDirectMemory / 4 / (1024 * 1024));
+      capacity = (int) (maxDirectMemory / 4);
+    }
+    this.capacity = capacity;
+    this.chunkSize = chunkSize;
+    this.allocator = allocator;
+  }
+
+  // -XX:MaxDirectMemorySize, which defaults to the max heap size
+  private static long getMaxDirectMemory() {
+    for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      if (arg.startsWith("-XX:MaxDirectMemorySize=")) {
+        try {
+          return parseSize(arg.substring("-XX:MaxDirectMemorySize=".length()));
+        } catch (NumberFormatException e) {
+          logger.debug(e.getMessage(), e);
+        }
+      }
+    }
+    return Runtime.getRuntime().maxMemory();
+  }
+
+  // visible for testing
+  static long parseSize(String size) {
+    String lower = size.toLowerCase(Locale.ROOT);
+    long multiplier = 1;
+    if (lower.endsWith("k")) {
+      multiplier = 1024;
+    } else if (lower.endsWith("m")) {
+      multiplier = 1024 * 1024;
+    } else if (lower.endsWith("g")) {
+      multiplier = 1024 * 1024 * 1024;
+    }
+    if (multiplier != 1) {
+      lower = lower.substring(0, lower.length() - 1);
+    }
+    return Long.parseLong(lower) * multiplier;
+  }
+
+  boolean offer(TelemetryItem telemetryItem) {
+    byte[] serializedTelemetryItem;
+    try {
+      serializedTelemetryItem = TelemetryItemExporter.serialize(telemetryItem);
+      serializationLogger.recordSuccess();
+    } catch (IOException e) {
+      serializationLogger.recordFailure(e.getMessage(), e);
+      return false;
+    }
+    return offer(telemetryItem.getInstrumentationKey(), serializedTelemetryItem);
+  }
+
+  synchronized boolean offer(
+      @Nullable String instrumentationKey, byte[] serializedTelemetryItem) {
+    byte[] instrumentationKeyBytes =
+        instrumentationKey == null ? null : instrumentationKey.getBytes(UTF_8);
+    int instrumentationKeyLength =
+        instrumentationKeyBytes == null ? 0 : instrumentationKeyBytes.length;
+    int entrySize = 8 + instrumentationKeyLength + serializedTelemetryItem.length;
+    if (allocationFailed || entrySize > capacity - usedBytes) {
+      return false;
+    }
+    if (!allocateChunks(writePosition, entrySize)) {
+      return false;
+    }
+    if (instrumentationKeyBytes == null) {
+      writeInt(-1);
+    } else {
+      writeInt(instrumentationKeyBytes.length);
+      write(instrumentationKeyBytes);
+    }
+    writeInt(serializedTelemetryItem.length);
+    write(serializedTelemetryItem);
+    usedBytes += entrySize;
+    size++;
+    return true;
+  }
+
+  @Nullable
+  synchronized SerializedTelemetryItem poll() {
+    if (size == 0) {
+      return null;
+    }
+    int instrumentationKeyLength = readInt();
+    String instrumentationKey;
+    if (instrumentationKeyLength == -1) {
+      instrumentationKey = null;
+      instrumentationKeyLength = 0;
+    } else {
+      byte[] instrumentationKeyBytes = new byte[instrumentationKeyLength];
+      read(instrumentationKeyBytes);
+      instrumentationKey = new String(instrumentationKeyBytes, UTF_8);
+    }
+    byte[] bytes = new byte[readInt()];
+    read(bytes);
+    usedBytes -= 8 + instrumentationKeyLength + bytes.length;
+    size--;
+    if (size == 0 && allocationFailed) {
+      chunks = null;
+    }
+    return new SerializedTelemetryItem(instrumentationKey, bytes);
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  // allocates the chunks covering the given range (which can wrap around), returns false if the
+  // allocation fails
+  private boolean allocateChunks(int position, int length) {
+    if (chunks == null) {
+      chunks = new ByteBuffer[(capacity + chunkSize - 1) / chunkSize];
+    }
+    while (length > 0) {
+      int i = position / chunkSize;
+      int chunkCapacity = Math.min(chunkSize, capacity - i * chunkSize);
+      if (chunks[i] == null) {
+        try {
+          chunks[i] = allocator.apply(chunkCapacity);
+        } catch (OutOfMemoryError e) {
+          allocationFailed = true;
+          logger.warn(
+              "Out of direct memory, disabling the export queue overflow buffer (the max direct"
+                  + " memory can be increased via -XX:MaxDirectMemorySize)",
+              e);
+          if (size == 0) {
+            chunks = null;
+          }
+          return false;
+        }
+      }
+      int chunkLength = Math.min(length, chunkCapacity - position % chunkSize);
+      length -= chunkLength;
+      position = (position + chunkLength) % capacity;
+    }
+    return true;
+  }
+
+  private void writeInt(int value) {
+    intBytes[0] = (byte) (value >>> 24);
+    intBytes[1] = (byte) (value >>> 16);
+    intBytes[2] = (byte) (value >>> 8);
+    intBytes[3] = (byte) value;
+    write(intBytes);
+  }
+
+  private int readInt() {
+    read(intBytes);
+    return ((intBytes[0] & 0xFF) << 24)
+        | ((intBytes[1] & 0xFF) << 16)
+        | ((intBytes[2] & 0xFF) << 8)
+        | (intBytes[3] & 0xFF);
+  }
+
+  // spans chunks, and wraps around to the start of the buffer when reaching the end
+  private void write(byte[] bytes) {
+    int offset = 0;
+    while (offset < bytes.length) {
+      ByteBuffer chunk = chunks[writePosition / chunkSize];
+      int chunkOffset = writePosition % chunkSize;
+      int length = Math.min(bytes.length - offset, chunk.capacity() - chunkOffset);
+      chunk.position(chunkOffset);
+      chunk.put(bytes, offset, length);
+      offset += length;
+      writePosition = (writePosition + length) % capacity;
+    }
+  }
+
+  // spans chunks, and wraps around to the start of the buffer when reaching the end
+  private void read(byte[] bytes) {
+    int offset = 0;
+    while (offset < bytes.length) {
+      ByteBuffer chunk = chunks[readPosition / chunkSize];
+      int chunkOffset = readPosition % chunkSize;
+      int length = Math.min(bytes.length - offset, chunk.capacity() - chunkOffset);
+      chunk.position(chunkOffset);
+      chunk.get(bytes, offset, length);
+      offset += length;
+      readPosition = (readPosition + length) % capacity;
+    }
+  }
+
+  static final class SerializedTelemetryItem {
+
+    @Nullable private final String instrumentationKey;
+    private final byte[] bytes;
+
+    private SerializedTelemetryItem(@Nullable String instrumentationKey, byte[] bytes) {
+      this.instrumentationKey = instrumentationKey;
+      this.bytes = bytes;
+    }
+
+    @Nullable
+    String getInstrumentationKey() {
+      return instrumentationKey;
+    }
+
+    byte[] getBytes() {
+      return bytes;
+    }
+  }
+}
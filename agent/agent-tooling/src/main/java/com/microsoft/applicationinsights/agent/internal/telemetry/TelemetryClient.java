@@ -28,8 +28,10 @@ import com.azure.monitor.opentelemetry.exporter.implementation.builders.Exceptio
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.MessageTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.PageViewTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.PreEncodedMap;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.RemoteDependencyTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.RequestTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.TelemetryItemPool;
 import com.azure.monitor.opentelemetry.exporter.implementation.configuration.ConnectionString;
 import com.azure.monitor.opentelemetry.exporter.implementation.configuration.StatsbeatConnectionString;
 import com.azure.monitor.opentelemetry.exporter.implementation.localstorage.LocalStorageStats;
@@ -83,14 +85,22 @@ public class TelemetryClient {
   // contains customDimensions from json configuration
   private final Map<String, String> globalProperties;
 
+  // the above, shared by all telemetry items instead of being copied into each of them
+  private volatile PreEncodedMap defaultTags;
+  private final PreEncodedMap defaultProperties;
+
   private final List<MetricFilter> metricFilters;
 
+  private final TelemetryItemPool telemetryItemPool = TelemetryItemPool.get();
+
   @Nullable private volatile QuickPulse quickPulse;
 
   private final StatsbeatModule statsbeatModule;
   @Nullable private final File tempDir;
   private final int generalExportQueueCapacity;
   private final int metricsExportQueueCapacity;
+  private final boolean generalExportQueuePriorityLanes;
+  private final int exportQueueOverflowMaxSizeMb;
   private final int diskPersistenceMaxSizeMb;
 
   @Nullable private final Configuration.AadAuthentication aadAuthentication;
@@ -117,11 +127,15 @@ public class TelemetryClient {
   public TelemetryClient(Builder builder) {
     this.globalTags = builder.globalTags;
     this.globalProperties = builder.globalProperties;
+    this.defaultTags = PreEncodedMap.create(globalTags);
+    this.defaultProperties = AbstractTelemetryBuilder.createDefaultProperties(globalProperties);
     this.metricFilters = builder.metricFilters;
     this.statsbeatModule = builder.statsbeatModule;
     this.tempDir = builder.tempDir;
     this.generalExportQueueCapacity = builder.generalExportQueueCapacity;
     this.metricsExportQueueCapacity = builder.metricsExportQueueCapacity;
+    this.generalExportQueuePriorityLanes = builder.generalExportQueuePriorityLanes;
+    this.exportQueueOverflowMaxSizeMb = builder.exportQueueOverflowMaxSizeMb;
     this.aadAuthentication = builder.aadAuthentication;
     this.connectionString = builder.connectionString;
     this.statsbeatConnectionString = builder.statsbeatConnectionString;
@@ -147,6 +161,7 @@ public class TelemetryClient {
 
   public void trackAsync(TelemetryItem telemetryItem) {
     if (connectionString == null) {
+      telemetryItemPool.release(telemetryItem);
       return;
     }
 
@@ -160,12 +175,14 @@ public class TelemetryClient {
       MetricDataPoint point = metricsData.getMetrics().get(0);
       String metricName = point.getName();
       if (MetricFilter.shouldSkip(metricName, metricFilters)) {
+        telemetryItemPool.release(telemetryItem);
         return;
       }
 
       if (!Double.isFinite(point.getValue())) {
         // TODO (trask) add test for this
         // breeze doesn't like these values
+        telemetryItemPool.release(telemetryItem);
         return;
       }
     }
@@ -217,7 +234,8 @@ public class TelemetryClient {
       synchronized (batchItemProcessorInitLock) {
         if (generalBatchItemProcessor == null) {
           generalBatchItemProcessor =
-              initBatchItemProcessor(generalExportQueueCapacity, 512, "general");
+              initBatchItemProcessor(
+                  generalExportQueueCapacity, 512, generalExportQueuePriorityLanes, "general");
         }
       }
     }
@@ -231,7 +249,7 @@ public class TelemetryClient {
       synchronized (batchItemProcessorInitLock) {
         if (metricsBatchItemProcessor == null) {
           metricsBatchItemProcessor =
-              initBatchItemProcessor(metricsExportQueueCapacity, 2048, "metrics");
+              initBatchItemProcessor(metricsExportQueueCapacity, 2048, false, "metrics");
         }
       }
     }
@@ -239,7 +257,10 @@ public class TelemetryClient {
   }
 
   private BatchItemProcessor initBatchItemProcessor(
-      int exportQueueCapacity, int maxExportBatchSize, String queueName) {
+      int exportQueueCapacity,
+      int maxExportBatchSize,
+      boolean priorityLanes,
+      String queueName) {
 
     HttpPipeline httpPipeline =
         LazyHttpClient.newHttpPipeLine(
@@ -276,6 +297,8 @@ public class TelemetryClient {
         // the number 100 was calculated as the max number of concurrent exports that the single
         // worker thread can drive, so anything higher than this should not increase throughput
         .setMaxPendingExports(100)
+        .setPriorityLanes(priorityLanes)
+        .setOverflowBufferSizeBytes(exportQueueOverflowMaxSizeMb * 1024 * 1024)
         .build(queueName);
   }
 
@@ -359,6 +382,22 @@ public class TelemetryClient {
     return newTelemetryBuilder(() -> MetricTelemetryBuilder.create(name, value));
   }
 
+  // the given default properties replace the global properties, so they need to be created via
+  // createMetricDefaultProperties()
+  public MetricTelemetryBuilder newMetricTelemetryBuilder(PreEncodedMap defaultProperties) {
+    MetricTelemetryBuilder telemetryBuilder = MetricTelemetryBuilder.create();
+    telemetryBuilder.setInstrumentationKey(getInstrumentationKey());
+    telemetryBuilder.setDefaultTags(defaultTags);
+    telemetryBuilder.setDefaultProperties(defaultProperties);
+    return telemetryBuilder;
+  }
+
+  // pre-encodes the given metric properties together with the global properties, so that they can
+  // be shared by all metric telemetry items that have the same properties
+  public PreEncodedMap createMetricDefaultProperties(Map<String, String> properties) {
+    return AbstractTelemetryBuilder.createDefaultProperties(defaultProperties, properties);
+  }
+
   public PageViewTelemetryBuilder newPageViewTelemetryBuilder() {
     return newTelemetryBuilder(PageViewTelemetryBuilder::create);
   }
@@ -384,12 +423,8 @@ public class TelemetryClient {
 
   private void populateDefaults(AbstractTelemetryBuilder telemetryBuilder) {
     telemetryBuilder.setInstrumentationKey(getInstrumentationKey());
-    for (Map.Entry<String, String> entry : globalTags.entrySet()) {
-      telemetryBuilder.addTag(entry.getKey(), entry.getValue());
-    }
-    for (Map.Entry<String, String> entry : globalProperties.entrySet()) {
-      telemetryBuilder.addProperty(entry.getKey(), entry.getValue());
-    }
+    telemetryBuilder.setDefaultTags(defaultTags);
+    telemetryBuilder.setDefaultProperties(defaultProperties);
   }
 
   @Nullable
@@ -401,6 +436,7 @@ public class TelemetryClient {
   public void updateRoleName(String roleName) {
     this.roleName = roleName;
     globalTags.put(ContextTagKeys.AI_CLOUD_ROLE.toString(), roleName);
+    defaultTags = PreEncodedMap.create(globalTags);
   }
 
   @Nullable
@@ -445,6 +481,8 @@ public class TelemetryClient {
     @Nullable private File tempDir;
     private int generalExportQueueCapacity;
     private int metricsExportQueueCapacity;
+    private boolean generalExportQueuePriorityLanes;
+    private int exportQueueOverflowMaxSizeMb;
     @Nullable private Configuration.AadAuthentication aadAuthentication;
     @Nullable private ConnectionString connectionString;
     @Nullable private StatsbeatConnectionString statsbeatConnectionString;
@@ -501,6 +539,16 @@ public class TelemetryClient {
       return this;
     }
 
+    public Builder setGeneralExportQueuePriorityLanes(boolean generalExportQueuePriorityLanes) {
+      this.generalExportQueuePriorityLanes = generalExportQueuePriorityLanes;
+      return this;
+    }
+
+    public Builder setExportQueueOverflowMaxSizeMb(int exportQueueOverflowMaxSizeMb) {
+      this.exportQueueOverflowMaxSizeMb = exportQueueOverflowMaxSizeMb;
+      return this;
+    }
+
     public Builder setAadAuthentication(Configuration.AadAuthentication aadAuthentication) {
       this.aadAuthentication = aadAuthentication;
       return this;
@@ -0,0 +1,89 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.legacysdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.microsoft.applicationinsights.agent.internal.statsbeat.StatsbeatModule;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MicrometerMetricTemplatesTest {
+
+  @Test
+  void shouldMergeMeterPropertiesWithGlobalProperties() {
+    Map<String, String> customDimensions = new HashMap<>();
+    customDimensions.put("global", "g");
+    customDimensions.put("shared", "fromGlobal");
+    TelemetryClient telemetryClient =
+        TelemetryClient.builder()
+            .setCustomDimensions(customDimensions)
+            .setMetricFilters(new ArrayList<>())
+            .setStatsbeatModule(new StatsbeatModule())
+            .build();
+
+    Map<String, String> properties = new HashMap<>();
+    properties.put("tag", "t");
+    properties.put("shared", "fromMeter");
+
+    MicrometerMetricTemplates templates = new MicrometerMetricTemplates();
+
+    assertThat(getProperties(templates.newTelemetryBuilder(telemetryClient, properties).build()))
+        .containsOnly(entry("global", "g"), entry("shared", "fromMeter"), entry("tag", "t"));
+  }
+
+  @Test
+  void shouldReuseDefaultPropertiesForSamePropertiesMap() {
+    TelemetryClient telemetryClient = TelemetryClient.createForTest();
+    Map<String, String> properties = Collections.singletonMap("tag", "t");
+
+    MicrometerMetricTemplates templates = new MicrometerMetricTemplates();
+
+    assertThat(templates.getDefaultProperties(telemetryClient, properties))
+        .isSameAs(templates.getDefaultProperties(telemetryClient, properties));
+
+    Map<String, String> first =
+        getProperties(templates.newTelemetryBuilder(telemetryClient, properties).build());
+    Map<String, String> second =
+        getProperties(templates.newTelemetryBuilder(telemetryClient, properties).build());
+
+    // each telemetry item has its own properties map, layered on top of the same shared defaults
+    assertThat(second).isNotSameAs(first).containsOnly(entry("tag", "t"));
+
+    // adding a property to one telemetry item does not leak into the shared defaults
+    first.put("extra", "e");
+    Map<String, String> third =
+        getProperties(templates.newTelemetryBuilder(telemetryClient, properties).build());
+    assertThat(third).containsOnly(entry("tag", "t"));
+  }
+
+  private static Map<String, String> getProperties(TelemetryItem telemetryItem) {
+    return ((MetricsData) telemetryItem.getData().getBaseData()).getProperties();
+  }
+}
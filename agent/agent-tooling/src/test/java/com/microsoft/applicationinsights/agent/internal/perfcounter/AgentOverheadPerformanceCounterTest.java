@@ -0,0 +1,112 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.AgentThreads;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AgentOverheadPerformanceCounterTest {
+
+  private static volatile byte[] sink;
+
+  private final TelemetryClient telemetryClient = TelemetryClient.createForTest();
+
+  private final CountDownLatch start = new CountDownLatch(1);
+  private final CountDownLatch done = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @AfterEach
+  void tearDown() {
+    start.countDown();
+    release.countDown();
+  }
+
+  @Test
+  void shouldMeasureCpuAndAllocationsOfAgentThreads() throws InterruptedException {
+    ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(threadMxBean.isThreadCpuTimeSupported() && threadMxBean.isThreadCpuTimeEnabled());
+    assumeTrue(AgentOverheadPerformanceCounter.getAllocationMxBean(threadMxBean) != null);
+
+    AgentOverheadPerformanceCounter performanceCounter = new AgentOverheadPerformanceCounter();
+    Thread exportThread = new Thread(this::allocateForAWhile, "test-export");
+    AgentThreads.registerExportThread(exportThread);
+    exportThread.start();
+
+    performanceCounter.report(telemetryClient);
+    start.countDown();
+    done.await();
+    SelfMetrics.get().getCounter("exportedItems").add(10);
+    performanceCounter.report(telemetryClient);
+
+    assertThat(getGauge("agentCpuPercentage")).isGreaterThan(0);
+    assertThat(getGauge("agentAllocatedBytesPerSec")).isGreaterThan(0);
+    assertThat(getGauge("agentExportAllocatedBytesPerItem")).isGreaterThan(0);
+  }
+
+  @Test
+  void shouldNotCountThreadsThatAreNotAgentThreads() throws InterruptedException {
+    ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(AgentOverheadPerformanceCounter.getAllocationMxBean(threadMxBean) != null);
+
+    AgentOverheadPerformanceCounter performanceCounter = new AgentOverheadPerformanceCounter();
+    Thread applicationThread = new Thread(this::allocateForAWhile, "test-application");
+    applicationThread.start();
+
+    performanceCounter.report(telemetryClient);
+    start.countDown();
+    done.await();
+    performanceCounter.report(telemetryClient);
+
+    // other agent threads (e.g. from other tests) may still allocate a little in the meantime
+    assertThat(getGauge("agentAllocatedBytesPerSec")).isLessThan(10_000_000);
+  }
+
+  // allocates (and spins) for 200 milliseconds once started, and then stays alive until released,
+  // so that it is still there for the second sample
+  private void allocateForAWhile() {
+    try {
+      start.await();
+      long endNanos = System.nanoTime() + MILLISECONDS.toNanos(200);
+      while (System.nanoTime() < endNanos) {
+        sink = new byte[1024];
+      }
+      done.countDown();
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static double getGauge(String name) {
+    return SelfMetrics.get().getDoubleGauges().get(name);
+  }
+}
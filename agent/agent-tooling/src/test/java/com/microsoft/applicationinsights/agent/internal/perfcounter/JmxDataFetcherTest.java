@@ -121,6 +121,32 @@ class JmxDataFetcherTest {
     performTest(attributes, 1000.0, 2000.0, 3000.0);
   }
 
+  @Test
+  void testPatternWithRegistrationChanges() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName mxbeanName1 = new ObjectName("JSDKTests:type=PatternStub,name=1");
+    ObjectName mxbeanName2 = new ObjectName("JSDKTests:type=PatternStub,name=2");
+    server.registerMBean(new TestStub(1, 2.0, 3L), mxbeanName1);
+
+    List<JmxAttributeData> attributes = new ArrayList<>();
+    attributes.add(new JmxAttributeData("Int", "IntSample"));
+
+    String objectName = "JSDKTests:type=PatternStub,*";
+    assertThat(JmxDataFetcher.fetch(objectName, attributes).get("Int")).containsExactly(1);
+
+    // the resolved mbeans are cached, so this verifies that they are refreshed on registration
+    server.registerMBean(new TestStub(10, 20.0, 30L), mxbeanName2);
+    assertThat(JmxDataFetcher.fetch(objectName, attributes).get("Int"))
+        .containsExactlyInAnyOrder(1, 10);
+
+    server.unregisterMBean(mxbeanName1);
+    assertThat(JmxDataFetcher.fetch(objectName, attributes).get("Int")).containsExactly(10);
+
+    server.unregisterMBean(mxbeanName2);
+    assertThatThrownBy(() -> JmxDataFetcher.fetch(objectName, attributes))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
   private static void performTest(
       List<JmxAttributeData> attributes,
       double expectedInt,
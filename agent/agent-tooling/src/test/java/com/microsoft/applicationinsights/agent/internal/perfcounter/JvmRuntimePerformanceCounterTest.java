@@ -0,0 +1,109 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricDataPoint;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.lang.management.MemoryUsage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JvmRuntimePerformanceCounterTest {
+
+  private static final String OLD_GEN = "G1 Old Gen";
+  private static final String YOUNG_GC = "end of minor GC";
+  private static final String OLD_GC = "end of major GC";
+
+  private final JvmRuntimePerformanceCounter.PromotionListener listener =
+      new JvmRuntimePerformanceCounter.PromotionListener(OLD_GEN);
+
+  @Test
+  void shouldCountOldGenGrowthOfYoungCollections() {
+    listener.record(YOUNG_GC, usage(OLD_GEN, 100), usage(OLD_GEN, 300));
+    listener.record(YOUNG_GC, usage(OLD_GEN, 300), usage(OLD_GEN, 350));
+
+    assertThat(listener.getPromotedBytes()).isEqualTo(250);
+  }
+
+  @Test
+  void shouldNotBeOffsetByOldCollections() {
+    listener.record(YOUNG_GC, usage(OLD_GEN, 100), usage(OLD_GEN, 300));
+    listener.record(OLD_GC, usage(OLD_GEN, 300), usage(OLD_GEN, 50));
+    listener.record(YOUNG_GC, usage(OLD_GEN, 50), usage(OLD_GEN, 150));
+
+    assertThat(listener.getPromotedBytes()).isEqualTo(300);
+  }
+
+  @Test
+  void shouldNotCountShrinkingOrOtherPools() {
+    // e.g. a G1 mixed collection
+    listener.record(YOUNG_GC, usage(OLD_GEN, 300), usage(OLD_GEN, 200));
+    listener.record(YOUNG_GC, usage("G1 Eden Space", 0), usage("G1 Eden Space", 100));
+
+    assertThat(listener.getPromotedBytes()).isZero();
+  }
+
+  @Test
+  void shouldReportRatesFromTheSecondSample() {
+    JvmRuntimePerformanceCounter performanceCounter = new JvmRuntimePerformanceCounter();
+
+    Map<String, Double> first = report(performanceCounter);
+    Map<String, Double> second = report(performanceCounter);
+
+    assertThat(first).containsOnlyKeys(JvmRuntimePerformanceCounter.THREAD_COUNT);
+    assertThat(second)
+        .containsKeys(
+            JvmRuntimePerformanceCounter.THREAD_COUNT,
+            JvmRuntimePerformanceCounter.THREAD_START_RATE);
+    assertThat(second.get(JvmRuntimePerformanceCounter.THREAD_COUNT)).isGreaterThan(0);
+  }
+
+  private static Map<String, Double> report(JvmRuntimePerformanceCounter performanceCounter) {
+    Map<String, Double> metrics = new HashMap<>();
+    TelemetryClient client = spy(TelemetryClient.createForTest());
+    doAnswer(
+            invocation -> {
+              TelemetryItem telemetryItem = invocation.getArgument(0);
+              MetricsData data = (MetricsData) telemetryItem.getData().getBaseData();
+              MetricDataPoint point = data.getMetrics().get(0);
+              metrics.put(point.getName(), point.getValue());
+              return null;
+            })
+        .when(client)
+        .trackAsync(any(TelemetryItem.class));
+    performanceCounter.report(client);
+    return metrics;
+  }
+
+  private static Map<String, MemoryUsage> usage(String poolName, long used) {
+    return Collections.singletonMap(poolName, new MemoryUsage(0, used, used, -1));
+  }
+}
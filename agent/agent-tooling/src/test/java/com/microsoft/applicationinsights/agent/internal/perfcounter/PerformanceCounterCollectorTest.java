@@ -0,0 +1,152 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PerformanceCounterCollectorTest {
+
+  private static final long TIMEOUT_NANOS = MILLISECONDS.toNanos(100);
+  private static final long COLLECTION_FREQUENCY_NANOS = SECONDS.toNanos(30);
+
+  private final TelemetryClient telemetryClient = TelemetryClient.createForTest();
+
+  private final PerformanceCounterCollector collector =
+      new PerformanceCounterCollector(1, TIMEOUT_NANOS, COLLECTION_FREQUENCY_NANOS);
+
+  private final BlockingPerformanceCounter slow = new BlockingPerformanceCounter();
+  private final CountingPerformanceCounter fast = new CountingPerformanceCounter();
+
+  @AfterEach
+  void tearDown() {
+    slow.release.countDown();
+    collector.shutdown();
+  }
+
+  @Test
+  void shouldNotWaitForSlowPerformanceCounterPastTimeout() {
+    collector.register(slow);
+    collector.register(fast);
+    long timeouts = getCounter("perfCounterTimeouts");
+
+    long startNanos = System.nanoTime();
+    collector.collect(telemetryClient);
+
+    assertThat(System.nanoTime() - startNanos).isLessThan(COLLECTION_FREQUENCY_NANOS);
+    assertThat(getCounter("perfCounterTimeouts") - timeouts).isEqualTo(1);
+    // a collector thread was added, so the performance counter queued behind the slow one ran
+    assertThat(collector.getCollectorThreads()).isEqualTo(2);
+    assertThat(fast.reports.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldSkipPerformanceCounterThatIsStillRunning() {
+    collector.register(slow);
+    collector.register(fast);
+    collector.collect(telemetryClient);
+    long timeouts = getCounter("perfCounterTimeouts");
+    long skips = getCounter("perfCounterSkips");
+
+    collector.collect(telemetryClient);
+
+    assertThat(getCounter("perfCounterSkips") - skips).isEqualTo(1);
+    // the slow performance counter is only reported as timed out once
+    assertThat(getCounter("perfCounterTimeouts") - timeouts).isEqualTo(0);
+    assertThat(collector.getCollectorThreads()).isEqualTo(2);
+    assertThat(slow.reports.get()).isEqualTo(1);
+    assertThat(fast.reports.get()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldReleaseCollectorThreadOnceSlowPerformanceCounterCompletes() {
+    collector.register(slow);
+    collector.collect(telemetryClient);
+    assertThat(collector.getCollectorThreads()).isEqualTo(2);
+
+    slow.release.countDown();
+
+    await()
+        .untilAsserted(
+            () -> {
+              collector.collect(telemetryClient);
+              assertThat(collector.getCollectorThreads()).isEqualTo(1);
+            });
+    assertThat(slow.reports.get()).isGreaterThanOrEqualTo(2);
+  }
+
+  @Test
+  void shouldExposeDurationOfEachPerformanceCounter() {
+    collector.register(slow);
+    collector.register(fast);
+    collector.collect(telemetryClient);
+    slow.release.countDown();
+
+    String slowGauge = "perfCounterCollectionMillis." + BlockingPerformanceCounter.class.getName();
+    String fastGauge = "perfCounterCollectionMillis." + CountingPerformanceCounter.class.getName();
+    await()
+        .untilAsserted(
+            () ->
+                assertThat(SelfMetrics.get().getGauges().get(slowGauge))
+                    .isGreaterThanOrEqualTo(100));
+    assertThat(SelfMetrics.get().getGauges().get(fastGauge)).isLessThan(100);
+  }
+
+  private static long getCounter(String name) {
+    return SelfMetrics.get().getCounter(name).sum();
+  }
+
+  private static class BlockingPerformanceCounter implements PerformanceCounter {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger reports = new AtomicInteger();
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+      reports.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static class CountingPerformanceCounter implements PerformanceCounter {
+
+    private final AtomicInteger reports = new AtomicInteger();
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+      reports.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.profiler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricDataPoint;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import com.microsoft.gcmonitor.GcCollectionEvent;
+import com.microsoft.gcmonitor.garbagecollectors.GarbageCollector;
+import com.microsoft.gcmonitor.memorypools.MemoryPool;
+import java.lang.management.MemoryUsage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class GcEventAggregatorTest {
+
+  private final MemoryPool youngPool = mock(MemoryPool.class);
+  private final MemoryPool tenuredPool = mock(MemoryPool.class);
+
+  @Test
+  void test() {
+    AtomicLong nanoTime = new AtomicLong();
+    GcEventAggregator aggregator = new GcEventAggregator(nanoTime::get);
+
+    GarbageCollector young = mockCollector("young", true, false);
+    GarbageCollector old = mockCollector("old", false, true);
+
+    // young collection reported from jfr, promoting 50 bytes and reclaiming 40 bytes overall
+    GcCollectionEvent event = mockEvent(young, 100, 10, 1000, 1050);
+    when(event.getSumOfPausesNanos()).thenReturn(TimeUnit.MILLISECONDS.toNanos(5));
+    aggregator.record(event);
+    aggregator.record(event);
+
+    // old collection reported from gc mxbean notifications, which only have the duration
+    event = mockEvent(old, 10, 0, 1050, 500);
+    when(event.getSumOfPausesNanos()).thenReturn(-1L);
+    when(event.getDuration()).thenReturn(20L);
+    aggregator.record(event);
+
+    nanoTime.set(TimeUnit.SECONDS.toNanos(1));
+    Map<String, MetricDataPoint> metrics = report(aggregator);
+
+    MetricDataPoint youngPauseTime = metrics.get(GcEventAggregator.GC_PAUSE_TIME + "/young");
+    assertThat(youngPauseTime.getValue()).isEqualTo(10.0);
+    assertThat(youngPauseTime.getCount()).isEqualTo(2);
+    assertThat(youngPauseTime.getMax()).isEqualTo(5.0);
+    assertThat(metrics.get(GcEventAggregator.GC_PAUSE_TIME_P99 + "/young").getValue())
+        .isEqualTo(5.0);
+    assertThat(metrics.get(GcEventAggregator.GC_PROMOTED_BYTES + "/young").getValue())
+        .isEqualTo(100.0);
+    assertThat(metrics.get(GcEventAggregator.GC_RECLAIMED_BYTES + "/young").getValue())
+        .isEqualTo(80.0);
+
+    MetricDataPoint oldPauseTime = metrics.get(GcEventAggregator.GC_PAUSE_TIME + "/old");
+    assertThat(oldPauseTime.getValue()).isEqualTo(20.0);
+    assertThat(oldPauseTime.getCount()).isEqualTo(1);
+    assertThat(metrics.get(GcEventAggregator.GC_PROMOTED_BYTES + "/old").getValue())
+        .isEqualTo(0.0);
+    assertThat(metrics.get(GcEventAggregator.GC_RECLAIMED_BYTES + "/old").getValue())
+        .isEqualTo(560.0);
+
+    assertThat(metrics.get(GcEventAggregator.GC_OVERHEAD_PERCENTAGE).getValue()).isEqualTo(3.0);
+
+    // the next interval starts from scratch
+    nanoTime.set(TimeUnit.SECONDS.toNanos(2));
+    metrics = report(aggregator);
+
+    assertThat(metrics).containsOnlyKeys(GcEventAggregator.GC_OVERHEAD_PERCENTAGE);
+    assertThat(metrics.get(GcEventAggregator.GC_OVERHEAD_PERCENTAGE).getValue()).isEqualTo(0.0);
+  }
+
+  @Test
+  void p99IsExactPauseTime() {
+    GcEventAggregator aggregator = new GcEventAggregator(() -> 0);
+    GarbageCollector young = mockCollector("young", true, false);
+
+    // a power of two histogram would report the upper bound of the 33 ms bucket (~65.5 ms)
+    for (int i = 0; i < 99; i++) {
+      aggregator.record(pauseEvent(young, 33));
+    }
+    aggregator.record(pauseEvent(young, 100));
+
+    Map<String, MetricDataPoint> metrics = report(aggregator);
+
+    assertThat(metrics.get(GcEventAggregator.GC_PAUSE_TIME_P99 + "/young").getValue())
+        .isEqualTo(33.0);
+    assertThat(metrics.get(GcEventAggregator.GC_PAUSE_TIME + "/young").getMax()).isEqualTo(100.0);
+  }
+
+  @Test
+  void p99IsSampledPastMaxPauseSamples() {
+    GcEventAggregator aggregator = new GcEventAggregator(() -> 0);
+    GarbageCollector young = mockCollector("young", true, false);
+
+    GcCollectionEvent event = pauseEvent(young, 2);
+    for (int i = 0; i < 2 * GcEventAggregator.MAX_PAUSE_SAMPLES; i++) {
+      aggregator.record(event);
+    }
+
+    Map<String, MetricDataPoint> metrics = report(aggregator);
+
+    assertThat(metrics.get(GcEventAggregator.GC_PAUSE_TIME_P99 + "/young").getValue())
+        .isEqualTo(2.0);
+    assertThat(metrics.get(GcEventAggregator.GC_PAUSE_TIME + "/young").getCount())
+        .isEqualTo(2 * GcEventAggregator.MAX_PAUSE_SAMPLES);
+  }
+
+  private GcCollectionEvent pauseEvent(GarbageCollector collector, long pauseMillis) {
+    GcCollectionEvent event = mockEvent(collector, 0, 0, 0, 0);
+    when(event.getSumOfPausesNanos()).thenReturn(TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+    return event;
+  }
+
+  private static Map<String, MetricDataPoint> report(GcEventAggregator aggregator) {
+    Map<String, MetricDataPoint> metrics = new HashMap<>();
+    TelemetryClient client = spy(TelemetryClient.createForTest());
+    doAnswer(
+            invocation -> {
+              TelemetryItem telemetryItem = invocation.getArgument(0);
+              MetricsData data = (MetricsData) telemetryItem.getData().getBaseData();
+              MetricDataPoint point = data.getMetrics().get(0);
+              Map<String, String> properties = data.getProperties();
+              String collector = properties == null ? null : properties.get("collector");
+              String key = collector == null ? point.getName() : point.getName() + "/" + collector;
+              metrics.put(key, point);
+              return null;
+            })
+        .when(client)
+        .trackAsync(any(TelemetryItem.class));
+    aggregator.report(client);
+    return metrics;
+  }
+
+  private static GarbageCollector mockCollector(String name, boolean young, boolean tenured) {
+    GarbageCollector collector = mock(GarbageCollector.class);
+    when(collector.getName()).thenReturn(name);
+    when(collector.isYoungCollector()).thenReturn(young);
+    when(collector.isTenuredCollector()).thenReturn(tenured);
+    return collector;
+  }
+
+  private GcCollectionEvent mockEvent(
+      GarbageCollector collector,
+      long youngBefore,
+      long youngAfter,
+      long tenuredBefore,
+      long tenuredAfter) {
+    List<MemoryPool> youngPools = Collections.singletonList(youngPool);
+    GcCollectionEvent event = mock(GcCollectionEvent.class);
+    when(event.getCollector()).thenReturn(collector);
+    when(event.getYoungPools()).thenReturn(youngPools);
+    when(event.getTenuredPool()).thenReturn(Optional.of(tenuredPool));
+    when(event.getMemoryUsageBeforeGc(youngPools)).thenReturn(usage(youngBefore));
+    when(event.getMemoryUsageAfterGc(youngPools)).thenReturn(usage(youngAfter));
+    when(event.getMemoryUsageBeforeGc(tenuredPool)).thenReturn(usage(tenuredBefore));
+    when(event.getMemoryUsageAfterGc(tenuredPool)).thenReturn(usage(tenuredAfter));
+    return event;
+  }
+
+  private static MemoryUsage usage(long used) {
+    return new MemoryUsage(0, used, used, -1);
+  }
+}
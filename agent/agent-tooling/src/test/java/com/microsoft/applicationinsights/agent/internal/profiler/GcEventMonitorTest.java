@@ -42,6 +42,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.management.MBeanServerConnection;
@@ -88,6 +89,54 @@ class GcEventMonitorTest {
     assertThat(alert.getAlertValue()).isEqualTo(90.0);
   }
 
+  @Test
+  void eventStreamRunsOnItsOwnThreadAndIsClosedOnShutdown() throws Exception {
+    MemoryManagement memoryManagement = Mockito.mock(MemoryManagement.class);
+    CompletableFuture<Thread> streamThread = new CompletableFuture<>();
+
+    GcMonitorFactory factory =
+        new GcMonitorFactory() {
+          @Override
+          public MemoryManagement monitorSelf(
+              ExecutorService executorService, GcEventConsumer consumer) {
+            throw new AssertionError("the event stream needs its own thread");
+          }
+
+          @Override
+          public MemoryManagement monitorSelf(
+              ExecutorService executorService,
+              ThreadFactory threadFactory,
+              GcEventConsumer consumer) {
+            streamThread.complete(threadFactory.newThread(() -> {}));
+            return memoryManagement;
+          }
+
+          @Override
+          public MemoryManagement monitor(
+              MBeanServerConnection connection,
+              ExecutorService executorService,
+              GcEventConsumer consumer) {
+            return null;
+          }
+        };
+
+    GcEventMonitor.init(
+        getAlertingSubsystem(new CompletableFuture<>(), new TestTimeSource()),
+        TelemetryClient.createForTest(),
+        Executors.newSingleThreadExecutor(),
+        new GcEventMonitor.GcEventMonitorConfiguration(GcReportingLevel.NONE),
+        factory);
+
+    // a daemon thread from ThreadPoolUtils, so that it is counted as an agent thread
+    Thread thread = streamThread.get(10, TimeUnit.SECONDS);
+    assertThat(thread.isDaemon()).isTrue();
+    assertThat(thread.getName()).startsWith("GcEventMonitor_JfrEventStream");
+
+    Mockito.verify(memoryManagement, Mockito.never()).close();
+    GcEventMonitor.shutdown();
+    Mockito.verify(memoryManagement).close();
+  }
+
   private static AlertingSubsystem getAlertingSubsystem(
       CompletableFuture<AlertBreach> alertFuture, TimeSource timeSource) {
     AlertingSubsystem alertingSubsystem =
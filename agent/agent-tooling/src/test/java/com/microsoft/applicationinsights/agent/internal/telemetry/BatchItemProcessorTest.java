@@ -0,0 +1,295 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MessageData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorBase;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorDomain;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RemoteDependencyData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RequestData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.pipeline.TelemetryItemExporter;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.LatencyHistogram;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.PipelineStage;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchItemProcessorTest {
+
+  private final List<List<TelemetryItem>> exportedBatches = new CopyOnWriteArrayList<>();
+  private final List<Integer> exportedSerializedBatchSizes = new CopyOnWriteArrayList<>();
+  // the first export blocks until this is counted down, which holds up the worker so that items
+  // accumulate in the queue
+  private final CountDownLatch firstExportStarted = new CountDownLatch(1);
+  private final CountDownLatch releaseFirstExport = new CountDownLatch(1);
+  private volatile boolean blockFirstExport;
+
+  private TelemetryItemExporter exporter;
+  private BatchItemProcessor processor;
+
+  @BeforeEach
+  void setup() {
+    exporter = mock(TelemetryItemExporter.class);
+    when(exporter.send(anyList(), anyString(), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              // the batch is cleared and reused after send returns
+              List<TelemetryItem> items = invocation.getArgument(0);
+              exportedBatches.add(new ArrayList<>(items));
+              if (blockFirstExport && firstExportStarted.getCount() > 0) {
+                firstExportStarted.countDown();
+                releaseFirstExport.await();
+              }
+              return CompletableResultCode.ofSuccess();
+            });
+    when(exporter.sendSerialized(anyList(), anyString()))
+        .thenAnswer(
+            invocation -> {
+              List<byte[]> items = invocation.getArgument(0);
+              exportedSerializedBatchSizes.add(items.size());
+              return CompletableResultCode.ofSuccess();
+            });
+    when(exporter.flush()).thenReturn(CompletableResultCode.ofSuccess());
+  }
+
+  @AfterEach
+  void tearDown() {
+    releaseFirstExport.countDown();
+    if (processor != null) {
+      processor.shutdown().join(10, SECONDS);
+    }
+  }
+
+  @Test
+  void shouldExportFullBatchesPerInstrumentationKey() {
+    processor =
+        BatchItemProcessor.builder(exporter)
+            .setScheduleDelay(1, TimeUnit.HOURS)
+            .setMaxQueueSize(100)
+            .setMaxExportBatchSize(10)
+            .build("test");
+
+    for (int i = 0; i < 10; i++) {
+      processor.trackAsync(createItem("ikey1"));
+      processor.trackAsync(createItem("ikey2"));
+    }
+
+    await().atMost(10, SECONDS).untilAsserted(() -> assertThat(exportedBatches).hasSize(2));
+    for (List<TelemetryItem> batch : exportedBatches) {
+      assertThat(batch).hasSize(10);
+      assertThat(batch)
+          .extracting(TelemetryItem::getInstrumentationKey)
+          .containsOnly(batch.get(0).getInstrumentationKey());
+    }
+    assertThat(exportedBatches)
+        .extracting(batch -> batch.get(0).getInstrumentationKey())
+        .containsExactlyInAnyOrder("ikey1", "ikey2");
+  }
+
+  @Test
+  void shouldExportLargestBatchWhenBatchedItemLimitIsHit() {
+    processor =
+        BatchItemProcessor.builder(exporter)
+            .setScheduleDelay(1, TimeUnit.HOURS)
+            .setMaxQueueSize(100)
+            .setMaxExportBatchSize(10)
+            .build("test");
+
+    // the batched item limit is twice the max export batch size
+    for (int i = 0; i < 9; i++) {
+      processor.trackAsync(createItem("ikey1"));
+    }
+    for (int i = 0; i < 7; i++) {
+      processor.trackAsync(createItem("ikey2"));
+    }
+    for (int i = 0; i < 4; i++) {
+      processor.trackAsync(createItem("ikey3"));
+    }
+
+    await().atMost(10, SECONDS).untilAsserted(() -> assertThat(exportedBatches).hasSize(1));
+    assertThat(exportedBatches.get(0)).hasSize(9);
+    assertThat(exportedBatches.get(0).get(0).getInstrumentationKey()).isEqualTo("ikey1");
+  }
+
+  @Test
+  void shouldExportPartialBatchesOnSchedule() {
+    processor =
+        BatchItemProcessor.builder(exporter)
+            .setScheduleDelay(100, TimeUnit.MILLISECONDS)
+            .setMaxQueueSize(100)
+            .setMaxExportBatchSize(10)
+            .build("test");
+
+    for (int i = 0; i < 3; i++) {
+      processor.trackAsync(createItem("ikey1"));
+    }
+    processor.trackAsync(createItem("ikey2"));
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertThat(exportedBatches)
+                    .extracting(List::size)
+                    .containsExactlyInAnyOrder(3, 1));
+  }
+
+  @Test
+  void shouldShedLowerPriorityLanesFirstAndDrainHigherPriorityLanesFirst() throws Exception {
+    blockFirstExport = true;
+    processor =
+        BatchItemProcessor.builder(exporter)
+            .setScheduleDelay(1, TimeUnit.HOURS)
+            .setMaxQueueSize(20)
+            .setMaxExportBatchSize(1)
+            .setPriorityLanes(true)
+            .build("laneTest");
+
+    // hold up the worker, so that the following items stay in the queue
+    processor.trackAsync(createItem("ikey", new MessageData()));
+    assertThat(firstExportStarted.await(10, SECONDS)).isTrue();
+
+    // admission limits are 20 for the high lane, 18 for the normal lane and 15 for the low lane
+    for (int i = 0; i < 16; i++) {
+      processor.trackAsync(createItem("ikey", new MessageData()));
+    }
+    for (int i = 0; i < 4; i++) {
+      processor.trackAsync(createItem("ikey", new RemoteDependencyData()));
+    }
+    for (int i = 0; i < 3; i++) {
+      processor.trackAsync(createItem("ikey", new RequestData()));
+    }
+
+    SelfMetrics selfMetrics = SelfMetrics.get();
+    assertThat(selfMetrics.getCounter("laneTestExportQueueLowPriorityDroppedItems").sum())
+        .isEqualTo(1);
+    assertThat(selfMetrics.getCounter("laneTestExportQueueNormalPriorityDroppedItems").sum())
+        .isEqualTo(1);
+    assertThat(selfMetrics.getCounter("laneTestExportQueueHighPriorityDroppedItems").sum())
+        .isEqualTo(1);
+    assertThat(selfMetrics.getCounter("laneTestExportQueueDroppedItems").sum()).isEqualTo(3);
+
+    releaseFirstExport.countDown();
+
+    await().atMost(10, SECONDS).untilAsserted(() -> assertThat(exportedBatches).hasSize(21));
+    List<Class<?>> exportedTypes = new ArrayList<>();
+    for (List<TelemetryItem> batch : exportedBatches.subList(1, exportedBatches.size())) {
+      exportedTypes.add(batch.get(0).getData().getBaseData().getClass());
+    }
+    assertThat(exportedTypes.subList(0, 2)).containsOnly(RequestData.class);
+    assertThat(exportedTypes.subList(2, 5)).containsOnly(RemoteDependencyData.class);
+    assertThat(exportedTypes.subList(5, 20)).containsOnly(MessageData.class);
+  }
+
+  @Test
+  void shouldSerializeOverflowOnWorkerThread() throws Exception {
+    blockFirstExport = true;
+    processor =
+        BatchItemProcessor.builder(exporter)
+            .setScheduleDelay(1, TimeUnit.HOURS)
+            .setMaxQueueSize(4)
+            .setMaxExportBatchSize(1)
+            .setOverflowBufferSizeBytes(1024 * 1024)
+            .build("overflowTest");
+
+    // hold up the worker, so that the following items stay in the queue
+    processor.trackAsync(createItem("ikey"));
+    assertThat(firstExportStarted.await(10, SECONDS)).isTrue();
+
+    // fills up the queue, then the overflow handoff (which holds a single batch, but at least two
+    // items), and then the last item is dropped
+    for (int i = 0; i < 7; i++) {
+      processor.trackAsync(createItem("ikey"));
+    }
+
+    SelfMetrics selfMetrics = SelfMetrics.get();
+    assertThat(selfMetrics.getCounter("overflowTestExportQueueDroppedItems").sum()).isEqualTo(1);
+    // nothing has been serialized yet, since the worker is still held up
+    assertThat(selfMetrics.getCounter("overflowTestExportQueueOverflowedItems").sum()).isZero();
+
+    releaseFirstExport.countDown();
+
+    await().atMost(10, SECONDS).untilAsserted(() -> assertThat(exportedBatches).hasSize(5));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> assertThat(exportedSerializedBatchSizes).containsExactly(1, 1));
+    assertThat(selfMetrics.getCounter("overflowTestExportQueueOverflowedItems").sum())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void shouldMeasureQueueWaitFromEnqueue() throws Exception {
+    blockFirstExport = true;
+    processor =
+        BatchItemProcessor.builder(exporter)
+            .setScheduleDelay(1, TimeUnit.HOURS)
+            .setMaxQueueSize(100)
+            .setMaxExportBatchSize(1)
+            .build("queueWaitTest");
+
+    // hold up the worker, so that the next item stays in the queue
+    processor.trackAsync(createItem("ikey"));
+    assertThat(firstExportStarted.await(10, SECONDS)).isTrue();
+
+    LatencyHistogram queueWait =
+        SelfMetrics.get().getLatencyHistograms().get(PipelineStage.QUEUE_WAIT);
+    long queueWaitCount = queueWait.getCount();
+
+    processor.trackAsync(createItem("ikey"));
+    Thread.sleep(200);
+    releaseFirstExport.countDown();
+
+    await().atMost(10, SECONDS).untilAsserted(() -> assertThat(exportedBatches).hasSize(2));
+    assertThat(queueWait.getCount()).isGreaterThan(queueWaitCount);
+    assertThat(queueWait.getMaxMillis()).isGreaterThanOrEqualTo(200);
+  }
+
+  static TelemetryItem createItem(String instrumentationKey) {
+    return createItem(instrumentationKey, new MessageData());
+  }
+
+  static TelemetryItem createItem(String instrumentationKey, MonitorDomain data) {
+    TelemetryItem item = new TelemetryItem();
+    item.setInstrumentationKey(instrumentationKey);
+    MonitorBase monitorBase = new MonitorBase();
+    monitorBase.setBaseData(data);
+    item.setData(monitorBase);
+    return item;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class OverflowBufferTest {
+
+  @Test
+  void shouldReturnItemsInOrder() {
+    OverflowBuffer buffer = new OverflowBuffer(1024);
+
+    assertThat(buffer.offer("ikey1", "one".getBytes(UTF_8))).isTrue();
+    assertThat(buffer.offer(null, "two".getBytes(UTF_8))).isTrue();
+    assertThat(buffer.size()).isEqualTo(2);
+
+    OverflowBuffer.SerializedTelemetryItem first = buffer.poll();
+    assertThat(first.getInstrumentationKey()).isEqualTo("ikey1");
+    assertThat(new String(first.getBytes(), UTF_8)).isEqualTo("one");
+
+    OverflowBuffer.SerializedTelemetryItem second = buffer.poll();
+    assertThat(second.getInstrumentationKey()).isNull();
+    assertThat(new String(second.getBytes(), UTF_8)).isEqualTo("two");
+
+    assertThat(buffer.poll()).isNull();
+  }
+
+  @Test
+  void shouldRejectItemsWhenFull() {
+    // each entry takes 8 bytes of length prefixes plus 4 bytes of ikey plus 10 bytes of item
+    OverflowBuffer buffer = new OverflowBuffer(50);
+
+    assertThat(buffer.offer("ikey", "0123456789".getBytes(UTF_8))).isTrue();
+    assertThat(buffer.offer("ikey", "0123456789".getBytes(UTF_8))).isTrue();
+    assertThat(buffer.offer("ikey", "0123456789".getBytes(UTF_8))).isFalse();
+
+    buffer.poll();
+
+    assertThat(buffer.offer("ikey", "0123456789".getBytes(UTF_8))).isTrue();
+  }
+
+  @Test
+  void shouldWrapAround() {
+    OverflowBuffer buffer = new OverflowBuffer(50);
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(buffer.offer("ikey", ("012345678" + i).getBytes(UTF_8))).isTrue();
+      assertThat(buffer.offer("ikey", ("987654321" + i).getBytes(UTF_8))).isTrue();
+
+      assertThat(new String(buffer.poll().getBytes(), UTF_8)).isEqualTo("012345678" + i);
+      assertThat(new String(buffer.poll().getBytes(), UTF_8)).isEqualTo("987654321" + i);
+    }
+    assertThat(buffer.size()).isZero();
+  }
+
+  @Test
+  void shouldSpanChunks() {
+    OverflowBuffer buffer = new OverflowBuffer(50, 16, Long.MAX_VALUE, ByteBuffer::allocate);
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(buffer.offer("ikey", ("012345678" + i).getBytes(UTF_8))).isTrue();
+      assertThat(buffer.offer("ikey", ("987654321" + i).getBytes(UTF_8))).isTrue();
+
+      assertThat(new String(buffer.poll().getBytes(), UTF_8)).isEqualTo("012345678" + i);
+      assertThat(new String(buffer.poll().getBytes(), UTF_8)).isEqualTo("987654321" + i);
+    }
+    assertThat(buffer.size()).isZero();
+  }
+
+  @Test
+  void shouldStopAcceptingItemsWhenOutOfDirectMemory() {
+    AtomicInteger allocations = new AtomicInteger();
+    OverflowBuffer buffer =
+        new OverflowBuffer(
+            100,
+            32,
+            Long.MAX_VALUE,
+            capacity -> {
+              if (allocations.incrementAndGet() > 1) {
+                throw new OutOfMemoryError("Direct buffer memory");
+              }
+              return ByteBuffer.allocate(capacity);
+            });
+
+    // each entry takes 22 bytes, so the second entry needs the second chunk
+    assertThat(buffer.offer("ikey", "0123456789".getBytes(UTF_8))).isTrue();
+    assertThat(buffer.offer("ikey", "0123456789".getBytes(UTF_8))).isFalse();
+    assertThat(buffer.offer("ikey", "0".getBytes(UTF_8))).isFalse();
+    assertThat(allocations.get()).isEqualTo(2);
+
+    assertThat(new String(buffer.poll().getBytes(), UTF_8)).isEqualTo("0123456789");
+    assertThat(buffer.poll()).isNull();
+    assertThat(buffer.offer("ikey", "0".getBytes(UTF_8))).isFalse();
+  }
+
+  @Test
+  void shouldCapCapacityAtQuarterOfMaxDirectMemory() {
+    OverflowBuffer buffer = new OverflowBuffer(1000, 16, 400, ByteBuffer::allocate);
+
+    // 102 bytes doesn't fit into the capped capacity of 100 bytes
+    assertThat(buffer.offer("ikey", new byte[90])).isFalse();
+    assertThat(buffer.offer("ikey", new byte[88])).isTrue();
+  }
+
+  @Test
+  void shouldParseMaxDirectMemorySize() {
+    assertThat(OverflowBuffer.parseSize("1024")).isEqualTo(1024);
+    assertThat(OverflowBuffer.parseSize("64k")).isEqualTo(64 * 1024);
+    assertThat(OverflowBuffer.parseSize("512M")).isEqualTo(512L * 1024 * 1024);
+    assertThat(OverflowBuffer.parseSize("2g")).isEqualTo(2L * 1024 * 1024 * 1024);
+  }
+}
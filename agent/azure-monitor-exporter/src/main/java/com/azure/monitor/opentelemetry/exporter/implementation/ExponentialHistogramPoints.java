@@ -0,0 +1,133 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation;
+
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.internal.data.exponentialhistogram.ExponentialHistogramBuckets;
+import io.opentelemetry.sdk.metrics.internal.data.exponentialhistogram.ExponentialHistogramPointData;
+import java.util.List;
+
+// the exponential histogram point data is still in the SDK's internal package, which can change
+// in any release, so all access to it is isolated here, and MetricDataMapper only loads this class
+// after checking (see MetricDataMapper.checkExponentialHistogramSupport()) that the SDK in use
+// still has the classes and methods used below
+final class ExponentialHistogramPoints {
+
+  static long getCount(PointData pointData) {
+    return ((ExponentialHistogramPointData) pointData).getCount();
+  }
+
+  static double getSum(PointData pointData) {
+    return ((ExponentialHistogramPointData) pointData).getSum();
+  }
+
+  // the exponential histogram points don't carry the min and max (yet), so these are estimates:
+  // the boundaries of the lowest and highest populated buckets, which are within a factor of
+  // 2^(2^-scale) of the actual values (i.e. within ~4.4% at the SDK's default max scale of 20, and
+  // less precise when the SDK had to downscale to fit the values into its max number of buckets),
+  // clamped to the bounds implied by the sum (see clampMin() and clampMax())
+  static double getMin(PointData pointData) {
+    ExponentialHistogramPointData exponentialPointData = (ExponentialHistogramPointData) pointData;
+    if (exponentialPointData.getCount() == 1) {
+      return exponentialPointData.getSum();
+    }
+    return clampMin(estimateMin(exponentialPointData), exponentialPointData);
+  }
+
+  static double getMax(PointData pointData) {
+    ExponentialHistogramPointData exponentialPointData = (ExponentialHistogramPointData) pointData;
+    if (exponentialPointData.getCount() == 1) {
+      return exponentialPointData.getSum();
+    }
+    return clampMax(estimateMax(exponentialPointData), exponentialPointData);
+  }
+
+  // the min can't be greater than the mean
+  private static double clampMin(double min, ExponentialHistogramPointData pointData) {
+    return Math.min(min, pointData.getSum() / pointData.getCount());
+  }
+
+  // the max can't be less than the mean, and when there are no negative values, it can't be
+  // greater than the sum either
+  private static double clampMax(double max, ExponentialHistogramPointData pointData) {
+    double sum = pointData.getSum();
+    max = Math.max(max, sum / pointData.getCount());
+    if (getHighestPopulatedIndex(pointData.getNegativeBuckets()) == Integer.MIN_VALUE) {
+      max = Math.min(max, sum);
+    }
+    return max;
+  }
+
+  private static double estimateMin(ExponentialHistogramPointData pointData) {
+    int scale = pointData.getScale();
+    ExponentialHistogramBuckets negative = pointData.getNegativeBuckets();
+    int highestNegative = getHighestPopulatedIndex(negative);
+    if (highestNegative != Integer.MIN_VALUE) {
+      return -getBucketBoundary(highestNegative + 1, scale);
+    }
+    if (pointData.getZeroCount() > 0) {
+      return 0;
+    }
+    int lowestPositive = getLowestPopulatedIndex(pointData.getPositiveBuckets());
+    return lowestPositive == Integer.MAX_VALUE ? 0 : getBucketBoundary(lowestPositive, scale);
+  }
+
+  private static double estimateMax(ExponentialHistogramPointData pointData) {
+    int scale = pointData.getScale();
+    int highestPositive = getHighestPopulatedIndex(pointData.getPositiveBuckets());
+    if (highestPositive != Integer.MIN_VALUE) {
+      return getBucketBoundary(highestPositive + 1, scale);
+    }
+    if (pointData.getZeroCount() > 0) {
+      return 0;
+    }
+    int lowestNegative = getLowestPopulatedIndex(pointData.getNegativeBuckets());
+    return lowestNegative == Integer.MAX_VALUE ? 0 : -getBucketBoundary(lowestNegative, scale);
+  }
+
+  // bucket index i covers the values in (base^i, base^(i+1)], where base = 2^(2^-scale)
+  private static double getBucketBoundary(int index, int scale) {
+    return Math.pow(2, Math.scalb((double) index, -scale));
+  }
+
+  private static int getLowestPopulatedIndex(ExponentialHistogramBuckets buckets) {
+    List<Long> bucketCounts = buckets.getBucketCounts();
+    for (int i = 0; i < bucketCounts.size(); i++) {
+      if (bucketCounts.get(i) > 0) {
+        return buckets.getOffset() + i;
+      }
+    }
+    return Integer.MAX_VALUE;
+  }
+
+  private static int getHighestPopulatedIndex(ExponentialHistogramBuckets buckets) {
+    List<Long> bucketCounts = buckets.getBucketCounts();
+    for (int i = bucketCounts.size() - 1; i >= 0; i--) {
+      if (bucketCounts.get(i) > 0) {
+        return buckets.getOffset() + i;
+      }
+    }
+    return Integer.MIN_VALUE;
+  }
+
+  private ExponentialHistogramPoints() {}
+}
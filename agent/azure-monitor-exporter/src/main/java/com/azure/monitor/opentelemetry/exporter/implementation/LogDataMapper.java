@@ -22,13 +22,15 @@
 package com.azure.monitor.opentelemetry.exporter.implementation;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.AbstractTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.ExceptionCache;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.ExceptionDetailBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.ExceptionTelemetryBuilder;
-import com.azure.monitor.opentelemetry.exporter.implementation.builders.Exceptions;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.MessageTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.ContextTagKeys;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.SeverityLevel;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.StringInterner;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.TelemetryUtil;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
@@ -37,6 +39,7 @@ import io.opentelemetry.sdk.logs.data.LogData;
 import io.opentelemetry.sdk.logs.data.Severity;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
@@ -50,6 +53,10 @@ public class LogDataMapper {
   private static final AttributeKey<String> AI_OPERATION_NAME_KEY =
       AttributeKey.stringKey("applicationinsights.internal.operation_name");
 
+  // the logger message of a suppressed exception is truncated, since it is retained until the
+  // suppressed exception is sent (see ExceptionCache)
+  private static final int MAX_SUPPRESSED_LOGGER_MESSAGE_LENGTH = 1024;
+
   private final boolean captureLoggingLevelAsCustomDimension;
   private final BiConsumer<AbstractTelemetryBuilder, Resource> telemetryInitializer;
 
@@ -65,7 +72,11 @@ public class LogDataMapper {
     if (stack == null) {
       consumer.accept(createMessageTelemetryItem(log));
     } else {
-      consumer.accept(createExceptionTelemetryItem(log, stack));
+      long suppressedCount =
+          ExceptionCache.get().recordOccurrence(stack, new SuppressedLogException(log));
+      if (suppressedCount != -1) {
+        consumer.accept(createExceptionTelemetryItem(log, stack, suppressedCount));
+      }
     }
   }
 
@@ -95,7 +106,8 @@ public class LogDataMapper {
     return telemetryBuilder.build();
   }
 
-  private TelemetryItem createExceptionTelemetryItem(LogData log, String stack) {
+  private TelemetryItem createExceptionTelemetryItem(
+      LogData log, String stack, long suppressedCount) {
     ExceptionTelemetryBuilder telemetryBuilder = ExceptionTelemetryBuilder.create();
     telemetryInitializer.accept(telemetryBuilder, log.getResource());
 
@@ -108,7 +120,8 @@ public class LogDataMapper {
     Attributes attributes = log.getAttributes();
     setExtraAttributes(telemetryBuilder, attributes);
 
-    telemetryBuilder.setExceptions(Exceptions.minimalParse(stack));
+    telemetryBuilder.setExceptions(ExceptionCache.get().parse(stack));
+    telemetryBuilder.setSuppressedCount(suppressedCount);
     telemetryBuilder.setSeverityLevel(toSeverityLevel(log.getSeverity()));
 
     // set exception-specific properties
@@ -125,6 +138,72 @@ public class LogDataMapper {
     return telemetryBuilder.build();
   }
 
+  // only the pieces of the log record that the telemetry item needs are kept until the suppressed
+  // exception is sent (see ExceptionCache), without the log record attributes (other than the
+  // operation name and thread name)
+  private final class SuppressedLogException implements ExceptionCache.SuppressedOccurrence {
+
+    private final Resource resource;
+    private final String traceId;
+    private final String spanId;
+    @Nullable private final String operationName;
+    private final long epochNanos;
+    private final float samplingPercentage;
+    private final Severity severity;
+    @Nullable private final String loggerName;
+    @Nullable private final String threadName;
+    @Nullable private final String loggerMessage;
+
+    private SuppressedLogException(LogData log) {
+      resource = log.getResource();
+      traceId = log.getSpanContext().getTraceId();
+      spanId = log.getSpanContext().getSpanId();
+      Attributes attributes = log.getAttributes();
+      operationName = attributes.get(AI_OPERATION_NAME_KEY);
+      epochNanos = log.getEpochNanos();
+      samplingPercentage = getSamplingPercentage(log);
+      severity = log.getSeverity();
+      loggerName = log.getInstrumentationScopeInfo().getName();
+      threadName = attributes.get(SemanticAttributes.THREAD_NAME);
+      String body = log.getBody() == null ? null : log.getBody().asString();
+      loggerMessage =
+          body == null || body.length() <= MAX_SUPPRESSED_LOGGER_MESSAGE_LENGTH
+              ? body
+              : body.substring(0, MAX_SUPPRESSED_LOGGER_MESSAGE_LENGTH);
+    }
+
+    @Override
+    public TelemetryItem createTelemetryItem(
+        List<ExceptionDetailBuilder> exceptions, long suppressedCount) {
+      ExceptionTelemetryBuilder telemetryBuilder = ExceptionTelemetryBuilder.create();
+      telemetryInitializer.accept(telemetryBuilder, resource);
+
+      // set standard properties
+      telemetryBuilder.addTag(ContextTagKeys.AI_OPERATION_ID.toString(), traceId);
+      setOperationParentId(telemetryBuilder, spanId);
+      if (operationName != null) {
+        telemetryBuilder.addTag(
+            ContextTagKeys.AI_OPERATION_NAME.toString(),
+            StringInterner.get().intern(operationName));
+      }
+      setTime(telemetryBuilder, epochNanos);
+      setSampleRate(telemetryBuilder, samplingPercentage);
+
+      telemetryBuilder.setExceptions(exceptions);
+      telemetryBuilder.setSuppressedCount(suppressedCount);
+      telemetryBuilder.setSeverityLevel(toSeverityLevel(severity));
+
+      // set exception-specific properties
+      setLoggerProperties(telemetryBuilder, loggerName, threadName, severity);
+
+      if (loggerMessage != null) {
+        telemetryBuilder.addProperty("Logger Message", loggerMessage);
+      }
+
+      return telemetryBuilder.build();
+    }
+  }
+
   private static void setOperationTags(AbstractTelemetryBuilder telemetryBuilder, LogData log) {
     telemetryBuilder.addTag(
         ContextTagKeys.AI_OPERATION_ID.toString(), log.getSpanContext().getTraceId());
@@ -143,7 +222,8 @@ public class LogDataMapper {
       AbstractTelemetryBuilder telemetryBuilder, Attributes attributes) {
     String operationName = attributes.get(AI_OPERATION_NAME_KEY);
     if (operationName != null) {
-      telemetryBuilder.addTag(ContextTagKeys.AI_OPERATION_NAME.toString(), operationName);
+      telemetryBuilder.addTag(
+          ContextTagKeys.AI_OPERATION_NAME.toString(), StringInterner.get().intern(operationName));
     }
   }
 
@@ -152,15 +232,22 @@ public class LogDataMapper {
   }
 
   private static void setSampleRate(AbstractTelemetryBuilder telemetryBuilder, LogData log) {
-    // standalone logs (not part of an existing trace) will not have sampling percentage encoded in
-    // their trace state
-    float samplingPercentage =
-        TelemetryUtil.getSamplingPercentage(log.getSpanContext().getTraceState(), 10, false);
+    setSampleRate(telemetryBuilder, getSamplingPercentage(log));
+  }
+
+  private static void setSampleRate(
+      AbstractTelemetryBuilder telemetryBuilder, float samplingPercentage) {
     if (samplingPercentage != 100) {
       telemetryBuilder.setSampleRate(samplingPercentage);
     }
   }
 
+  private static float getSamplingPercentage(LogData log) {
+    // standalone logs (not part of an existing trace) will not have sampling percentage encoded in
+    // their trace state
+    return TelemetryUtil.getSamplingPercentage(log.getSpanContext().getTraceState(), 10, false);
+  }
+
   private static final String LOG4J1_2_MDC_PREFIX = "log4j.mdc.";
   private static final String LOG4J2_CONTEXT_DATA_PREFIX = "log4j.context_data.";
   private static final String LOGBACK_MDC_PREFIX = "logback.mdc.";
@@ -24,6 +24,7 @@ package com.azure.monitor.opentelemetry.exporter.implementation;
 import static io.opentelemetry.api.internal.Utils.checkArgument;
 import static io.opentelemetry.sdk.metrics.data.MetricDataType.DOUBLE_GAUGE;
 import static io.opentelemetry.sdk.metrics.data.MetricDataType.DOUBLE_SUM;
+import static io.opentelemetry.sdk.metrics.data.MetricDataType.EXPONENTIAL_HISTOGRAM;
 import static io.opentelemetry.sdk.metrics.data.MetricDataType.HISTOGRAM;
 import static io.opentelemetry.sdk.metrics.data.MetricDataType.LONG_GAUGE;
 import static io.opentelemetry.sdk.metrics.data.MetricDataType.LONG_SUM;
@@ -32,7 +33,10 @@ import com.azure.monitor.opentelemetry.exporter.implementation.builders.Abstract
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricPointBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.StringInterner;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.sdk.metrics.data.DoublePointData;
 import io.opentelemetry.sdk.metrics.data.HistogramPointData;
 import io.opentelemetry.sdk.metrics.data.LongPointData;
@@ -41,9 +45,15 @@ import io.opentelemetry.sdk.metrics.data.MetricDataType;
 import io.opentelemetry.sdk.metrics.data.PointData;
 import io.opentelemetry.sdk.resources.Resource;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,9 +61,28 @@ public class MetricDataMapper {
 
   private static final List<String> EXCLUDED_METRIC_NAMES = new ArrayList<>();
 
+  // same attribute that the OpenTelemetry SDK uses for its own cardinality overflow series
+  private static final String OVERFLOW_PROPERTY_KEY = "otel.metric.overflow";
+
+  // visible for testing
+  static final int SERIES_EXPIRY_EXPORTS = 10;
+
   private static final Logger logger = LoggerFactory.getLogger(MetricDataMapper.class);
+
+  private static final boolean EXPONENTIAL_HISTOGRAM_SUPPORTED = checkExponentialHistogramSupport();
   private final BiConsumer<AbstractTelemetryBuilder, Resource> telemetryInitializer;
 
+  // 0 means no limit
+  private final int maxSeriesPerMetric;
+  // the attribute sets that have been seen recently for each metric name, once there are
+  // maxSeriesPerMetric of them, points with any other attribute set are folded into a single
+  // overflow point, so that the series which are already reported keep being reported
+  //
+  // attribute sets that have not been seen for SERIES_EXPIRY_EXPORTS exports of their metric are
+  // forgotten, making room for new ones
+  private final ConcurrentMap<String, MetricSeries> seriesPerMetric = new ConcurrentHashMap<>();
+  @Nullable private final LongAdder overflowPoints;
+
   static {
     EXCLUDED_METRIC_NAMES.add("http.server.active_requests"); // Servlet
     EXCLUDED_METRIC_NAMES.add("http.server.duration"); // Servlet
@@ -63,7 +92,49 @@ public class MetricDataMapper {
   }
 
   public MetricDataMapper(BiConsumer<AbstractTelemetryBuilder, Resource> telemetryInitializer) {
+    this(telemetryInitializer, 0);
+  }
+
+  public MetricDataMapper(
+      BiConsumer<AbstractTelemetryBuilder, Resource> telemetryInitializer, int maxSeriesPerMetric) {
     this.telemetryInitializer = telemetryInitializer;
+    this.maxSeriesPerMetric = maxSeriesPerMetric;
+    overflowPoints =
+        maxSeriesPerMetric > 0 ? SelfMetrics.get().getCounter("metricOverflowPoints") : null;
+  }
+
+  // the exponential histogram point data is still in the SDK's internal package (see
+  // ExponentialHistogramPoints), so this checks that the SDK in use still has everything that is
+  // used from it, and otherwise exponential histograms are not mapped (instead of failing with a
+  // LinkageError on every export)
+  private static boolean checkExponentialHistogramSupport() {
+    String packageName = "io.opentelemetry.sdk.metrics.internal.data.exponentialhistogram.";
+    try {
+      ClassLoader classLoader = MetricDataMapper.class.getClassLoader();
+      Class<?> pointData =
+          Class.forName(packageName + "ExponentialHistogramPointData", false, classLoader);
+      pointData.getMethod("getCount");
+      pointData.getMethod("getSum");
+      pointData.getMethod("getScale");
+      pointData.getMethod("getZeroCount");
+      pointData.getMethod("getPositiveBuckets");
+      pointData.getMethod("getNegativeBuckets");
+      Class<?> buckets =
+          Class.forName(packageName + "ExponentialHistogramBuckets", false, classLoader);
+      buckets.getMethod("getOffset");
+      buckets.getMethod("getBucketCounts");
+      return true;
+    } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+      logger.warn(
+          "exponential histograms are not supported with this version of the OpenTelemetry SDK"
+              + " and will not be exported",
+          e);
+      return false;
+    }
+  }
+
+  public static boolean isExponentialHistogramSupported() {
+    return EXPONENTIAL_HISTOGRAM_SUPPORTED;
   }
 
   public void map(MetricData metricData, Consumer<TelemetryItem> consumer) {
@@ -76,12 +147,15 @@ public class MetricDataMapper {
         || type == DOUBLE_GAUGE
         || type == LONG_SUM
         || type == LONG_GAUGE
-        || type == HISTOGRAM) {
+        || type == HISTOGRAM
+        || (type == EXPONENTIAL_HISTOGRAM && EXPONENTIAL_HISTOGRAM_SUPPORTED)) {
       List<TelemetryItem> telemetryItemList = convertOtelMetricToAzureMonitorMetric(metricData);
       for (TelemetryItem telemetryItem : telemetryItemList) {
         consumer.accept(telemetryItem);
       }
-    } else {
+    } else if (type != EXPONENTIAL_HISTOGRAM) {
+      // unsupported exponential histograms were already logged once by
+      // checkExponentialHistogramSupport()
       logger.warn("metric data type {} is not supported yet.", metricData.getType());
     }
   }
@@ -89,7 +163,20 @@ public class MetricDataMapper {
   private List<TelemetryItem> convertOtelMetricToAzureMonitorMetric(MetricData metricData) {
     List<TelemetryItem> telemetryItems = new ArrayList<>();
 
+    MetricSeries series = null;
+    if (maxSeriesPerMetric > 0) {
+      series = seriesPerMetric.computeIfAbsent(metricData.getName(), k -> new MetricSeries());
+      series.startExport();
+    }
+    OverflowPoint overflowPoint = null;
     for (PointData pointData : metricData.getData().getPoints()) {
+      if (series != null && !series.isAllowed(pointData.getAttributes(), maxSeriesPerMetric)) {
+        if (overflowPoint == null) {
+          overflowPoint = new OverflowPoint(metricData.getType());
+        }
+        overflowPoint.add(pointData);
+        continue;
+      }
       MetricTelemetryBuilder builder = MetricTelemetryBuilder.create();
       telemetryInitializer.accept(builder, metricData.getResource());
 
@@ -98,9 +185,27 @@ public class MetricDataMapper {
 
       telemetryItems.add(builder.build());
     }
+    if (overflowPoint != null) {
+      telemetryItems.add(createOverflowItem(metricData, overflowPoint));
+    }
     return telemetryItems;
   }
 
+  private TelemetryItem createOverflowItem(MetricData metricData, OverflowPoint overflowPoint) {
+    if (overflowPoints != null) {
+      overflowPoints.add(overflowPoint.pointCount);
+    }
+    MetricTelemetryBuilder builder = MetricTelemetryBuilder.create();
+    telemetryInitializer.accept(builder, metricData.getResource());
+
+    builder.setTime(FormattedTime.offSetDateTimeFromEpochNanos(overflowPoint.epochNanos));
+    MetricPointBuilder pointBuilder = overflowPoint.toMetricPointBuilder();
+    pointBuilder.setName(StringInterner.get().intern(metricData.getName()));
+    builder.setMetricPoint(pointBuilder);
+    builder.addProperty(OVERFLOW_PROPERTY_KEY, "true");
+    return builder.build();
+  }
+
   // visible for testing
   public static void updateMetricPointBuilder(
       MetricTelemetryBuilder metricTelemetryBuilder, MetricData metricData, PointData pointData) {
@@ -131,19 +236,129 @@ public class MetricDataMapper {
         pointBuilder.setMin(histogramPointData.getMin());
         pointBuilder.setMax(histogramPointData.getMax());
         break;
+      case EXPONENTIAL_HISTOGRAM:
+        long exponentialCount = ExponentialHistogramPoints.getCount(pointData);
+        if (exponentialCount <= Integer.MAX_VALUE) {
+          pointBuilder.setCount((int) exponentialCount);
+        }
+        pointBuilder.setValue(ExponentialHistogramPoints.getSum(pointData));
+        if (exponentialCount > 0) {
+          pointBuilder.setMin(ExponentialHistogramPoints.getMin(pointData));
+          pointBuilder.setMax(ExponentialHistogramPoints.getMax(pointData));
+        }
+        break;
       case SUMMARY: // not supported yet in OpenTelemetry SDK
-      case EXPONENTIAL_HISTOGRAM: // not supported yet in OpenTelemetry SDK
       default:
         throw new IllegalArgumentException("metric data type '" + type + "' is not supported yet");
     }
 
-    pointBuilder.setName(metricData.getName());
+    StringInterner interner = StringInterner.get();
+    pointBuilder.setName(interner.intern(metricData.getName()));
 
     metricTelemetryBuilder.setMetricPoint(pointBuilder);
 
+    // metric dimension values are expected to have low cardinality (unlike span attribute values)
     pointData
         .getAttributes()
         .forEach(
-            (key, value) -> metricTelemetryBuilder.addProperty(key.getKey(), value.toString()));
+            (key, value) ->
+                metricTelemetryBuilder.addProperty(
+                    key.getKey(), interner.intern(value.toString())));
+  }
+
+  // metric export is not concurrent, so this doesn't need to be thread-safe
+  private static final class MetricSeries {
+
+    private long exportCount;
+    // the export (of this metric) in which each attribute set was last seen
+    private final Map<Attributes, Long> lastSeen = new HashMap<>();
+
+    private void startExport() {
+      exportCount++;
+      lastSeen.values().removeIf(seen -> exportCount - seen > SERIES_EXPIRY_EXPORTS);
+    }
+
+    private boolean isAllowed(Attributes attributes, int maxSeries) {
+      if (lastSeen.replace(attributes, exportCount) != null) {
+        return true;
+      }
+      if (lastSeen.size() < maxSeries) {
+        lastSeen.put(attributes, exportCount);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  // folds the points of the series that exceed the limit, sums and histograms are added up, while
+  // gauges are reported as an aggregate (sum and count, along with min and max) of their values
+  private static final class OverflowPoint {
+
+    private final MetricDataType type;
+
+    private int pointCount;
+    private long epochNanos;
+    private double sum;
+    private long count;
+    private double min = Double.MAX_VALUE;
+    private double max = -Double.MAX_VALUE;
+
+    private OverflowPoint(MetricDataType type) {
+      this.type = type;
+    }
+
+    private void add(PointData pointData) {
+      pointCount++;
+      epochNanos = Math.max(epochNanos, pointData.getEpochNanos());
+      switch (type) {
+        case LONG_SUM:
+        case LONG_GAUGE:
+          addValue((double) ((LongPointData) pointData).getValue());
+          break;
+        case DOUBLE_SUM:
+        case DOUBLE_GAUGE:
+          addValue(((DoublePointData) pointData).getValue());
+          break;
+        case HISTOGRAM:
+          HistogramPointData histogramPointData = (HistogramPointData) pointData;
+          sum += histogramPointData.getSum();
+          count += histogramPointData.getCount();
+          min = Math.min(min, histogramPointData.getMin());
+          max = Math.max(max, histogramPointData.getMax());
+          break;
+        case EXPONENTIAL_HISTOGRAM:
+          long exponentialCount = ExponentialHistogramPoints.getCount(pointData);
+          if (exponentialCount > 0) {
+            sum += ExponentialHistogramPoints.getSum(pointData);
+            count += exponentialCount;
+            min = Math.min(min, ExponentialHistogramPoints.getMin(pointData));
+            max = Math.max(max, ExponentialHistogramPoints.getMax(pointData));
+          }
+          break;
+        default:
+          throw new IllegalArgumentException(
+              "metric data type '" + type + "' is not supported yet");
+      }
+    }
+
+    private void addValue(double value) {
+      sum += value;
+      count++;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+
+    private MetricPointBuilder toMetricPointBuilder() {
+      MetricPointBuilder pointBuilder = new MetricPointBuilder();
+      pointBuilder.setValue(sum);
+      if (type != LONG_SUM && type != DOUBLE_SUM) {
+        pointBuilder.setCount((int) Math.min(count, Integer.MAX_VALUE));
+        if (count > 0) {
+          pointBuilder.setMin(min);
+          pointBuilder.setMax(max);
+        }
+      }
+      return pointBuilder;
+    }
   }
 }
@@ -26,15 +26,18 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.azure.core.util.logging.ClientLogger;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.AbstractTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.ExceptionCache;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.ExceptionDetailBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.ExceptionTelemetryBuilder;
-import com.azure.monitor.opentelemetry.exporter.implementation.builders.Exceptions;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.MessageTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.RemoteDependencyTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.RequestTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.ContextTagKeys;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.DbStatementNormalizer;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedDuration;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.StringInterner;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.TelemetryUtil;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.Trie;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.UrlParser;
@@ -44,7 +47,9 @@ import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.api.trace.SpanId;
 import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.data.EventData;
 import io.opentelemetry.sdk.trace.data.LinkData;
@@ -107,6 +112,26 @@ public final class SpanDataMapper {
       AttributeKey.longKey("kafka.record.queue_time_ms");
   private static final AttributeKey<Long> KAFKA_OFFSET = AttributeKey.longKey("kafka.offset");
 
+  private static final String AI_PREVIEW_INSTRUMENTATION_KEY = "ai.preview.instrumentation_key";
+
+  // the dependency target is derived from attribute values that have very low cardinality within a
+  // process (a handful of downstream hosts), so it is built once instead of on every span
+
+  // key is (net.peer.name or net.peer.ip, net.peer.port), value is "host:port"
+  private static final Cache<AttributeValuePair, String> NET_TARGET_CACHE = Cache.bounded(1000);
+
+  // key is (http.host, http.scheme), value is http.host without the scheme's default port
+  private static final Cache<AttributeValuePair, String> HTTP_HOST_TARGET_CACHE =
+      Cache.bounded(1000);
+
+  // key is messaging.system, value is the dependency type of producer spans
+  private static final Cache<String, String> MESSAGING_PRODUCER_TYPE_CACHE = Cache.bounded(100);
+
+  // how setExtraAttributes() handles an attribute only depends on its key (name and type), and most
+  // attribute keys come from a small fixed set, so each key is only classified once
+  private static final Cache<AttributeKey<?>, ExtraAttribute> EXTRA_ATTRIBUTE_CACHE =
+      Cache.bounded(1000);
+
   static {
     Set<String> dbSystems = new HashSet<>();
     dbSystems.add(SemanticAttributes.DbSystemValues.DB2);
@@ -165,12 +190,11 @@ public final class SpanDataMapper {
   public void map(SpanData span, Consumer<TelemetryItem> consumer) {
     float samplingPercentage = getSamplingPercentage(span.getSpanContext().getTraceState());
     TelemetryItem telemetryItem = map(span, samplingPercentage);
+    // the telemetry item must not be accessed after handing it off to the consumer, since it may
+    // be recycled (see TelemetryItemPool)
+    String operationName = telemetryItem.getTags().get(ContextTagKeys.AI_OPERATION_NAME.toString());
     consumer.accept(telemetryItem);
-    exportEvents(
-        span,
-        telemetryItem.getTags().get(ContextTagKeys.AI_OPERATION_NAME.toString()),
-        samplingPercentage,
-        consumer);
+    exportEvents(span, operationName, samplingPercentage, consumer);
   }
 
   public TelemetryItem map(SpanData span, float samplingPercentage) {
@@ -182,18 +206,27 @@ public final class SpanDataMapper {
   }
 
   public static boolean isRequest(SpanData span) {
-    SpanKind kind = span.getKind();
-    String instrumentationName = span.getInstrumentationScopeInfo().getName();
+    return isRequest(
+        span.getKind(),
+        span.getParentSpanContext(),
+        span.getInstrumentationScopeInfo().getName(),
+        span.getAttributes().get(SemanticAttributes.MESSAGING_OPERATION));
+  }
+
+  static boolean isRequest(
+      SpanKind kind,
+      SpanContext parentSpanContext,
+      String instrumentationName,
+      @Nullable String messagingOperation) {
     if (kind == SpanKind.INTERNAL) {
       // TODO (trask) AI mapping: need semantic convention for determining whether to map INTERNAL
       // to request or dependency (or need clarification to use SERVER for this)
       return (instrumentationName.startsWith("io.opentelemetry.spring-scheduling-")
               || instrumentationName.equals("io.opentelemetry.methods"))
-          && !span.getParentSpanContext().isValid();
+          && !parentSpanContext.isValid();
     } else if (kind == SpanKind.CLIENT || kind == SpanKind.PRODUCER) {
       return false;
-    } else if (kind == SpanKind.CONSUMER
-        && "receive".equals(span.getAttributes().get(SemanticAttributes.MESSAGING_OPERATION))) {
+    } else if (kind == SpanKind.CONSUMER && "receive".equals(messagingOperation)) {
       return false;
     } else if (kind == SpanKind.SERVER || kind == SpanKind.CONSUMER) {
       return true;
@@ -219,10 +252,13 @@ public final class SpanDataMapper {
 
     // set dependency-specific properties
     telemetryBuilder.setId(span.getSpanId());
+    // not interned, since dependency names often include high-cardinality values
     telemetryBuilder.setName(getDependencyName(span));
     telemetryBuilder.setDuration(
         FormattedDuration.fromNanos(span.getEndEpochNanos() - span.getStartEpochNanos()));
-    telemetryBuilder.setSuccess(getSuccess(span));
+    telemetryBuilder.setSuccess(
+        getSuccess(
+            span.getStatus().getStatusCode(), span.getAttributes(), captureHttpServer4xxAsError));
 
     if (inProc) {
       telemetryBuilder.setType("InProc");
@@ -313,6 +349,55 @@ public final class SpanDataMapper {
     telemetryBuilder.setType("InProc");
   }
 
+  // same dependency type as applySemanticConventions, except that http dependencies to other
+  // tracked components are not distinguished, since that needs the target app id lookup
+  @Nullable
+  static String getDependencyType(SpanKind kind, Attributes attributes) {
+    if (kind == SpanKind.INTERNAL) {
+      return "InProc";
+    }
+    if (attributes.get(SemanticAttributes.HTTP_METHOD) != null) {
+      return "Http";
+    }
+    String rpcSystem = attributes.get(SemanticAttributes.RPC_SYSTEM);
+    if (rpcSystem != null) {
+      return rpcSystem;
+    }
+    String dbSystem = attributes.get(SemanticAttributes.DB_SYSTEM);
+    if (dbSystem != null) {
+      return getDatabaseType(dbSystem);
+    }
+    String messagingSystem = getMessagingSystem(attributes);
+    if (messagingSystem != null) {
+      return getMessagingType(kind, messagingSystem);
+    }
+    return getTargetFromPeerAttributes(attributes, Integer.MAX_VALUE) == null ? "InProc" : null;
+  }
+
+  // same dependency target as applySemanticConventions, except that the target app id is not
+  // appended for http dependencies to other tracked components
+  @Nullable
+  static String getDependencyTarget(SpanKind kind, Attributes attributes) {
+    if (kind == SpanKind.INTERNAL) {
+      return null;
+    }
+    if (attributes.get(SemanticAttributes.HTTP_METHOD) != null) {
+      return getTargetForHttpClientSpan(attributes);
+    }
+    String rpcSystem = attributes.get(SemanticAttributes.RPC_SYSTEM);
+    if (rpcSystem != null) {
+      return getRpcTarget(rpcSystem, attributes);
+    }
+    String dbSystem = attributes.get(SemanticAttributes.DB_SYSTEM);
+    if (dbSystem != null) {
+      return getDatabaseTarget(dbSystem, attributes);
+    }
+    if (getMessagingSystem(attributes) != null) {
+      return getMessagingTargetSource(attributes);
+    }
+    return getTargetFromPeerAttributes(attributes, Integer.MAX_VALUE);
+  }
+
   @Nullable
   private static String getMessagingSystem(Attributes attributes) {
     String azureNamespace = attributes.get(AZURE_NAMESPACE);
@@ -350,7 +435,8 @@ public final class SpanDataMapper {
 
   private static void setOperationName(
       AbstractTelemetryBuilder telemetryBuilder, String operationName) {
-    telemetryBuilder.addTag(ContextTagKeys.AI_OPERATION_NAME.toString(), operationName);
+    telemetryBuilder.addTag(
+        ContextTagKeys.AI_OPERATION_NAME.toString(), StringInterner.get().intern(operationName));
   }
 
   private void applyHttpClientSpan(
@@ -395,6 +481,20 @@ public final class SpanDataMapper {
     return requestContext.substring(index + 1);
   }
 
+  private static String getTargetFromHttpHost(String host, @Nullable String scheme) {
+    // note http.host includes the port (at least when non-default)
+    if ("http".equals(scheme)) {
+      if (host.endsWith(":80")) {
+        return host.substring(0, host.length() - 3);
+      }
+    } else if ("https".equals(scheme)) {
+      if (host.endsWith(":443")) {
+        return host.substring(0, host.length() - 4);
+      }
+    }
+    return host;
+  }
+
   private static String getTargetForHttpClientSpan(Attributes attributes) {
     // from the spec, at least one of the following sets of attributes is required:
     // * http.url
@@ -405,24 +505,18 @@ public final class SpanDataMapper {
     if (target != null) {
       return target;
     }
-    // note http.host includes the port (at least when non-default)
-    target = attributes.get(SemanticAttributes.HTTP_HOST);
-    if (target != null) {
+    String host = attributes.get(SemanticAttributes.HTTP_HOST);
+    if (host != null) {
       String scheme = attributes.get(SemanticAttributes.HTTP_SCHEME);
-      if ("http".equals(scheme)) {
-        if (target.endsWith(":80")) {
-          target = target.substring(0, target.length() - 3);
-        }
-      } else if ("https".equals(scheme)) {
-        if (target.endsWith(":443")) {
-          target = target.substring(0, target.length() - 4);
-        }
-      }
-      return target;
+      return HTTP_HOST_TARGET_CACHE.computeIfAbsent(
+          new AttributeValuePair(host, scheme == null ? "" : scheme),
+          key -> getTargetFromHttpHost(host, scheme));
     }
     String url = attributes.get(SemanticAttributes.HTTP_URL);
     if (url != null) {
-      target = UrlParser.getTargetFromUrl(url);
+      // the url itself has high cardinality (path and query), but the target extracted from it
+      // doesn't, so intern it instead of keeping a separate copy per span
+      target = StringInterner.get().intern(UrlParser.getTargetFromUrl(url));
       if (target != null) {
         return target;
       }
@@ -468,7 +562,8 @@ public final class SpanDataMapper {
     // append net.peer.port to target
     Long port = attributes.get(SemanticAttributes.NET_PEER_PORT);
     if (port != null && port != defaultPort) {
-      return target + ":" + port;
+      return NET_TARGET_CACHE.computeIfAbsent(
+          new AttributeValuePair(target, port), key -> key.first + ":" + key.second);
     }
     return target;
   }
@@ -485,43 +580,47 @@ public final class SpanDataMapper {
   private static void applyRpcClientSpan(
       RemoteDependencyTelemetryBuilder telemetryBuilder, String rpcSystem, Attributes attributes) {
     telemetryBuilder.setType(rpcSystem);
+    telemetryBuilder.setTarget(getRpcTarget(rpcSystem, attributes));
+  }
+
+  private static String getRpcTarget(String rpcSystem, Attributes attributes) {
     String target = getTargetFromPeerAttributes(attributes, 0);
     // not appending /rpc.service for now since that seems too fine-grained
-    if (target == null) {
-      target = rpcSystem;
-    }
-    telemetryBuilder.setTarget(target);
+    return target != null ? target : rpcSystem;
   }
 
   private static void applyDatabaseClientSpan(
       RemoteDependencyTelemetryBuilder telemetryBuilder, String dbSystem, Attributes attributes) {
-    String dbStatement = attributes.get(SemanticAttributes.DB_STATEMENT);
+    String dbStatement =
+        DbStatementNormalizer.get().normalize(attributes.get(SemanticAttributes.DB_STATEMENT));
     if (dbStatement == null) {
       dbStatement = attributes.get(SemanticAttributes.DB_OPERATION);
     }
-    String type;
+    telemetryBuilder.setType(getDatabaseType(dbSystem));
+    telemetryBuilder.setData(dbStatement);
+    telemetryBuilder.setTarget(getDatabaseTarget(dbSystem, attributes));
+  }
+
+  private static String getDatabaseType(String dbSystem) {
     if (SQL_DB_SYSTEMS.contains(dbSystem)) {
       if (dbSystem.equals(SemanticAttributes.DbSystemValues.MYSQL)) {
-        type = "mysql"; // this has special icon in portal
+        return "mysql"; // this has special icon in portal
       } else if (dbSystem.equals(SemanticAttributes.DbSystemValues.POSTGRESQL)) {
-        type = "postgresql"; // this has special icon in portal
+        return "postgresql"; // this has special icon in portal
       } else {
-        type = "SQL";
+        return "SQL";
       }
-    } else {
-      type = dbSystem;
     }
-    telemetryBuilder.setType(type);
-    telemetryBuilder.setData(dbStatement);
+    return dbSystem;
+  }
+
+  private static String getDatabaseTarget(String dbSystem, Attributes attributes) {
     String target =
         nullAwareConcat(
             getTargetFromPeerAttributes(attributes, getDefaultPortForDbSystem(dbSystem)),
             attributes.get(SemanticAttributes.DB_NAME),
             " | ");
-    if (target == null) {
-      target = dbSystem;
-    }
-    telemetryBuilder.setTarget(target);
+    return target != null ? target : dbSystem;
   }
 
   private static void applyMessagingClientSpan(
@@ -529,13 +628,17 @@ public final class SpanDataMapper {
       SpanKind spanKind,
       String messagingSystem,
       Attributes attributes) {
+    telemetryBuilder.setType(getMessagingType(spanKind, messagingSystem));
+    telemetryBuilder.setTarget(getMessagingTargetSource(attributes));
+  }
+
+  private static String getMessagingType(SpanKind spanKind, String messagingSystem) {
     if (spanKind == SpanKind.PRODUCER) {
-      telemetryBuilder.setType("Queue Message | " + messagingSystem);
-    } else {
-      // e.g. CONSUMER kind (without remote parent) and CLIENT kind
-      telemetryBuilder.setType(messagingSystem);
+      return MESSAGING_PRODUCER_TYPE_CACHE.computeIfAbsent(
+          messagingSystem, system -> "Queue Message | " + system);
     }
-    telemetryBuilder.setTarget(getMessagingTargetSource(attributes));
+    // e.g. CONSUMER kind (without remote parent) and CLIENT kind
+    return messagingSystem;
   }
 
   private static int getDefaultPortForDbSystem(String dbSystem) {
@@ -587,7 +690,7 @@ public final class SpanDataMapper {
 
     addLinks(telemetryBuilder, span.getLinks());
 
-    String operationName = getOperationName(span);
+    String operationName = StringInterner.get().intern(getOperationName(span));
     telemetryBuilder.addTag(ContextTagKeys.AI_OPERATION_NAME.toString(), operationName);
     telemetryBuilder.addTag(ContextTagKeys.AI_OPERATION_ID.toString(), span.getTraceId());
 
@@ -610,22 +713,16 @@ public final class SpanDataMapper {
     telemetryBuilder.setName(operationName);
     telemetryBuilder.setDuration(
         FormattedDuration.fromNanos(span.getEndEpochNanos() - startEpochNanos));
-    telemetryBuilder.setSuccess(getSuccess(span));
+    telemetryBuilder.setSuccess(
+        getSuccess(
+            span.getStatus().getStatusCode(), span.getAttributes(), captureHttpServer4xxAsError));
 
     String httpUrl = getHttpUrlFromServerSpan(attributes);
     if (httpUrl != null) {
       telemetryBuilder.setUrl(httpUrl);
     }
 
-    Long httpStatusCode = attributes.get(SemanticAttributes.HTTP_STATUS_CODE);
-    if (httpStatusCode == null) {
-      httpStatusCode = attributes.get(SemanticAttributes.RPC_GRPC_STATUS_CODE);
-    }
-    if (httpStatusCode != null) {
-      telemetryBuilder.setResponseCode(Long.toString(httpStatusCode));
-    } else {
-      telemetryBuilder.setResponseCode("0");
-    }
+    telemetryBuilder.setResponseCode(getRequestResultCode(attributes));
 
     String locationIp = attributes.get(SemanticAttributes.HTTP_CLIENT_IP);
     if (locationIp == null) {
@@ -674,8 +771,17 @@ public final class SpanDataMapper {
     return telemetryBuilder.build();
   }
 
-  private boolean getSuccess(SpanData span) {
-    switch (span.getStatus().getStatusCode()) {
+  static String getRequestResultCode(Attributes attributes) {
+    Long httpStatusCode = attributes.get(SemanticAttributes.HTTP_STATUS_CODE);
+    if (httpStatusCode == null) {
+      httpStatusCode = attributes.get(SemanticAttributes.RPC_GRPC_STATUS_CODE);
+    }
+    return httpStatusCode != null ? Long.toString(httpStatusCode) : "0";
+  }
+
+  static boolean getSuccess(
+      StatusCode statusCode, Attributes attributes, boolean captureHttpServer4xxAsError) {
+    switch (statusCode) {
       case ERROR:
         return false;
       case OK:
@@ -683,8 +789,8 @@ public final class SpanDataMapper {
         return true;
       case UNSET:
         if (captureHttpServer4xxAsError) {
-          Long statusCode = span.getAttributes().get(SemanticAttributes.HTTP_STATUS_CODE);
-          return statusCode == null || statusCode < 400;
+          Long httpStatusCode = attributes.get(SemanticAttributes.HTTP_STATUS_CODE);
+          return httpStatusCode == null || httpStatusCode < 400;
         }
         return true;
     }
@@ -804,8 +910,16 @@ public final class SpanDataMapper {
           // TODO (trask) map OpenTelemetry exception to Application Insights exception better
           String stacktrace = event.getAttributes().get(SemanticAttributes.EXCEPTION_STACKTRACE);
           if (stacktrace != null) {
-            consumer.accept(
-                createExceptionTelemetryItem(stacktrace, span, operationName, samplingPercentage));
+            long suppressedCount =
+                ExceptionCache.get()
+                    .recordOccurrence(
+                        stacktrace,
+                        new SuppressedSpanException(span, operationName, samplingPercentage));
+            if (suppressedCount != -1) {
+              consumer.accept(
+                  createExceptionTelemetryItem(
+                      stacktrace, span, operationName, samplingPercentage, suppressedCount));
+            }
           }
         }
         return;
@@ -836,27 +950,83 @@ public final class SpanDataMapper {
   }
 
   private TelemetryItem createExceptionTelemetryItem(
-      String errorStack, SpanData span, @Nullable String operationName, float samplingPercentage) {
+      String errorStack,
+      SpanData span,
+      @Nullable String operationName,
+      float samplingPercentage,
+      long suppressedCount) {
+
+    ExceptionTelemetryBuilder telemetryBuilder =
+        createExceptionTelemetryBuilder(
+            span.getResource(),
+            span.getTraceId(),
+            span.getSpanId(),
+            operationName != null ? operationName : span.getAttributes().get(AI_OPERATION_NAME_KEY),
+            span.getEndEpochNanos(),
+            samplingPercentage);
+    setExtraAttributes(telemetryBuilder, span.getAttributes());
+
+    // set exception-specific properties
+    telemetryBuilder.setExceptions(ExceptionCache.get().parse(errorStack));
+    telemetryBuilder.setSuppressedCount(suppressedCount);
+
+    return telemetryBuilder.build();
+  }
+
+  private ExceptionTelemetryBuilder createExceptionTelemetryBuilder(
+      Resource resource,
+      String traceId,
+      String spanId,
+      @Nullable String operationName,
+      long epochNanos,
+      float samplingPercentage) {
 
     ExceptionTelemetryBuilder telemetryBuilder = ExceptionTelemetryBuilder.create();
-    telemetryInitializer.accept(telemetryBuilder, span.getResource());
+    telemetryInitializer.accept(telemetryBuilder, resource);
 
     // set standard properties
-    setOperationId(telemetryBuilder, span.getTraceId());
-    setOperationParentId(telemetryBuilder, span.getSpanId());
+    setOperationId(telemetryBuilder, traceId);
+    setOperationParentId(telemetryBuilder, spanId);
     if (operationName != null) {
       setOperationName(telemetryBuilder, operationName);
-    } else {
-      setOperationName(telemetryBuilder, span.getAttributes());
     }
-    setTime(telemetryBuilder, span.getEndEpochNanos());
+    setTime(telemetryBuilder, epochNanos);
     setSampleRate(telemetryBuilder, samplingPercentage);
-    setExtraAttributes(telemetryBuilder, span.getAttributes());
-
-    // set exception-specific properties
-    telemetryBuilder.setExceptions(Exceptions.minimalParse(errorStack));
+    return telemetryBuilder;
+  }
 
-    return telemetryBuilder.build();
+  // only the pieces of the span that the telemetry item needs are kept until the suppressed
+  // exception is sent (see ExceptionCache), without the span attributes
+  private final class SuppressedSpanException implements ExceptionCache.SuppressedOccurrence {
+
+    private final Resource resource;
+    private final String traceId;
+    private final String spanId;
+    @Nullable private final String operationName;
+    private final long epochNanos;
+    private final float samplingPercentage;
+
+    private SuppressedSpanException(
+        SpanData span, @Nullable String operationName, float samplingPercentage) {
+      resource = span.getResource();
+      traceId = span.getTraceId();
+      spanId = span.getSpanId();
+      this.operationName =
+          operationName != null ? operationName : span.getAttributes().get(AI_OPERATION_NAME_KEY);
+      epochNanos = span.getEndEpochNanos();
+      this.samplingPercentage = samplingPercentage;
+    }
+
+    @Override
+    public TelemetryItem createTelemetryItem(
+        List<ExceptionDetailBuilder> exceptions, long suppressedCount) {
+      ExceptionTelemetryBuilder telemetryBuilder =
+          createExceptionTelemetryBuilder(
+              resource, traceId, spanId, operationName, epochNanos, samplingPercentage);
+      telemetryBuilder.setExceptions(exceptions);
+      telemetryBuilder.setSuppressedCount(suppressedCount);
+      return telemetryBuilder.build();
+    }
   }
 
   private static void setTime(AbstractTelemetryBuilder telemetryBuilder, long epochNanos) {
@@ -900,70 +1070,101 @@ public final class SpanDataMapper {
       AbstractTelemetryBuilder telemetryBuilder, Attributes attributes) {
     attributes.forEach(
         (key, value) -> {
-          String stringKey = key.getKey();
-          if (stringKey.startsWith("applicationinsights.internal.")) {
-            return;
-          }
-          if (stringKey.equals(AZURE_NAMESPACE.getKey())
-              || stringKey.equals(AZURE_SDK_MESSAGE_BUS_DESTINATION.getKey())
-              || stringKey.equals(AZURE_SDK_ENQUEUED_TIME.getKey())) {
-            // these are from azure SDK (AZURE_SDK_PEER_ADDRESS gets filtered out automatically
-            // since it uses the otel "peer." prefix)
-            return;
-          }
-          if (stringKey.equals(KAFKA_RECORD_QUEUE_TIME_MS.getKey())
-              || stringKey.equals(KAFKA_OFFSET.getKey())) {
-            return;
-          }
-          if (stringKey.equals(AI_REQUEST_CONTEXT_KEY.getKey())) {
-            return;
-          }
-          if (stringKey.equals(SemanticAttributes.HTTP_USER_AGENT.getKey())
-              && value instanceof String) {
-            telemetryBuilder.addTag("ai.user.userAgent", (String) value);
-            return;
-          }
-          if (applyCommonTags(telemetryBuilder, value, stringKey)) {
-            return;
-          }
-          if (STANDARD_ATTRIBUTE_PREFIX_TRIE.getOrDefault(stringKey, false)
-              && !stringKey.startsWith("http.request.header.")
-              && !stringKey.startsWith("http.response.header.")) {
-            return;
-          }
-          String val = convertToString(value, key.getType());
-          if (value != null) {
-            telemetryBuilder.addProperty(key.getKey(), val);
+          ExtraAttribute extraAttribute =
+              EXTRA_ATTRIBUTE_CACHE.computeIfAbsent(key, SpanDataMapper::classifyExtraAttribute);
+          switch (extraAttribute.kind) {
+            case IGNORED:
+              return;
+            case TAG:
+              telemetryBuilder.addTag(extraAttribute.tagKey, (String) value);
+              return;
+            case INSTRUMENTATION_KEY:
+              telemetryBuilder.setInstrumentationKey((String) value);
+              return;
+            case PROPERTY:
+              String val = convertToString(value, key.getType());
+              if (value != null) {
+                telemetryBuilder.addProperty(key.getKey(), val);
+              }
+              return;
           }
         });
   }
 
+  private static ExtraAttribute classifyExtraAttribute(AttributeKey<?> key) {
+    String stringKey = key.getKey();
+    if (stringKey.startsWith("applicationinsights.internal.")) {
+      return ExtraAttribute.IGNORED;
+    }
+    if (stringKey.equals(AZURE_NAMESPACE.getKey())
+        || stringKey.equals(AZURE_SDK_MESSAGE_BUS_DESTINATION.getKey())
+        || stringKey.equals(AZURE_SDK_ENQUEUED_TIME.getKey())) {
+      // these are from azure SDK (AZURE_SDK_PEER_ADDRESS gets filtered out automatically
+      // since it uses the otel "peer." prefix)
+      return ExtraAttribute.IGNORED;
+    }
+    if (stringKey.equals(KAFKA_RECORD_QUEUE_TIME_MS.getKey())
+        || stringKey.equals(KAFKA_OFFSET.getKey())) {
+      return ExtraAttribute.IGNORED;
+    }
+    if (stringKey.equals(AI_REQUEST_CONTEXT_KEY.getKey())) {
+      return ExtraAttribute.IGNORED;
+    }
+    if (key.getType() == AttributeType.STRING) {
+      if (stringKey.equals(SemanticAttributes.HTTP_USER_AGENT.getKey())) {
+        return ExtraAttribute.tag("ai.user.userAgent");
+      }
+      if (stringKey.equals(AI_PREVIEW_INSTRUMENTATION_KEY)) {
+        return ExtraAttribute.INSTRUMENTATION_KEY;
+      }
+      String commonTagKey = getCommonTagKey(stringKey);
+      if (commonTagKey != null) {
+        return ExtraAttribute.tag(commonTagKey);
+      }
+    }
+    if (STANDARD_ATTRIBUTE_PREFIX_TRIE.getOrDefault(stringKey, false)
+        && !stringKey.startsWith("http.request.header.")
+        && !stringKey.startsWith("http.response.header.")) {
+      return ExtraAttribute.IGNORED;
+    }
+    return ExtraAttribute.PROPERTY;
+  }
+
   static boolean applyCommonTags(
       AbstractTelemetryBuilder telemetryBuilder, Object value, String stringKey) {
 
-    if (stringKey.equals(SemanticAttributes.ENDUSER_ID.getKey()) && value instanceof String) {
-      telemetryBuilder.addTag(ContextTagKeys.AI_USER_ID.toString(), (String) value);
-      return true;
+    if (!(value instanceof String)) {
+      return false;
     }
-    if (stringKey.equals("ai.preview.instrumentation_key") && value instanceof String) {
+    if (stringKey.equals(AI_PREVIEW_INSTRUMENTATION_KEY)) {
       telemetryBuilder.setInstrumentationKey((String) value);
       return true;
     }
-    if (stringKey.equals("ai.preview.service_name") && value instanceof String) {
-      telemetryBuilder.addTag(ContextTagKeys.AI_CLOUD_ROLE.toString(), (String) value);
-      return true;
-    }
-    if (stringKey.equals("ai.preview.service_instance_id") && value instanceof String) {
-      telemetryBuilder.addTag(ContextTagKeys.AI_CLOUD_ROLE_INSTANCE.toString(), (String) value);
-      return true;
-    }
-    if (stringKey.equals("ai.preview.service_version") && value instanceof String) {
-      telemetryBuilder.addTag(ContextTagKeys.AI_APPLICATION_VER.toString(), (String) value);
+    String commonTagKey = getCommonTagKey(stringKey);
+    if (commonTagKey != null) {
+      telemetryBuilder.addTag(commonTagKey, (String) value);
       return true;
     }
     return false;
   }
 
+  // returns the tag that the (string) attribute is mapped to, if any
+  @Nullable
+  private static String getCommonTagKey(String stringKey) {
+    switch (stringKey) {
+      case "enduser.id": // SemanticAttributes.ENDUSER_ID
+        return ContextTagKeys.AI_USER_ID.toString();
+      case "ai.preview.service_name":
+        return ContextTagKeys.AI_CLOUD_ROLE.toString();
+      case "ai.preview.service_instance_id":
+        return ContextTagKeys.AI_CLOUD_ROLE_INSTANCE.toString();
+      case "ai.preview.service_version":
+        return ContextTagKeys.AI_APPLICATION_VER.toString();
+      default:
+        return null;
+    }
+  }
+
   @Nullable
   public static String convertToString(Object value, AttributeType type) {
     switch (type) {
@@ -976,20 +1177,97 @@ public final class SpanDataMapper {
       case BOOLEAN_ARRAY:
       case LONG_ARRAY:
       case DOUBLE_ARRAY:
-        return join((List<?>) value);
+        return join((List<?>) value, type);
     }
     LOGGER.warning("unexpected attribute type: {}", type);
     return null;
   }
 
-  private static <T> String join(List<T> values) {
-    StringBuilder sb = new StringBuilder();
-    for (Object val : values) {
-      if (sb.length() > 0) {
+  // writes the elements directly (primitives are not boxed into intermediate strings first)
+  private static String join(List<?> values, AttributeType type) {
+    int size = values.size();
+    if (size == 0) {
+      return "";
+    }
+    if (size == 1 && type == AttributeType.STRING_ARRAY) {
+      Object val = values.get(0);
+      // null elements are written as "null", same as below
+      return val == null ? "null" : (String) val;
+    }
+    StringBuilder sb = new StringBuilder(size * 16);
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
         sb.append(", ");
       }
-      sb.append(val);
+      Object val = values.get(i);
+      if (val instanceof Long) {
+        sb.append(((Long) val).longValue());
+      } else if (val instanceof Double) {
+        sb.append(((Double) val).doubleValue());
+      } else if (val instanceof Boolean) {
+        sb.append(((Boolean) val).booleanValue());
+      } else {
+        sb.append(val);
+      }
     }
     return sb.toString();
   }
+
+  private enum ExtraAttributeKind {
+    IGNORED,
+    TAG,
+    INSTRUMENTATION_KEY,
+    PROPERTY
+  }
+
+  private static final class ExtraAttribute {
+
+    private static final ExtraAttribute IGNORED =
+        new ExtraAttribute(ExtraAttributeKind.IGNORED, null);
+    private static final ExtraAttribute INSTRUMENTATION_KEY =
+        new ExtraAttribute(ExtraAttributeKind.INSTRUMENTATION_KEY, null);
+    private static final ExtraAttribute PROPERTY =
+        new ExtraAttribute(ExtraAttributeKind.PROPERTY, null);
+
+    private final ExtraAttributeKind kind;
+    // only set for TAG
+    @Nullable private final String tagKey;
+
+    private static ExtraAttribute tag(String tagKey) {
+      return new ExtraAttribute(ExtraAttributeKind.TAG, tagKey);
+    }
+
+    private ExtraAttribute(ExtraAttributeKind kind, @Nullable String tagKey) {
+      this.kind = kind;
+      this.tagKey = tagKey;
+    }
+  }
+
+  private static final class AttributeValuePair {
+
+    private final String first;
+    private final Object second;
+
+    private AttributeValuePair(String first, Object second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof AttributeValuePair)) {
+        return false;
+      }
+      AttributeValuePair other = (AttributeValuePair) obj;
+      return first.equals(other.first) && second.equals(other.second);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * first.hashCode() + second.hashCode();
+    }
+  }
 }
@@ -0,0 +1,375 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.AbstractTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricPointBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.MetricTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.RemoteDependencyTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.RequestTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.logging.OperationLogger;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.ContextTagKeys;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * SpanProcessor implementation that pre-aggregates the request and dependency standard metrics.
+ *
+ * <p>This needs to see every span, including the ones that are sampled out (see RECORD_ONLY
+ * sampling decision), so that the metrics are exact regardless of the sampling percentage.
+ */
+// recording is lock-free (the series are only created under the ConcurrentHashMap bin lock), and
+// the number of series is bounded, with any further dimension combinations recorded in an
+// overflow series whose dimensions (other than success) are set to "Other"
+public final class StandardMetricsSpanProcessor implements SpanProcessor {
+
+  private static final String REQUESTS_DURATION = "requests/duration";
+  private static final String DEPENDENCIES_DURATION = "dependencies/duration";
+
+  private static final String OTHER = "Other";
+
+  private static final String PROCESSED_BY_METRIC_EXTRACTORS = "_MS.ProcessedByMetricExtractors";
+
+  private static final AttributeKey<String> AI_ROLE_NAME_KEY =
+      AttributeKey.stringKey("ai.preview.service_name");
+
+  private static final OperationLogger collectOperationLogger =
+      new OperationLogger(StandardMetricsSpanProcessor.class, "Collecting standard metrics");
+
+  private final boolean captureHttpServer4xxAsError;
+  private final int maxSeriesCount;
+  private final BiConsumer<AbstractTelemetryBuilder, Resource> telemetryInitializer;
+  private final Supplier<String> roleNameSupplier;
+  private final Supplier<String> roleInstanceSupplier;
+  private final Consumer<TelemetryItem> consumer;
+
+  private final ConcurrentMap<SeriesKey, Series> series = new ConcurrentHashMap<>();
+
+  // null until the collection is scheduled
+  @Nullable private volatile ScheduledExecutorService executor;
+
+  public StandardMetricsSpanProcessor(
+      boolean captureHttpServer4xxAsError,
+      int maxSeriesCount,
+      BiConsumer<AbstractTelemetryBuilder, Resource> telemetryInitializer,
+      Supplier<String> roleNameSupplier,
+      Supplier<String> roleInstanceSupplier,
+      Consumer<TelemetryItem> consumer) {
+    this.captureHttpServer4xxAsError = captureHttpServer4xxAsError;
+    this.maxSeriesCount = maxSeriesCount;
+    this.telemetryInitializer = telemetryInitializer;
+    this.roleNameSupplier = roleNameSupplier;
+    this.roleInstanceSupplier = roleInstanceSupplier;
+    this.consumer = consumer;
+  }
+
+  // marks request and dependency telemetry so that the backend does not extract the standard
+  // metrics from them a second time
+  public static void markAsPreAggregated(AbstractTelemetryBuilder telemetryBuilder) {
+    if (telemetryBuilder instanceof RequestTelemetryBuilder) {
+      telemetryBuilder.addProperty(PROCESSED_BY_METRIC_EXTRACTORS, "(Name:'Requests', Ver:'1.1')");
+    } else if (telemetryBuilder instanceof RemoteDependencyTelemetryBuilder) {
+      telemetryBuilder.addProperty(
+          PROCESSED_BY_METRIC_EXTRACTORS, "(Name:'Dependencies', Ver:'1.1')");
+    }
+  }
+
+  @Override
+  public void onStart(Context parentContext, ReadWriteSpan span) {}
+
+  @Override
+  public boolean isStartRequired() {
+    return false;
+  }
+
+  @Override
+  public void onEnd(ReadableSpan span) {
+    SpanKind kind = span.getKind();
+    // ReadableSpan doesn't expose the status (or all of the attributes at once), so toSpanData() is
+    // still needed for those, but it doesn't copy the attributes once the span has ended
+    SpanData spanData = span.toSpanData();
+    Attributes attributes = spanData.getAttributes();
+    boolean success =
+        SpanDataMapper.getSuccess(
+            spanData.getStatus().getStatusCode(), attributes, captureHttpServer4xxAsError);
+    String roleName = attributes.get(AI_ROLE_NAME_KEY);
+    SeriesKey key;
+    if (SpanDataMapper.isRequest(
+        kind,
+        span.getParentSpanContext(),
+        span.getInstrumentationScopeInfo().getName(),
+        attributes.get(SemanticAttributes.MESSAGING_OPERATION))) {
+      key =
+          new SeriesKey(
+              false,
+              AiOperationNameSpanProcessor.getOperationName(span),
+              null,
+              SpanDataMapper.getRequestResultCode(attributes),
+              success,
+              roleName);
+    } else {
+      Long httpStatusCode = attributes.get(SemanticAttributes.HTTP_STATUS_CODE);
+      key =
+          new SeriesKey(
+              true,
+              SpanDataMapper.getDependencyType(kind, attributes),
+              SpanDataMapper.getDependencyTarget(kind, attributes),
+              httpStatusCode == null ? null : Long.toString(httpStatusCode),
+              success,
+              roleName);
+    }
+    getSeries(key).record(span.getLatencyNanos() / 1e6);
+  }
+
+  @Override
+  public boolean isEndRequired() {
+    return true;
+  }
+
+  // the executor needs to be single threaded, since forceFlush() also collects on it, so that the
+  // collections don't overlap
+  public void schedule(ScheduledExecutorService executor, long interval, TimeUnit unit) {
+    this.executor = executor;
+    executor.scheduleAtFixedRate(
+        () -> {
+          // otherwise the scheduled task would stop running, and since the spans are marked as
+          // pre-aggregated, the backend would not extract these metrics either
+          try {
+            collectAndEmit();
+            collectOperationLogger.recordSuccess();
+          } catch (Throwable t) {
+            collectOperationLogger.recordFailure(t.getMessage(), t);
+          }
+        },
+        interval,
+        interval,
+        unit);
+  }
+
+  @Override
+  public CompletableResultCode forceFlush() {
+    ScheduledExecutorService executor = this.executor;
+    if (executor == null) {
+      collectAndEmit();
+      return CompletableResultCode.ofSuccess();
+    }
+    CompletableResultCode result = new CompletableResultCode();
+    try {
+      executor.execute(
+          () -> {
+            try {
+              collectAndEmit();
+              result.succeed();
+            } catch (Throwable t) {
+              collectOperationLogger.recordFailure(t.getMessage(), t);
+              result.fail();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // already flushed and shut down
+      result.succeed();
+    }
+    return result;
+  }
+
+  private Series getSeries(SeriesKey key) {
+    Series existing = series.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    if (series.size() >= maxSeriesCount) {
+      key = key.overflow();
+    }
+    // the overflow series are allowed to exceed maxSeriesCount, but there are at most four of them
+    return series.computeIfAbsent(key, k -> new Series());
+  }
+
+  /**
+   * Emits one metric per series that was recorded since the previous call, and resets them.
+   *
+   * <p>Series that were not recorded since the previous call are removed.
+   */
+  public void collectAndEmit() {
+    for (Map.Entry<SeriesKey, Series> entry : series.entrySet()) {
+      SeriesKey key = entry.getKey();
+      Series current = entry.getValue();
+      long count = current.count.sumThenReset();
+      if (count == 0) {
+        if (series.remove(key, current)) {
+          // a recording that raced with the removal is carried over to the next interval
+          current.moveTo(this, key);
+        }
+        continue;
+      }
+      double sum = current.sum.sumThenReset();
+      double min = current.min.getThenReset();
+      double max = current.max.getThenReset();
+      consumer.accept(createMetric(key, count, sum, min, max));
+    }
+  }
+
+  private TelemetryItem createMetric(
+      SeriesKey key, long count, double sum, double min, double max) {
+    MetricTelemetryBuilder telemetryBuilder = MetricTelemetryBuilder.create();
+    telemetryInitializer.accept(telemetryBuilder, Resource.empty());
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+
+    String metricId = key.dependency ? DEPENDENCIES_DURATION : REQUESTS_DURATION;
+    MetricPointBuilder pointBuilder = new MetricPointBuilder();
+    pointBuilder.setName(metricId);
+    pointBuilder.setValue(sum);
+    pointBuilder.setCount((int) Math.min(count, Integer.MAX_VALUE));
+    pointBuilder.setMin(min);
+    pointBuilder.setMax(max);
+    telemetryBuilder.setMetricPoint(pointBuilder);
+
+    String roleName = key.roleName;
+    if (roleName != null) {
+      telemetryBuilder.addTag(ContextTagKeys.AI_CLOUD_ROLE.toString(), roleName);
+    } else {
+      roleName = roleNameSupplier.get();
+    }
+    telemetryBuilder.addProperty("_MS.MetricId", metricId);
+    telemetryBuilder.addProperty("_MS.IsAutocollected", "True");
+    telemetryBuilder.addProperty("cloud/roleName", roleName);
+    telemetryBuilder.addProperty("cloud/roleInstance", roleInstanceSupplier.get());
+    String success = key.success ? "True" : "False";
+    if (key.dependency) {
+      telemetryBuilder.addProperty("Dependency.Type", key.name);
+      telemetryBuilder.addProperty("dependency/target", key.target);
+      telemetryBuilder.addProperty("dependency/resultCode", key.resultCode);
+      telemetryBuilder.addProperty("Dependency.Success", success);
+    } else {
+      telemetryBuilder.addProperty("operation/name", key.name);
+      telemetryBuilder.addProperty("request/resultCode", key.resultCode);
+      telemetryBuilder.addProperty("Request.Success", success);
+    }
+    return telemetryBuilder.build();
+  }
+
+  private static final class SeriesKey {
+
+    private final boolean dependency;
+    // operation name for requests, type for dependencies
+    @Nullable private final String name;
+    @Nullable private final String target;
+    @Nullable private final String resultCode;
+    private final boolean success;
+    @Nullable private final String roleName;
+    private final int hashCode;
+
+    private SeriesKey(
+        boolean dependency,
+        @Nullable String name,
+        @Nullable String target,
+        @Nullable String resultCode,
+        boolean success,
+        @Nullable String roleName) {
+      this.dependency = dependency;
+      this.name = name;
+      this.target = target;
+      this.resultCode = resultCode;
+      this.success = success;
+      this.roleName = roleName;
+      hashCode = Objects.hash(dependency, name, target, resultCode, success, roleName);
+    }
+
+    // all dimensions other than success are collapsed, so that there is only one overflow series
+    // per metric and success value
+    private SeriesKey overflow() {
+      return new SeriesKey(dependency, OTHER, dependency ? OTHER : null, OTHER, success, null);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof SeriesKey)) {
+        return false;
+      }
+      SeriesKey other = (SeriesKey) obj;
+      return dependency == other.dependency
+          && success == other.success
+          && Objects.equals(name, other.name)
+          && Objects.equals(target, other.target)
+          && Objects.equals(resultCode, other.resultCode)
+          && Objects.equals(roleName, other.roleName);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class Series {
+
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.MAX_VALUE);
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, 0);
+
+    private void record(double durationMillis) {
+      count.increment();
+      sum.add(durationMillis);
+      min.accumulate(durationMillis);
+      max.accumulate(durationMillis);
+    }
+
+    private void moveTo(StandardMetricsSpanProcessor processor, SeriesKey key) {
+      long lateCount = count.sumThenReset();
+      if (lateCount == 0) {
+        return;
+      }
+      Series target = processor.getSeries(key);
+      target.count.add(lateCount);
+      target.sum.add(sum.sumThenReset());
+      target.min.accumulate(min.getThenReset());
+      target.max.accumulate(max.getThenReset());
+    }
+  }
+}
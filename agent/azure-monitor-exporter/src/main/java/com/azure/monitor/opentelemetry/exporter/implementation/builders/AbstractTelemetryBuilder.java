@@ -21,12 +21,18 @@
 
 package com.azure.monitor.opentelemetry.exporter.implementation.builders;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.models.ContextTagKeys;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorBase;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorDomain;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.StringInterner;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 public abstract class AbstractTelemetryBuilder {
@@ -39,11 +45,35 @@ public abstract class AbstractTelemetryBuilder {
   protected static final int MAX_NAME_LENGTH = 1024;
   protected static final int MAX_ID_LENGTH = 512;
 
+  // tags whose values repeat across many telemetry items, see StringInterner
+  //
+  // the operation name is not included, since the mappers intern it themselves (it is also used as
+  // the request name), so that it is only interned once
+  private static final Set<String> LOW_CARDINALITY_TAG_KEYS =
+      new HashSet<>(
+          Arrays.asList(
+              ContextTagKeys.AI_CLOUD_ROLE.toString(),
+              ContextTagKeys.AI_CLOUD_ROLE_INSTANCE.toString(),
+              ContextTagKeys.AI_APPLICATION_VER.toString(),
+              ContextTagKeys.AI_DEVICE_OS_VERSION.toString(),
+              ContextTagKeys.AI_INTERNAL_SDK_VERSION.toString(),
+              "ai.device.os"));
+
   private final TelemetryItem telemetryItem;
 
   protected AbstractTelemetryBuilder(MonitorDomain data, String telemetryName, String baseType) {
+    telemetryItem = createTelemetryItem(data, telemetryName, baseType);
+  }
+
+  // for telemetry items that come from the TelemetryItemPool
+  protected AbstractTelemetryBuilder(TelemetryItem telemetryItem) {
+    this.telemetryItem = telemetryItem;
+  }
+
+  static TelemetryItem createTelemetryItem(
+      MonitorDomain data, String telemetryName, String baseType) {
 
-    telemetryItem = new TelemetryItem();
+    TelemetryItem telemetryItem = new TelemetryItem();
     telemetryItem.setVersion(1);
     telemetryItem.setName(telemetryName);
 
@@ -53,6 +83,8 @@ public abstract class AbstractTelemetryBuilder {
     telemetryItem.setData(monitorBase);
     monitorBase.setBaseType(baseType);
     monitorBase.setBaseData(data);
+
+    return telemetryItem;
   }
 
   public void setTime(OffsetDateTime time) {
@@ -73,21 +105,74 @@ public abstract class AbstractTelemetryBuilder {
       tags = new HashMap<>();
       telemetryItem.setTags(tags);
     }
+    if (LOW_CARDINALITY_TAG_KEYS.contains(key)) {
+      value = StringInterner.get().intern(value);
+    }
     tags.put(key, value);
   }
 
+  // the default tags are shared with other telemetry items instead of being copied (see
+  // LayeredMap), and take precedence over any tags that were already added (same as addTag)
+  public void setDefaultTags(PreEncodedMap defaultTags) {
+    if (defaultTags.isEmpty()) {
+      return;
+    }
+    telemetryItem.setTags(LayeredMap.create(defaultTags, telemetryItem.getTags()));
+  }
+
   public void addProperty(@Nullable String key, @Nullable String value) {
     if (key == null || key.isEmpty() || key.length() > MAX_PROPERTY_KEY_LENGTH || value == null) {
       // TODO (trask) log
       return;
     }
+    // property keys repeat across many telemetry items, while property values often don't
+    key = StringInterner.get().intern(key);
     getProperties()
         .put(key, TelemetryTruncation.truncatePropertyValue(value, MAX_PROPERTY_VALUE_LENGTH, key));
   }
 
+  // the default properties need to be created via createDefaultProperties(), which applies the
+  // same limits as addProperty()
+  public void setDefaultProperties(PreEncodedMap defaultProperties) {
+    // otherwise this would add an empty properties map to every telemetry item
+    if (defaultProperties.isEmpty()) {
+      return;
+    }
+    setProperties(LayeredMap.create(defaultProperties, getProperties()));
+  }
+
+  public static PreEncodedMap createDefaultProperties(Map<String, String> properties) {
+    Map<String, String> defaultProperties = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      String key = entry.getKey();
+      String value = entry.getValue();
+      if (key == null || key.isEmpty() || key.length() > MAX_PROPERTY_KEY_LENGTH || value == null) {
+        continue;
+      }
+      defaultProperties.put(
+          key, TelemetryTruncation.truncatePropertyValue(value, MAX_PROPERTY_VALUE_LENGTH, key));
+    }
+    return PreEncodedMap.create(defaultProperties);
+  }
+
+  // the given properties take precedence over the base default properties, same as when they are
+  // added via addProperty() on top of the base default properties
+  public static PreEncodedMap createDefaultProperties(
+      PreEncodedMap baseDefaultProperties, Map<String, String> properties) {
+    Map<String, String> merged = new LinkedHashMap<>(baseDefaultProperties.getEntries());
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      if (entry.getValue() != null) {
+        merged.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return createDefaultProperties(merged);
+  }
+
   public TelemetryItem build() {
     return telemetryItem;
   }
 
   protected abstract Map<String, String> getProperties();
+
+  protected abstract void setProperties(Map<String, String> properties);
 }
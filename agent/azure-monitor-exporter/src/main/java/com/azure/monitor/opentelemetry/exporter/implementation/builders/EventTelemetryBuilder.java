@@ -69,4 +69,9 @@ public final class EventTelemetryBuilder extends AbstractTelemetryBuilder {
     }
     return properties;
   }
+
+  @Override
+  protected void setProperties(Map<String, String> properties) {
+    data.setProperties(properties);
+  }
 }
@@ -0,0 +1,291 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.builders;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// during error storms the same exceptions are logged (or recorded on spans) over and over, so
+//
+// * the parsed exception details are cached per fingerprint (see Exceptions.fingerprint()) and
+//   shared across telemetry items (they are not modified after being parsed), as long as the stack
+//   trace (including the message) is the same, otherwise they are parsed again
+// * optionally, only one exception per fingerprint is sent per interval, along with the number of
+//   duplicates that were suppressed since the last one was sent
+//
+// if no other occurrence comes along after the interval has elapsed, the last suppressed
+// occurrence is sent by flushSuppressed(), so that the suppressed duplicates are not lost, for
+// this only the length, hash and (truncated) first line of its stack trace are kept, along with
+// the few pieces of the span or log record that its telemetry item needs (see SuppressedOccurrence)
+public final class ExceptionCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExceptionCache.class);
+
+  private static final ExceptionCache DISABLED = new ExceptionCache(0, 0, new LongAdder());
+
+  private static volatile ExceptionCache instance = DISABLED;
+
+  // null when disabled
+  @Nullable private final Cache<Long, ParsedException> parsedCache;
+
+  // 0 means duplicates are not suppressed
+  private final long suppressionIntervalNanos;
+  // null when duplicates are not suppressed
+  @Nullable private final Cache<Long, Occurrences> occurrences;
+
+  // occurrences that have suppressed duplicates which have not been sent yet
+  private final Queue<Occurrences> pending = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder suppressedCount;
+
+  // the last suppressed occurrences are sent here by flushSuppressed()
+  private volatile Consumer<TelemetryItem> suppressedConsumer = telemetryItem -> {};
+
+  // needs to be called before any exceptions are exported
+  public static void configure(int cacheSize, long suppressionIntervalSeconds) {
+    if (cacheSize <= 0) {
+      instance = DISABLED;
+      return;
+    }
+    ExceptionCache exceptionCache =
+        new ExceptionCache(
+            cacheSize,
+            TimeUnit.SECONDS.toNanos(suppressionIntervalSeconds),
+            SelfMetrics.get().getCounter("suppressedExceptions"));
+    if (suppressionIntervalSeconds > 0) {
+      Executors.newSingleThreadScheduledExecutor(
+              ThreadPoolUtils.createDaemonThreadFactory(ExceptionCache.class))
+          .scheduleWithFixedDelay(
+              () -> {
+                try {
+                  exceptionCache.flushSuppressed(System.nanoTime());
+                } catch (Throwable t) {
+                  // otherwise the scheduled task would stop running
+                  logger.warn("failed to send suppressed exceptions", t);
+                }
+              },
+              suppressionIntervalSeconds,
+              suppressionIntervalSeconds,
+              TimeUnit.SECONDS);
+    }
+    instance = exceptionCache;
+  }
+
+  public static ExceptionCache get() {
+    return instance;
+  }
+
+  // visible for testing
+  ExceptionCache(int cacheSize, long suppressionIntervalNanos, LongAdder suppressedCount) {
+    parsedCache = cacheSize > 0 ? Cache.bounded(cacheSize) : null;
+    this.suppressionIntervalNanos = suppressionIntervalNanos;
+    occurrences = cacheSize > 0 && suppressionIntervalNanos > 0 ? Cache.bounded(cacheSize) : null;
+    this.suppressedCount = suppressedCount;
+  }
+
+  // needs to be set once the export queues are available, e.g. to TelemetryClient::trackAsync
+  public void setSuppressedConsumer(Consumer<TelemetryItem> suppressedConsumer) {
+    this.suppressedConsumer = suppressedConsumer;
+  }
+
+  public List<ExceptionDetailBuilder> parse(String stack) {
+    if (parsedCache == null) {
+      return Exceptions.minimalParse(stack);
+    }
+    // keyed on the fingerprint instead of on the stack trace itself, so that the cache doesn't
+    // retain full (untruncated) stack traces
+    ParsedException parsed =
+        parsedCache.computeIfAbsent(
+            Exceptions.fingerprint(stack), k -> new ParsedException(stack));
+    if (parsed.isSameStack(stack.length(), stack.hashCode())) {
+      return parsed.exceptions;
+    }
+    // same type and top frames, but a different message (or deeper frames)
+    return Exceptions.minimalParse(stack, parsed.typeName);
+  }
+
+  // the parsed exception for the last suppressed occurrence, which is only known by the length,
+  // hash and first line of its stack trace, so unless the cached stack trace is the same, only the
+  // first line (type name and message) is sent
+  private List<ExceptionDetailBuilder> parseSuppressed(long fingerprint, LastSuppressed last) {
+    ParsedException parsed = parsedCache == null ? null : parsedCache.get(fingerprint);
+    if (parsed != null && parsed.isSameStack(last.stackLength, last.stackHash)) {
+      return parsed.exceptions;
+    }
+    return Exceptions.minimalParse(last.firstLine, parsed == null ? null : parsed.typeName);
+  }
+
+  // returns -1 if this occurrence should be suppressed, otherwise returns the number of
+  // occurrences that were suppressed since the last one that was not suppressed
+  //
+  // when this occurrence is suppressed, it is remembered, and if it is still the last suppressed
+  // occurrence once the interval has elapsed, it is sent by flushSuppressed() via the given
+  // callback
+  public long recordOccurrence(String stack, SuppressedOccurrence suppressedOccurrence) {
+    return recordOccurrence(stack, suppressedOccurrence, System.nanoTime());
+  }
+
+  // visible for testing
+  long recordOccurrence(String stack, SuppressedOccurrence suppressedOccurrence, long nanoTime) {
+    if (occurrences == null) {
+      return 0;
+    }
+    long fingerprint = Exceptions.fingerprint(stack);
+    Occurrences occurrence =
+        occurrences.computeIfAbsent(
+            fingerprint, k -> new Occurrences(fingerprint, nanoTime - suppressionIntervalNanos));
+    long intervalStart = occurrence.intervalStart.get();
+    if (nanoTime - intervalStart >= suppressionIntervalNanos
+        && occurrence.intervalStart.compareAndSet(intervalStart, nanoTime)) {
+      occurrence.lastSuppressed.set(null);
+      return occurrence.suppressed.getAndSet(0);
+    }
+    occurrence.lastSuppressed.set(new LastSuppressed(suppressedOccurrence, stack));
+    occurrence.suppressed.incrementAndGet();
+    suppressedCount.increment();
+    if (occurrence.pending.compareAndSet(false, true)) {
+      pending.add(occurrence);
+    }
+    return -1;
+  }
+
+  // sends the last suppressed occurrence of each exception whose interval has elapsed without
+  // another occurrence coming along
+  // visible for testing
+  void flushSuppressed(long nanoTime) {
+    flushSuppressed(nanoTime, false);
+  }
+
+  // sends the last suppressed occurrence of every exception, e.g. before shutting down
+  public void flushAllSuppressed() {
+    flushSuppressed(System.nanoTime(), true);
+  }
+
+  // visible for testing
+  void flushSuppressed(long nanoTime, boolean force) {
+    Iterator<Occurrences> i = pending.iterator();
+    while (i.hasNext()) {
+      Occurrences occurrence = i.next();
+      long intervalStart = occurrence.intervalStart.get();
+      if (!force && nanoTime - intervalStart < suppressionIntervalNanos) {
+        continue;
+      }
+      // cleared before removing, so that an occurrence suppressed concurrently is queued again
+      occurrence.pending.set(false);
+      i.remove();
+      if (occurrence.suppressed.get() == 0
+          || !occurrence.intervalStart.compareAndSet(intervalStart, nanoTime)) {
+        // another occurrence started the next interval and took the suppressed count
+        continue;
+      }
+      LastSuppressed lastSuppressed = occurrence.lastSuppressed.getAndSet(null);
+      long suppressed = occurrence.suppressed.getAndSet(0);
+      if (lastSuppressed != null && suppressed > 0) {
+        // the last suppressed occurrence is sent after all, so it is no longer one of the
+        // suppressed duplicates
+        suppressedCount.decrement();
+        suppressedConsumer.accept(
+            lastSuppressed.occurrence.createTelemetryItem(
+                parseSuppressed(occurrence.fingerprint, lastSuppressed), suppressed - 1));
+      }
+    }
+  }
+
+  // implementations need to only hold onto the pieces of the span or log record that the telemetry
+  // item needs (e.g. ids and timestamp), since the last suppressed occurrence is retained until it
+  // is sent or replaced by the next one
+  public interface SuppressedOccurrence {
+
+    // creates the telemetry item for the occurrence, along with the number of other occurrences
+    // that were suppressed
+    TelemetryItem createTelemetryItem(
+        List<ExceptionDetailBuilder> exceptions, long suppressedCount);
+  }
+
+  private static final class ParsedException {
+
+    private final List<ExceptionDetailBuilder> exceptions;
+    private final String typeName;
+    // of the raw stack trace, since the parsed stack trace is truncated
+    private final int stackLength;
+    private final int stackHash;
+
+    private ParsedException(String stack) {
+      exceptions = Exceptions.minimalParse(stack);
+      typeName = exceptions.get(0).build().getTypeName();
+      stackLength = stack.length();
+      stackHash = stack.hashCode();
+    }
+
+    private boolean isSameStack(int stackLength, int stackHash) {
+      return this.stackLength == stackLength && this.stackHash == stackHash;
+    }
+  }
+
+  private static final class LastSuppressed {
+
+    // the first line is truncated, since it can include an arbitrarily long message
+    private static final int MAX_FIRST_LINE_LENGTH = 1024;
+
+    private final SuppressedOccurrence occurrence;
+    private final int stackLength;
+    private final int stackHash;
+    private final String firstLine;
+
+    private LastSuppressed(SuppressedOccurrence occurrence, String stack) {
+      this.occurrence = occurrence;
+      stackLength = stack.length();
+      stackHash = stack.hashCode();
+      firstLine = Exceptions.firstLine(stack, MAX_FIRST_LINE_LENGTH);
+    }
+  }
+
+  private static final class Occurrences {
+
+    private final long fingerprint;
+    private final AtomicLong intervalStart;
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicReference<LastSuppressed> lastSuppressed = new AtomicReference<>();
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private Occurrences(long fingerprint, long intervalStart) {
+      this.fingerprint = fingerprint;
+      this.intervalStart = new AtomicLong(intervalStart);
+    }
+  }
+}
@@ -55,6 +55,13 @@ public final class ExceptionTelemetryBuilder extends AbstractTelemetryBuilder {
     data.setExceptions(details);
   }
 
+  // number of duplicates of this exception that were suppressed (see ExceptionCache)
+  public void setSuppressedCount(long suppressedCount) {
+    if (suppressedCount > 0) {
+      addMeasurement("Suppressed Duplicate Count", (double) suppressedCount);
+    }
+  }
+
   public void setSeverityLevel(SeverityLevel severityLevel) {
     data.setSeverityLevel(severityLevel);
   }
@@ -85,4 +92,9 @@ public final class ExceptionTelemetryBuilder extends AbstractTelemetryBuilder {
     }
     return properties;
   }
+
+  @Override
+  protected void setProperties(Map<String, String> properties) {
+    data.setProperties(properties);
+  }
 }
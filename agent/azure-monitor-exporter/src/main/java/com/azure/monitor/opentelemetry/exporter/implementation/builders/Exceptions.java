@@ -24,10 +24,16 @@ package com.azure.monitor.opentelemetry.exporter.implementation.builders;
 import static java.util.Collections.singletonList;
 
 import java.util.List;
+import javax.annotation.Nullable;
 
 public final class Exceptions {
 
   public static List<ExceptionDetailBuilder> minimalParse(String str) {
+    return minimalParse(str, null);
+  }
+
+  // the known type name (if any) is reused instead of being copied out of the stack trace again
+  static List<ExceptionDetailBuilder> minimalParse(String str, @Nullable String knownTypeName) {
     ExceptionDetailBuilder builder = new ExceptionDetailBuilder();
     int separator = -1;
     int length = str.length();
@@ -42,7 +48,7 @@ public final class Exceptions {
     }
     // at the end of the loop, current will be end of the first line
     if (separator != -1) {
-      String typeName = str.substring(0, separator);
+      String typeName = typeName(str, separator, knownTypeName);
       String message = str.substring(separator + 1, current).trim();
       if (message.isEmpty()) {
         message = typeName;
@@ -50,7 +56,7 @@ public final class Exceptions {
       builder.setTypeName(typeName);
       builder.setMessage(message);
     } else {
-      String typeName = str.substring(0, current);
+      String typeName = typeName(str, current, knownTypeName);
       builder.setTypeName(typeName);
       builder.setMessage(typeName);
     }
@@ -58,5 +64,73 @@ public final class Exceptions {
     return singletonList(builder);
   }
 
+  // the first line of the stack trace (type name and message), truncated to the given length
+  static String firstLine(String str, int maxLength) {
+    int length = Math.min(str.length(), maxLength);
+    for (int i = 0; i < length; i++) {
+      char c = str.charAt(i);
+      if (c == '\r' || c == '\n') {
+        return str.substring(0, i);
+      }
+    }
+    return str.substring(0, length);
+  }
+
+  private static String typeName(String str, int end, @Nullable String knownTypeName) {
+    if (knownTypeName != null
+        && knownTypeName.length() == end
+        && str.regionMatches(0, knownTypeName, 0, end)) {
+      return knownTypeName;
+    }
+    return str.substring(0, end);
+  }
+
+  // the exception type and the top frames identify where an exception comes from, while the
+  // message often contains per-occurrence details (ids, timestamps, ...) and so is excluded
+  private static final int FINGERPRINT_FRAMES = 5;
+
+  // 64-bit FNV-1a hash of the exception type name and the top (up to 5) "at ..." frames of the
+  // stack trace, computed without allocating
+  public static long fingerprint(String str) {
+    long hash = 0xcbf29ce484222325L;
+    int length = str.length();
+    int current = 0;
+    // type name is everything on the first line up to the first ':'
+    for (; current < length; current++) {
+      char c = str.charAt(current);
+      if (c == ':' || c == '\r' || c == '\n') {
+        break;
+      }
+      hash = (hash ^ c) * 0x100000001b3L;
+    }
+    int frames = 0;
+    while (frames < FINGERPRINT_FRAMES) {
+      // move to the start of the next line
+      while (current < length && str.charAt(current) != '\n') {
+        current++;
+      }
+      if (current == length) {
+        break;
+      }
+      current++;
+      while (current < length && (str.charAt(current) == ' ' || str.charAt(current) == '\t')) {
+        current++;
+      }
+      if (!str.startsWith("at ", current)) {
+        // e.g. a multi-line message
+        continue;
+      }
+      frames++;
+      for (; current < length; current++) {
+        char c = str.charAt(current);
+        if (c == '\r' || c == '\n') {
+          break;
+        }
+        hash = (hash ^ c) * 0x100000001b3L;
+      }
+    }
+    return hash;
+  }
+
   private Exceptions() {}
 }
@@ -0,0 +1,262 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.builders;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+// per-telemetry item tags or properties, layered on top of shared defaults (see PreEncodedMap)
+//
+// the shared defaults are never copied or modified, entries that are added to this map are held
+// separately (and take precedence over the shared defaults), and when serializing, the shared
+// defaults are written from their pre-encoded json
+//
+// note: setValue() is not supported on the entries that come from the shared defaults
+@JsonSerialize(using = LayeredMap.Serializer.class)
+final class LayeredMap extends AbstractMap<String, String> {
+
+  private PreEncodedMap defaults;
+
+  // lazily allocated, since most telemetry items don't need either of these
+  @Nullable private HashMap<String, String> overrides;
+  @Nullable private Set<String> removedDefaults;
+
+  // whether any of the shared defaults have been overridden or removed
+  private boolean defaultsShadowed;
+
+  // the defaults take precedence over the existing entries, consistent with the defaults being
+  // applied one by one via addTag() / addProperty() after the existing entries
+  static LayeredMap create(PreEncodedMap defaults, @Nullable Map<String, String> existing) {
+    LayeredMap map = TelemetryItemPool.get().acquireMap();
+    if (map == null) {
+      map = new LayeredMap(defaults);
+    } else {
+      map.defaults = defaults;
+    }
+    if (existing != null) {
+      for (Map.Entry<String, String> entry : existing.entrySet()) {
+        if (!defaults.getEntries().containsKey(entry.getKey())) {
+          map.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    return map;
+  }
+
+  private LayeredMap(PreEncodedMap defaults) {
+    this.defaults = defaults;
+  }
+
+  // see TelemetryItemPool, the overrides map is retained so that it can be reused
+  void recycle() {
+    defaults = PreEncodedMap.EMPTY;
+    if (overrides != null) {
+      overrides.clear();
+    }
+    removedDefaults = null;
+    defaultsShadowed = false;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (overrides != null && overrides.containsKey(key)) {
+      return true;
+    }
+    return !isRemovedDefault(key) && defaults.getEntries().containsKey(key);
+  }
+
+  @Override
+  public String get(Object key) {
+    if (overrides != null && overrides.containsKey(key)) {
+      return overrides.get(key);
+    }
+    return isRemovedDefault(key) ? null : defaults.getEntries().get(key);
+  }
+
+  @Override
+  public String put(String key, String value) {
+    String previous = get(key);
+    if (overrides == null) {
+      overrides = new HashMap<>();
+    }
+    overrides.put(key, value);
+    if (removedDefaults != null) {
+      removedDefaults.remove(key);
+    }
+    if (defaults.getEntries().containsKey(key)) {
+      defaultsShadowed = true;
+    }
+    return previous;
+  }
+
+  @Override
+  public String remove(Object key) {
+    String previous = get(key);
+    if (overrides != null) {
+      overrides.remove(key);
+    }
+    if (key instanceof String && defaults.getEntries().containsKey(key)) {
+      if (removedDefaults == null) {
+        removedDefaults = new HashSet<>();
+      }
+      removedDefaults.add((String) key);
+      defaultsShadowed = true;
+    }
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    overrides = null;
+    if (!defaults.isEmpty()) {
+      removedDefaults = new HashSet<>(defaults.getEntries().keySet());
+      defaultsShadowed = true;
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    return new EntrySet();
+  }
+
+  private boolean isRemovedDefault(Object key) {
+    return removedDefaults != null && removedDefaults.contains(key);
+  }
+
+  private boolean isShadowedDefault(String key) {
+    return (overrides != null && overrides.containsKey(key)) || isRemovedDefault(key);
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      int size = overrides == null ? 0 : overrides.size();
+      if (!defaultsShadowed) {
+        return size + defaults.size();
+      }
+      for (String key : defaults.getEntries().keySet()) {
+        if (!isShadowedDefault(key)) {
+          size++;
+        }
+      }
+      return size;
+    }
+  }
+
+  // iterates over the overrides first, and then over the defaults that are not shadowed
+  private final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+
+    @Nullable
+    private final Iterator<Map.Entry<String, String>> overridesIterator =
+        overrides == null ? null : overrides.entrySet().iterator();
+
+    private final Iterator<Map.Entry<String, String>> defaultsIterator =
+        defaults.getEntries().entrySet().iterator();
+
+    @Nullable private Map.Entry<String, String> nextDefault;
+
+    @Override
+    public boolean hasNext() {
+      if (overridesIterator != null && overridesIterator.hasNext()) {
+        return true;
+      }
+      while (nextDefault == null && defaultsIterator.hasNext()) {
+        Map.Entry<String, String> entry = defaultsIterator.next();
+        if (!defaultsShadowed || !isShadowedDefault(entry.getKey())) {
+          nextDefault = entry;
+        }
+      }
+      return nextDefault != null;
+    }
+
+    @Override
+    public Map.Entry<String, String> next() {
+      if (overridesIterator != null && overridesIterator.hasNext()) {
+        return overridesIterator.next();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, String> entry = nextDefault;
+      nextDefault = null;
+      return entry;
+    }
+  }
+
+  static final class Serializer extends StdSerializer<LayeredMap> {
+
+    private static final long serialVersionUID = 1L;
+
+    Serializer() {
+      super(LayeredMap.class);
+    }
+
+    @Override
+    public void serialize(LayeredMap value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      gen.writeStartObject(value);
+      boolean wroteEntries = false;
+      if (value.overrides != null) {
+        for (Map.Entry<String, String> entry : value.overrides.entrySet()) {
+          // null values are not included (consistent with the object mapper configuration)
+          if (entry.getValue() != null) {
+            gen.writeStringField(entry.getKey(), entry.getValue());
+            wroteEntries = true;
+          }
+        }
+      }
+      PreEncodedMap defaults = value.defaults;
+      if (!value.defaultsShadowed) {
+        if (!defaults.isEmpty()) {
+          // this is the common case
+          gen.writeRaw(defaults.getEncodedEntries(wroteEntries));
+        }
+      } else {
+        for (int i = 0; i < defaults.size(); i++) {
+          if (!value.isShadowedDefault(defaults.getEncodedKey(i).getValue())) {
+            gen.writeFieldName(defaults.getEncodedKey(i));
+            gen.writeRawValue(defaults.getEncodedValue(i));
+          }
+        }
+      }
+      gen.writeEndObject();
+    }
+  }
+}
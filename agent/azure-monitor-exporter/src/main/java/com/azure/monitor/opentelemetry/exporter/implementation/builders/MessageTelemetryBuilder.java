@@ -25,6 +25,7 @@ import static com.azure.monitor.opentelemetry.exporter.implementation.builders.T
 
 import com.azure.monitor.opentelemetry.exporter.implementation.models.MessageData;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.SeverityLevel;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -36,12 +37,13 @@ public final class MessageTelemetryBuilder extends AbstractTelemetryBuilder {
   private final MessageData data;
 
   public static MessageTelemetryBuilder create() {
-    return new MessageTelemetryBuilder(new MessageData());
+    return new MessageTelemetryBuilder(
+        TelemetryItemPool.get().acquire(TelemetryItemPool.Kind.MESSAGE));
   }
 
-  private MessageTelemetryBuilder(MessageData data) {
-    super(data, "Message", "MessageData");
-    this.data = data;
+  private MessageTelemetryBuilder(TelemetryItem telemetryItem) {
+    super(telemetryItem);
+    this.data = (MessageData) telemetryItem.getData().getBaseData();
   }
 
   public void setMessage(String message) {
@@ -78,4 +80,9 @@ public final class MessageTelemetryBuilder extends AbstractTelemetryBuilder {
     }
     return properties;
   }
+
+  @Override
+  protected void setProperties(Map<String, String> properties) {
+    data.setProperties(properties);
+  }
 }
@@ -23,6 +23,7 @@ package com.azure.monitor.opentelemetry.exporter.implementation.builders;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricDataPoint;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,11 +35,12 @@ public final class MetricTelemetryBuilder extends AbstractTelemetryBuilder {
   private final MetricsData data;
 
   public static MetricTelemetryBuilder create() {
-    return new MetricTelemetryBuilder(new MetricsData());
+    return new MetricTelemetryBuilder(
+        TelemetryItemPool.get().acquire(TelemetryItemPool.Kind.METRIC));
   }
 
   public static MetricTelemetryBuilder create(String name, double value) {
-    MetricTelemetryBuilder telemetryBuilder = new MetricTelemetryBuilder(new MetricsData());
+    MetricTelemetryBuilder telemetryBuilder = create();
 
     MetricPointBuilder point = new MetricPointBuilder();
 
@@ -51,9 +53,9 @@ public final class MetricTelemetryBuilder extends AbstractTelemetryBuilder {
     return telemetryBuilder;
   }
 
-  private MetricTelemetryBuilder(MetricsData data) {
-    super(data, "Metric", "MetricData");
-    this.data = data;
+  private MetricTelemetryBuilder(TelemetryItem telemetryItem) {
+    super(telemetryItem);
+    this.data = (MetricsData) telemetryItem.getData().getBaseData();
   }
 
   public void setMetricPoint(MetricPointBuilder point) {
@@ -76,4 +78,9 @@ public final class MetricTelemetryBuilder extends AbstractTelemetryBuilder {
     }
     return properties;
   }
+
+  @Override
+  protected void setProperties(Map<String, String> properties) {
+    data.setProperties(properties);
+  }
 }
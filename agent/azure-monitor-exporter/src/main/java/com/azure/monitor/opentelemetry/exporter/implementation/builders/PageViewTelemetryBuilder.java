@@ -85,4 +85,9 @@ public final class PageViewTelemetryBuilder extends AbstractTelemetryBuilder {
     }
     return properties;
   }
+
+  @Override
+  protected void setProperties(Map<String, String> properties) {
+    data.setProperties(properties);
+  }
 }
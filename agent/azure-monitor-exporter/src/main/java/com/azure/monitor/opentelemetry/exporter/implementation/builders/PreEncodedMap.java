@@ -0,0 +1,112 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.builders;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// immutable tags or properties that are shared by many telemetry items (e.g. cloud role name and
+// sdk version), along with their pre-encoded json, so that they don't need to be copied into
+// every telemetry item, and don't need to be re-encoded for every telemetry item (see LayeredMap)
+public final class PreEncodedMap {
+
+  public static final PreEncodedMap EMPTY = new PreEncodedMap(Collections.emptyMap());
+
+  private final Map<String, String> entries;
+
+  // the entries encoded individually, for when some of the entries are overridden
+  private final SerializedString[] encodedKeys;
+  private final SerializedString[] encodedValues;
+
+  // the entries encoded together, e.g. "k1":"v1","k2":"v2"
+  private final SerializedString encodedEntries;
+  // the same, but for appending after other entries, e.g. ,"k1":"v1","k2":"v2"
+  private final SerializedString encodedEntriesAfterOtherEntries;
+
+  // null values are skipped, since those are not included when serializing anyways
+  public static PreEncodedMap create(Map<String, String> entries) {
+    Map<String, String> nonNullEntries = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      if (entry.getValue() != null) {
+        nonNullEntries.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (nonNullEntries.isEmpty()) {
+      return EMPTY;
+    }
+    return new PreEncodedMap(Collections.unmodifiableMap(nonNullEntries));
+  }
+
+  private PreEncodedMap(Map<String, String> entries) {
+    this.entries = entries;
+    encodedKeys = new SerializedString[entries.size()];
+    encodedValues = new SerializedString[entries.size()];
+    StringBuilder sb = new StringBuilder();
+    int i = 0;
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      String encodedKey = quote(entry.getKey());
+      String encodedValue = quote(entry.getValue());
+      encodedKeys[i] = new SerializedString(entry.getKey());
+      encodedValues[i] = new SerializedString(encodedValue);
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(encodedKey).append(':').append(encodedValue);
+      i++;
+    }
+    encodedEntries = new SerializedString(sb.toString());
+    encodedEntriesAfterOtherEntries = new SerializedString("," + sb);
+  }
+
+  Map<String, String> getEntries() {
+    return entries;
+  }
+
+  boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  int size() {
+    return encodedKeys.length;
+  }
+
+  SerializedString getEncodedKey(int index) {
+    return encodedKeys[index];
+  }
+
+  // includes the surrounding quotes, so must be written as a raw value
+  SerializedString getEncodedValue(int index) {
+    return encodedValues[index];
+  }
+
+  // must be written as raw output
+  SerializedString getEncodedEntries(boolean afterOtherEntries) {
+    return afterOtherEntries ? encodedEntriesAfterOtherEntries : encodedEntries;
+  }
+
+  private static String quote(String value) {
+    return '"' + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + '"';
+  }
+}
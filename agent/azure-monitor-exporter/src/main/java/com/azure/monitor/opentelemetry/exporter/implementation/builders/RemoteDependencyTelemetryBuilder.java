@@ -24,13 +24,14 @@ package com.azure.monitor.opentelemetry.exporter.implementation.builders;
 import static com.azure.monitor.opentelemetry.exporter.implementation.builders.TelemetryTruncation.truncateTelemetry;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.models.RemoteDependencyData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 
 public final class RemoteDependencyTelemetryBuilder extends AbstractTelemetryBuilder {
 
-  private static final int MAX_DATA_LENGTH = 8192;
+  public static final int MAX_DATA_LENGTH = 8192;
   private static final int MAX_RESULT_CODE_LENGTH = 1024;
   private static final int MAX_DEPENDENCY_TYPE_LENGTH = 1024;
   private static final int MAX_TARGET_NAME_LENGTH = 1024;
@@ -38,12 +39,13 @@ public final class RemoteDependencyTelemetryBuilder extends AbstractTelemetryBui
   private final RemoteDependencyData data;
 
   public static RemoteDependencyTelemetryBuilder create() {
-    return new RemoteDependencyTelemetryBuilder(new RemoteDependencyData());
+    return new RemoteDependencyTelemetryBuilder(
+        TelemetryItemPool.get().acquire(TelemetryItemPool.Kind.REMOTE_DEPENDENCY));
   }
 
-  private RemoteDependencyTelemetryBuilder(RemoteDependencyData data) {
-    super(data, "RemoteDependency", "RemoteDependencyData");
-    this.data = data;
+  private RemoteDependencyTelemetryBuilder(TelemetryItem telemetryItem) {
+    super(telemetryItem);
+    this.data = (RemoteDependencyData) telemetryItem.getData().getBaseData();
   }
 
   public void setId(String id) {
@@ -101,4 +103,9 @@ public final class RemoteDependencyTelemetryBuilder extends AbstractTelemetryBui
     }
     return properties;
   }
+
+  @Override
+  protected void setProperties(Map<String, String> properties) {
+    data.setProperties(properties);
+  }
 }
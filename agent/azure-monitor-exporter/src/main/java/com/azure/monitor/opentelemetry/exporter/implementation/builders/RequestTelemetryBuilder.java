@@ -24,6 +24,7 @@ package com.azure.monitor.opentelemetry.exporter.implementation.builders;
 import static com.azure.monitor.opentelemetry.exporter.implementation.builders.TelemetryTruncation.truncateTelemetry;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.models.RequestData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -37,12 +38,13 @@ public final class RequestTelemetryBuilder extends AbstractTelemetryBuilder {
   private final RequestData data;
 
   public static RequestTelemetryBuilder create() {
-    return new RequestTelemetryBuilder(new RequestData());
+    return new RequestTelemetryBuilder(
+        TelemetryItemPool.get().acquire(TelemetryItemPool.Kind.REQUEST));
   }
 
-  private RequestTelemetryBuilder(RequestData data) {
-    super(data, "Request", "RequestData");
-    this.data = data;
+  private RequestTelemetryBuilder(TelemetryItem telemetryItem) {
+    super(telemetryItem);
+    this.data = (RequestData) telemetryItem.getData().getBaseData();
   }
 
   public void setId(String id) {
@@ -96,4 +98,9 @@ public final class RequestTelemetryBuilder extends AbstractTelemetryBuilder {
     }
     return properties;
   }
+
+  @Override
+  protected void setProperties(Map<String, String> properties) {
+    data.setProperties(properties);
+  }
 }
@@ -0,0 +1,298 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.builders;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MessageData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricDataPoint;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorBase;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorDomain;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RemoteDependencyData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RequestData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// opt-in recycling of the highest volume telemetry items (requests, dependencies, traces and
+// metrics), along with their data objects and their tags and properties maps
+//
+// once a telemetry item has been handed off for export it is owned by the export pipeline, which
+// returns it to the pool after it has been encoded (or dropped), so nothing may hold onto a
+// telemetry item after handing it off
+//
+// the pools are shared (not thread local), since telemetry items are created on many threads but
+// are returned to the pool on the export queue worker threads
+public final class TelemetryItemPool {
+
+  private static final Logger logger = LoggerFactory.getLogger(TelemetryItemPool.class);
+
+  private static final TelemetryItemPool DISABLED = new TelemetryItemPool(0, false);
+
+  private static volatile TelemetryItemPool instance = DISABLED;
+
+  enum Kind {
+    REQUEST("Request", "RequestData", RequestData.class, RequestData::new),
+    REMOTE_DEPENDENCY(
+        "RemoteDependency",
+        "RemoteDependencyData",
+        RemoteDependencyData.class,
+        RemoteDependencyData::new),
+    MESSAGE("Message", "MessageData", MessageData.class, MessageData::new),
+    METRIC("Metric", "MetricData", MetricsData.class, MetricsData::new);
+
+    private final String telemetryName;
+    private final String baseType;
+    private final Class<? extends MonitorDomain> dataClass;
+    private final Supplier<MonitorDomain> dataFactory;
+
+    Kind(
+        String telemetryName,
+        String baseType,
+        Class<? extends MonitorDomain> dataClass,
+        Supplier<MonitorDomain> dataFactory) {
+      this.telemetryName = telemetryName;
+      this.baseType = baseType;
+      this.dataClass = dataClass;
+      this.dataFactory = dataFactory;
+    }
+
+    @Nullable
+    private static Kind forItem(TelemetryItem telemetryItem) {
+      MonitorBase monitorBase = telemetryItem.getData();
+      MonitorDomain data = monitorBase == null ? null : monitorBase.getBaseData();
+      if (data == null) {
+        return null;
+      }
+      for (Kind kind : values()) {
+        // the name is checked too, since e.g. statsbeat also uses MetricsData
+        if (kind.dataClass == data.getClass()
+            && kind.telemetryName.equals(telemetryItem.getName())) {
+          return kind;
+        }
+      }
+      return null;
+    }
+  }
+
+  // 0 means disabled
+  private final int maxPooledItemsPerKind;
+  // null when disabled
+  @Nullable private final ArrayBlockingQueue<TelemetryItem>[] pools;
+  @Nullable private final ArrayBlockingQueue<LayeredMap> mapPool;
+
+  // null unless leak detection is enabled
+  @Nullable private final Map<TelemetryItem, LeakTracker> leakTrackers;
+  @Nullable private final ReferenceQueue<TelemetryItem> leakQueue;
+
+  // needs to be called before any telemetry items are created
+  //
+  // leak detection (telemetry items that are garbage collected without having been returned to
+  // the pool) is expensive, so it is only enabled when debug logging is enabled for this class
+  public static void configure(int maxPooledItemsPerKind) {
+    instance =
+        maxPooledItemsPerKind > 0
+            ? new TelemetryItemPool(maxPooledItemsPerKind, logger.isDebugEnabled())
+            : DISABLED;
+  }
+
+  public static TelemetryItemPool get() {
+    return instance;
+  }
+
+  // visible for testing
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  TelemetryItemPool(int maxPooledItemsPerKind, boolean leakDetection) {
+    this.maxPooledItemsPerKind = maxPooledItemsPerKind;
+    if (maxPooledItemsPerKind > 0) {
+      pools = new ArrayBlockingQueue[Kind.values().length];
+      for (int i = 0; i < pools.length; i++) {
+        pools[i] = new ArrayBlockingQueue<>(maxPooledItemsPerKind);
+      }
+      // each telemetry item can have both tags and properties
+      mapPool = new ArrayBlockingQueue<>(2 * maxPooledItemsPerKind * pools.length);
+    } else {
+      pools = null;
+      mapPool = null;
+    }
+    if (leakDetection && maxPooledItemsPerKind > 0) {
+      leakTrackers = new WeakHashMap<>();
+      leakQueue = new ReferenceQueue<>();
+    } else {
+      leakTrackers = null;
+      leakQueue = null;
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxPooledItemsPerKind > 0;
+  }
+
+  // returns a recycled telemetry item if one is available, otherwise a new telemetry item
+  TelemetryItem acquire(Kind kind) {
+    TelemetryItem telemetryItem = pools == null ? null : pools[kind.ordinal()].poll();
+    if (telemetryItem == null) {
+      telemetryItem =
+          AbstractTelemetryBuilder.createTelemetryItem(
+              kind.dataFactory.get(), kind.telemetryName, kind.baseType);
+    }
+    if (leakTrackers != null) {
+      trackForLeaks(telemetryItem);
+    }
+    return telemetryItem;
+  }
+
+  @Nullable
+  LayeredMap acquireMap() {
+    return mapPool == null ? null : mapPool.poll();
+  }
+
+  public void releaseAll(List<TelemetryItem> telemetryItems) {
+    if (pools == null) {
+      return;
+    }
+    for (TelemetryItem telemetryItem : telemetryItems) {
+      release(telemetryItem);
+    }
+  }
+
+  // telemetry items that were not created by the pool are accepted too
+  public void release(TelemetryItem telemetryItem) {
+    if (pools == null) {
+      return;
+    }
+    if (leakTrackers != null) {
+      untrack(telemetryItem);
+    }
+    Kind kind = Kind.forItem(telemetryItem);
+    if (kind == null) {
+      return;
+    }
+    reset(telemetryItem);
+    pools[kind.ordinal()].offer(telemetryItem);
+  }
+
+  private void reset(TelemetryItem telemetryItem) {
+    // version, name and data (other than its base data's fields) are the same for all telemetry
+    // items of the same kind
+    telemetryItem.setTime(null);
+    telemetryItem.setSampleRate(null);
+    telemetryItem.setSequence(null);
+    telemetryItem.setInstrumentationKey(null);
+    releaseMap(telemetryItem.getTags());
+    telemetryItem.setTags(null);
+
+    MonitorDomain data = telemetryItem.getData().getBaseData();
+    data.setAdditionalProperties(null);
+    if (data instanceof RequestData) {
+      RequestData requestData = (RequestData) data;
+      requestData.setId(null);
+      requestData.setName(null);
+      requestData.setDuration(null);
+      requestData.setSuccess(false);
+      requestData.setResponseCode(null);
+      requestData.setSource(null);
+      requestData.setUrl(null);
+      releaseMap(requestData.getProperties());
+      requestData.setProperties(null);
+      requestData.setMeasurements(null);
+    } else if (data instanceof RemoteDependencyData) {
+      RemoteDependencyData dependencyData = (RemoteDependencyData) data;
+      dependencyData.setId(null);
+      dependencyData.setName(null);
+      dependencyData.setResultCode(null);
+      dependencyData.setData(null);
+      dependencyData.setType(null);
+      dependencyData.setTarget(null);
+      dependencyData.setDuration(null);
+      dependencyData.setSuccess(null);
+      releaseMap(dependencyData.getProperties());
+      dependencyData.setProperties(null);
+      dependencyData.setMeasurements(null);
+    } else if (data instanceof MessageData) {
+      MessageData messageData = (MessageData) data;
+      messageData.setMessage(null);
+      messageData.setSeverityLevel(null);
+      releaseMap(messageData.getProperties());
+      messageData.setProperties(null);
+      messageData.setMeasurements(null);
+    } else if (data instanceof MetricsData) {
+      MetricsData metricsData = (MetricsData) data;
+      // the metric point itself is not recycled, since it is built separately by MetricPointBuilder
+      List<MetricDataPoint> metrics = metricsData.getMetrics();
+      if (metrics != null) {
+        metrics.clear();
+      }
+      releaseMap(metricsData.getProperties());
+      metricsData.setProperties(null);
+    }
+  }
+
+  private void releaseMap(@Nullable Map<String, String> map) {
+    if (map instanceof LayeredMap) {
+      LayeredMap layeredMap = (LayeredMap) map;
+      layeredMap.recycle();
+      mapPool.offer(layeredMap);
+    }
+  }
+
+  private void trackForLeaks(TelemetryItem telemetryItem) {
+    synchronized (leakTrackers) {
+      leakTrackers.put(telemetryItem, new LeakTracker(telemetryItem, leakQueue));
+    }
+    Reference<? extends TelemetryItem> reference;
+    while ((reference = leakQueue.poll()) != null) {
+      logger.warn(
+          "a telemetry item was garbage collected without being returned to the pool, it was"
+              + " acquired here:",
+          ((LeakTracker) reference).acquiredAt);
+    }
+  }
+
+  private void untrack(TelemetryItem telemetryItem) {
+    LeakTracker leakTracker;
+    synchronized (leakTrackers) {
+      leakTracker = leakTrackers.remove(telemetryItem);
+    }
+    if (leakTracker != null) {
+      // cleared references are not enqueued
+      leakTracker.clear();
+    }
+  }
+
+  private static final class LeakTracker extends WeakReference<TelemetryItem> {
+
+    private final Throwable acquiredAt = new Throwable();
+
+    private LeakTracker(TelemetryItem referent, ReferenceQueue<TelemetryItem> queue) {
+      super(referent, queue);
+    }
+  }
+}
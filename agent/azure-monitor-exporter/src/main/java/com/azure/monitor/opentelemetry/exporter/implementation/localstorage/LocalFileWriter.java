@@ -24,6 +24,8 @@ package com.azure.monitor.opentelemetry.exporter.implementation.localstorage;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.logging.OperationLogger;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.PipelineStage;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -44,6 +46,8 @@ final class LocalFileWriter {
 
   private final OperationLogger operationLogger;
 
+  private final SelfMetrics selfMetrics = SelfMetrics.get();
+
   LocalFileWriter(
       int diskPersistenceMaxSizeMb,
       LocalFileCache localFileCache,
@@ -89,7 +93,9 @@ final class LocalFileWriter {
     }
 
     try {
+      long startNanos = System.nanoTime();
       write(tempFile, buffers, instrumentationKey);
+      selfMetrics.recordLatency(PipelineStage.DISK_WRITE, System.nanoTime() - startNanos);
     } catch (IOException e) {
       operationLogger.recordFailure("Error writing file: " + tempFile.getAbsolutePath(), e);
       stats.incrementWriteFailureCount();
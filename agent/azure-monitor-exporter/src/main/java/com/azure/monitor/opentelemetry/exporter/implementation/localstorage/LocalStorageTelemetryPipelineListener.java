@@ -28,6 +28,8 @@ import com.azure.monitor.opentelemetry.exporter.implementation.pipeline.Telemetr
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.StatusCode;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LocalStorageTelemetryPipelineListener implements TelemetryPipelineListener {
@@ -73,6 +75,11 @@ public class LocalStorageTelemetryPipelineListener implements TelemetryPipelineL
     localFileWriter.writeToDisk(request.getInstrumentationKey(), request.getTelemetry());
   }
 
+  @Override
+  public void onSendRefused(String instrumentationKey, List<ByteBuffer> telemetry) {
+    localFileWriter.writeToDisk(instrumentationKey, telemetry);
+  }
+
   @Override
   public CompletableResultCode shutdown() {
     // guarding against multiple shutdown calls because this can get called if statsbeat shuts down
@@ -22,6 +22,7 @@
 package com.azure.monitor.opentelemetry.exporter.implementation.models;
 
 import com.azure.core.annotation.Fluent;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.OffsetDateTime;
 import java.util.Map;
@@ -89,6 +90,12 @@ public final class TelemetryItem {
   @JsonProperty(value = "data")
   private MonitorBase data;
 
+  /*
+   * Estimated size of the telemetry item, which is held against the memory
+   * budget while the telemetry item is queued for export. Not serialized.
+   */
+  @JsonIgnore private long estimatedBytes;
+
   /**
    * Get the version property: Envelope version. For internal use only. By assigning this the
    * default, it will not be serialized within the payload unless changed to a value other than #1.
@@ -268,4 +275,26 @@ public final class TelemetryItem {
     this.data = data;
     return this;
   }
+
+  /**
+   * Get the estimatedBytes property: Estimated size of the telemetry item, which is held against
+   * the memory budget while the telemetry item is queued for export. Not serialized.
+   *
+   * @return the estimatedBytes value.
+   */
+  @JsonIgnore
+  public long getEstimatedBytes() {
+    return this.estimatedBytes;
+  }
+
+  /**
+   * Set the estimatedBytes property: Estimated size of the telemetry item, which is held against
+   * the memory budget while the telemetry item is queued for export. Not serialized.
+   *
+   * @param estimatedBytes the estimatedBytes value to set.
+   */
+  @JsonIgnore
+  public void setEstimatedBytes(long estimatedBytes) {
+    this.estimatedBytes = estimatedBytes;
+  }
 }
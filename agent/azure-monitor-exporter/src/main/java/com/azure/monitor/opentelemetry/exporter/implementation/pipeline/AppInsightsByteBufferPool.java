@@ -21,6 +21,7 @@
 
 package com.azure.monitor.opentelemetry.exporter.implementation.pipeline;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Queue;
@@ -33,9 +34,13 @@ class AppInsightsByteBufferPool {
 
   private final Queue<ByteBuffer> queue = new ArrayBlockingQueue<>(MAX_RETAINED);
 
+  // retained buffers count against the memory budget, and are not retained when it's been hit
+  private final MemoryBudget memoryBudget = MemoryBudget.get();
+
   ByteBuffer remove() {
     ByteBuffer byteBuffer = queue.poll();
     if (byteBuffer != null) {
+      memoryBudget.release(byteBuffer.capacity());
       byteBuffer.clear();
       return byteBuffer;
     }
@@ -45,7 +50,9 @@ class AppInsightsByteBufferPool {
   void offer(List<ByteBuffer> byteBuffers) {
     // TODO(trask) batch offer?
     for (ByteBuffer byteBuffer : byteBuffers) {
-      queue.offer(byteBuffer);
+      if (memoryBudget.tryAcquire(byteBuffer.capacity()) && !queue.offer(byteBuffer)) {
+        memoryBudget.release(byteBuffer.capacity());
+      }
     }
   }
 }
@@ -21,8 +21,12 @@
 
 package com.azure.monitor.opentelemetry.exporter.implementation.pipeline;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.TelemetryItemPool;
 import com.azure.monitor.opentelemetry.exporter.implementation.logging.OperationLogger;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.PipelineStage;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.io.SerializedString;
@@ -32,6 +36,7 @@ import io.opentelemetry.sdk.common.CompletableResultCode;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -39,6 +44,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.GZIPOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +69,9 @@ public class TelemetryItemExporter {
   private static final OperationLogger encodeBatchOperationLogger =
       new OperationLogger(TelemetryItemExporter.class, "Encoding telemetry batch into json");
 
+  private static final OperationLogger memoryBudgetOperationLogger =
+      new OperationLogger(TelemetryItemExporter.class, "Reserving memory for telemetry export");
+
   private static ObjectMapper createObjectMapper() {
     ObjectMapper mapper = new ObjectMapper();
     mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
@@ -76,6 +85,13 @@ public class TelemetryItemExporter {
 
   private final TelemetryPipeline telemetryPipeline;
   private final TelemetryPipelineListener listener;
+  private final MemoryBudget memoryBudget = MemoryBudget.get();
+  private final TelemetryItemPool telemetryItemPool = TelemetryItemPool.get();
+
+  private final SelfMetrics selfMetrics = SelfMetrics.get();
+  private final LongAdder exportedItemCount = selfMetrics.getCounter("exportedItems");
+  // compressed bytes
+  private final LongAdder exportedByteCount = selfMetrics.getCounter("exportedBytes");
 
   private final Set<CompletableResultCode> activeExportResults =
       Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -98,11 +114,50 @@ public class TelemetryItemExporter {
     }
     List<CompletableResultCode> resultCodeList = new ArrayList<>();
     for (Map.Entry<String, List<TelemetryItem>> entry : instrumentationKeyMap.entrySet()) {
-      resultCodeList.add(internalSendByInstrumentationKey(entry.getValue(), entry.getKey()));
+      resultCodeList.add(internalSendByInstrumentationKey(entry.getValue(), entry.getKey(), 0));
     }
     return maybeAddToActiveExportResults(resultCodeList);
   }
 
+  // used by callers that have already grouped the telemetry items by instrumentation key
+  // (e.g. BatchItemProcessor), which avoids re-grouping every batch on every send
+  public CompletableResultCode send(List<TelemetryItem> telemetryItems, String instrumentationKey) {
+    return send(telemetryItems, instrumentationKey, 0);
+  }
+
+  // same as above, but for telemetry items whose estimated size (itemBytes) is held against the
+  // memory budget, which is handed over here and exchanged for the size of the encoded payload
+  // once the telemetry items have been encoded
+  public CompletableResultCode send(
+      List<TelemetryItem> telemetryItems, String instrumentationKey, long itemBytes) {
+    return maybeAddToActiveExportResults(
+        Collections.singletonList(
+            internalSendByInstrumentationKey(telemetryItems, instrumentationKey, itemBytes)));
+  }
+
+  // sends telemetry items that were serialized ahead of time (see serialize below), e.g. telemetry
+  // items that were held off-heap, the telemetry items must all be for the same instrumentation key
+  public CompletableResultCode sendSerialized(
+      List<byte[]> serializedTelemetryItems, String instrumentationKey) {
+    List<ByteBuffer> byteBuffers;
+    try {
+      long startNanos = System.nanoTime();
+      byteBuffers = encodeSerialized(serializedTelemetryItems);
+      selfMetrics.recordLatency(PipelineStage.ENCODE, System.nanoTime() - startNanos);
+      encodeBatchOperationLogger.recordSuccess();
+    } catch (Throwable t) {
+      encodeBatchOperationLogger.recordFailure(t.getMessage(), t);
+      return CompletableResultCode.ofFailure();
+    }
+    exportedItemCount.add(serializedTelemetryItems.size());
+    return maybeAddToActiveExportResults(
+        Collections.singletonList(sendByteBuffers(byteBuffers, instrumentationKey, 0)));
+  }
+
+  public static byte[] serialize(TelemetryItem telemetryItem) throws IOException {
+    return mapper.writeValueAsBytes(telemetryItem);
+  }
+
   private CompletableResultCode maybeAddToActiveExportResults(List<CompletableResultCode> results) {
     if (activeExportResults.size() >= MAX_CONCURRENT_EXPORTS) {
       // this is just a failsafe to limit concurrent exports, it's not ideal because it blocks
@@ -131,16 +186,60 @@ public class TelemetryItemExporter {
   }
 
   CompletableResultCode internalSendByInstrumentationKey(
-      List<TelemetryItem> telemetryItems, String instrumentationKey) {
+      List<TelemetryItem> telemetryItems, String instrumentationKey, long itemBytes) {
     List<ByteBuffer> byteBuffers;
     try {
+      long startNanos = System.nanoTime();
       byteBuffers = encode(telemetryItems);
+      selfMetrics.recordLatency(PipelineStage.ENCODE, System.nanoTime() - startNanos);
       encodeBatchOperationLogger.recordSuccess();
     } catch (Throwable t) {
       encodeBatchOperationLogger.recordFailure(t.getMessage(), t);
+      memoryBudget.release(itemBytes);
+      return CompletableResultCode.ofFailure();
+    } finally {
+      // the telemetry items are no longer needed once they have been encoded
+      telemetryItemPool.releaseAll(telemetryItems);
+    }
+    exportedItemCount.add(telemetryItems.size());
+    return sendByteBuffers(byteBuffers, instrumentationKey, itemBytes);
+  }
+
+  // heldBytes are already held against the memory budget (see send above), and are released
+  // either way
+  private CompletableResultCode sendByteBuffers(
+      List<ByteBuffer> byteBuffers, String instrumentationKey, long heldBytes) {
+    long bytes = 0;
+    long payloadBytes = 0;
+    for (ByteBuffer byteBuffer : byteBuffers) {
+      bytes += byteBuffer.capacity();
+      payloadBytes += byteBuffer.remaining();
+    }
+    // in-flight export payloads count against the memory budget until the send completes, and
+    // payloads that would exceed the memory budget are handed to the listener (which writes them to
+    // disk when disk persistence is enabled) instead of being sent, the size of the telemetry items
+    // that were encoded is exchanged for the size of the payload in one step, since otherwise the
+    // queued telemetry items could keep the budget filled up so that nothing could be exported
+    long inFlightBytes = bytes;
+    if (!memoryBudget.tryExchange(heldBytes, inFlightBytes)) {
+      memoryBudgetOperationLogger.recordFailure(
+          "Agent memory budget of "
+              + (memoryBudget.getMaxBytes() / (1024 * 1024))
+              + " MB has been hit, not sending telemetry (it will be written to disk if disk"
+              + " persistence is enabled, and the memory budget can be increased in the"
+              + " applicationinsights.json configuration file, e.g. { \"preview\": {"
+              + " \"memoryBudgetMb\": "
+              + (memoryBudget.getMaxBytes() / (1024 * 1024) * 2)
+              + " } }");
+      listener.onSendRefused(instrumentationKey, byteBuffers);
       return CompletableResultCode.ofFailure();
     }
-    return telemetryPipeline.send(byteBuffers, instrumentationKey, listener);
+    memoryBudgetOperationLogger.recordSuccess();
+    exportedByteCount.add(payloadBytes);
+    CompletableResultCode result =
+        telemetryPipeline.send(byteBuffers, instrumentationKey, listener);
+    result.whenComplete(() -> memoryBudget.release(inFlightBytes));
+    return result;
   }
 
   List<ByteBuffer> encode(List<TelemetryItem> telemetryItems) throws IOException {
@@ -171,6 +270,45 @@ public class TelemetryItemExporter {
     return byteBuffers;
   }
 
+  List<ByteBuffer> encodeSerialized(List<byte[]> serializedTelemetryItems) throws IOException {
+
+    if (logger.isDebugEnabled()) {
+      StringBuilder debug = new StringBuilder();
+      for (byte[] serializedTelemetryItem : serializedTelemetryItems) {
+        if (debug.length() > 0) {
+          debug.append('\n');
+        }
+        debug.append(new String(serializedTelemetryItem, StandardCharsets.UTF_8));
+      }
+      logger.debug("sending telemetry to ingestion service:\n{}", debug);
+    }
+
+    ByteBufferOutputStream out = new ByteBufferOutputStream(byteBufferPool);
+
+    // same newline separated format that is produced by writeTelemetryItems below
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      boolean first = true;
+      for (byte[] serializedTelemetryItem : serializedTelemetryItems) {
+        if (!first) {
+          gzip.write('\n');
+        }
+        gzip.write(serializedTelemetryItem);
+        first = false;
+      }
+    } catch (IOException e) {
+      byteBufferPool.offer(out.getByteBuffers());
+      throw e;
+    }
+
+    out.close(); // closing ByteBufferOutputStream is a no-op, but this line makes LGTM happy
+
+    List<ByteBuffer> byteBuffers = out.getByteBuffers();
+    for (ByteBuffer byteBuffer : byteBuffers) {
+      byteBuffer.flip();
+    }
+    return byteBuffers;
+  }
+
   private static void writeTelemetryItems(JsonGenerator jg, List<TelemetryItem> telemetryItems)
       throws IOException {
     jg.setRootValueSeparator(new SerializedString("\n"));
@@ -25,6 +25,8 @@ import com.azure.core.http.HttpPipeline;
 import com.azure.core.http.HttpResponse;
 import com.azure.core.util.Context;
 import com.azure.core.util.tracing.Tracer;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.PipelineStage;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.StatusCode;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import java.net.MalformedURLException;
@@ -45,6 +47,7 @@ public class TelemetryPipeline {
 
   private final HttpPipeline pipeline;
   private final Supplier<URL> endpoint;
+  private final SelfMetrics selfMetrics = SelfMetrics.get();
 
   // key is instrumentationKey, value is redirectUrl
   private final Map<String, URL> redirectCache =
@@ -70,6 +73,10 @@ public class TelemetryPipeline {
 
     try {
       CompletableResultCode result = new CompletableResultCode();
+      long startNanos = System.nanoTime();
+      // this includes the listener handling the response (e.g. writing to disk on failure)
+      result.whenComplete(
+          () -> selfMetrics.recordLatency(PipelineStage.HTTP_SEND, System.nanoTime() - startNanos));
       sendInternal(request, listener, result, MAX_REDIRECTS);
       return result;
     } catch (Throwable t) {
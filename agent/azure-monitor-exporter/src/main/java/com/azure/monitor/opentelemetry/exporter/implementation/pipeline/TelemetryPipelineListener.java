@@ -24,6 +24,7 @@ package com.azure.monitor.opentelemetry.exporter.implementation.pipeline;
 import static java.util.Arrays.asList;
 
 import io.opentelemetry.sdk.common.CompletableResultCode;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +34,10 @@ public interface TelemetryPipelineListener {
 
   void onException(TelemetryPipelineRequest request, String errorMessage, Throwable throwable);
 
+  // called instead of sending the telemetry when it cannot be sent right now (e.g. because the
+  // agent's memory budget has been hit), so that it can be persisted and sent later
+  default void onSendRefused(String instrumentationKey, List<ByteBuffer> telemetry) {}
+
   CompletableResultCode shutdown();
 
   static TelemetryPipelineListener composite(TelemetryPipelineListener... delegates) {
@@ -66,6 +71,13 @@ public interface TelemetryPipelineListener {
       }
     }
 
+    @Override
+    public void onSendRefused(String instrumentationKey, List<ByteBuffer> telemetry) {
+      for (TelemetryPipelineListener delegate : delegates) {
+        delegate.onSendRefused(instrumentationKey, telemetry);
+      }
+    }
+
     @Override
     public CompletableResultCode shutdown() {
       List<CompletableResultCode> results = new ArrayList<>();
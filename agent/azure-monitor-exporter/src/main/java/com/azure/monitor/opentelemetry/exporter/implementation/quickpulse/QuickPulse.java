@@ -24,6 +24,7 @@ package com.azure.monitor.opentelemetry.exporter.implementation.quickpulse;
 import com.azure.core.http.HttpPipeline;
 import com.azure.core.http.HttpRequest;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.AgentThreads;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.HostName;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.Strings;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
@@ -145,10 +146,12 @@ public class QuickPulse {
     Thread senderThread =
         new Thread(quickPulseDataSender, QuickPulseDataSender.class.getSimpleName());
     senderThread.setDaemon(true);
+    AgentThreads.register(senderThread);
     senderThread.start();
 
     Thread thread = new Thread(coordinator, QuickPulseCoordinator.class.getSimpleName());
     thread.setDaemon(true);
+    AgentThreads.register(thread);
     thread.start();
 
     collector.enable(instrumentationKey);
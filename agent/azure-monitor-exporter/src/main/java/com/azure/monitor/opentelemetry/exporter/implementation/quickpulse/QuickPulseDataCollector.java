@@ -34,6 +34,8 @@ import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.model.
 import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.model.QuickPulseExceptionDocument;
 import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.model.QuickPulseRequestDocument;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.CpuPerformanceCounterCalculator;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.LinuxCgroupStats;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
@@ -61,6 +63,12 @@ final class QuickPulseDataCollector {
   private final CpuPerformanceCounterCalculator cpuPerformanceCounterCalculator =
       getCpuPerformanceCounterCalculator();
   private final boolean useNormalizedValueForNonNormalizedCpuPercentage;
+  private final MemoryBudget memoryBudget = MemoryBudget.get();
+
+  // container cpu throttling and memory, only on Linux
+  @Nullable private final LinuxCgroupStats cgroupStats = LinuxCgroupStats.get();
+  private long prevCpuPeriods = -1;
+  private long prevCpuThrottledPeriods = -1;
 
   private volatile QuickPulseStatus quickPulseStatus = QuickPulseStatus.QP_IS_OFF;
 
@@ -94,13 +102,16 @@ final class QuickPulseDataCollector {
   }
 
   synchronized void disable() {
-    counters.set(null);
+    Counters currentCounters = counters.getAndSet(null);
+    if (currentCounters != null) {
+      currentCounters.releaseDocuments();
+    }
     quickPulseStatus = QuickPulseStatus.QP_IS_OFF;
   }
 
   synchronized void enable(Supplier<String> instrumentationKeySupplier) {
     this.instrumentationKeySupplier = instrumentationKeySupplier;
-    counters.set(new Counters());
+    counters.set(new Counters(memoryBudget));
   }
 
   synchronized void setQuickPulseStatus(QuickPulseStatus quickPulseStatus) {
@@ -114,9 +125,11 @@ final class QuickPulseDataCollector {
 
   @Nullable
   synchronized FinalCounters getAndRestart() {
-    Counters currentCounters = counters.getAndSet(new Counters());
+    Counters currentCounters = counters.getAndSet(new Counters(memoryBudget));
     if (currentCounters != null) {
-      return new FinalCounters(currentCounters);
+      FinalCounters finalCounters = new FinalCounters(currentCounters);
+      currentCounters.releaseDocuments();
+      return finalCounters;
     }
 
     return null;
@@ -196,11 +209,7 @@ final class QuickPulseDataCollector {
     quickPulseDependencyDocument.setDependencyTypeName(telemetry.getType());
     quickPulseDependencyDocument.setProperties(
         aggregateProperties(telemetry.getProperties(), telemetry.getMeasurements()));
-    synchronized (counters.documentList) {
-      if (counters.documentList.size() < Counters.MAX_DOCUMENTS_SIZE) {
-        counters.documentList.add(quickPulseDependencyDocument);
-      }
-    }
+    counters.addDocument(quickPulseDependencyDocument, Counters.ESTIMATED_DOCUMENT_SIZE_BYTES);
   }
 
   private void addException(TelemetryExceptionData exceptionData, int itemCount) {
@@ -233,11 +242,9 @@ final class QuickPulseDataCollector {
       quickPulseExceptionDocument.setExceptionMessage(exceptionList.get(0).getMessage());
       quickPulseExceptionDocument.setExceptionType(exceptionList.get(0).getTypeName());
     }
-    synchronized (counters.documentList) {
-      if (counters.documentList.size() < Counters.MAX_DOCUMENTS_SIZE) {
-        counters.documentList.add(quickPulseExceptionDocument);
-      }
-    }
+    counters.addDocument(
+        quickPulseExceptionDocument,
+        Counters.ESTIMATED_DOCUMENT_SIZE_BYTES + 2L * exceptions.length());
   }
 
   private void addRequest(RequestData requestTelemetry, int itemCount, String operationName) {
@@ -264,11 +271,7 @@ final class QuickPulseDataCollector {
     quickPulseRequestDocument.setUrl(requestTelemetry.getUrl());
     quickPulseRequestDocument.setProperties(
         aggregateProperties(requestTelemetry.getProperties(), requestTelemetry.getMeasurements()));
-    synchronized (counters.documentList) {
-      if (counters.documentList.size() < Counters.MAX_DOCUMENTS_SIZE) {
-        counters.documentList.add(quickPulseRequestDocument);
-      }
-    }
+    counters.addDocument(quickPulseRequestDocument, Counters.ESTIMATED_DOCUMENT_SIZE_BYTES);
   }
 
   private static Map<String, String> aggregateProperties(
@@ -360,12 +363,16 @@ final class QuickPulseDataCollector {
     final int unsuccessfulRdds;
     final long memoryCommitted;
     final double cpuUsage;
+    final double containerCpuThrottledPercentage;
+    final long containerMemoryWorkingSet;
     final List<QuickPulseDocument> documentList = new ArrayList<>();
 
     private FinalCounters(Counters currentCounters) {
 
       memoryCommitted = getMemoryCommitted(memory);
       cpuUsage = getNonNormalizedCpuPercentage(cpuPerformanceCounterCalculator);
+      containerCpuThrottledPercentage = getContainerCpuThrottledPercentage();
+      containerMemoryWorkingSet = cgroupStats == null ? -1 : cgroupStats.getMemoryWorkingSetBytes();
       exceptions = currentCounters.exceptions.get();
 
       CountAndDuration countAndDuration =
@@ -394,6 +401,27 @@ final class QuickPulseDataCollector {
       return heapMemoryUsage.getCommitted();
     }
 
+    // the percentage of the cfs enforcement periods (since the last collection) in which the cgroup
+    // was throttled, or -1 if not available (e.g. when there's no cpu limit)
+    private double getContainerCpuThrottledPercentage() {
+      if (cgroupStats == null) {
+        return -1;
+      }
+      long cpuPeriods = cgroupStats.getCpuPeriods();
+      long cpuThrottledPeriods = cgroupStats.getCpuThrottledPeriods();
+      long periods = cpuPeriods - prevCpuPeriods;
+      long throttledPeriods = cpuThrottledPeriods - prevCpuThrottledPeriods;
+      boolean valid =
+          prevCpuPeriods != -1
+              && prevCpuThrottledPeriods != -1
+              && cpuThrottledPeriods != -1
+              && periods > 0
+              && throttledPeriods >= 0;
+      prevCpuPeriods = cpuPeriods;
+      prevCpuThrottledPeriods = cpuThrottledPeriods;
+      return valid ? 100.0 * throttledPeriods / periods : -1;
+    }
+
     private double getNonNormalizedCpuPercentage(
         @Nullable CpuPerformanceCounterCalculator cpuPerformanceCounterCalculator) {
       if (cpuPerformanceCounterCalculator == null) {
@@ -427,6 +455,8 @@ final class QuickPulseDataCollector {
     private static final long MAX_COUNT = 524287L;
     private static final long MAX_DURATION = 17592186044415L;
     private static final int MAX_DOCUMENTS_SIZE = 1000;
+    // rough estimate of the heap used by a document (including its properties map)
+    private static final long ESTIMATED_DOCUMENT_SIZE_BYTES = 1024;
 
     final AtomicInteger exceptions = new AtomicInteger(0);
 
@@ -437,6 +467,39 @@ final class QuickPulseDataCollector {
     final AtomicInteger unsuccessfulRdds = new AtomicInteger(0);
     final List<QuickPulseDocument> documentList = new ArrayList<>();
 
+    private final MemoryBudget memoryBudget;
+    // guarded by documentList
+    private long documentBytes;
+    // guarded by documentList
+    private boolean documentsReleased;
+
+    Counters(MemoryBudget memoryBudget) {
+      this.memoryBudget = memoryBudget;
+    }
+
+    void addDocument(QuickPulseDocument document, long estimatedBytes) {
+      synchronized (documentList) {
+        if (documentsReleased || documentList.size() >= MAX_DOCUMENTS_SIZE) {
+          return;
+        }
+        // documents are shed when the agent's memory budget is exceeded
+        if (memoryBudget.tryAcquire(estimatedBytes)) {
+          documentList.add(document);
+          documentBytes += estimatedBytes;
+        }
+      }
+    }
+
+    // after this, the documents are no longer held by these counters (but only by the
+    // FinalCounters that are being sent), and so no longer count against the memory budget
+    void releaseDocuments() {
+      synchronized (documentList) {
+        memoryBudget.release(documentBytes);
+        documentBytes = 0;
+        documentsReleased = true;
+      }
+    }
+
     static long encodeCountAndDuration(long count, long duration) {
       if (count > MAX_COUNT || duration > MAX_DURATION) {
         return 0;
@@ -25,6 +25,7 @@ import com.azure.core.http.HttpRequest;
 import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.model.QuickPulseEnvelope;
 import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.model.QuickPulseMetrics;
 import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.util.CustomCharacterEscapes;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.Strings;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -54,6 +55,8 @@ class QuickPulseDataFetcher {
 
   private final ArrayBlockingQueue<HttpRequest> sendQueue;
   private final QuickPulseNetworkHelper networkHelper = new QuickPulseNetworkHelper();
+  // posts count against the memory budget while they wait in the send queue
+  private final MemoryBudget memoryBudget = MemoryBudget.get();
 
   private final Supplier<URL> endpointUrl;
   private final Supplier<String> instrumentationKey;
@@ -109,7 +112,13 @@ class QuickPulseDataFetcher {
           networkHelper.buildRequest(currentDate, this.getEndpointUrl(endpointPrefix));
       request.setBody(buildPostEntity(counters));
 
+      long postSizeBytes = getPostSizeBytes(request);
+      if (!memoryBudget.tryAcquire(postSizeBytes)) {
+        logger.trace("Quick Pulse post dropped, the agent memory budget has been hit");
+        return;
+      }
       if (!sendQueue.offer(request)) {
+        memoryBudget.release(postSizeBytes);
         logger.trace("Quick Pulse send queue is full");
       }
     } catch (ThreadDeath td) {
@@ -125,6 +134,19 @@ class QuickPulseDataFetcher {
     }
   }
 
+  // the post body is held as encoded bytes, whose length is recorded in the Content-Length header
+  static long getPostSizeBytes(HttpRequest request) {
+    String contentLength = request.getHeaders().getValue("Content-Length");
+    if (contentLength == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(contentLength);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
   // visible for testing
   String getEndpointUrl(String endpointPrefix) {
     return endpointPrefix + "/post?ikey=" + instrumentationKey.get();
@@ -199,6 +221,17 @@ class QuickPulseDataFetcher {
         new QuickPulseMetrics("\\Memory\\Committed Bytes", counters.memoryCommitted, 1));
     metricsList.add(
         new QuickPulseMetrics("\\Processor(_Total)\\% Processor Time", counters.cpuUsage, 1));
+    // only available on Linux (and for throttling, only when there's a cpu limit)
+    if (counters.containerCpuThrottledPercentage != -1) {
+      metricsList.add(
+          new QuickPulseMetrics(
+              "\\Container\\% CPU Periods Throttled", counters.containerCpuThrottledPercentage, 1));
+    }
+    if (counters.containerMemoryWorkingSet != -1) {
+      metricsList.add(
+          new QuickPulseMetrics(
+              "\\Container\\Memory Working Set Bytes", counters.containerMemoryWorkingSet, 1));
+    }
 
     return metricsList;
   }
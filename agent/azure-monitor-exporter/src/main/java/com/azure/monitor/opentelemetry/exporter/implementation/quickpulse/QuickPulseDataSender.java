@@ -24,6 +24,7 @@ package com.azure.monitor.opentelemetry.exporter.implementation.quickpulse;
 import com.azure.core.http.HttpPipeline;
 import com.azure.core.http.HttpRequest;
 import com.azure.core.http.HttpResponse;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
 import java.util.concurrent.ArrayBlockingQueue;
 
 class QuickPulseDataSender implements Runnable {
@@ -34,6 +35,8 @@ class QuickPulseDataSender implements Runnable {
   private long lastValidTransmission = 0;
 
   private final ArrayBlockingQueue<HttpRequest> sendQueue;
+  // posts are counted against the memory budget by QuickPulseDataFetcher when they are queued
+  private final MemoryBudget memoryBudget = MemoryBudget.get();
 
   QuickPulseDataSender(HttpPipeline httpPipeline, ArrayBlockingQueue<HttpRequest> sendQueue) {
     this.httpPipeline = httpPipeline;
@@ -50,31 +53,38 @@ class QuickPulseDataSender implements Runnable {
         Thread.currentThread().interrupt();
         return;
       }
-      if (quickPulseHeaderInfo.getQuickPulseStatus() != QuickPulseStatus.QP_IS_ON) {
-        continue;
+      try {
+        send(post);
+      } finally {
+        memoryBudget.release(QuickPulseDataFetcher.getPostSizeBytes(post));
       }
+    }
+  }
 
-      long sendTime = System.nanoTime();
-      try (HttpResponse response = httpPipeline.send(post).block()) {
-        if (response == null) {
-          // this shouldn't happen, the mono should complete with a response or a failure
-          throw new AssertionError("http response mono returned empty");
-        }
+  private void send(HttpRequest post) {
+    if (quickPulseHeaderInfo.getQuickPulseStatus() != QuickPulseStatus.QP_IS_ON) {
+      return;
+    }
+
+    long sendTime = System.nanoTime();
+    try (HttpResponse response = httpPipeline.send(post).block()) {
+      if (response == null) {
+        // this shouldn't happen, the mono should complete with a response or a failure
+        throw new AssertionError("http response mono returned empty");
+      }
 
-        if (networkHelper.isSuccess(response)) {
-          QuickPulseHeaderInfo quickPulseHeaderInfo =
-              networkHelper.getQuickPulseHeaderInfo(response);
-          switch (quickPulseHeaderInfo.getQuickPulseStatus()) {
-            case QP_IS_OFF:
-            case QP_IS_ON:
-              lastValidTransmission = sendTime;
-              this.quickPulseHeaderInfo = quickPulseHeaderInfo;
-              break;
+      if (networkHelper.isSuccess(response)) {
+        QuickPulseHeaderInfo quickPulseHeaderInfo = networkHelper.getQuickPulseHeaderInfo(response);
+        switch (quickPulseHeaderInfo.getQuickPulseStatus()) {
+          case QP_IS_OFF:
+          case QP_IS_ON:
+            lastValidTransmission = sendTime;
+            this.quickPulseHeaderInfo = quickPulseHeaderInfo;
+            break;
 
-            case ERROR:
-              onPostError(sendTime);
-              break;
-          }
+          case ERROR:
+            onPostError(sendTime);
+            break;
         }
       }
     }
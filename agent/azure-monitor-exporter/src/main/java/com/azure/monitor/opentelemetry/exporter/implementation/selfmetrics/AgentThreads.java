@@ -0,0 +1,109 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// keeps track of the threads that are owned by the agent, so that the agent's own cpu and
+// allocation overhead can be measured
+public final class AgentThreads {
+
+  // the event loop threads of the agent's http client, which are created by reactor netty (with
+  // this prefix followed by e.g. "-nio-1" or "-epoll-1")
+  public static final String HTTP_CLIENT_THREAD_NAME_PREFIX = "applicationinsights-http";
+
+  // agent threads that aren't created by the agent's own code, so are identified by name instead
+  //
+  // note: an application that uses its own copy of the OpenTelemetry SDK will have its (same named)
+  // threads counted too
+  private static final String[] EXPORT_THREAD_NAME_PREFIXES = {
+    "BatchSpanProcessor_WorkerThread",
+    "BatchLogProcessor_WorkerThread",
+    "PeriodicMetricReader",
+    HTTP_CLIENT_THREAD_NAME_PREFIX + "-"
+  };
+  private static final String[] OTHER_THREAD_NAME_PREFIXES = {"azure-micrometer-publisher"};
+
+  // the values are whether the threads are on the export path, weak keys so that terminated
+  // threads don't need to be unregistered
+  private static final Map<Thread, Boolean> threads =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  public static void register(Thread thread) {
+    threads.put(thread, false);
+  }
+
+  // threads that map and send telemetry, which are used to calculate the allocation per exported
+  // item
+  public static void registerExportThread(Thread thread) {
+    threads.put(thread, true);
+  }
+
+  // returns the live agent threads, mapped to whether they are on the export path
+  public static Map<Thread, Boolean> getThreads() {
+    Map<Thread, Boolean> result = new HashMap<>();
+    synchronized (threads) {
+      for (Map.Entry<Thread, Boolean> entry : threads.entrySet()) {
+        if (entry.getKey().isAlive()) {
+          result.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    for (Thread thread : getAllThreads()) {
+      if (thread == null || result.containsKey(thread)) {
+        continue;
+      }
+      String name = thread.getName();
+      if (startsWithAny(name, EXPORT_THREAD_NAME_PREFIXES)) {
+        result.put(thread, true);
+      } else if (startsWithAny(name, OTHER_THREAD_NAME_PREFIXES)) {
+        result.put(thread, false);
+      }
+    }
+    return result;
+  }
+
+  private static Thread[] getAllThreads() {
+    ThreadGroup root = Thread.currentThread().getThreadGroup();
+    while (root.getParent() != null) {
+      root = root.getParent();
+    }
+    // enumerate() silently drops the threads that don't fit
+    Thread[] all = new Thread[root.activeCount() + 16];
+    root.enumerate(all, true);
+    return all;
+  }
+
+  private static boolean startsWithAny(String name, String[] prefixes) {
+    for (String prefix : prefixes) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private AgentThreads() {}
+}
@@ -0,0 +1,114 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// low-overhead latency histogram, recording is lock-free and allocation-free so that it can be
+// called on the hot path (including from application threads)
+//
+// bucket i holds the latencies in the range [2^(i-1), 2^i) microseconds (bucket 0 holds latencies
+// below one microsecond), so percentiles are only accurate to within a factor of two, which is
+// good enough for diagnosing where the time goes inside of the agent
+public final class LatencyHistogram {
+
+  // the last bucket holds everything above ~18 minutes
+  private static final int BUCKET_COUNT = 32;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      // e.g. clock adjustments when the latency is measured using wall clock time
+      nanos = 0;
+    }
+    buckets[getBucketIndex(nanos)].increment();
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public double getMeanMillis() {
+    long n = count.sum();
+    return n == 0 ? 0 : totalNanos.sum() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public double getMaxMillis() {
+    return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  // returns the upper bound of the bucket containing the given percentile (0-100)
+  public double getPercentileMillis(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        // the max is a tighter upper bound for the highest bucket
+        return Math.min(getBucketUpperBoundMillis(i), getMaxMillis());
+      }
+    }
+    return getMaxMillis();
+  }
+
+  static int getBucketIndex(long nanos) {
+    long micros = nanos / 1000;
+    // 64 - numberOfLeadingZeros is the number of bits needed to represent the value
+    return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+  }
+
+  private static double getBucketUpperBoundMillis(int index) {
+    return (1L << index) / 1000.0;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics;
+
+// the stages of the telemetry pipeline that are timed by SelfMetrics
+public enum PipelineStage {
+  // from when the span ends until it is passed to the exporter by the BatchSpanProcessor
+  SPAN_END_TO_EXPORT("spanEndToExport", "Span End To Export"),
+  // mapping the span to a telemetry item
+  SPAN_MAPPING("spanMapping", "Span Mapping"),
+  // from when an item is queued until it is dequeued by the export worker (this is sampled, one
+  // item at a time per queue)
+  QUEUE_WAIT("queueWait", "Queue Wait"),
+  // from when the first item of a batch is dequeued until the batch is exported
+  BATCH_WAIT("batchWait", "Batch Wait"),
+  // encoding (serializing and compressing) a batch
+  ENCODE("encode", "Encode"),
+  // sending a batch to the ingestion service, including redirects
+  HTTP_SEND("httpSend", "HTTP Send"),
+  // writing a batch to local storage
+  DISK_WRITE("diskWrite", "Disk Write");
+
+  private final String attributeName;
+  private final String displayName;
+
+  PipelineStage(String attributeName, String displayName) {
+    this.attributeName = attributeName;
+    this.displayName = displayName;
+  }
+
+  // used as the key in the JMX attributes
+  public String getAttributeName() {
+    return attributeName;
+  }
+
+  // used in the self-telemetry metric names
+  public String getDisplayName() {
+    return displayName;
+  }
+}
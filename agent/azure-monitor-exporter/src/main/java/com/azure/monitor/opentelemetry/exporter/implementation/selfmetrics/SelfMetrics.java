@@ -0,0 +1,172 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// the agent's own latency histograms, counters and gauges, so that export lag can be diagnosed
+// and queue sizes can be tuned in production
+//
+// these are exposed via JMX (see registerMBean) and optionally reported as telemetry
+public final class SelfMetrics implements SelfMetricsMXBean {
+
+  private static final Logger logger = LoggerFactory.getLogger(SelfMetrics.class);
+
+  private static final String JMX_OBJECT_NAME = "com.microsoft:type=AI-self-metrics";
+
+  private static final SelfMetrics INSTANCE = new SelfMetrics();
+
+  private final Map<PipelineStage, LatencyHistogram> latencyHistograms;
+  private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, DoubleSupplier> doubleGauges = new ConcurrentHashMap<>();
+
+  public static SelfMetrics get() {
+    return INSTANCE;
+  }
+
+  // visible for testing
+  SelfMetrics() {
+    Map<PipelineStage, LatencyHistogram> latencyHistograms = new EnumMap<>(PipelineStage.class);
+    for (PipelineStage stage : PipelineStage.values()) {
+      latencyHistograms.put(stage, new LatencyHistogram());
+    }
+    this.latencyHistograms = Collections.unmodifiableMap(latencyHistograms);
+  }
+
+  public void recordLatency(PipelineStage stage, long nanos) {
+    latencyHistograms.get(stage).record(nanos);
+  }
+
+  public Map<PipelineStage, LatencyHistogram> getLatencyHistograms() {
+    return latencyHistograms;
+  }
+
+  // callers on the hot path should hold onto the returned counter instead of looking it up each
+  // time
+  public LongAdder getCounter(String name) {
+    return counters.computeIfAbsent(name, k -> new LongAdder());
+  }
+
+  // the gauge is sampled only when read, replaces any existing gauge with the same name
+  public void registerGauge(String name, LongSupplier supplier) {
+    gauges.put(name, supplier);
+  }
+
+  // for gauges that are fractional (e.g. percentages), same semantics as registerGauge()
+  public void registerDoubleGauge(String name, DoubleSupplier supplier) {
+    doubleGauges.put(name, supplier);
+  }
+
+  @Override
+  public Map<String, Long> getLatencyCounts() {
+    Map<String, Long> values = new TreeMap<>();
+    for (Map.Entry<PipelineStage, LatencyHistogram> entry : latencyHistograms.entrySet()) {
+      values.put(entry.getKey().getAttributeName(), entry.getValue().getCount());
+    }
+    return values;
+  }
+
+  @Override
+  public Map<String, Double> getMeanLatencyMillis() {
+    return getLatencies(LatencyHistogram::getMeanMillis);
+  }
+
+  @Override
+  public Map<String, Double> getP50LatencyMillis() {
+    return getLatencies(histogram -> histogram.getPercentileMillis(50));
+  }
+
+  @Override
+  public Map<String, Double> getP99LatencyMillis() {
+    return getLatencies(histogram -> histogram.getPercentileMillis(99));
+  }
+
+  @Override
+  public Map<String, Double> getMaxLatencyMillis() {
+    return getLatencies(LatencyHistogram::getMaxMillis);
+  }
+
+  @Override
+  public Map<String, Long> getCounters() {
+    Map<String, Long> values = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().sum());
+    }
+    return values;
+  }
+
+  @Override
+  public Map<String, Long> getGauges() {
+    Map<String, Long> values = new TreeMap<>();
+    for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().getAsLong());
+    }
+    return values;
+  }
+
+  @Override
+  public Map<String, Double> getDoubleGauges() {
+    Map<String, Double> values = new TreeMap<>();
+    for (Map.Entry<String, DoubleSupplier> entry : doubleGauges.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().getAsDouble());
+    }
+    return values;
+  }
+
+  private Map<String, Double> getLatencies(ToDoubleFunction<LatencyHistogram> function) {
+    Map<String, Double> values = new TreeMap<>();
+    for (Map.Entry<PipelineStage, LatencyHistogram> entry : latencyHistograms.entrySet()) {
+      values.put(entry.getKey().getAttributeName(), function.applyAsDouble(entry.getValue()));
+    }
+    return values;
+  }
+
+  // this needs to be called after JBoss/Wildfly have had a chance to install their own JMX
+  // MBeanServerBuilder (see AfterAgentListener)
+  public static void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(JMX_OBJECT_NAME);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(INSTANCE, objectName);
+    } catch (Exception e) {
+      logger.warn("Failed to register self-metrics MBean", e);
+    }
+  }
+}
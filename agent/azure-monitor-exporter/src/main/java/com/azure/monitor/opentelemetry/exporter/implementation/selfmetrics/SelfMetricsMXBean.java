@@ -0,0 +1,49 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics;
+
+import java.util.Map;
+
+// This class name must end in MXBean (case sensitive)
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public interface SelfMetricsMXBean {
+
+  // Attributes, the latency maps are keyed by pipeline stage
+  Map<String, Long> getLatencyCounts();
+
+  Map<String, Double> getMeanLatencyMillis();
+
+  Map<String, Double> getP50LatencyMillis();
+
+  Map<String, Double> getP99LatencyMillis();
+
+  Map<String, Double> getMaxLatencyMillis();
+
+  // e.g. items, bytes and drops
+  Map<String, Long> getCounters();
+
+  // e.g. queue depths
+  Map<String, Long> getGauges();
+
+  // e.g. the agent's own cpu percentage
+  Map<String, Double> getDoubleGauges();
+}
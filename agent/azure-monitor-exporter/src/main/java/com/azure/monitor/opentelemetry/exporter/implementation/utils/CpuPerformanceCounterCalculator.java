@@ -36,6 +36,8 @@ public final class CpuPerformanceCounterCalculator {
 
   private static final RuntimeMXBean runtimeMxBean = ManagementFactory.getRuntimeMXBean();
 
+  @Nullable private static final LinuxProcStats linuxProcStats = LinuxProcStats.get();
+
   private long prevUpTime;
   private long prevProcessCpuTime;
 
@@ -68,6 +70,12 @@ public final class CpuPerformanceCounterCalculator {
   }
 
   private long getProcessCpuTime() throws Exception {
+    if (linuxProcStats != null) {
+      long processCpuTime = linuxProcStats.getProcessCpuTimeNanos();
+      if (processCpuTime != -1) {
+        return processCpuTime;
+      }
+    }
     MBeanServer bsvr = ManagementFactory.getPlatformMBeanServer();
     if (osBean == null) {
       osBean = ObjectName.getInstance(ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME);
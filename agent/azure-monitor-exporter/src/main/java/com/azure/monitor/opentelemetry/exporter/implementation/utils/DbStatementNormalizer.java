@@ -0,0 +1,143 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import javax.annotation.Nullable;
+
+// db statements (especially those generated by ORMs) are large strings that repeat over and over,
+// so the normalized form (whitespace collapsed and truncated) is cached and the same instance is
+// shared by every dependency that has the same statement
+//
+// optionally, only a fingerprint of the normalized statement is sent, which also reduces the
+// payload size
+public final class DbStatementNormalizer {
+
+  private static final DbStatementNormalizer DISABLED = new DbStatementNormalizer(0, false, 0);
+
+  // the raw statement is the cache key, so longer statements are normalized on every call instead
+  // of being retained by the cache
+  // visible for testing
+  static final int MAX_CACHED_STATEMENT_LENGTH = 8192;
+
+  private static volatile DbStatementNormalizer instance = DISABLED;
+
+  // null when caching is disabled
+  @Nullable private final Cache<String, String> cache;
+  private final boolean fingerprintOnly;
+  private final int maxLength;
+
+  // needs to be called before any spans are exported
+  public static void configure(int cacheSize, boolean fingerprintOnly, int maxLength) {
+    instance =
+        cacheSize > 0 || fingerprintOnly
+            ? new DbStatementNormalizer(cacheSize, fingerprintOnly, maxLength)
+            : DISABLED;
+  }
+
+  public static DbStatementNormalizer get() {
+    return instance;
+  }
+
+  // visible for testing
+  DbStatementNormalizer(int cacheSize, boolean fingerprintOnly, int maxLength) {
+    cache = cacheSize > 0 ? Cache.bounded(cacheSize) : null;
+    this.fingerprintOnly = fingerprintOnly;
+    this.maxLength = maxLength;
+  }
+
+  @Nullable
+  public String normalize(@Nullable String statement) {
+    if (statement == null || (cache == null && !fingerprintOnly)) {
+      return statement;
+    }
+    if (cache == null || statement.length() > MAX_CACHED_STATEMENT_LENGTH) {
+      return compute(statement);
+    }
+    return cache.computeIfAbsent(statement, this::compute);
+  }
+
+  private String compute(String statement) {
+    String normalized = collapseWhitespace(statement);
+    if (fingerprintOnly) {
+      return fingerprint(normalized);
+    }
+    if (normalized.length() > maxLength) {
+      return normalized.substring(0, maxLength);
+    }
+    return normalized;
+  }
+
+  // visible for testing
+  static String collapseWhitespace(String statement) {
+    int len = statement.length();
+    StringBuilder sb = null;
+    boolean pendingSpace = false;
+    int start = 0;
+    while (start < len && Character.isWhitespace(statement.charAt(start))) {
+      start++;
+    }
+    for (int i = start; i < len; i++) {
+      char c = statement.charAt(i);
+      if (Character.isWhitespace(c)) {
+        if (sb == null && (c != ' ' || pendingSpace)) {
+          // first change from the original statement
+          sb = new StringBuilder(len);
+          sb.append(statement, start, pendingSpace ? i - 1 : i);
+        }
+        pendingSpace = true;
+        continue;
+      }
+      if (sb != null) {
+        if (pendingSpace) {
+          sb.append(' ');
+        }
+        sb.append(c);
+      }
+      pendingSpace = false;
+    }
+    if (sb != null) {
+      return sb.toString();
+    }
+    if (pendingSpace) {
+      // only trailing (single space) whitespace needs to be removed
+      return statement.substring(start, len - 1);
+    }
+    return start == 0 ? statement : statement.substring(start);
+  }
+
+  // 64-bit FNV-1a, hex encoded
+  // visible for testing
+  static String fingerprint(String statement) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < statement.length(); i++) {
+      hash ^= statement.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    String hex = Long.toHexString(hash);
+    StringBuilder sb = new StringBuilder(16);
+    for (int i = hex.length(); i < 16; i++) {
+      sb.append('0');
+    }
+    return sb.append(hex).toString();
+  }
+}
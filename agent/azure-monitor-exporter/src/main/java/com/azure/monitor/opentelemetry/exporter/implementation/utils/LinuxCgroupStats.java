@@ -0,0 +1,264 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.bytes;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.parseLong;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.parseValue;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.sumValues;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// reads the cpu throttling, memory and i/o counters of the cgroup (v1 or v2) that this process
+// runs in, which in a container are the container's limits and usage, as opposed to the host's
+//
+// like LinuxProcStats, the files are kept open and are parsed without allocating
+public final class LinuxCgroupStats {
+
+  private static final Logger logger = LoggerFactory.getLogger(LinuxCgroupStats.class);
+
+  private static final String CGROUP_ROOT = "/sys/fs/cgroup";
+
+  // cgroup v1 reports no memory limit as (a page aligned) Long.MAX_VALUE
+  private static final long V1_UNLIMITED_THRESHOLD = Long.MAX_VALUE / 2;
+
+  private static final byte[] NR_PERIODS = bytes("nr_periods ");
+  private static final byte[] NR_THROTTLED = bytes("nr_throttled ");
+  private static final byte[] V2_THROTTLED_USEC = bytes("throttled_usec ");
+  private static final byte[] V1_THROTTLED_TIME = bytes("throttled_time ");
+  private static final byte[] V2_INACTIVE_FILE = bytes("inactive_file ");
+  // includes the descendant cgroups, same as memory.stat in v2
+  private static final byte[] V1_TOTAL_INACTIVE_FILE = bytes("total_inactive_file ");
+  private static final byte[] V2_READ_BYTES = bytes("rbytes=");
+  private static final byte[] V2_WRITE_BYTES = bytes("wbytes=");
+  private static final byte[] V1_READ_BYTES = bytes(" Read ");
+  private static final byte[] V1_WRITE_BYTES = bytes(" Write ");
+
+  @Nullable private static final LinuxCgroupStats INSTANCE = create();
+
+  private final boolean v2;
+
+  private final byte[] buffer = new byte[8192];
+
+  @Nullable private final RandomAccessFile cpuStat;
+  @Nullable private final RandomAccessFile memoryUsage;
+  @Nullable private final RandomAccessFile memoryLimit;
+  @Nullable private final RandomAccessFile memoryStat;
+  @Nullable private final RandomAccessFile ioStat;
+
+  // returns null when not running on Linux or when the cgroup files are not readable
+  @Nullable
+  public static LinuxCgroupStats get() {
+    return INSTANCE;
+  }
+
+  @Nullable
+  private static LinuxCgroupStats create() {
+    String osName = System.getProperty("os.name");
+    if (osName == null || !osName.toLowerCase(Locale.ROOT).startsWith("linux")) {
+      return null;
+    }
+    try {
+      List<String> cgroups =
+          Files.readAllLines(Paths.get("/proc/self/cgroup"), StandardCharsets.UTF_8);
+      // in hybrid mode the v2 hierarchy is mounted at /sys/fs/cgroup/unified, and the controllers
+      // are still on the v1 hierarchies
+      boolean v2 = new File(CGROUP_ROOT, "cgroup.controllers").exists();
+      LinuxCgroupStats stats = v2 ? createV2(cgroups) : createV1(cgroups);
+      if (stats.cpuStat == null && stats.memoryUsage == null) {
+        return null;
+      }
+      return stats;
+    } catch (IOException | RuntimeException e) {
+      logger.debug("Unable to read the cgroup counters", e);
+      return null;
+    }
+  }
+
+  private static LinuxCgroupStats createV2(List<String> cgroups) {
+    File dir = getCgroupDir(CGROUP_ROOT, getCgroupPath(cgroups, ""));
+    return new LinuxCgroupStats(
+        true,
+        open(dir, "cpu.stat"),
+        open(dir, "memory.current"),
+        open(dir, "memory.max"),
+        open(dir, "memory.stat"),
+        open(dir, "io.stat"));
+  }
+
+  private static LinuxCgroupStats createV1(List<String> cgroups) {
+    File cpuDir = getCgroupDir(CGROUP_ROOT + "/cpu", getCgroupPath(cgroups, "cpu"));
+    File memoryDir = getCgroupDir(CGROUP_ROOT + "/memory", getCgroupPath(cgroups, "memory"));
+    File blkioDir = getCgroupDir(CGROUP_ROOT + "/blkio", getCgroupPath(cgroups, "blkio"));
+    return new LinuxCgroupStats(
+        false,
+        open(cpuDir, "cpu.stat"),
+        open(memoryDir, "memory.usage_in_bytes"),
+        open(memoryDir, "memory.limit_in_bytes"),
+        open(memoryDir, "memory.stat"),
+        open(blkioDir, "blkio.throttle.io_service_bytes"));
+  }
+
+  // the lines of /proc/self/cgroup are "hierarchy-id:controllers:path", where the controllers are
+  // comma separated and are empty for the v2 hierarchy
+  @Nullable
+  static String getCgroupPath(List<String> cgroups, String controller) {
+    for (String line : cgroups) {
+      int first = line.indexOf(':');
+      int second = line.indexOf(':', first + 1);
+      if (first == -1 || second == -1) {
+        continue;
+      }
+      String controllers = line.substring(first + 1, second);
+      if (controller.isEmpty()
+          ? controllers.isEmpty()
+          : ("," + controllers + ",").contains("," + controller + ",")) {
+        return line.substring(second + 1);
+      }
+    }
+    return null;
+  }
+
+  // inside a container (with its own cgroup namespace, or with the cgroup mounted directly), the
+  // path is either "/" or doesn't exist under the mount, in which case the mount is the cgroup
+  private static File getCgroupDir(String mount, @Nullable String path) {
+    if (path != null && !path.equals("/")) {
+      File dir = new File(mount, path);
+      if (dir.isDirectory()) {
+        return dir;
+      }
+    }
+    return new File(mount);
+  }
+
+  @Nullable
+  private static RandomAccessFile open(File dir, String name) {
+    File file = new File(dir, name);
+    if (!file.canRead()) {
+      return null;
+    }
+    try {
+      return new RandomAccessFile(file, "r");
+    } catch (IOException e) {
+      logger.debug("Unable to read {}", file, e);
+      return null;
+    }
+  }
+
+  private LinuxCgroupStats(
+      boolean v2,
+      @Nullable RandomAccessFile cpuStat,
+      @Nullable RandomAccessFile memoryUsage,
+      @Nullable RandomAccessFile memoryLimit,
+      @Nullable RandomAccessFile memoryStat,
+      @Nullable RandomAccessFile ioStat) {
+    this.v2 = v2;
+    this.cpuStat = cpuStat;
+    this.memoryUsage = memoryUsage;
+    this.memoryLimit = memoryLimit;
+    this.memoryStat = memoryStat;
+    this.ioStat = ioStat;
+  }
+
+  // the number of cfs enforcement periods so far, or -1 if not available (e.g. no cpu limit)
+  public synchronized long getCpuPeriods() {
+    return parseValue(buffer, read(cpuStat), NR_PERIODS);
+  }
+
+  // the number of cfs enforcement periods in which the cgroup was throttled, or -1 if not
+  // available
+  public synchronized long getCpuThrottledPeriods() {
+    return parseValue(buffer, read(cpuStat), NR_THROTTLED);
+  }
+
+  // the total time that the cgroup was throttled, or -1 if not available
+  public synchronized long getCpuThrottledNanos() {
+    int len = read(cpuStat);
+    if (v2) {
+      long micros = parseValue(buffer, len, V2_THROTTLED_USEC);
+      return micros == -1 ? -1 : micros * 1000;
+    }
+    return parseValue(buffer, len, V1_THROTTLED_TIME);
+  }
+
+  // the memory used by the cgroup (including the page cache), or -1 if not available
+  public synchronized long getMemoryUsageBytes() {
+    return parseLong(buffer, read(memoryUsage), 0);
+  }
+
+  // the memory limit of the cgroup, or -1 if there is no limit
+  public synchronized long getMemoryLimitBytes() {
+    long limit = parseLong(buffer, read(memoryLimit), 0);
+    // v2 reports no limit as "max", which doesn't parse
+    return limit >= V1_UNLIMITED_THRESHOLD ? -1 : limit;
+  }
+
+  // the memory used by the cgroup excluding the page cache that can be reclaimed, which is what
+  // gets compared against the limit when deciding to oom kill (same as the kubernetes working
+  // set), or -1 if not available
+  public synchronized long getMemoryWorkingSetBytes() {
+    long usage = parseLong(buffer, read(memoryUsage), 0);
+    if (usage == -1) {
+      return -1;
+    }
+    long inactiveFile =
+        parseValue(buffer, read(memoryStat), v2 ? V2_INACTIVE_FILE : V1_TOTAL_INACTIVE_FILE);
+    if (inactiveFile == -1) {
+      return -1;
+    }
+    return Math.max(0, usage - inactiveFile);
+  }
+
+  // the bytes read from and written to block devices by the cgroup so far, or -1 if not available
+  public synchronized long getIoBytes() {
+    if (ioStat == null) {
+      return -1;
+    }
+    int len = read(ioStat);
+    // there are no lines for the devices that haven't been used yet
+    long readBytes = sumValues(buffer, len, v2 ? V2_READ_BYTES : V1_READ_BYTES);
+    long writeBytes = sumValues(buffer, len, v2 ? V2_WRITE_BYTES : V1_WRITE_BYTES);
+    return Math.max(0, readBytes) + Math.max(0, writeBytes);
+  }
+
+  private int read(@Nullable RandomAccessFile file) {
+    if (file == null) {
+      return 0;
+    }
+    try {
+      return ProcFileParser.read(file, buffer);
+    } catch (IOException e) {
+      logger.debug("Unable to read the cgroup counters", e);
+      return 0;
+    }
+  }
+}
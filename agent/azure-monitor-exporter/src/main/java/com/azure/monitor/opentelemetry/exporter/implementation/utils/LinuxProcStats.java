@@ -0,0 +1,231 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.bytes;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.indexOf;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.isDigit;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.lastIndexOf;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.parseLong;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.parseValue;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.readFully;
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.skipField;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// reads the process and system counters from /proc on Linux
+//
+// the files are kept open and are re-read from the start into reused buffers, and the numbers are
+// parsed directly from the bytes, so that the per-second polling done by live metrics doesn't
+// allocate (unlike going through JMX or OSHI)
+public final class LinuxProcStats {
+
+  private static final Logger logger = LoggerFactory.getLogger(LinuxProcStats.class);
+
+  // the clock ticks reported in /proc are in USER_HZ, which is part of the kernel ABI and is 100 on
+  // all architectures that the JVM runs on
+  private static final long CLOCK_TICKS_PER_SECOND = 100;
+  private static final long NANOS_PER_CLOCK_TICK = 1_000_000_000 / CLOCK_TICKS_PER_SECOND;
+  private static final long MILLIS_PER_CLOCK_TICK = 1_000 / CLOCK_TICKS_PER_SECOND;
+
+  private static final byte[] READ_BYTES = bytes("read_bytes:");
+  private static final byte[] WRITE_BYTES = bytes("write_bytes:");
+  private static final byte[] MEM_FREE = bytes("MemFree:");
+
+  // utime and stime are the 14th and 15th fields of /proc/self/stat, counting from the state
+  // field (the 3rd field) which is the first one after the command name
+  private static final int UTIME_FIELD_AFTER_COMMAND = 14 - 3;
+
+  @Nullable private static final LinuxProcStats INSTANCE = create();
+
+  private final byte[] buffer = new byte[8192];
+
+  private final RandomAccessFile selfStat;
+  @Nullable private final RandomAccessFile selfIo;
+  private final RandomAccessFile memInfo;
+  private final RandomAccessFile stat;
+
+  private final int cpuCount;
+
+  // returns null when not running on Linux or when /proc is not readable
+  @Nullable
+  public static LinuxProcStats get() {
+    return INSTANCE;
+  }
+
+  @Nullable
+  private static LinuxProcStats create() {
+    String osName = System.getProperty("os.name");
+    if (osName == null
+        || !osName.toLowerCase(Locale.ROOT).startsWith("linux")
+        || !new File("/proc/self/stat").canRead()) {
+      return null;
+    }
+    try {
+      return new LinuxProcStats();
+    } catch (IOException | RuntimeException e) {
+      logger.debug("Unable to read /proc, falling back to JMX and OSHI", e);
+      return null;
+    }
+  }
+
+  private LinuxProcStats() throws IOException {
+    selfStat = new RandomAccessFile("/proc/self/stat", "r");
+    memInfo = new RandomAccessFile("/proc/meminfo", "r");
+    stat = new RandomAccessFile("/proc/stat", "r");
+    // /proc/self/io is not readable in some restricted environments
+    RandomAccessFile selfIo;
+    try {
+      selfIo = new RandomAccessFile("/proc/self/io", "r");
+    } catch (IOException e) {
+      logger.debug("Unable to read /proc/self/io", e);
+      selfIo = null;
+    }
+    this.selfIo = selfIo;
+    cpuCount = countCpus(readFully(stat));
+
+    // fail fast if any of these can't be parsed
+    if (cpuCount == 0
+        || getProcessCpuTimeNanos() == -1
+        || getFreeMemoryBytes() == -1
+        || getTotalCpuMillis() == -1) {
+      throw new IllegalStateException("Unexpected /proc format");
+    }
+  }
+
+  // the cpu time (user + system) used by this process so far, or -1 if it cannot be read
+  public synchronized long getProcessCpuTimeNanos() {
+    int len = read(selfStat);
+    long ticks = parseProcessCpuTicks(buffer, len);
+    return ticks == -1 ? -1 : ticks * NANOS_PER_CLOCK_TICK;
+  }
+
+  // the bytes read from and written to storage by this process so far, or -1 if it cannot be read
+  public synchronized long getProcessIoBytes() {
+    if (selfIo == null) {
+      return -1;
+    }
+    int len = read(selfIo);
+    long readBytes = parseValue(buffer, len, READ_BYTES);
+    long writeBytes = parseValue(buffer, len, WRITE_BYTES);
+    if (readBytes == -1 || writeBytes == -1) {
+      return -1;
+    }
+    return readBytes + writeBytes;
+  }
+
+  // the free physical memory of the system (same as the JMX FreePhysicalMemorySize), or -1 if it
+  // cannot be read
+  public synchronized long getFreeMemoryBytes() {
+    int len = read(memInfo);
+    long kilobytes = parseValue(buffer, len, MEM_FREE);
+    return kilobytes == -1 ? -1 : kilobytes * 1024;
+  }
+
+  // the cpu time (user + system) used by the whole system so far, across all cpus, or -1 if it
+  // cannot be read
+  public synchronized long getTotalCpuMillis() {
+    int len = read(stat);
+    long ticks = parseTotalCpuTicks(buffer, len);
+    return ticks == -1 ? -1 : ticks * MILLIS_PER_CLOCK_TICK;
+  }
+
+  // the number of logical cpus of the system (as opposed to the number available to this process)
+  public int getCpuCount() {
+    return cpuCount;
+  }
+
+  // only the beginning of /proc/stat fits in the buffer, but that's where the aggregate "cpu" line
+  // is, the other files are smaller than the buffer
+  private int read(RandomAccessFile file) {
+    try {
+      return ProcFileParser.read(file, buffer);
+    } catch (IOException e) {
+      logger.debug("Unable to read /proc", e);
+      return 0;
+    }
+  }
+
+  // counts the "cpuN" lines (as opposed to the aggregate "cpu" line)
+  static int countCpus(byte[] bytes) {
+    int count = 0;
+    int lineStart = 0;
+    while (lineStart + 3 < bytes.length) {
+      if (bytes[lineStart] == 'c'
+          && bytes[lineStart + 1] == 'p'
+          && bytes[lineStart + 2] == 'u'
+          && isDigit(bytes[lineStart + 3])) {
+        count++;
+      }
+      int lineEnd = indexOf(bytes, bytes.length, (byte) '\n', lineStart);
+      if (lineEnd == -1) {
+        break;
+      }
+      lineStart = lineEnd + 1;
+    }
+    return count;
+  }
+
+  // utime + stime from /proc/self/stat
+  static long parseProcessCpuTicks(byte[] bytes, int len) {
+    // the command name is in parentheses and can itself contain spaces and parentheses
+    int pos = lastIndexOf(bytes, len, (byte) ')');
+    if (pos == -1) {
+      return -1;
+    }
+    pos++;
+    for (int i = 0; i < UTIME_FIELD_AFTER_COMMAND; i++) {
+      pos = skipField(bytes, len, pos);
+    }
+    long utime = parseLong(bytes, len, pos);
+    pos = skipField(bytes, len, pos);
+    long stime = parseLong(bytes, len, pos);
+    if (utime == -1 || stime == -1) {
+      return -1;
+    }
+    return utime + stime;
+  }
+
+  // user + system from the aggregate "cpu" line of /proc/stat (same as OSHI's USER and SYSTEM
+  // ticks)
+  static long parseTotalCpuTicks(byte[] bytes, int len) {
+    if (len < 4 || bytes[0] != 'c' || bytes[1] != 'p' || bytes[2] != 'u' || bytes[3] != ' ') {
+      return -1;
+    }
+    int pos = 3;
+    long user = parseLong(bytes, len, pos);
+    pos = skipField(bytes, len, pos);
+    // nice
+    pos = skipField(bytes, len, pos);
+    long system = parseLong(bytes, len, pos);
+    if (user == -1 || system == -1) {
+      return -1;
+    }
+    return user + system;
+  }
+}
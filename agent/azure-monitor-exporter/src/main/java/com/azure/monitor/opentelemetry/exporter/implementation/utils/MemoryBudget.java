@@ -0,0 +1,113 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// approximate accounting of the heap used by the agent's own queues and buffers (export queues,
+// in-flight export payloads, pooled export buffers, live metrics documents and posts, ...), so that
+// a single configurable budget applies across all of them
+//
+// every component sheds once the budget is hit (e.g. export queues drop telemetry, and exports
+// that would exceed the budget are written to disk instead of being sent), so the budget is not
+// exceeded by more than the rounding in the size estimates (see TelemetryItemSizeEstimator)
+public final class MemoryBudget {
+
+  private static final MemoryBudget UNLIMITED = new MemoryBudget(0);
+
+  private static volatile MemoryBudget instance = UNLIMITED;
+
+  // 0 means unlimited, in which case no accounting is performed
+  private final long maxBytes;
+
+  private final AtomicLong usedBytes = new AtomicLong();
+
+  // needs to be called before any of the components that use the memory budget are initialized,
+  // since those components hold onto the instance returned by get()
+  public static void configure(long maxBytes) {
+    instance = maxBytes > 0 ? new MemoryBudget(maxBytes) : UNLIMITED;
+  }
+
+  public static MemoryBudget get() {
+    return instance;
+  }
+
+  // visible for testing
+  MemoryBudget(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  // returns false if the budget would be exceeded, in which case the caller should shed
+  public boolean tryAcquire(long bytes) {
+    if (maxBytes == 0) {
+      return true;
+    }
+    while (true) {
+      long current = usedBytes.get();
+      if (current + bytes > maxBytes) {
+        return false;
+      }
+      if (usedBytes.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  // swaps bytes that are already held for other bytes in one step, e.g. the estimated size of
+  // telemetry items for the size of their encoded payload, so that other callers can't use up the
+  // budget in between, the held bytes are released whether or not the swap succeeds
+  public boolean tryExchange(long heldBytes, long bytes) {
+    if (maxBytes == 0) {
+      return true;
+    }
+    while (true) {
+      long current = usedBytes.get();
+      long next = current - heldBytes + bytes;
+      if (bytes > heldBytes && next > maxBytes) {
+        release(heldBytes);
+        return false;
+      }
+      if (usedBytes.compareAndSet(current, next)) {
+        return true;
+      }
+    }
+  }
+
+  public void release(long bytes) {
+    if (maxBytes != 0) {
+      usedBytes.addAndGet(-bytes);
+    }
+  }
+
+  // callers can skip estimating sizes when the budget is not enabled
+  public boolean isEnabled() {
+    return maxBytes != 0;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public long getUsedBytes() {
+    return usedBytes.get();
+  }
+}
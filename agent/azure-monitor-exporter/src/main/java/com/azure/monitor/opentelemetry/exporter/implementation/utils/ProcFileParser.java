@@ -0,0 +1,162 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+// reads /proc and /sys/fs/cgroup files into a reused buffer, and parses the numbers directly from
+// the bytes, so that polling them doesn't allocate
+final class ProcFileParser {
+
+  // reads from the start of the file, up to the size of the buffer
+  static int read(RandomAccessFile file, byte[] buffer) throws IOException {
+    file.seek(0);
+    int len = 0;
+    int n;
+    while (len < buffer.length && (n = file.read(buffer, len, buffer.length - len)) != -1) {
+      len += n;
+    }
+    return len;
+  }
+
+  static byte[] readFully(RandomAccessFile file) throws IOException {
+    // the size of these files is reported as 0, so need to read until the end
+    file.seek(0);
+    byte[] bytes = new byte[8192];
+    int len = 0;
+    int n;
+    while ((n = file.read(bytes, len, bytes.length - len)) != -1) {
+      len += n;
+      if (len == bytes.length) {
+        byte[] grown = new byte[bytes.length * 2];
+        System.arraycopy(bytes, 0, grown, 0, len);
+        bytes = grown;
+      }
+    }
+    byte[] result = new byte[len];
+    System.arraycopy(bytes, 0, result, 0, len);
+    return result;
+  }
+
+  // parses the number following the given key (e.g. "MemFree:" in /proc/meminfo), the key needs
+  // to be at the start of a line
+  static long parseValue(byte[] bytes, int len, byte[] key) {
+    int lineStart = 0;
+    while (lineStart < len) {
+      if (startsWith(bytes, len, lineStart, key)) {
+        return parseLong(bytes, len, lineStart + key.length);
+      }
+      int lineEnd = indexOf(bytes, len, (byte) '\n', lineStart);
+      if (lineEnd == -1) {
+        return -1;
+      }
+      lineStart = lineEnd + 1;
+    }
+    return -1;
+  }
+
+  // sums the numbers following each occurrence of the given key (e.g. "rbytes=" in io.stat),
+  // returns -1 if there are none
+  static long sumValues(byte[] bytes, int len, byte[] key) {
+    long sum = -1;
+    for (int pos = 0; pos <= len - key.length; pos++) {
+      if (startsWith(bytes, len, pos, key)) {
+        long value = parseLong(bytes, len, pos + key.length);
+        if (value != -1) {
+          sum = (sum == -1 ? 0 : sum) + value;
+        }
+        pos += key.length - 1;
+      }
+    }
+    return sum;
+  }
+
+  // parses the non-negative number at the given position, skipping leading spaces, returns -1 if
+  // there is no number there
+  static long parseLong(byte[] bytes, int len, int pos) {
+    while (pos < len && bytes[pos] == ' ') {
+      pos++;
+    }
+    if (pos >= len || !isDigit(bytes[pos])) {
+      return -1;
+    }
+    long value = 0;
+    while (pos < len && isDigit(bytes[pos])) {
+      value = value * 10 + (bytes[pos] - '0');
+      pos++;
+    }
+    return value;
+  }
+
+  // returns the position after the (space separated) field at the given position
+  static int skipField(byte[] bytes, int len, int pos) {
+    while (pos < len && bytes[pos] == ' ') {
+      pos++;
+    }
+    while (pos < len && bytes[pos] != ' ' && bytes[pos] != '\n') {
+      pos++;
+    }
+    return pos;
+  }
+
+  static boolean startsWith(byte[] bytes, int len, int pos, byte[] prefix) {
+    if (pos + prefix.length > len) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[pos + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static int indexOf(byte[] bytes, int len, byte b, int from) {
+    for (int i = from; i < len; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static int lastIndexOf(byte[] bytes, int len, byte b) {
+    for (int i = len - 1; i >= 0; i--) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  static byte[] bytes(String str) {
+    return str.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private ProcFileParser() {}
+}
@@ -0,0 +1,132 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.SelfMetrics;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+// deduplicates the strings of low-cardinality telemetry fields (operation names, dependency
+// types, property keys, metric dimensions, ...), so that the telemetry items sitting in the export
+// queues share a single instance of each instead of each carrying their own copy
+//
+// this is a direct-mapped table (each string can only live in the slot that its hash maps to), so
+// it never grows beyond its initial size and never needs locking, at the cost of colliding strings
+// evicting each other
+public final class StringInterner {
+
+  private static final StringInterner DISABLED =
+      new StringInterner(0, new LongAdder(), new LongAdder());
+
+  private static volatile StringInterner instance = DISABLED;
+
+  // null when disabled
+  @Nullable private final AtomicReferenceArray<String> table;
+  private final int mask;
+
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder hits;
+  private final LongAdder misses;
+
+  // needs to be called before any telemetry is created
+  public static void configure(int maxSize) {
+    if (maxSize <= 0) {
+      instance = DISABLED;
+      return;
+    }
+    SelfMetrics selfMetrics = SelfMetrics.get();
+    StringInterner interner =
+        new StringInterner(
+            maxSize,
+            selfMetrics.getCounter("stringInternHits"),
+            selfMetrics.getCounter("stringInternMisses"));
+    selfMetrics.registerGauge("stringInternTableSize", interner::getSize);
+    instance = interner;
+  }
+
+  public static StringInterner get() {
+    return instance;
+  }
+
+  // visible for testing
+  StringInterner(int maxSize, LongAdder hits, LongAdder misses) {
+    if (maxSize > 0) {
+      // round down to a power of two, so that the slot can be computed with a mask
+      int capacity = Integer.highestOneBit(maxSize);
+      table = new AtomicReferenceArray<>(capacity);
+      mask = capacity - 1;
+    } else {
+      table = null;
+      mask = 0;
+    }
+    this.hits = hits;
+    this.misses = misses;
+  }
+
+  // returns the previously seen instance that is equal to the value, if there is one, otherwise
+  // remembers and returns the value itself
+  @Nullable
+  public String intern(@Nullable String value) {
+    if (table == null || value == null) {
+      return value;
+    }
+    int hash = value.hashCode();
+    // spread the higher bits, since only the lower bits are used to select the slot
+    int index = (hash ^ (hash >>> 16)) & mask;
+    String existing = table.get(index);
+    if (existing != null && existing.equals(value)) {
+      hits.increment();
+      return existing;
+    }
+    misses.increment();
+    // an existing (colliding) value is replaced, since the most recent value is the more likely to
+    // be seen again
+    if (table.compareAndSet(index, existing, value) && existing == null) {
+      size.incrementAndGet();
+    }
+    return value;
+  }
+
+  public boolean isEnabled() {
+    return table != null;
+  }
+
+  public long getSize() {
+    return size.get();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.AvailabilityData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MessageData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricDataPoint;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorBase;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorDomain;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.PageViewData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RemoteDependencyData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RequestData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.StackFrame;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryEventData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryExceptionData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryExceptionDetails;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+// estimates the heap used by a telemetry item, which is what is counted against the agent's memory
+// budget while the telemetry item is queued
+//
+// this walks the strings and maps that make up the bulk of a telemetry item, without serializing
+// it, and errs on the high side (e.g. two bytes per character, even though most strings are stored
+// with one byte per character on Java 9+), the estimate is deterministic, so the same estimate can
+// be computed again when releasing the memory
+public final class TelemetryItemSizeEstimator {
+
+  // telemetry item, monitor base, domain object, and the (empty) tags and properties maps
+  private static final long BASE_SIZE = 512;
+  // object header, fields and backing array header
+  private static final long STRING_OVERHEAD = 40;
+  // hash map node, plus its share of the hash map table
+  private static final long MAP_ENTRY_OVERHEAD = 48;
+  // boxed double
+  private static final long MEASUREMENT_VALUE_SIZE = 16;
+  private static final long METRIC_DATA_POINT_SIZE = 96;
+  private static final long EXCEPTION_DETAILS_SIZE = 64;
+  private static final long STACK_FRAME_SIZE = 48;
+
+  public static long estimate(TelemetryItem item) {
+    long size = BASE_SIZE;
+    size += estimateString(item.getName());
+    size += estimateString(item.getInstrumentationKey());
+    size += estimateStringMap(item.getTags());
+    MonitorBase data = item.getData();
+    if (data != null) {
+      size += estimateString(data.getBaseType());
+      size += estimateData(data.getBaseData());
+    }
+    return size;
+  }
+
+  private static long estimateData(@Nullable MonitorDomain data) {
+    if (data instanceof MessageData) {
+      MessageData messageData = (MessageData) data;
+      return estimateString(messageData.getMessage())
+          + estimateStringMap(messageData.getProperties())
+          + estimateMeasurements(messageData.getMeasurements());
+    }
+    if (data instanceof RequestData) {
+      RequestData requestData = (RequestData) data;
+      return estimateString(requestData.getId())
+          + estimateString(requestData.getName())
+          + estimateString(requestData.getDuration())
+          + estimateString(requestData.getResponseCode())
+          + estimateString(requestData.getSource())
+          + estimateString(requestData.getUrl())
+          + estimateStringMap(requestData.getProperties())
+          + estimateMeasurements(requestData.getMeasurements());
+    }
+    if (data instanceof RemoteDependencyData) {
+      RemoteDependencyData dependencyData = (RemoteDependencyData) data;
+      return estimateString(dependencyData.getId())
+          + estimateString(dependencyData.getName())
+          + estimateString(dependencyData.getResultCode())
+          + estimateString(dependencyData.getData())
+          + estimateString(dependencyData.getType())
+          + estimateString(dependencyData.getTarget())
+          + estimateString(dependencyData.getDuration())
+          + estimateStringMap(dependencyData.getProperties())
+          + estimateMeasurements(dependencyData.getMeasurements());
+    }
+    if (data instanceof TelemetryExceptionData) {
+      TelemetryExceptionData exceptionData = (TelemetryExceptionData) data;
+      return estimateExceptions(exceptionData.getExceptions())
+          + estimateString(exceptionData.getProblemId())
+          + estimateStringMap(exceptionData.getProperties())
+          + estimateMeasurements(exceptionData.getMeasurements());
+    }
+    if (data instanceof MetricsData) {
+      MetricsData metricsData = (MetricsData) data;
+      return estimateMetrics(metricsData.getMetrics())
+          + estimateStringMap(metricsData.getProperties());
+    }
+    if (data instanceof TelemetryEventData) {
+      TelemetryEventData eventData = (TelemetryEventData) data;
+      return estimateString(eventData.getName())
+          + estimateStringMap(eventData.getProperties())
+          + estimateMeasurements(eventData.getMeasurements());
+    }
+    if (data instanceof PageViewData) {
+      PageViewData pageViewData = (PageViewData) data;
+      return estimateString(pageViewData.getId())
+          + estimateString(pageViewData.getName())
+          + estimateString(pageViewData.getUrl())
+          + estimateString(pageViewData.getDuration())
+          + estimateString(pageViewData.getReferredUri())
+          + estimateStringMap(pageViewData.getProperties())
+          + estimateMeasurements(pageViewData.getMeasurements());
+    }
+    if (data instanceof AvailabilityData) {
+      AvailabilityData availabilityData = (AvailabilityData) data;
+      return estimateString(availabilityData.getId())
+          + estimateString(availabilityData.getName())
+          + estimateString(availabilityData.getDuration())
+          + estimateString(availabilityData.getRunLocation())
+          + estimateString(availabilityData.getMessage())
+          + estimateStringMap(availabilityData.getProperties())
+          + estimateMeasurements(availabilityData.getMeasurements());
+    }
+    return 0;
+  }
+
+  private static long estimateExceptions(@Nullable List<TelemetryExceptionDetails> exceptions) {
+    if (exceptions == null) {
+      return 0;
+    }
+    long size = 0;
+    for (TelemetryExceptionDetails exception : exceptions) {
+      size += EXCEPTION_DETAILS_SIZE;
+      size += estimateString(exception.getTypeName());
+      size += estimateString(exception.getMessage());
+      size += estimateString(exception.getStack());
+      List<StackFrame> parsedStack = exception.getParsedStack();
+      if (parsedStack != null) {
+        for (StackFrame frame : parsedStack) {
+          size += STACK_FRAME_SIZE;
+          size += estimateString(frame.getMethod());
+          size += estimateString(frame.getAssembly());
+          size += estimateString(frame.getFileName());
+        }
+      }
+    }
+    return size;
+  }
+
+  private static long estimateMetrics(@Nullable List<MetricDataPoint> metrics) {
+    if (metrics == null) {
+      return 0;
+    }
+    long size = 0;
+    for (MetricDataPoint metric : metrics) {
+      size += METRIC_DATA_POINT_SIZE;
+      size += estimateString(metric.getNamespace());
+      size += estimateString(metric.getName());
+    }
+    return size;
+  }
+
+  private static long estimateStringMap(@Nullable Map<String, String> map) {
+    if (map == null) {
+      return 0;
+    }
+    long size = 0;
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      size += MAP_ENTRY_OVERHEAD;
+      size += estimateString(entry.getKey());
+      size += estimateString(entry.getValue());
+    }
+    return size;
+  }
+
+  private static long estimateMeasurements(@Nullable Map<String, Double> measurements) {
+    if (measurements == null) {
+      return 0;
+    }
+    long size = 0;
+    for (String key : measurements.keySet()) {
+      size += MAP_ENTRY_OVERHEAD + estimateString(key) + MEASUREMENT_VALUE_SIZE;
+    }
+    return size;
+  }
+
+  private static long estimateString(@Nullable String str) {
+    return str == null ? 0 : STRING_OVERHEAD + 2L * str.length();
+  }
+
+  private TelemetryItemSizeEstimator() {}
+}
@@ -21,6 +21,7 @@
 
 package com.azure.monitor.opentelemetry.exporter.implementation.utils;
 
+import com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics.AgentThreads;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -49,6 +50,7 @@ public final class ThreadPoolUtils {
         Thread thread = new Thread(r);
         thread.setName(String.format("%s-%d", poolName, threadId.getAndIncrement()));
         thread.setDaemon(true);
+        AgentThreads.register(thread);
         return thread;
       }
     };
@@ -0,0 +1,230 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricDataPoint;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.InstrumentSelector;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.View;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.internal.view.ExponentialHistogramAggregation;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MetricDataMapperTest {
+
+  private static final AttributeKey<String> USER_ID = AttributeKey.stringKey("user.id");
+
+  private InMemoryMetricReader metricReader;
+  private Meter meter;
+
+  @BeforeEach
+  void setUp() {
+    metricReader = InMemoryMetricReader.createDelta();
+    meter =
+        SdkMeterProvider.builder()
+            .registerMetricReader(metricReader)
+            .registerView(
+                InstrumentSelector.builder().setName("exponential.*").build(),
+                View.builder().setAggregation(ExponentialHistogramAggregation.getDefault()).build())
+            .build()
+            .get("MetricDataMapperTest");
+  }
+
+  @Test
+  void doesNotLimitByDefault() {
+    LongCounter counter = meter.counterBuilder("requests").build();
+    for (int i = 0; i < 10; i++) {
+      counter.add(1, Attributes.of(USER_ID, "user" + i));
+    }
+
+    assertThat(map(new MetricDataMapper((builder, resource) -> {}))).hasSize(10);
+  }
+
+  @Test
+  void foldsSeriesBeyondLimitIntoOverflowPoint() {
+    MetricDataMapper mapper = new MetricDataMapper((builder, resource) -> {}, 2);
+    LongCounter counter = meter.counterBuilder("requests").build();
+    for (int i = 0; i < 5; i++) {
+      counter.add(i + 1, Attributes.of(USER_ID, "user" + i));
+    }
+
+    List<TelemetryItem> items = map(mapper);
+
+    assertThat(items).hasSize(3);
+    List<TelemetryItem> overflow = getOverflowItems(items);
+    assertThat(overflow).hasSize(1);
+    MetricDataPoint point = getPoint(overflow.get(0));
+    assertThat(point.getName()).isEqualTo("requests");
+    assertThat(getProperties(overflow.get(0))).doesNotContainKey("user.id");
+    // nothing is lost, the values of the three series beyond the limit are added up
+    double total = items.stream().mapToDouble(item -> getPoint(item).getValue()).sum();
+    assertThat(total).isEqualTo(15.0);
+  }
+
+  @Test
+  void keepsReportingAdmittedSeries() {
+    MetricDataMapper mapper = new MetricDataMapper((builder, resource) -> {}, 1);
+    LongCounter counter = meter.counterBuilder("requests").build();
+    counter.add(1, Attributes.of(USER_ID, "first"));
+    assertThat(getOverflowItems(map(mapper))).isEmpty();
+
+    counter.add(1, Attributes.of(USER_ID, "second"));
+    counter.add(1, Attributes.of(USER_ID, "first"));
+    List<TelemetryItem> items = map(mapper);
+
+    assertThat(items).hasSize(2);
+    assertThat(getOverflowItems(items)).hasSize(1);
+    assertThat(items)
+        .anySatisfy(item -> assertThat(getProperties(item)).containsEntry("user.id", "first"));
+  }
+
+  @Test
+  void forgetsSeriesNotSeenForSeveralExports() {
+    MetricDataMapper mapper = new MetricDataMapper((builder, resource) -> {}, 1);
+    LongCounter counter = meter.counterBuilder("requests").build();
+    counter.add(1, Attributes.of(USER_ID, "first"));
+    assertThat(getOverflowItems(map(mapper))).isEmpty();
+
+    for (int i = 0; i < MetricDataMapper.SERIES_EXPIRY_EXPORTS; i++) {
+      counter.add(1, Attributes.of(USER_ID, "second"));
+      assertThat(getOverflowItems(map(mapper))).hasSize(1);
+    }
+
+    // "first" has not been seen for more than SERIES_EXPIRY_EXPORTS exports
+    counter.add(1, Attributes.of(USER_ID, "second"));
+    List<TelemetryItem> items = map(mapper);
+
+    assertThat(items).hasSize(1);
+    assertThat(getOverflowItems(items)).isEmpty();
+    assertThat(getProperties(items.get(0))).containsEntry("user.id", "second");
+  }
+
+  @Test
+  void aggregatesOverflowHistograms() {
+    MetricDataMapper mapper = new MetricDataMapper((builder, resource) -> {}, 1);
+    DoubleHistogram histogram = meter.histogramBuilder("duration").build();
+    histogram.record(1, Attributes.of(USER_ID, "first"));
+    map(mapper);
+
+    histogram.record(2, Attributes.of(USER_ID, "second"));
+    histogram.record(8, Attributes.of(USER_ID, "third"));
+    histogram.record(4, Attributes.of(USER_ID, "third"));
+    List<TelemetryItem> items = map(mapper);
+
+    assertThat(items).hasSize(1);
+    MetricDataPoint point = getPoint(items.get(0));
+    assertThat(getProperties(items.get(0))).containsEntry("otel.metric.overflow", "true");
+    assertThat(point.getCount()).isEqualTo(3);
+    assertThat(point.getValue()).isEqualTo(14.0);
+    assertThat(point.getMin()).isEqualTo(2.0);
+    assertThat(point.getMax()).isEqualTo(8.0);
+  }
+
+  @Test
+  void mapsExponentialHistograms() {
+    DoubleHistogram histogram = meter.histogramBuilder("exponential.duration").build();
+    histogram.record(1);
+    histogram.record(2);
+    histogram.record(4);
+    histogram.record(100);
+
+    List<TelemetryItem> items = map(new MetricDataMapper((builder, resource) -> {}));
+
+    assertThat(items).hasSize(1);
+    MetricDataPoint point = getPoint(items.get(0));
+    assertThat(point.getName()).isEqualTo("exponential.duration");
+    assertThat(point.getCount()).isEqualTo(4);
+    assertThat(point.getValue()).isEqualTo(107.0);
+    // estimated from the bucket boundaries
+    assertThat(point.getMin()).isCloseTo(1.0, withinPercentage(5));
+    assertThat(point.getMax()).isCloseTo(100.0, withinPercentage(5));
+  }
+
+  @Test
+  void clampsEstimatedExponentialHistogramMinAndMax() {
+    DoubleHistogram histogram = meter.histogramBuilder("exponential.duration").build();
+    // far enough apart that the SDK has to downscale, making the buckets very wide
+    histogram.record(1);
+    histogram.record(1e30);
+
+    List<TelemetryItem> items = map(new MetricDataMapper((builder, resource) -> {}));
+
+    MetricDataPoint point = getPoint(items.get(0));
+    // with no negative values, the max can't exceed the sum
+    assertThat(point.getMax()).isLessThanOrEqualTo(point.getValue());
+    assertThat(point.getMin()).isLessThanOrEqualTo(point.getValue() / point.getCount());
+  }
+
+  @Test
+  void mapsSingleValueExponentialHistogramExactly() {
+    DoubleHistogram histogram = meter.histogramBuilder("exponential.duration").build();
+    histogram.record(42);
+
+    List<TelemetryItem> items = map(new MetricDataMapper((builder, resource) -> {}));
+
+    MetricDataPoint point = getPoint(items.get(0));
+    assertThat(point.getMin()).isEqualTo(42.0);
+    assertThat(point.getMax()).isEqualTo(42.0);
+  }
+
+  private List<TelemetryItem> map(MetricDataMapper mapper) {
+    List<TelemetryItem> items = new ArrayList<>();
+    for (MetricData metricData : metricReader.collectAllMetrics()) {
+      mapper.map(metricData, items::add);
+    }
+    return items;
+  }
+
+  private static List<TelemetryItem> getOverflowItems(List<TelemetryItem> items) {
+    List<TelemetryItem> overflow = new ArrayList<>();
+    for (TelemetryItem item : items) {
+      if ("true".equals(getProperties(item).get("otel.metric.overflow"))) {
+        overflow.add(item);
+      }
+    }
+    return overflow;
+  }
+
+  private static Map<String, String> getProperties(TelemetryItem item) {
+    return ((MetricsData) item.getData().getBaseData()).getProperties();
+  }
+
+  private static MetricDataPoint getPoint(TelemetryItem item) {
+    return ((MetricsData) item.getData().getBaseData()).getMetrics().get(0);
+  }
+}
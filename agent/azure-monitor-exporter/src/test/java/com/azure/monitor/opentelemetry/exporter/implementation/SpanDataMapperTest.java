@@ -0,0 +1,285 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.ContextTagKeys;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RemoteDependencyData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.AttributeType;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.sdk.testing.trace.TestSpanData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class SpanDataMapperTest {
+
+  @Test
+  void shouldAppendNonDefaultPortToTarget() {
+    Attributes attributes =
+        Attributes.builder()
+            .put(SemanticAttributes.NET_PEER_NAME, "example.com")
+            .put(SemanticAttributes.NET_PEER_PORT, 8080L)
+            .build();
+
+    String target = SpanDataMapper.getDependencyTarget(SpanKind.CLIENT, attributes);
+    String cachedTarget = SpanDataMapper.getDependencyTarget(SpanKind.CLIENT, attributes);
+
+    assertThat(target).isEqualTo("example.com:8080");
+    // the target is only built once per (host, port)
+    assertThat(cachedTarget).isSameAs(target);
+  }
+
+  @Test
+  void shouldDistinguishTargetsByPort() {
+    String target1 =
+        SpanDataMapper.getDependencyTarget(
+            SpanKind.CLIENT,
+            Attributes.builder()
+                .put(SemanticAttributes.NET_PEER_IP, "10.0.0.1")
+                .put(SemanticAttributes.NET_PEER_PORT, 1234L)
+                .build());
+    String target2 =
+        SpanDataMapper.getDependencyTarget(
+            SpanKind.CLIENT,
+            Attributes.builder()
+                .put(SemanticAttributes.NET_PEER_IP, "10.0.0.1")
+                .put(SemanticAttributes.NET_PEER_PORT, 5678L)
+                .build());
+
+    assertThat(target1).isEqualTo("10.0.0.1:1234");
+    assertThat(target2).isEqualTo("10.0.0.1:5678");
+  }
+
+  @Test
+  void shouldOmitDefaultPortFromHttpTarget() {
+    Attributes attributes =
+        Attributes.builder()
+            .put(SemanticAttributes.HTTP_METHOD, "GET")
+            .put(SemanticAttributes.HTTP_SCHEME, "https")
+            .put(SemanticAttributes.NET_PEER_NAME, "example.com")
+            .put(SemanticAttributes.NET_PEER_PORT, 443L)
+            .build();
+
+    assertThat(SpanDataMapper.getDependencyTarget(SpanKind.CLIENT, attributes))
+        .isEqualTo("example.com");
+  }
+
+  @Test
+  void shouldOmitDefaultPortFromHttpHostTarget() {
+    Attributes attributes =
+        Attributes.builder()
+            .put(SemanticAttributes.HTTP_METHOD, "GET")
+            .put(SemanticAttributes.HTTP_SCHEME, "https")
+            .put(SemanticAttributes.HTTP_HOST, "example.com:443")
+            .build();
+
+    String target = SpanDataMapper.getDependencyTarget(SpanKind.CLIENT, attributes);
+    String cachedTarget = SpanDataMapper.getDependencyTarget(SpanKind.CLIENT, attributes);
+
+    assertThat(target).isEqualTo("example.com");
+    // the target is only built once per (http.host, http.scheme)
+    assertThat(cachedTarget).isSameAs(target);
+  }
+
+  @Test
+  void shouldKeepNonDefaultPortInHttpHostTarget() {
+    Attributes attributes =
+        Attributes.builder()
+            .put(SemanticAttributes.HTTP_METHOD, "GET")
+            .put(SemanticAttributes.HTTP_SCHEME, "http")
+            .put(SemanticAttributes.HTTP_HOST, "example.com:443")
+            .build();
+
+    assertThat(SpanDataMapper.getDependencyTarget(SpanKind.CLIENT, attributes))
+        .isEqualTo("example.com:443");
+  }
+
+  @Test
+  void shouldPreferHttpUrlForServerSpans() {
+    Attributes attributes =
+        Attributes.builder()
+            .put(SemanticAttributes.HTTP_URL, "https://example.com/path?q=1")
+            .put(SemanticAttributes.HTTP_SCHEME, "http")
+            .put(SemanticAttributes.HTTP_HOST, "other.com")
+            .put(SemanticAttributes.HTTP_TARGET, "/other")
+            .build();
+
+    assertThat(SpanDataMapper.getHttpUrlFromServerSpan(attributes))
+        .isEqualTo("https://example.com/path?q=1");
+  }
+
+  @Test
+  void shouldBuildHttpUrlForServerSpans() {
+    Attributes attributes =
+        Attributes.builder()
+            .put(SemanticAttributes.HTTP_SCHEME, "https")
+            .put(SemanticAttributes.HTTP_HOST, "example.com:8443")
+            .put(SemanticAttributes.HTTP_TARGET, "/path?q=1")
+            .build();
+
+    assertThat(SpanDataMapper.getHttpUrlFromServerSpan(attributes))
+        .isEqualTo("https://example.com:8443/path?q=1");
+  }
+
+  @Test
+  void shouldNotBuildHttpUrlForServerSpansWithMissingAttributes() {
+    assertThat(
+            SpanDataMapper.getHttpUrlFromServerSpan(
+                Attributes.builder()
+                    .put(SemanticAttributes.HTTP_HOST, "example.com")
+                    .put(SemanticAttributes.HTTP_TARGET, "/path")
+                    .build()))
+        .isNull();
+    assertThat(
+            SpanDataMapper.getHttpUrlFromServerSpan(
+                Attributes.builder()
+                    .put(SemanticAttributes.HTTP_SCHEME, "https")
+                    .put(SemanticAttributes.HTTP_TARGET, "/path")
+                    .build()))
+        .isNull();
+    assertThat(
+            SpanDataMapper.getHttpUrlFromServerSpan(
+                Attributes.builder()
+                    .put(SemanticAttributes.HTTP_SCHEME, "https")
+                    .put(SemanticAttributes.HTTP_HOST, "example.com")
+                    .build()))
+        .isNull();
+  }
+
+  @Test
+  void shouldJoinArrayValuedAttributes() {
+    Attributes attributes =
+        Attributes.builder()
+            .put(AttributeKey.stringArrayKey("strings"), Arrays.asList("a", "b"))
+            .put(AttributeKey.stringArrayKey("single"), Collections.singletonList("a"))
+            .put(AttributeKey.stringArrayKey("empty"), Collections.emptyList())
+            .put(AttributeKey.longArrayKey("longs"), Arrays.asList(1L, 2L))
+            .put(AttributeKey.doubleArrayKey("doubles"), Arrays.asList(1.5, 2.0))
+            .put(AttributeKey.booleanArrayKey("booleans"), Arrays.asList(true, false))
+            .build();
+
+    Map<String, String> properties = getProperties(mapper().map(span(SpanKind.CLIENT, attributes)));
+
+    assertThat(properties)
+        .containsEntry("strings", "a, b")
+        .containsEntry("single", "a")
+        .containsEntry("empty", "")
+        .containsEntry("longs", "1, 2")
+        .containsEntry("doubles", "1.5, 2.0")
+        .containsEntry("booleans", "true, false");
+  }
+
+  @Test
+  void shouldJoinArraysWithNullElements() {
+    assertThat(
+            SpanDataMapper.convertToString(Arrays.asList("a", null), AttributeType.STRING_ARRAY))
+        .isEqualTo("a, null");
+    assertThat(
+            SpanDataMapper.convertToString(
+                Collections.singletonList(null), AttributeType.STRING_ARRAY))
+        .isEqualTo("null");
+    assertThat(
+            SpanDataMapper.convertToString(Arrays.asList(1L, null), AttributeType.LONG_ARRAY))
+        .isEqualTo("1, null");
+  }
+
+  @Test
+  void shouldMapCommonTagAttributes() {
+    Attributes attributes =
+        Attributes.builder()
+            .put("enduser.id", "user1")
+            .put("ai.preview.service_name", "role1")
+            .put("ai.preview.service_instance_id", "instance1")
+            .put("ai.preview.service_version", "1.0")
+            .put(SemanticAttributes.HTTP_USER_AGENT, "agent1")
+            .put("custom", "value1")
+            .build();
+
+    // twice, since the way each attribute is handled is cached after the first time
+    for (int i = 0; i < 2; i++) {
+      TelemetryItem telemetryItem = mapper().map(span(SpanKind.CLIENT, attributes));
+
+      assertThat(telemetryItem.getTags())
+          .containsEntry(ContextTagKeys.AI_USER_ID.toString(), "user1")
+          .containsEntry(ContextTagKeys.AI_CLOUD_ROLE.toString(), "role1")
+          .containsEntry(ContextTagKeys.AI_CLOUD_ROLE_INSTANCE.toString(), "instance1")
+          .containsEntry(ContextTagKeys.AI_APPLICATION_VER.toString(), "1.0")
+          .containsEntry("ai.user.userAgent", "agent1");
+      assertThat(getProperties(telemetryItem))
+          .containsEntry("custom", "value1")
+          .doesNotContainKeys("enduser.id", "ai.preview.service_name", "http.user_agent");
+    }
+  }
+
+  @Test
+  void shouldNotMapNonStringAttributesToCommonTags() {
+    Attributes attributes = Attributes.builder().put("enduser.id", 123L).build();
+
+    TelemetryItem telemetryItem = mapper().map(span(SpanKind.CLIENT, attributes));
+
+    Map<String, String> tags = telemetryItem.getTags();
+    assertThat(tags == null ? Collections.emptyMap() : tags)
+        .doesNotContainKey(ContextTagKeys.AI_USER_ID.toString());
+  }
+
+  private static SpanDataMapper mapper() {
+    return new SpanDataMapper(
+        false, (builder, resource) -> {}, (event, scope) -> false, () -> null);
+  }
+
+  private static Map<String, String> getProperties(TelemetryItem telemetryItem) {
+    RemoteDependencyData data = (RemoteDependencyData) telemetryItem.getData().getBaseData();
+    return data.getProperties();
+  }
+
+  static SpanData span(SpanKind kind, Attributes attributes) {
+    return TestSpanData.builder()
+        .setSpanContext(
+            SpanContext.create(
+                "0123456789abcdef0123456789abcdef",
+                "0123456789abcdef",
+                TraceFlags.getSampled(),
+                TraceState.getDefault()))
+        .setName("test")
+        .setKind(kind)
+        .setStartEpochNanos(0)
+        .setEndEpochNanos(MILLISECONDS.toNanos(10))
+        .setHasEnded(true)
+        .setStatus(StatusData.unset())
+        .setAttributes(attributes)
+        .setTotalRecordedEvents(0)
+        .setTotalRecordedLinks(0)
+        .build();
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricDataPoint;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StandardMetricsSpanProcessorTest {
+
+  private final List<TelemetryItem> emitted = new ArrayList<>();
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+  private StandardMetricsSpanProcessor processor;
+  private Tracer tracer;
+
+  @BeforeEach
+  void setUp() {
+    setUp(100);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private void setUp(int maxSeriesCount) {
+    processor =
+        new StandardMetricsSpanProcessor(
+            true,
+            maxSeriesCount,
+            (builder, resource) -> {},
+            () -> "role",
+            () -> "instance",
+            emitted::add);
+    tracer = SdkTracerProvider.builder().addSpanProcessor(processor).build().get("test");
+  }
+
+  @Test
+  void aggregatesRequests() {
+    request("GET /a", 200, 10);
+    request("GET /a", 200, 30);
+    request("GET /a", 500, 5);
+
+    List<TelemetryItem> items = collect();
+
+    assertThat(items).hasSize(2);
+    TelemetryItem ok = find(items, "request/resultCode", "200");
+    assertThat(getProperties(ok))
+        .containsEntry("_MS.MetricId", "requests/duration")
+        .containsEntry("_MS.IsAutocollected", "True")
+        .containsEntry("operation/name", "GET /a")
+        .containsEntry("Request.Success", "True")
+        .containsEntry("cloud/roleName", "role")
+        .containsEntry("cloud/roleInstance", "instance");
+    MetricDataPoint point = getPoint(ok);
+    assertThat(point.getName()).isEqualTo("requests/duration");
+    assertThat(point.getCount()).isEqualTo(2);
+    assertThat(point.getValue()).isEqualTo(40.0);
+    assertThat(point.getMin()).isEqualTo(10.0);
+    assertThat(point.getMax()).isEqualTo(30.0);
+
+    TelemetryItem error = find(items, "request/resultCode", "500");
+    assertThat(getProperties(error)).containsEntry("Request.Success", "False");
+    assertThat(getPoint(error).getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void aggregatesDependencies() {
+    tracer
+        .spanBuilder("SELECT")
+        .setSpanKind(SpanKind.CLIENT)
+        .setAttribute(SemanticAttributes.DB_SYSTEM, "postgresql")
+        .setAttribute(SemanticAttributes.DB_NAME, "mydb")
+        .setAttribute(SemanticAttributes.NET_PEER_NAME, "dbhost")
+        .setStartTimestamp(0, MILLISECONDS)
+        .startSpan()
+        .end(7, MILLISECONDS);
+    tracer
+        .spanBuilder("internal")
+        .setStartTimestamp(0, MILLISECONDS)
+        .startSpan()
+        .setStatus(StatusCode.ERROR)
+        .end(3, MILLISECONDS);
+
+    List<TelemetryItem> items = collect();
+
+    assertThat(items).hasSize(2);
+    assertThat(getProperties(find(items, "Dependency.Type", "postgresql")))
+        .containsEntry("_MS.MetricId", "dependencies/duration")
+        .containsEntry("dependency/target", "dbhost | mydb")
+        .containsEntry("Dependency.Success", "True");
+    assertThat(getProperties(find(items, "Dependency.Type", "InProc")))
+        .containsEntry("Dependency.Success", "False")
+        .doesNotContainKey("dependency/target");
+  }
+
+  @Test
+  void resetsBetweenIntervalsAndRemovesIdleSeries() {
+    request("GET /a", 200, 10);
+    assertThat(collect()).hasSize(1);
+
+    request("GET /a", 200, 20);
+    List<TelemetryItem> items = collect();
+    assertThat(items).hasSize(1);
+    MetricDataPoint point = getPoint(items.get(0));
+    assertThat(point.getCount()).isEqualTo(1);
+    assertThat(point.getValue()).isEqualTo(20.0);
+    assertThat(point.getMin()).isEqualTo(20.0);
+
+    assertThat(collect()).isEmpty();
+    assertThat(collect()).isEmpty();
+  }
+
+  @Test
+  void recordsOverflowSeries() {
+    setUp(2);
+
+    request("GET /a", 200, 1);
+    request("GET /b", 200, 1);
+    request("GET /c", 200, 1);
+    request("GET /d", 200, 1);
+
+    List<TelemetryItem> items = collect();
+
+    assertThat(items).hasSize(3);
+    TelemetryItem overflow = find(items, "operation/name", "Other");
+    assertThat(getProperties(overflow)).containsEntry("request/resultCode", "Other");
+    assertThat(getPoint(overflow).getCount()).isEqualTo(2);
+  }
+
+  @Test
+  void collapsesAllDimensionsOfOverflowSeries() {
+    setUp(1);
+
+    request("GET /a", 200, 1);
+    dependency("redis", "host1", 1);
+    dependency("mongodb", "host2", 1);
+    dependency("postgresql", "host3", 1);
+
+    List<TelemetryItem> items = collect();
+
+    assertThat(items).hasSize(2);
+    TelemetryItem overflow = find(items, "_MS.MetricId", "dependencies/duration");
+    assertThat(getProperties(overflow))
+        .containsEntry("Dependency.Type", "Other")
+        .containsEntry("dependency/target", "Other")
+        .containsEntry("dependency/resultCode", "Other")
+        .containsEntry("Dependency.Success", "True");
+    assertThat(getPoint(overflow).getCount()).isEqualTo(3);
+  }
+
+  @Test
+  void keepsCollectingAfterFailure() {
+    AtomicInteger attempts = new AtomicInteger();
+    List<TelemetryItem> scheduledEmitted = new CopyOnWriteArrayList<>();
+    processor =
+        new StandardMetricsSpanProcessor(
+            true,
+            100,
+            (builder, resource) -> {},
+            () -> "role",
+            () -> "instance",
+            item -> {
+              if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("test");
+              }
+              scheduledEmitted.add(item);
+            });
+    tracer = SdkTracerProvider.builder().addSpanProcessor(processor).build().get("test");
+    processor.schedule(executor, 10, MILLISECONDS);
+
+    request("GET /a", 200, 10);
+    await().atMost(10, SECONDS).until(() -> attempts.get() == 1);
+    request("GET /a", 200, 10);
+
+    await().atMost(10, SECONDS).until(() -> scheduledEmitted.size() == 1);
+  }
+
+  @Test
+  void flushesOnTheScheduledExecutor() {
+    List<String> threadNames = new CopyOnWriteArrayList<>();
+    processor =
+        new StandardMetricsSpanProcessor(
+            true,
+            100,
+            (builder, resource) -> {},
+            () -> "role",
+            () -> "instance",
+            item -> threadNames.add(Thread.currentThread().getName()));
+    tracer = SdkTracerProvider.builder().addSpanProcessor(processor).build().get("test");
+    processor.schedule(executor, 1, SECONDS);
+
+    request("GET /a", 200, 10);
+    CompletableResultCode result = processor.forceFlush().join(10, SECONDS);
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(threadNames).hasSize(1);
+    assertThat(threadNames.get(0)).isNotEqualTo(Thread.currentThread().getName());
+  }
+
+  private void dependency(String dbSystem, String host, long durationMillis) {
+    tracer
+        .spanBuilder("query")
+        .setSpanKind(SpanKind.CLIENT)
+        .setAttribute(SemanticAttributes.DB_SYSTEM, dbSystem)
+        .setAttribute(SemanticAttributes.NET_PEER_NAME, host)
+        .setStartTimestamp(0, MILLISECONDS)
+        .startSpan()
+        .end(durationMillis, MILLISECONDS);
+  }
+
+  private void request(String name, long statusCode, long durationMillis) {
+    tracer
+        .spanBuilder(name)
+        .setSpanKind(SpanKind.SERVER)
+        .setAttribute(SemanticAttributes.HTTP_STATUS_CODE, statusCode)
+        .setStartTimestamp(0, MILLISECONDS)
+        .startSpan()
+        .end(durationMillis, MILLISECONDS);
+  }
+
+  private List<TelemetryItem> collect() {
+    processor.collectAndEmit();
+    List<TelemetryItem> items = new ArrayList<>(emitted);
+    emitted.clear();
+    return items;
+  }
+
+  private static TelemetryItem find(List<TelemetryItem> items, String key, String value) {
+    return items.stream()
+        .filter(item -> value.equals(getProperties(item).get(key)))
+        .findFirst()
+        .orElseThrow(AssertionError::new);
+  }
+
+  private static Map<String, String> getProperties(TelemetryItem item) {
+    return ((MetricsData) item.getData().getBaseData()).getProperties();
+  }
+
+  private static MetricDataPoint getPoint(TelemetryItem item) {
+    return ((MetricsData) item.getData().getBaseData()).getMetrics().get(0);
+  }
+}
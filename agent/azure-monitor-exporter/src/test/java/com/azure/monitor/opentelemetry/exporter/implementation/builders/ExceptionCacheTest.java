@@ -0,0 +1,199 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.builders;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+
+class ExceptionCacheTest {
+
+  private static final String STACK =
+      "java.lang.IllegalStateException: test\n\tat a.B.c(B.java:1)\n\tat a.B.d(B.java:2)\n";
+
+  private static final ExceptionCache.SuppressedOccurrence NOT_SENT =
+      (exceptions, count) -> {
+        throw new AssertionError("not expected to be sent");
+      };
+
+  @Test
+  void testParsedExceptionIsShared() {
+    ExceptionCache cache = new ExceptionCache(10, 0, new LongAdder());
+
+    assertThat(cache.parse(new String(STACK))).isSameAs(cache.parse(new String(STACK)));
+    assertThat(cache.parse(STACK).get(0).build().getTypeName())
+        .isEqualTo("java.lang.IllegalStateException");
+  }
+
+  @Test
+  void testParsedExceptionIsKeyedOnFingerprint() {
+    ExceptionCache cache = new ExceptionCache(10, 0, new LongAdder());
+    String otherMessage = STACK.replace("test", "other");
+
+    List<ExceptionDetailBuilder> parsed = cache.parse(STACK);
+    List<ExceptionDetailBuilder> other = cache.parse(otherMessage);
+
+    assertThat(other).isNotSameAs(parsed);
+    assertThat(other.get(0).build().getMessage()).isEqualTo("other");
+    assertThat(other.get(0).build().getStack()).isEqualTo(otherMessage);
+    assertThat(other.get(0).build().getTypeName())
+        .isSameAs(parsed.get(0).build().getTypeName());
+    // the first stack trace stays cached
+    assertThat(cache.parse(new String(STACK))).isSameAs(parsed);
+  }
+
+  @Test
+  void testLongStackTraceIsShared() {
+    ExceptionCache cache = new ExceptionCache(10, 0, new LongAdder());
+    StringBuilder stack = new StringBuilder("java.lang.IllegalStateException: test\n");
+    while (stack.length() < 40000) {
+      stack.append("\tat a.B.c(B.java:1)\n");
+    }
+
+    // the parsed stack trace is truncated, but it is still matched with the full stack trace
+    assertThat(cache.parse(stack.toString())).isSameAs(cache.parse(stack.toString()));
+  }
+
+  @Test
+  void testDuplicatesAreSuppressedWithinInterval() {
+    LongAdder suppressedCount = new LongAdder();
+    ExceptionCache cache = new ExceptionCache(10, SECONDS.toNanos(60), suppressedCount);
+    String otherMessage = STACK.replace("test", "other");
+
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, 0)).isEqualTo(0);
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, SECONDS.toNanos(1))).isEqualTo(-1);
+    assertThat(cache.recordOccurrence(otherMessage, NOT_SENT, SECONDS.toNanos(2))).isEqualTo(-1);
+    assertThat(suppressedCount.sum()).isEqualTo(2);
+
+    // next interval
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, SECONDS.toNanos(61))).isEqualTo(2);
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, SECONDS.toNanos(62))).isEqualTo(-1);
+  }
+
+  @Test
+  void testSuppressedDuplicatesAreFlushedAfterInterval() {
+    LongAdder suppressedCount = new LongAdder();
+    ExceptionCache cache = new ExceptionCache(10, SECONDS.toNanos(60), suppressedCount);
+    List<String> sent = new ArrayList<>();
+    cache.setSuppressedConsumer(telemetryItem -> sent.add(telemetryItem.getName()));
+
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, 0)).isEqualTo(0);
+    assertThat(cache.recordOccurrence(STACK, occurrence("first"), 1)).isEqualTo(-1);
+    assertThat(cache.recordOccurrence(STACK, occurrence("second"), 2)).isEqualTo(-1);
+
+    cache.flushSuppressed(SECONDS.toNanos(59));
+    assertThat(sent).isEmpty();
+
+    cache.flushSuppressed(SECONDS.toNanos(60));
+    // the last suppressed occurrence is sent, along with the one before it
+    assertThat(sent).containsExactly("second:1");
+    assertThat(suppressedCount.sum()).isEqualTo(1);
+
+    // the flushed occurrence started a new interval
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, SECONDS.toNanos(61))).isEqualTo(-1);
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, SECONDS.toNanos(120))).isEqualTo(1);
+
+    // nothing left to flush
+    cache.flushSuppressed(SECONDS.toNanos(200));
+    assertThat(sent).containsExactly("second:1");
+  }
+
+  @Test
+  void testFlushAllSuppressed() {
+    ExceptionCache cache = new ExceptionCache(10, SECONDS.toNanos(60), new LongAdder());
+    List<String> sent = new ArrayList<>();
+    cache.setSuppressedConsumer(telemetryItem -> sent.add(telemetryItem.getName()));
+
+    cache.recordOccurrence(STACK, NOT_SENT, 0);
+    cache.recordOccurrence(STACK, occurrence("last"), 1);
+    cache.flushSuppressed(SECONDS.toNanos(2), true);
+
+    assertThat(sent).containsExactly("last:0");
+  }
+
+  @Test
+  void testSuppressedOccurrenceReusesCachedStackTrace() {
+    ExceptionCache cache = new ExceptionCache(10, SECONDS.toNanos(60), new LongAdder());
+    AtomicReference<List<ExceptionDetailBuilder>> sent = new AtomicReference<>();
+
+    cache.recordOccurrence(STACK, NOT_SENT, 0);
+    List<ExceptionDetailBuilder> parsed = cache.parse(STACK);
+    cache.recordOccurrence(new String(STACK), capture(sent), 1);
+    cache.flushSuppressed(SECONDS.toNanos(2), true);
+
+    assertThat(sent.get()).isSameAs(parsed);
+  }
+
+  @Test
+  void testSuppressedOccurrenceOnlyKeepsFirstLine() {
+    ExceptionCache cache = new ExceptionCache(10, SECONDS.toNanos(60), new LongAdder());
+    AtomicReference<List<ExceptionDetailBuilder>> sent = new AtomicReference<>();
+
+    cache.recordOccurrence(STACK, NOT_SENT, 0);
+    cache.parse(STACK);
+    cache.recordOccurrence(STACK.replace("test", "other"), capture(sent), 1);
+    cache.flushSuppressed(SECONDS.toNanos(2), true);
+
+    assertThat(sent.get()).hasSize(1);
+    assertThat(sent.get().get(0).build().getTypeName())
+        .isEqualTo("java.lang.IllegalStateException");
+    assertThat(sent.get().get(0).build().getMessage()).isEqualTo("other");
+    assertThat(sent.get().get(0).build().getStack())
+        .isEqualTo("java.lang.IllegalStateException: other");
+  }
+
+  @Test
+  void testDifferentExceptionsAreNotSuppressed() {
+    ExceptionCache cache = new ExceptionCache(10, SECONDS.toNanos(60), new LongAdder());
+    String otherFrame = STACK.replace("B.java:1", "B.java:3");
+
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, 0)).isEqualTo(0);
+    assertThat(cache.recordOccurrence(otherFrame, NOT_SENT, 0)).isEqualTo(0);
+  }
+
+  @Test
+  void testDisabled() {
+    ExceptionCache cache = new ExceptionCache(0, 0, new LongAdder());
+
+    assertThat(cache.parse(STACK)).isNotSameAs(cache.parse(STACK));
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, 0)).isEqualTo(0);
+    assertThat(cache.recordOccurrence(STACK, NOT_SENT, 0)).isEqualTo(0);
+  }
+
+  private static ExceptionCache.SuppressedOccurrence occurrence(String name) {
+    return (exceptions, count) -> new TelemetryItem().setName(name + ":" + count);
+  }
+
+  private static ExceptionCache.SuppressedOccurrence capture(
+      AtomicReference<List<ExceptionDetailBuilder>> sent) {
+    return (exceptions, count) -> {
+      sent.set(exceptions);
+      return new TelemetryItem();
+    };
+  }
+}
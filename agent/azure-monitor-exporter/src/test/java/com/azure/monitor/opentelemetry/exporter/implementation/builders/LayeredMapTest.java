@@ -0,0 +1,93 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.builders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class LayeredMapTest {
+
+  private static final ObjectMapper mapper =
+      new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+  private static PreEncodedMap createDefaults() {
+    Map<String, String> defaults = new LinkedHashMap<>();
+    defaults.put("ai.cloud.role", "my \"role\"");
+    defaults.put("ai.internal.sdkVersion", "java:3");
+    return PreEncodedMap.create(defaults);
+  }
+
+  @Test
+  public void testDefaultsOnly() throws Exception {
+    LayeredMap map = LayeredMap.create(createDefaults(), null);
+
+    assertThat(map).hasSize(2);
+    assertThat(map).containsEntry("ai.cloud.role", "my \"role\"");
+    assertThat(mapper.writeValueAsString(map))
+        .isEqualTo("{\"ai.cloud.role\":\"my \\\"role\\\"\",\"ai.internal.sdkVersion\":\"java:3\"}");
+  }
+
+  @Test
+  public void testOverrides() throws Exception {
+    LayeredMap map = LayeredMap.create(createDefaults(), null);
+    map.put("ai.operation.id", "abc");
+    map.put("ai.cloud.role", "other");
+    map.remove("ai.internal.sdkVersion");
+
+    assertThat(map).hasSize(2);
+    assertThat(map).containsEntry("ai.cloud.role", "other");
+    assertThat(map).doesNotContainKey("ai.internal.sdkVersion");
+    assertThat(mapper.readTree(mapper.writeValueAsString(map)))
+        .isEqualTo(mapper.valueToTree(new HashMap<>(map)));
+    // the shared defaults are not modified
+    assertThat(createDefaults().getEntries()).hasSize(2);
+  }
+
+  @Test
+  public void testDefaultsTakePrecedenceOverExistingEntries() throws Exception {
+    Map<String, String> existing = new HashMap<>();
+    existing.put("ai.cloud.role", "existing");
+    existing.put("ai.operation.id", "abc");
+
+    LayeredMap map = LayeredMap.create(createDefaults(), existing);
+
+    assertThat(map).hasSize(3);
+    assertThat(map).containsEntry("ai.cloud.role", "my \"role\"");
+    assertThat(mapper.readTree(mapper.writeValueAsString(map)))
+        .isEqualTo(mapper.valueToTree(new HashMap<>(map)));
+  }
+
+  @Test
+  public void testEmptyDefaults() throws Exception {
+    LayeredMap map = LayeredMap.create(PreEncodedMap.EMPTY, null);
+    assertThat(mapper.writeValueAsString(map)).isEqualTo("{}");
+
+    map.put("ai.operation.id", "abc");
+    assertThat(mapper.writeValueAsString(map)).isEqualTo("{\"ai.operation.id\":\"abc\"}");
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.builders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MetricsData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.RequestData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TelemetryItemPoolTest {
+
+  @Test
+  public void testReleasedItemIsReused() {
+    TelemetryItemPool pool = new TelemetryItemPool(2, false);
+
+    TelemetryItem telemetryItem = pool.acquire(TelemetryItemPool.Kind.REQUEST);
+    pool.release(telemetryItem);
+
+    assertThat(pool.acquire(TelemetryItemPool.Kind.REQUEST)).isSameAs(telemetryItem);
+    assertThat(pool.acquire(TelemetryItemPool.Kind.REQUEST)).isNotSameAs(telemetryItem);
+  }
+
+  @Test
+  public void testReleasedItemIsReset() {
+    TelemetryItemPool pool = new TelemetryItemPool(2, false);
+
+    TelemetryItem telemetryItem = pool.acquire(TelemetryItemPool.Kind.REQUEST);
+    telemetryItem.setInstrumentationKey("ikey");
+    telemetryItem.setSampleRate(50.0f);
+    Map<String, String> tags = new HashMap<>();
+    tags.put("ai.operation.id", "abc");
+    telemetryItem.setTags(tags);
+    RequestData data = (RequestData) telemetryItem.getData().getBaseData();
+    data.setId("id");
+    data.setName("GET /");
+    data.setSuccess(true);
+    data.setProperties(Collections.singletonMap("key", "value"));
+
+    pool.release(telemetryItem);
+    TelemetryItem recycled = pool.acquire(TelemetryItemPool.Kind.REQUEST);
+
+    assertThat(recycled).isSameAs(telemetryItem);
+    assertThat(recycled.getName()).isEqualTo("Request");
+    assertThat(recycled.getData().getBaseType()).isEqualTo("RequestData");
+    assertThat(recycled.getInstrumentationKey()).isNull();
+    assertThat(recycled.getSampleRate()).isNull();
+    assertThat(recycled.getTags()).isNull();
+    RequestData recycledData = (RequestData) recycled.getData().getBaseData();
+    assertThat(recycledData.getId()).isNull();
+    assertThat(recycledData.getName()).isNull();
+    assertThat(recycledData.isSuccess()).isFalse();
+    assertThat(recycledData.getProperties()).isNull();
+  }
+
+  @Test
+  public void testLayeredMapsAreRecycled() {
+    TelemetryItemPool pool = new TelemetryItemPool(2, false);
+    PreEncodedMap defaults = PreEncodedMap.create(Collections.singletonMap("ai.cloud.role", "r"));
+
+    TelemetryItem telemetryItem = pool.acquire(TelemetryItemPool.Kind.MESSAGE);
+    LayeredMap tags = LayeredMap.create(defaults, null);
+    tags.put("ai.operation.id", "abc");
+    telemetryItem.setTags(tags);
+    pool.release(telemetryItem);
+
+    LayeredMap recycled = pool.acquireMap();
+    assertThat(recycled).isSameAs(tags);
+    assertThat(recycled).isEmpty();
+  }
+
+  @Test
+  public void testOtherMetricsDataItemsAreNotPooled() {
+    TelemetryItemPool pool = new TelemetryItemPool(2, false);
+
+    TelemetryItem statsbeat =
+        AbstractTelemetryBuilder.createTelemetryItem(new MetricsData(), "Statsbeat", "MetricData");
+    pool.release(statsbeat);
+
+    assertThat(pool.acquire(TelemetryItemPool.Kind.METRIC)).isNotSameAs(statsbeat);
+  }
+
+  @Test
+  public void testPoolIsBounded() {
+    TelemetryItemPool pool = new TelemetryItemPool(1, false);
+
+    TelemetryItem first = pool.acquire(TelemetryItemPool.Kind.REMOTE_DEPENDENCY);
+    TelemetryItem second = pool.acquire(TelemetryItemPool.Kind.REMOTE_DEPENDENCY);
+    pool.release(first);
+    pool.release(second);
+
+    assertThat(pool.acquire(TelemetryItemPool.Kind.REMOTE_DEPENDENCY)).isSameAs(first);
+    TelemetryItem third = pool.acquire(TelemetryItemPool.Kind.REMOTE_DEPENDENCY);
+    assertThat(third).isNotSameAs(first).isNotSameAs(second);
+  }
+
+  @Test
+  public void testDisabled() {
+    TelemetryItemPool pool = new TelemetryItemPool(0, false);
+
+    TelemetryItem telemetryItem = pool.acquire(TelemetryItemPool.Kind.REQUEST);
+    pool.release(telemetryItem);
+
+    assertThat(pool.isEnabled()).isFalse();
+    assertThat(pool.acquire(TelemetryItemPool.Kind.REQUEST)).isNotSameAs(telemetryItem);
+    assertThat(pool.acquireMap()).isNull();
+  }
+}
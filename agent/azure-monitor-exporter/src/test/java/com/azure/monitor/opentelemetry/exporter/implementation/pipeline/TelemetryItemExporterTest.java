@@ -21,6 +21,7 @@
 
 package com.azure.monitor.opentelemetry.exporter.implementation.pipeline;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.azure.core.http.HttpClient;
@@ -32,6 +33,7 @@ import com.azure.core.util.FluxUtil;
 import com.azure.monitor.opentelemetry.exporter.implementation.MockHttpResponse;
 import com.azure.monitor.opentelemetry.exporter.implementation.localstorage.LocalStorageTelemetryPipelineListener;
 import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.MemoryBudget;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.TestUtils;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import java.io.ByteArrayInputStream;
@@ -151,6 +153,54 @@ public class TelemetryItemExporterTest {
     assertThat(recordingHttpClient.getCount()).isEqualTo(3);
   }
 
+  @Test
+  public void memoryBudgetExceededTest() throws MalformedURLException {
+    // given
+    List<TelemetryItem> telemetryItems = new ArrayList<>();
+    telemetryItems.add(TestUtils.createMetricTelemetry("metric" + 1, 1, INSTRUMENTATION_KEY));
+    MemoryBudget.configure(1);
+    TelemetryItemExporter exporter;
+    try {
+      exporter = getExporter();
+    } finally {
+      MemoryBudget.configure(0);
+    }
+
+    // when
+    exporter.send(telemetryItems);
+
+    // then
+    assertThat(recordingHttpClient.getCount()).isEqualTo(0);
+    assertThat(tempFolder.listFiles()).hasSize(1);
+  }
+
+  @Test
+  public void memoryBudgetHeldByItemsTest() throws MalformedURLException {
+    // given
+    List<TelemetryItem> telemetryItems = new ArrayList<>();
+    telemetryItems.add(TestUtils.createMetricTelemetry("metric" + 1, 1, INSTRUMENTATION_KEY));
+    long maxBytes = 1024 * 1024;
+    MemoryBudget.configure(maxBytes);
+    MemoryBudget memoryBudget = MemoryBudget.get();
+    TelemetryItemExporter exporter;
+    try {
+      exporter = getExporter();
+    } finally {
+      MemoryBudget.configure(0);
+    }
+    // the queued telemetry items fill up the whole memory budget
+    assertThat(memoryBudget.tryAcquire(maxBytes)).isTrue();
+
+    // when
+    exporter.send(telemetryItems, INSTRUMENTATION_KEY, maxBytes);
+    exporter.flush().join(10, SECONDS);
+
+    // then
+    assertThat(recordingHttpClient.getCount()).isEqualTo(1);
+    assertThat(tempFolder.listFiles()).isEmpty();
+    assertThat(memoryBudget.getUsedBytes()).isZero();
+  }
+
   @Test
   public void singleIkeyBatchTest() throws MalformedURLException {
     // given
@@ -167,6 +217,23 @@ public class TelemetryItemExporterTest {
     assertThat(recordingHttpClient.getCount()).isEqualTo(1);
   }
 
+  @Test
+  public void preGroupedSingleIkeyBatchTest() throws MalformedURLException {
+    // given
+    List<TelemetryItem> telemetryItems = new ArrayList<>();
+    telemetryItems.add(TestUtils.createMetricTelemetry("metric" + 1, 1, INSTRUMENTATION_KEY));
+    telemetryItems.add(TestUtils.createMetricTelemetry("metric" + 2, 2, INSTRUMENTATION_KEY));
+    TelemetryItemExporter exporter = getExporter();
+
+    // when
+    CompletableResultCode completableResultCode =
+        exporter.send(telemetryItems, INSTRUMENTATION_KEY);
+
+    // then
+    assertThat(completableResultCode.isSuccess()).isEqualTo(true);
+    assertThat(recordingHttpClient.getCount()).isEqualTo(1);
+  }
+
   @Test
   public void dualIkeyBatchTest() throws MalformedURLException {
     // given
@@ -0,0 +1,108 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AgentThreadsTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final List<Thread> started = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    release.countDown();
+    for (Thread thread : started) {
+      thread.join();
+    }
+  }
+
+  @Test
+  void shouldReturnRegisteredThreadsWhileAlive() throws InterruptedException {
+    Thread thread = newThread("test-registered");
+    Thread exportThread = newThread("test-registered-export");
+    AgentThreads.register(thread);
+    AgentThreads.registerExportThread(exportThread);
+
+    assertThat(AgentThreads.getThreads()).doesNotContainKeys(thread, exportThread);
+
+    start(thread);
+    start(exportThread);
+
+    assertThat(AgentThreads.getThreads()).contains(entry(thread, false), entry(exportThread, true));
+
+    release.countDown();
+    thread.join();
+    exportThread.join();
+
+    assertThat(AgentThreads.getThreads()).doesNotContainKeys(thread, exportThread);
+  }
+
+  @Test
+  void shouldRecognizeThreadsThatAreNotCreatedByTheAgent() {
+    Thread spanProcessor = start(newThread("BatchSpanProcessor_WorkerThread-1"));
+    Thread httpClient = start(newThread(AgentThreads.HTTP_CLIENT_THREAD_NAME_PREFIX + "-nio-1"));
+    Thread micrometer = start(newThread("azure-micrometer-publisher"));
+    Thread application = start(newThread("reactor-http-nio-1"));
+
+    assertThat(AgentThreads.getThreads())
+        .contains(entry(spanProcessor, true), entry(httpClient, true), entry(micrometer, false))
+        .doesNotContainKey(application);
+  }
+
+  @Test
+  void shouldRegisterThreadsFromThreadPoolUtils() {
+    Thread thread =
+        start(
+            ThreadPoolUtils.createDaemonThreadFactory(AgentThreadsTest.class)
+                .newThread(this::awaitRelease));
+
+    assertThat(thread.isDaemon()).isTrue();
+    assertThat(AgentThreads.getThreads()).contains(entry(thread, false));
+  }
+
+  private Thread newThread(String name) {
+    return new Thread(this::awaitRelease, name);
+  }
+
+  private Thread start(Thread thread) {
+    thread.start();
+    started.add(thread);
+    return thread;
+  }
+
+  private void awaitRelease() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.selfmetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketIndex() {
+    assertThat(LatencyHistogram.getBucketIndex(0)).isEqualTo(0);
+    assertThat(LatencyHistogram.getBucketIndex(999)).isEqualTo(0);
+    assertThat(LatencyHistogram.getBucketIndex(1000)).isEqualTo(1);
+    assertThat(LatencyHistogram.getBucketIndex(TimeUnit.MILLISECONDS.toNanos(1))).isEqualTo(10);
+    assertThat(LatencyHistogram.getBucketIndex(Long.MAX_VALUE)).isEqualTo(31);
+  }
+
+  @Test
+  public void testRecord() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+    histogram.record(-1);
+
+    assertThat(histogram.getCount()).isEqualTo(101);
+    assertThat(histogram.getMaxMillis()).isEqualTo(100);
+    assertThat(histogram.getMeanMillis()).isEqualTo(199.0 / 101);
+    // percentiles are the upper bound of the bucket
+    assertThat(histogram.getPercentileMillis(50)).isEqualTo(1.024);
+    assertThat(histogram.getPercentileMillis(100)).isEqualTo(100);
+  }
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.getCount()).isZero();
+    assertThat(histogram.getMeanMillis()).isZero();
+    assertThat(histogram.getPercentileMillis(99)).isZero();
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class DbStatementNormalizerTest {
+
+  @Test
+  void testCollapseWhitespace() {
+    assertThat(DbStatementNormalizer.collapseWhitespace("select * from t"))
+        .isEqualTo("select * from t");
+    assertThat(DbStatementNormalizer.collapseWhitespace("select *\n  from t\twhere x = ?"))
+        .isEqualTo("select * from t where x = ?");
+    assertThat(DbStatementNormalizer.collapseWhitespace("  select * from t \n"))
+        .isEqualTo("select * from t");
+    assertThat(DbStatementNormalizer.collapseWhitespace("select * from t "))
+        .isEqualTo("select * from t");
+    assertThat(DbStatementNormalizer.collapseWhitespace(" \t ")).isEmpty();
+  }
+
+  @Test
+  void testUnchangedStatementIsNotCopied() {
+    String statement = "select * from t";
+    assertThat(DbStatementNormalizer.collapseWhitespace(statement)).isSameAs(statement);
+  }
+
+  @Test
+  void testRepeatedStatementsShareInstance() {
+    DbStatementNormalizer normalizer = new DbStatementNormalizer(10, false, 8192);
+
+    String first = normalizer.normalize(new String("select *\n from t"));
+    String second = normalizer.normalize(new String("select *\n from t"));
+
+    assertThat(first).isEqualTo("select * from t");
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  void testLongStatementsAreNotCached() {
+    DbStatementNormalizer normalizer = new DbStatementNormalizer(10, false, 10);
+    StringBuilder sb = new StringBuilder("select * from t where x in (");
+    while (sb.length() <= DbStatementNormalizer.MAX_CACHED_STATEMENT_LENGTH) {
+      sb.append("?, ");
+    }
+    String statement = sb.append("?)").toString();
+
+    String first = normalizer.normalize(new String(statement));
+    String second = normalizer.normalize(new String(statement));
+
+    assertThat(first).isEqualTo("select * f");
+    assertThat(second).isEqualTo(first).isNotSameAs(first);
+  }
+
+  @Test
+  void testTruncation() {
+    DbStatementNormalizer normalizer = new DbStatementNormalizer(10, false, 10);
+
+    assertThat(normalizer.normalize("select * from t")).isEqualTo("select * f");
+  }
+
+  @Test
+  void testFingerprintOnly() {
+    DbStatementNormalizer normalizer = new DbStatementNormalizer(10, true, 8192);
+
+    String fingerprint = normalizer.normalize("select * from t");
+
+    assertThat(fingerprint).hasSize(16);
+    assertThat(normalizer.normalize("select *\n  from t")).isEqualTo(fingerprint);
+    assertThat(normalizer.normalize("select * from u")).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  void testDisabled() {
+    DbStatementNormalizer normalizer = new DbStatementNormalizer(0, false, 8192);
+
+    String statement = "select *\n from t";
+    assertThat(normalizer.normalize(statement)).isSameAs(statement);
+    assertThat(normalizer.normalize(null)).isNull();
+  }
+}
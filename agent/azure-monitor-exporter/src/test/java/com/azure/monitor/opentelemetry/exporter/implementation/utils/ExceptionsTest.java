@@ -97,6 +97,36 @@ public class ExceptionsTest {
     assertThat(details.getMessage()).isEqualTo(ProblematicException.class.getName());
   }
 
+  @Test
+  public void testFingerprintIgnoresMessage() {
+    // given
+    String str1 = toString(createException("first"));
+    String str2 = toString(createException("second"));
+
+    // then
+    assertThat(Exceptions.fingerprint(str1)).isEqualTo(Exceptions.fingerprint(str2));
+  }
+
+  @Test
+  public void testFingerprintIncludesTypeAndFrames() {
+    // given
+    String str = "java.lang.IllegalStateException: test\n\tat a.B.c(B.java:1)\n";
+    String otherType = "java.lang.IllegalArgumentException: test\n\tat a.B.c(B.java:1)\n";
+    String otherFrame = "java.lang.IllegalStateException: test\n\tat a.B.c(B.java:2)\n";
+    String multiLineMessage =
+        "java.lang.IllegalStateException: multi-line\nmessage\n\tat a.B.c(B.java:1)\n";
+
+    // then
+    assertThat(Exceptions.fingerprint(str))
+        .isNotEqualTo(Exceptions.fingerprint(otherType))
+        .isNotEqualTo(Exceptions.fingerprint(otherFrame))
+        .isEqualTo(Exceptions.fingerprint(multiLineMessage));
+  }
+
+  private static IllegalStateException createException(String message) {
+    return new IllegalStateException(message);
+  }
+
   private static String toString(Throwable t) {
     StringWriter out = new StringWriter();
     t.printStackTrace(new PrintWriter(out));
@@ -0,0 +1,58 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LinuxCgroupStatsTest {
+
+  @Test
+  void testGetCgroupPathV1() {
+    List<String> cgroups =
+        Arrays.asList(
+            "12:blkio:/kubepods/pod1/abc",
+            "4:memory:/kubepods/pod1/abc",
+            "3:cpu,cpuacct:/kubepods/pod1/abc",
+            "2:cpuset:/",
+            "1:name=systemd:/kubepods/pod1/abc",
+            "0::/");
+
+    assertThat(LinuxCgroupStats.getCgroupPath(cgroups, "cpu")).isEqualTo("/kubepods/pod1/abc");
+    assertThat(LinuxCgroupStats.getCgroupPath(cgroups, "memory")).isEqualTo("/kubepods/pod1/abc");
+    assertThat(LinuxCgroupStats.getCgroupPath(cgroups, "blkio")).isEqualTo("/kubepods/pod1/abc");
+    // not a prefix match on "cpuset"
+    assertThat(LinuxCgroupStats.getCgroupPath(cgroups, "cpus")).isNull();
+  }
+
+  @Test
+  void testGetCgroupPathV2() {
+    List<String> cgroups = Collections.singletonList("0::/system.slice/app.service");
+
+    assertThat(LinuxCgroupStats.getCgroupPath(cgroups, "")).isEqualTo("/system.slice/app.service");
+    assertThat(LinuxCgroupStats.getCgroupPath(cgroups, "memory")).isNull();
+  }
+}
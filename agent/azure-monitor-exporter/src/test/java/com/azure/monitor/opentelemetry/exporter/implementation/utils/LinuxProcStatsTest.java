@@ -0,0 +1,59 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.bytes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class LinuxProcStatsTest {
+
+  @Test
+  void testParseProcessCpuTicks() {
+    byte[] bytes =
+        bytes(
+            "3732 (java (main) x) S 3727 3732 3727 0 -1 4194304 89 0 0 0 250 75 0 0 20 0 1 0"
+                + " 248747 2568192 324\n");
+
+    assertThat(LinuxProcStats.parseProcessCpuTicks(bytes, bytes.length)).isEqualTo(325);
+  }
+
+  @Test
+  void testParseProcessCpuTicksTruncated() {
+    byte[] bytes = bytes("3732 (java) S 3727 3732");
+
+    assertThat(LinuxProcStats.parseProcessCpuTicks(bytes, bytes.length)).isEqualTo(-1);
+  }
+
+  @Test
+  void testParseTotalCpuTicks() {
+    byte[] bytes =
+        bytes(
+            "cpu  11234 7 1626 234348 1235 0 5 542 0 0\n"
+                + "cpu0 5617 3 813 117174 617 0 2 271 0 0\n"
+                + "cpu1 5617 4 813 117174 618 0 3 271 0 0\n");
+
+    assertThat(LinuxProcStats.parseTotalCpuTicks(bytes, bytes.length)).isEqualTo(11234 + 1626);
+    assertThat(LinuxProcStats.countCpus(bytes)).isEqualTo(2);
+  }
+}
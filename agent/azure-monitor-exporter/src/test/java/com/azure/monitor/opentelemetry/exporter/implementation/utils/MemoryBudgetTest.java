@@ -0,0 +1,76 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class MemoryBudgetTest {
+
+  @Test
+  public void testTryAcquireWithinBudget() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    assertThat(memoryBudget.tryAcquire(60)).isTrue();
+    assertThat(memoryBudget.tryAcquire(40)).isTrue();
+    assertThat(memoryBudget.tryAcquire(1)).isFalse();
+    assertThat(memoryBudget.getUsedBytes()).isEqualTo(100);
+
+    memoryBudget.release(40);
+    assertThat(memoryBudget.tryAcquire(1)).isTrue();
+  }
+
+  @Test
+  public void testTryAcquireLargerThanBudget() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    assertThat(memoryBudget.isEnabled()).isTrue();
+    assertThat(memoryBudget.tryAcquire(150)).isFalse();
+    assertThat(memoryBudget.getUsedBytes()).isZero();
+  }
+
+  @Test
+  public void testTryExchangeWhenBudgetIsFull() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    assertThat(memoryBudget.tryAcquire(100)).isTrue();
+
+    // exchanging the held bytes for fewer bytes succeeds even though the budget is full
+    assertThat(memoryBudget.tryExchange(60, 20)).isTrue();
+    assertThat(memoryBudget.getUsedBytes()).isEqualTo(60);
+  }
+
+  @Test
+  public void testTryExchangeReleasesHeldBytesOnFailure() {
+    MemoryBudget memoryBudget = new MemoryBudget(100);
+    assertThat(memoryBudget.tryAcquire(90)).isTrue();
+
+    assertThat(memoryBudget.tryExchange(10, 30)).isFalse();
+    assertThat(memoryBudget.getUsedBytes()).isEqualTo(80);
+  }
+
+  @Test
+  public void testUnlimited() {
+    MemoryBudget memoryBudget = new MemoryBudget(0);
+    assertThat(memoryBudget.isEnabled()).isFalse();
+    assertThat(memoryBudget.tryAcquire(Long.MAX_VALUE)).isTrue();
+    assertThat(memoryBudget.getUsedBytes()).isZero();
+  }
+}
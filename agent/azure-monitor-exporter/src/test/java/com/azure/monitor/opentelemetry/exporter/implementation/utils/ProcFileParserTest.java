@@ -0,0 +1,69 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.ProcFileParser.bytes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ProcFileParserTest {
+
+  @Test
+  void testParseValue() {
+    byte[] bytes =
+        bytes(
+            "rchar: 3980\n"
+                + "wchar: 0\n"
+                + "read_bytes: 4096\n"
+                + "write_bytes: 8192\n"
+                + "cancelled_write_bytes: 0\n");
+
+    assertThat(ProcFileParser.parseValue(bytes, bytes.length, bytes("read_bytes:")))
+        .isEqualTo(4096);
+    assertThat(ProcFileParser.parseValue(bytes, bytes.length, bytes("write_bytes:")))
+        .isEqualTo(8192);
+    assertThat(ProcFileParser.parseValue(bytes, bytes.length, bytes("syscr:"))).isEqualTo(-1);
+  }
+
+  @Test
+  void testParseValueOnlyConsidersLength() {
+    byte[] bytes = bytes("MemTotal:        6158152 kB\nMemFree:         5217924 kB\n");
+
+    assertThat(ProcFileParser.parseValue(bytes, bytes.length, bytes("MemFree:")))
+        .isEqualTo(5217924);
+    // e.g. left over from a previous (longer) read into the same buffer
+    assertThat(ProcFileParser.parseValue(bytes, 28, bytes("MemFree:"))).isEqualTo(-1);
+  }
+
+  @Test
+  void testSumValues() {
+    byte[] bytes =
+        bytes(
+            "8:16 rbytes=1024 wbytes=2048 rios=1 wios=2 dbytes=0 dios=0\n"
+                + "8:0 rbytes=100 wbytes=0 rios=3 wios=0 dbytes=0 dios=0\n");
+
+    assertThat(ProcFileParser.sumValues(bytes, bytes.length, bytes("rbytes="))).isEqualTo(1124);
+    assertThat(ProcFileParser.sumValues(bytes, bytes.length, bytes("wbytes="))).isEqualTo(2048);
+    assertThat(ProcFileParser.sumValues(bytes, bytes.length, bytes("xbytes="))).isEqualTo(-1);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+
+class StringInternerTest {
+
+  @Test
+  void testInternReturnsFirstInstance() {
+    StringInterner interner = new StringInterner(16, new LongAdder(), new LongAdder());
+
+    String first = new String("GET /users/{id}");
+    String second = new String("GET /users/{id}");
+
+    assertThat(interner.intern(first)).isSameAs(first);
+    assertThat(interner.intern(second)).isSameAs(first);
+    assertThat(interner.getHits()).isEqualTo(1);
+    assertThat(interner.getMisses()).isEqualTo(1);
+    assertThat(interner.getSize()).isEqualTo(1);
+    assertThat(interner.getHitRate()).isEqualTo(0.5);
+  }
+
+  @Test
+  void testSizeIsBounded() {
+    StringInterner interner = new StringInterner(16, new LongAdder(), new LongAdder());
+
+    for (int i = 0; i < 1000; i++) {
+      interner.intern("value" + i);
+    }
+
+    assertThat(interner.getSize()).isLessThanOrEqualTo(16);
+  }
+
+  @Test
+  void testCollidingValueReplacesExisting() {
+    // a single slot, so every value collides
+    StringInterner interner = new StringInterner(1, new LongAdder(), new LongAdder());
+
+    String first = new String("a");
+    interner.intern(first);
+    String second = new String("b");
+    interner.intern(second);
+
+    assertThat(interner.intern(new String("b"))).isSameAs(second);
+    assertThat(interner.intern(new String("a"))).isNotSameAs(first);
+  }
+
+  @Test
+  void testDisabled() {
+    StringInterner interner = new StringInterner(0, new LongAdder(), new LongAdder());
+
+    String value = new String("a");
+    interner.intern("a");
+
+    assertThat(interner.isEnabled()).isFalse();
+    assertThat(interner.intern(value)).isSameAs(value);
+    assertThat(interner.intern(null)).isNull();
+  }
+}
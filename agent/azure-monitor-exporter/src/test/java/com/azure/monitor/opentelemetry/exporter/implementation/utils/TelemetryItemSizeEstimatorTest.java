@@ -0,0 +1,82 @@
+/*
+ * ApplicationInsights-Java
+ * Copyright (c) Microsoft Corporation
+ * All rights reserved.
+ *
+ * MIT License
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the ""Software""), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge,
+ * publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+ * FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package com.azure.monitor.opentelemetry.exporter.implementation.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MessageData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MonitorBase;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TelemetryItemSizeEstimatorTest {
+
+  @Test
+  void shouldGrowWithMessageAndProperties() {
+    long small = TelemetryItemSizeEstimator.estimate(createMessage("x", 0));
+    long longMessage = TelemetryItemSizeEstimator.estimate(createMessage(repeat('x', 10000), 0));
+    long manyProperties = TelemetryItemSizeEstimator.estimate(createMessage("x", 100));
+
+    assertThat(longMessage - small).isGreaterThanOrEqualTo(2 * 9999);
+    assertThat(manyProperties - small).isGreaterThanOrEqualTo(100 * 48);
+  }
+
+  @Test
+  void shouldBeDeterministic() {
+    TelemetryItem item = createMessage("a message", 10);
+
+    assertThat(TelemetryItemSizeEstimator.estimate(item))
+        .isEqualTo(TelemetryItemSizeEstimator.estimate(item));
+  }
+
+  @Test
+  void shouldEstimateMetrics() {
+    TelemetryItem item = TestUtils.createMetricTelemetry("metric", 1, "ikey");
+
+    assertThat(TelemetryItemSizeEstimator.estimate(item)).isGreaterThan(512);
+  }
+
+  private static TelemetryItem createMessage(String message, int propertyCount) {
+    MessageData data = new MessageData();
+    data.setMessage(message);
+    Map<String, String> properties = new HashMap<>();
+    for (int i = 0; i < propertyCount; i++) {
+      properties.put("key" + i, "value" + i);
+    }
+    data.setProperties(properties);
+    MonitorBase monitorBase = new MonitorBase();
+    monitorBase.setBaseData(data);
+    TelemetryItem item = new TelemetryItem();
+    item.setData(monitorBase);
+    return item;
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder sb = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+}
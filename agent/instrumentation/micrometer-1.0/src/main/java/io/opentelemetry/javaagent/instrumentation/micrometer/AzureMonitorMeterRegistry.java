@@ -37,6 +37,7 @@ import io.micrometer.core.instrument.TimeGauge;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.lang.Nullable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -46,9 +47,25 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
   public static final AzureMonitorMeterRegistry INSTANCE =
       new AzureMonitorMeterRegistry(Clock.SYSTEM);
 
+  // the name and properties only depend on the meter id, so they are converted once per meter
+  // instead of on every publish (only accessed from publish)
+  private final Map<Meter.Id, MeterTemplate> templates = new HashMap<>();
+  private long publishGeneration;
+  private long publishMillis;
+
+  private final boolean publishOnlyOnChange;
+  private final long heartbeatMillis;
+
   // visible for testing
   public AzureMonitorMeterRegistry(Clock clock) {
-    super(new AzureMonitorRegistryConfig(), clock);
+    this(new AzureMonitorRegistryConfig(), clock);
+  }
+
+  // visible for testing
+  public AzureMonitorMeterRegistry(AzureMonitorRegistryConfig config, Clock clock) {
+    super(config, clock);
+    publishOnlyOnChange = config.publishOnlyOnChange();
+    heartbeatMillis = config.heartbeat().toMillis();
     config().namingConvention(new AzureMonitorNamingConvention());
     start(new DaemonThreadFactory("azure-micrometer-publisher"));
   }
@@ -59,44 +76,94 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
   }
 
   @Override
-  protected void publish() {
+  protected synchronized void publish() {
+    long generation = ++publishGeneration;
+    publishMillis = clock.wallTime();
     for (Meter meter : getMeters()) {
+      MeterTemplate template = getTemplate(meter, generation);
       if (meter instanceof TimeGauge) {
-        trackTimeGauge((TimeGauge) meter);
+        trackTimeGauge((TimeGauge) meter, template);
       } else if (meter instanceof Gauge) {
-        trackGauge((Gauge) meter);
+        trackGauge((Gauge) meter, template);
       } else if (meter instanceof Counter) {
-        trackCounter((Counter) meter);
+        trackCounter((Counter) meter, template);
       } else if (meter instanceof Timer) {
-        trackTimer((Timer) meter);
+        trackTimer((Timer) meter, template);
       } else if (meter instanceof DistributionSummary) {
-        trackDistributionSummary((DistributionSummary) meter);
+        trackDistributionSummary((DistributionSummary) meter, template);
       } else if (meter instanceof LongTaskTimer) {
-        trackLongTaskTimer((LongTaskTimer) meter);
+        trackLongTaskTimer((LongTaskTimer) meter, template);
       } else if (meter instanceof FunctionCounter) {
-        trackFunctionCounter((FunctionCounter) meter);
+        trackFunctionCounter((FunctionCounter) meter, template);
       } else if (meter instanceof FunctionTimer) {
-        trackFunctionTimer((FunctionTimer) meter);
+        trackFunctionTimer((FunctionTimer) meter, template);
       } else {
-        trackMeter(meter);
+        trackMeter(meter, template);
       }
     }
+    // MeterRegistry.Config.onMeterRemoved() is not available in micrometer 1.0
+    templates.values().removeIf(template -> template.generation != generation);
   }
 
-  private void trackTimeGauge(TimeGauge gauge) {
-    trackMetric(
-        getName(gauge), gauge.value(getBaseTimeUnit()), null, null, null, getProperties(gauge));
+  // visible for testing
+  public synchronized int getTemplateCount() {
+    return templates.size();
   }
 
-  private void trackGauge(Gauge gauge) {
-    trackMetric(getName(gauge), gauge.value(), null, null, null, getProperties(gauge));
+  private MeterTemplate getTemplate(Meter meter, long generation) {
+    MeterTemplate template = templates.get(meter.getId());
+    if (template == null) {
+      template = new MeterTemplate(getName(meter, null), getProperties(meter));
+      templates.put(meter.getId(), template);
+    }
+    template.generation = generation;
+    return template;
   }
 
-  private void trackCounter(Counter counter) {
-    trackMetric(getName(counter), counter.count(), null, null, null, getProperties(counter));
+  // when only publishing on change, unchanged meters are still published once per heartbeat, so
+  // that they don't disappear from charts and alerts
+  private boolean shouldPublish(MeterTemplate template, boolean changed) {
+    if (!publishOnlyOnChange
+        || changed
+        || publishMillis - template.lastPublishMillis >= heartbeatMillis) {
+      template.lastPublishMillis = publishMillis;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean shouldPublishValue(MeterTemplate template, double value) {
+    boolean changed = Double.compare(value, template.lastValue) != 0;
+    template.lastValue = value;
+    return shouldPublish(template, changed);
+  }
+
+  private void trackTimeGauge(TimeGauge gauge, MeterTemplate template) {
+    double value = gauge.value(getBaseTimeUnit());
+    if (!shouldPublishValue(template, value)) {
+      return;
+    }
+    trackMetric(template.name, value, null, null, null, template.properties);
+  }
+
+  private void trackGauge(Gauge gauge, MeterTemplate template) {
+    double value = gauge.value();
+    if (!shouldPublishValue(template, value)) {
+      return;
+    }
+    trackMetric(template.name, value, null, null, null, template.properties);
   }
 
-  private void trackTimer(Timer timer) {
+  private void trackCounter(Counter counter, MeterTemplate template) {
+    // step counters report the count since the previous step
+    double count = counter.count();
+    if (!shouldPublish(template, count != 0)) {
+      return;
+    }
+    trackMetric(template.name, count, null, null, null, template.properties);
+  }
+
+  private void trackTimer(Timer timer, MeterTemplate template) {
     long count = timer.count();
     if (count == 0) {
       // important not to send explicit count of 0 because breeze converts that to 1
@@ -104,15 +171,15 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
     }
     // min is not supported, see https://github.com/micrometer-metrics/micrometer/issues/457
     trackMetric(
-        getName(timer),
+        template.name,
         timer.totalTime(getBaseTimeUnit()),
         castCountToInt(count),
         null,
         timer.max(getBaseTimeUnit()),
-        getProperties(timer));
+        template.properties);
   }
 
-  private void trackDistributionSummary(DistributionSummary summary) {
+  private void trackDistributionSummary(DistributionSummary summary, MeterTemplate template) {
     long count = summary.count();
     if (count == 0) {
       // important not to send explicit count of 0 because breeze converts that to 1
@@ -120,60 +187,81 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
     }
     // min is not supported, see https://github.com/micrometer-metrics/micrometer/issues/457
     trackMetric(
-        getName(summary),
+        template.name,
         summary.totalAmount(),
         castCountToInt(count),
         null,
         summary.max(),
-        getProperties(summary));
+        template.properties);
   }
 
-  private void trackLongTaskTimer(LongTaskTimer timer) {
-    Map<String, String> properties = getProperties(timer);
-    trackMetric(getName(timer, "active"), timer.activeTasks(), null, null, null, properties);
+  private void trackLongTaskTimer(LongTaskTimer timer, MeterTemplate template) {
+    int activeTasks = timer.activeTasks();
+    // the duration keeps changing while there are active tasks
+    boolean changed = activeTasks != 0 || Double.compare(activeTasks, template.lastValue) != 0;
+    template.lastValue = activeTasks;
+    if (!shouldPublish(template, changed)) {
+      return;
+    }
+    trackMetric(
+        getName(timer, template, "active"),
+        activeTasks,
+        null,
+        null,
+        null,
+        template.properties);
     trackMetric(
-        getName(timer, "duration"),
+        getName(timer, template, "duration"),
         timer.duration(getBaseTimeUnit()),
         null,
         null,
         null,
-        properties);
+        template.properties);
   }
 
-  private void trackFunctionCounter(FunctionCounter counter) {
-    trackMetric(getName(counter), counter.count(), null, null, null, getProperties(counter));
+  private void trackFunctionCounter(FunctionCounter counter, MeterTemplate template) {
+    // step function counters report the count since the previous step
+    double count = counter.count();
+    if (!shouldPublish(template, count != 0)) {
+      return;
+    }
+    trackMetric(template.name, count, null, null, null, template.properties);
   }
 
-  private void trackFunctionTimer(FunctionTimer timer) {
+  private void trackFunctionTimer(FunctionTimer timer, MeterTemplate template) {
     double count = timer.count();
     if (count == 0) {
       // important not to send explicit count of 0 because breeze converts that to 1
       return;
     }
     trackMetric(
-        getName(timer),
+        template.name,
         timer.totalTime(getBaseTimeUnit()),
         castCountToInt(count),
         null,
         null,
-        getProperties(timer));
+        template.properties);
   }
 
-  private void trackMeter(Meter meter) {
-    Map<String, String> properties = getProperties(meter);
+  private void trackMeter(Meter meter, MeterTemplate template) {
     for (Measurement measurement : meter.measure()) {
       trackMetric(
-          getName(meter, measurement.getStatistic().toString().toLowerCase()),
+          getName(meter, template, measurement.getStatistic().toString()),
           measurement.getValue(),
           null,
           null,
           null,
-          properties);
+          template.properties);
     }
   }
 
-  private String getName(Meter meter) {
-    return getName(meter, null);
+  private String getName(Meter meter, MeterTemplate template, String suffix) {
+    String name = template.suffixedNames.get(suffix);
+    if (name == null) {
+      name = getName(meter, suffix.toLowerCase());
+      template.suffixedNames.put(suffix, name);
+    }
+    return name;
   }
 
   private String getName(Meter meter, @Nullable String suffix) {
@@ -191,7 +279,7 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
     for (Tag tag : getConventionTags(meter.getId())) {
       properties.put(tag.getKey(), tag.getValue());
     }
-    return properties;
+    return Collections.unmodifiableMap(properties);
   }
 
   private static int castCountToInt(long count) {
@@ -201,4 +289,23 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
   private static int castCountToInt(double count) {
     return count < Integer.MAX_VALUE ? (int) count : Integer.MAX_VALUE;
   }
+
+  private static final class MeterTemplate {
+
+    private final String name;
+    // shared across publishes, so that it can also be cached downstream
+    private final Map<String, String> properties;
+    // e.g. the long task timer "active" and "duration" names
+    private final Map<String, String> suffixedNames = new HashMap<>();
+    // the last publish that included this meter
+    private long generation;
+    // used when only publishing on change
+    private double lastValue = Double.NaN;
+    private long lastPublishMillis;
+
+    private MeterTemplate(String name, Map<String, String> properties) {
+      this.name = name;
+      this.properties = properties;
+    }
+  }
 }
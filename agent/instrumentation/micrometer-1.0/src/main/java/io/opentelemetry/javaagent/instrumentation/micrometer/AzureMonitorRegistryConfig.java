@@ -28,9 +28,26 @@ import java.time.Duration;
 public class AzureMonitorRegistryConfig implements StepRegistryConfig {
 
   private final Duration step;
+  private final boolean publishOnlyOnChange;
+  private final Duration heartbeat;
 
   public AzureMonitorRegistryConfig() {
-    step = Config.get().getDuration("otel.micrometer.step.millis", Duration.ofSeconds(60));
+    this(Config.get());
+  }
+
+  private AzureMonitorRegistryConfig(Config config) {
+    this(
+        config.getDuration("otel.micrometer.step.millis", Duration.ofSeconds(60)),
+        config.getBoolean("otel.micrometer.publish-only-on-change", false),
+        config.getDuration("otel.micrometer.heartbeat.millis", Duration.ofMinutes(15)));
+  }
+
+  // visible for testing
+  public AzureMonitorRegistryConfig(
+      Duration step, boolean publishOnlyOnChange, Duration heartbeat) {
+    this.step = step;
+    this.publishOnlyOnChange = publishOnlyOnChange;
+    this.heartbeat = heartbeat;
   }
 
   @Override
@@ -47,4 +64,14 @@ public class AzureMonitorRegistryConfig implements StepRegistryConfig {
   public Duration step() {
     return step;
   }
+
+  // when enabled, counters and timers that recorded nothing and gauges whose value did not change
+  // since they were last published are skipped, except once per heartbeat
+  public boolean publishOnlyOnChange() {
+    return publishOnlyOnChange;
+  }
+
+  public Duration heartbeat() {
+    return heartbeat;
+  }
 }
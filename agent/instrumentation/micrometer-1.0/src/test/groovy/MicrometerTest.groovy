@@ -29,11 +29,14 @@ import io.micrometer.core.instrument.FunctionTimer
 import io.micrometer.core.instrument.Gauge
 import io.micrometer.core.instrument.LongTaskTimer
 import io.micrometer.core.instrument.Metrics
+import io.micrometer.core.instrument.MockClock
 import io.micrometer.core.instrument.TimeGauge
 import io.micrometer.core.instrument.Timer
 import io.opentelemetry.instrumentation.test.AgentInstrumentationSpecification
 import io.opentelemetry.javaagent.instrumentation.micrometer.AzureMonitorMeterRegistry
+import io.opentelemetry.javaagent.instrumentation.micrometer.AzureMonitorRegistryConfig
 
+import java.time.Duration
 import java.util.concurrent.Executors
 import java.util.stream.Collectors
 
@@ -224,6 +227,145 @@ class MicrometerTest extends AgentInstrumentationSpecification {
     measurement.max == null
   }
 
+  def "should reuse properties map across publishes"() {
+    setup:
+    def registry = new AzureMonitorMeterRegistry(new MockClock())
+    Gauge.builder("test-template-gauge", { 1 }).tag("tag", "value").register(registry)
+
+    when:
+    registry.publish()
+    registry.publish()
+
+    then:
+    def measurements = getMeasurements("test-template-gauge")
+    measurements.size() >= 2
+    measurements[0].properties == [tag: "value"]
+    measurements.every { it.properties.is(measurements[0].properties) }
+
+    cleanup:
+    registry.stop()
+  }
+
+  def "should remove templates of removed meters"() {
+    setup:
+    def registry = new AzureMonitorMeterRegistry(new MockClock())
+    def gauge = Gauge.builder("test-removed-gauge", { 1 }).register(registry)
+    Counter.builder("test-kept-counter").register(registry)
+
+    when:
+    registry.publish()
+
+    then:
+    registry.getTemplateCount() == 2
+
+    when:
+    registry.remove(gauge)
+    registry.publish()
+
+    then:
+    registry.getTemplateCount() == 1
+
+    cleanup:
+    registry.stop()
+  }
+
+  def "should skip idle counters until heartbeat when only publishing on change"() {
+    setup:
+    def clock = new MockClock()
+    def registry = new AzureMonitorMeterRegistry(
+      new AzureMonitorRegistryConfig(Duration.ofMinutes(1), true, Duration.ofMinutes(5)), clock)
+    def counter = Counter.builder("test-idle-counter").register(registry)
+
+    when:
+    counter.increment(2)
+    clock.add(Duration.ofMinutes(1))
+    registry.publish()
+
+    then:
+    getMeasurements("test-idle-counter")*.value == [2d]
+
+    when: "nothing was recorded during the step"
+    clock.add(Duration.ofMinutes(1))
+    registry.publish()
+
+    then:
+    getMeasurements("test-idle-counter")*.value == [2d]
+
+    when: "the heartbeat has passed since the last publish"
+    clock.add(Duration.ofMinutes(4))
+    registry.publish()
+
+    then:
+    getMeasurements("test-idle-counter")*.value == [2d, 0d]
+
+    cleanup:
+    registry.stop()
+  }
+
+  def "should skip unchanged gauges until heartbeat when only publishing on change"() {
+    setup:
+    def clock = new MockClock()
+    def registry = new AzureMonitorMeterRegistry(
+      new AzureMonitorRegistryConfig(Duration.ofMinutes(1), true, Duration.ofMinutes(5)), clock)
+    def value = 1d
+    Gauge.builder("test-unchanged-gauge", { value }).register(registry)
+
+    when:
+    registry.publish()
+    clock.add(Duration.ofMinutes(1))
+    registry.publish()
+
+    then:
+    getMeasurements("test-unchanged-gauge")*.value == [1d]
+
+    when:
+    value = 2d
+    clock.add(Duration.ofMinutes(1))
+    registry.publish()
+    clock.add(Duration.ofMinutes(1))
+    registry.publish()
+
+    then:
+    getMeasurements("test-unchanged-gauge")*.value == [1d, 2d]
+
+    when: "the heartbeat has passed since the last publish"
+    clock.add(Duration.ofMinutes(4))
+    registry.publish()
+
+    then:
+    getMeasurements("test-unchanged-gauge")*.value == [1d, 2d, 2d]
+
+    cleanup:
+    registry.stop()
+  }
+
+  def "should publish idle counters and unchanged gauges by default"() {
+    setup:
+    def clock = new MockClock()
+    def registry = new AzureMonitorMeterRegistry(
+      new AzureMonitorRegistryConfig(Duration.ofMinutes(1), false, Duration.ofMinutes(5)), clock)
+    Counter.builder("test-default-counter").register(registry)
+    Gauge.builder("test-default-gauge", { 3 }).register(registry)
+
+    when:
+    registry.publish()
+    clock.add(Duration.ofMinutes(1))
+    registry.publish()
+
+    then:
+    getMeasurements("test-default-counter")*.value == [0d, 0d]
+    getMeasurements("test-default-gauge")*.value == [3d, 3d]
+
+    cleanup:
+    registry.stop()
+  }
+
+  List<AgentTestingMicrometerDelegate.Measurement> getMeasurements(String name) {
+    return delegate.getMeasurements().stream()
+      .filter({ it.name == name })
+      .collect(Collectors.toList())
+  }
+
   AgentTestingMicrometerDelegate.Measurement getLastMeasurement(String name) {
     def measurements = delegate.getMeasurements().stream()
       .filter({ it.name == name && it.value != 0 })